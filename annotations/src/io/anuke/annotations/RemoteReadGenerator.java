@@ -43,13 +43,15 @@ public class RemoteReadGenerator{
                 .addParameter(int.class, "id") //ID of method type to read
                 .returns(void.class);
 
+        TypeName playerType = null;
+
         if(needsPlayer){
             //since the player type isn't loaded yet, creating a type def is necessary
             //this requires reflection since the TypeName constructor is private for some reason
             Constructor<TypeName> cons = TypeName.class.getDeclaredConstructor(String.class);
             cons.setAccessible(true);
 
-            TypeName playerType = cons.newInstance("io.anuke.mindustry.entities.Player");
+            playerType = cons.newInstance("io.anuke.mindustry.entities.Player");
             //add player parameter
             readMethod.addParameter(playerType, "player");
         }
@@ -139,6 +141,27 @@ public class RemoteReadGenerator{
         readMethod.addCode(readBlock.build());
         classBuilder.addMethod(readMethod.build());
 
+        //create method for reading frames of calls that were sent together
+        MethodSpec.Builder frameMethod = MethodSpec.methodBuilder("readFrame")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(ByteBuffer.class, "buffer") //buffer to read from
+                .returns(void.class);
+
+        if(needsPlayer){
+            frameMethod.addParameter(playerType, "player");
+        }
+
+        //each call is its ID and length, followed by its parameters; the length is used to skip to the next call
+        frameMethod.beginControlFlow("while(buffer.hasRemaining())");
+        frameMethod.addStatement("byte id = buffer.get()");
+        frameMethod.addStatement("int length = buffer.getShort()");
+        frameMethod.addStatement("int end = buffer.position() + length");
+        frameMethod.addStatement("readPacket(buffer, id" + (needsPlayer ? ", player" : "") + ")");
+        frameMethod.addStatement("buffer.position(end)");
+        frameMethod.endControlFlow();
+
+        classBuilder.addMethod(frameMethod.build());
+
         //build and write resulting class
         TypeSpec spec = classBuilder.build();
         JavaFile.builder(packageName, spec).build().writeTo(Utils.filer);
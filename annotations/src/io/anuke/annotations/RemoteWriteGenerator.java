@@ -2,6 +2,7 @@ package io.anuke.annotations;
 
 import com.squareup.javapoet.*;
 import io.anuke.annotations.Annotations.Loc;
+import io.anuke.annotations.Annotations.PacketPriority;
 import io.anuke.annotations.IOFinder.ClassSerializer;
 
 import javax.lang.model.element.ExecutableElement;
@@ -128,14 +129,6 @@ public class RemoteWriteGenerator{
         //start control flow to check if it's actually client/server so no netcode is called
         method.beginControlFlow("if(" + getCheckString(methodEntry.where) + ")");
 
-        //add statement to create packet from pool
-        method.addStatement("$1N packet = $2N.obtain($1N.class, $1N::new)", "io.anuke.mindustry.net.Packets.InvokePacket", "io.anuke.ucore.util.Pooling");
-        //assign buffer
-        method.addStatement("packet.writeBuffer = TEMP_BUFFER");
-        //assign priority
-        method.addStatement("packet.priority = (byte)" + methodEntry.priority.ordinal());
-        //assign method ID
-        method.addStatement("packet.type = (byte)" + methodEntry.id);
         //rewind buffer
         method.addStatement("TEMP_BUFFER.position(0)");
 
@@ -189,6 +182,64 @@ public class RemoteWriteGenerator{
             }
         }
 
+        //reliable calls of normal priority are batched when sent from the server; clients still send them right away
+        if(isBatched(methodEntry)){
+            if(methodEntry.where.isClient){
+                method.beginControlFlow("if(io.anuke.mindustry.net.Net.server())");
+            }
+
+            writeBatch(method, methodEntry, toAll, forwarded);
+
+            if(methodEntry.where.isClient){
+                method.nextControlFlow("else");
+                writeSend(method, methodEntry, toAll, forwarded);
+                method.endControlFlow();
+            }
+        }else{
+            writeSend(method, methodEntry, toAll, forwarded);
+        }
+
+        //end check for server/client
+        method.endControlFlow();
+
+        //add method to class, finally
+        classBuilder.addMethod(method.build());
+    }
+
+    /** Returns whether calls to this method are added to a frame on the server, instead of being sent as their own packet. */
+    private boolean isBatched(MethodEntry methodEntry){
+        return methodEntry.where.isServer && !methodEntry.unreliable && methodEntry.priority == PacketPriority.normal;
+    }
+
+    /** Adds the statement that adds the written call to the frames of its targets. */
+    private void writeBatch(MethodSpec.Builder method, MethodEntry methodEntry, boolean toAll, boolean forwarded){
+        String batchString;
+
+        if(forwarded){ //forward call
+            if(!methodEntry.local.isClient){ //if the client doesn't get it called locally, forward it back after validation
+                batchString = "batch(";
+            }else{
+                batchString = "batchExcept(exceptSenderID, ";
+            }
+        }else if(toAll){ //send to all players
+            batchString = "batch(";
+        }else{ //send to specific client
+            batchString = "batchTo(playerClientID, ";
+        }
+
+        method.addStatement("io.anuke.mindustry.net.Net." + batchString + "(byte)" + methodEntry.id + ", TEMP_BUFFER, TEMP_BUFFER.position())");
+    }
+
+    /** Adds the statements that wrap the written call in a packet and send it. */
+    private void writeSend(MethodSpec.Builder method, MethodEntry methodEntry, boolean toAll, boolean forwarded){
+        //add statement to create packet from pool
+        method.addStatement("$1N packet = $2N.obtain($1N.class, $1N::new)", "io.anuke.mindustry.net.Packets.InvokePacket", "io.anuke.ucore.util.Pooling");
+        //assign buffer
+        method.addStatement("packet.writeBuffer = TEMP_BUFFER");
+        //assign priority
+        method.addStatement("packet.priority = (byte)" + methodEntry.priority.ordinal());
+        //assign method ID
+        method.addStatement("packet.type = (byte)" + methodEntry.id);
         //assign packet length
         method.addStatement("packet.writeLength = TEMP_BUFFER.position()");
 
@@ -209,13 +260,6 @@ public class RemoteWriteGenerator{
         //send the actual packet
         method.addStatement("io.anuke.mindustry.net.Net." + sendString + "packet, " +
                 (methodEntry.unreliable ? "io.anuke.mindustry.net.Net.SendMode.udp" : "io.anuke.mindustry.net.Net.SendMode.tcp") + ")");
-
-
-        //end check for server/client
-        method.endControlFlow();
-
-        //add method to class, finally
-        classBuilder.addMethod(method.build());
     }
 
     private String getCheckString(Loc loc){
@@ -5,15 +5,14 @@ import com.badlogic.gdx.utils.*;
 import io.anuke.mindustry.content.Items;
 import io.anuke.mindustry.content.blocks.Blocks;
 import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.game.EventType.RegionLoadEvent;
 import io.anuke.mindustry.game.EventType.TileChangeEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadEvent;
 import io.anuke.mindustry.game.Team;
-import io.anuke.mindustry.game.Teams.TeamData;
 import io.anuke.mindustry.type.Item;
 import io.anuke.mindustry.world.Tile;
 import io.anuke.mindustry.world.meta.BlockFlag;
 import io.anuke.ucore.core.Events;
-import io.anuke.ucore.entities.trait.Entity;
 import io.anuke.ucore.function.Predicate;
 import io.anuke.ucore.util.EnumSet;
 import io.anuke.ucore.util.Geometry;
@@ -22,23 +21,25 @@ import io.anuke.ucore.util.ThreadArray;
 
 import static io.anuke.mindustry.Vars.*;
 
-//TODO consider using quadtrees for finding specific types of blocks within an area
 //TODO maybe use Arrays instead of ObjectSets?
 
 /**Class used for indexing special target blocks for AI.*/
 public class BlockIndexer{
     /**Size of one ore quadrant.*/
     private final static int oreQuadrantSize = 20;
-    /**Size of one structure quadrant.*/
-    private final static int structQuadrantSize = 12;
+    private final static Predicate<Tile> anyTile = tile -> true;
 
     /**Set of all ores that are being scanned.*/
     private final ObjectSet<Item> scanOres = ObjectSet.with(Items.copper, Items.coal, Items.lead, Items.thorium, Items.titanium);
     private final ObjectSet<Item> itemSet = new ObjectSet<>();
     /**Stores all ore quadtrants on the map.*/
     private ObjectMap<Item, ObjectSet<Tile>> ores;
-    /**Tags all quadrants.*/
-    private Bits[] structQuadrants;
+    /**Grid of all targetable tiles with entities, per team.*/
+    private TileGrid[] structures = new TileGrid[Team.all.length];
+    /**Grid of flagged tiles, per team and flag.*/
+    private TileGrid[][] flagGrids = new TileGrid[Team.all.length][BlockFlag.all.length];
+    /**Team each tile is indexed as a structure under, or -1. Indexed by packed position.*/
+    private byte[] structureTeams = {};
 
     /**Maps teams to a map of flagged tiles by type.*/
     private ObjectSet<Tile>[][] flagMap = new ObjectSet[Team.all.length][BlockFlag.all.length];
@@ -50,15 +51,23 @@ public class BlockIndexer{
     private Array<Tile> returnArray = new ThreadArray<>();
 
     public BlockIndexer(){
-        Events.on(TileChangeEvent.class, event -> {
-            if(typeMap.get(event.tile.packedPosition()) != null){
-                TileIndex index = typeMap.get(event.tile.packedPosition());
-                for(BlockFlag flag : index.flags){
-                    getFlagged(index.team)[flag.ordinal()].remove(event.tile);
+        for(int i = 0; i < Team.all.length; i++){
+            byte team = (byte) i;
+            //tile changes are indexed when their event fires, so skip tiles that have changed since
+            structures[i] = new TileGrid(tile -> tile.entity != null && tile.getTeamID() == team && tile.block().targetable);
+            for(int j = 0; j < BlockFlag.all.length; j++){
+                flagGrids[i][j] = new TileGrid(anyTile);
+            }
+        }
+
+        Events.on(TileChangeEvent.class, event -> reindex(event.tile));
+
+        Events.on(RegionLoadEvent.class, event -> {
+            for(int x = event.x; x < event.x + event.width; x++){
+                for(int y = event.y; y < event.y + event.height; y++){
+                    reindex(world.tile(x, y));
                 }
             }
-            process(event.tile);
-            updateQuadrant(event.tile);
         });
 
         Events.on(WorldLoadEvent.class, event -> {
@@ -71,21 +80,20 @@ public class BlockIndexer{
             typeMap.clear();
             ores = null;
 
-            //create bitset for each team type that contains each quadrant
-            structQuadrants = new Bits[Team.all.length];
             for(int i = 0; i < Team.all.length; i++){
-                structQuadrants[i] = new Bits(Mathf.ceil(world.width() / (float) structQuadrantSize) * Mathf.ceil(world.height() / (float) structQuadrantSize));
+                structures[i].resize(world.width(), world.height());
+                for(int j = 0; j < BlockFlag.all.length; j++){
+                    flagGrids[i][j].resize(world.width(), world.height());
+                }
             }
 
+            structureTeams = new byte[world.width() * world.height()];
+            Arrays.fill(structureTeams, (byte) -1);
+
             for(int x = 0; x < world.width(); x++){
                 for(int y = 0; y < world.height(); y++){
                     process(world.tile(x, y));
-                }
-            }
-
-            for(int x = 0; x < quadWidth(); x++){
-                for(int y = 0; y < quadHeight(); y++){
-                    updateQuadrant(world.tile(x * structQuadrantSize, y * structQuadrantSize));
+                    updateStructure(world.tile(x, y));
                 }
             }
 
@@ -93,6 +101,18 @@ public class BlockIndexer{
         });
     }
 
+    private void reindex(Tile tile){
+        if(typeMap.get(tile.packedPosition()) != null){
+            TileIndex index = typeMap.remove(tile.packedPosition());
+            for(BlockFlag flag : index.flags){
+                getFlagged(index.team)[flag.ordinal()].remove(index.tile);
+                flagGrids[index.team.ordinal()][flag.ordinal()].remove(index.tile);
+            }
+        }
+        process(tile);
+        updateStructure(tile);
+    }
+
     private ObjectSet<Tile>[] getFlagged(Team team){
         return flagMap[team.ordinal()];
     }
@@ -102,47 +122,57 @@ public class BlockIndexer{
         return flagMap[team.ordinal()][type.ordinal()];
     }
 
-    /**Get all enemy blocks with a flag.*/
-    public Array<Tile> getEnemy(Team team, BlockFlag type){
-        returnArray.clear();
-        for(Team enemy : state.teams.enemiesOf(team)){
-            if(state.teams.isActive(enemy)){
-                for(Tile tile : getFlagged(enemy)[type.ordinal()]){
-                    returnArray.add(tile);
-                }
-            }
-        }
-        return returnArray;
+    /**Returns the closest allied block with a flag, or null.*/
+    public Tile findClosestAllied(Team team, BlockFlag type, float x, float y){
+        return flagGrids[team.ordinal()][type.ordinal()].findClosest(x, y, Float.MAX_VALUE, anyTile);
     }
 
-    public TileEntity findTile(Team team, float x, float y, float range, Predicate<Tile> pred){
-        Entity closest = null;
-        float dst = 0;
-
-        for(int rx = Math.max((int) ((x - range) / tilesize / structQuadrantSize), 0); rx <= (int) ((x + range) / tilesize / structQuadrantSize) && rx < quadWidth(); rx++){
-            for(int ry = Math.max((int) ((y - range) / tilesize / structQuadrantSize), 0); ry <= (int) ((y + range) / tilesize / structQuadrantSize) && ry < quadHeight(); ry++){
+    /**Returns the closest enemy block with a flag, or null. Unlike {@link #getEnemy(Team, BlockFlag)}, this does not copy anything.*/
+    public Tile findClosestEnemy(Team team, BlockFlag type, float x, float y){
+        Tile closest = null;
+        float cdist = 0f;
 
-                if(!getQuad(team, rx, ry)) continue;
+        for(Team enemy : Team.all){
+            if(!state.teams.areEnemies(team, enemy) || !state.teams.isActive(enemy)) continue;
 
-                for(int tx = rx * structQuadrantSize; tx < (rx + 1) * structQuadrantSize && tx < world.width(); tx++){
-                    for(int ty = ry * structQuadrantSize; ty < (ry + 1) * structQuadrantSize && ty < world.height(); ty++){
-                        Tile other = world.tile(tx, ty);
+            Tile tile = flagGrids[enemy.ordinal()][type.ordinal()].findClosest(x, y, Float.MAX_VALUE, anyTile);
+            if(tile != null){
+                float dst = Vector2.dst(x, y, tile.drawx(), tile.drawy());
+                if(closest == null || dst < cdist){
+                    closest = tile;
+                    cdist = dst;
+                }
+            }
+        }
 
-                        if(other == null || other.entity == null || other.getTeam() != team || !pred.test(other) || !other.block().targetable) continue;
+        return closest;
+    }
 
-                        TileEntity e = other.entity;
+    /**Returns the grid of all targetable blocks with entities that belong to a team, for range and nearest-k queries.*/
+    public TileGrid getStructures(Team team){
+        return structures[team.ordinal()];
+    }
 
-                        float ndst = Vector2.dst(x, y, e.x, e.y);
-                        if(ndst < range && (closest == null || ndst < dst)){
-                            dst = ndst;
-                            closest = e;
-                        }
-                    }
+    /**
+     * Get all enemy blocks with a flag. The same array is returned by every call, so it must not be kept.
+     * Teams are gone through by index, as iterating the set of enemies would allocate an iterator on every call.
+     */
+    public Array<Tile> getEnemy(Team team, BlockFlag type){
+        returnArray.clear();
+        for(Team enemy : Team.all){
+            if(state.teams.areEnemies(team, enemy) && state.teams.isActive(enemy)){
+                for(Tile tile : getFlagged(enemy)[type.ordinal()]){
+                    returnArray.add(tile);
                 }
             }
         }
+        return returnArray;
+    }
 
-        return (TileEntity) closest;
+    /**Returns the entity of the closest targetable block of a team strictly within range that matches the predicate, or null.*/
+    public TileEntity findTile(Team team, float x, float y, float range, Predicate<Tile> pred){
+        Tile closest = structures[team.ordinal()].findClosest(x, y, range, pred);
+        return closest == null ? null : closest.entity;
     }
 
     /**
@@ -187,8 +217,9 @@ public class BlockIndexer{
                 arr.add(tile);
 
                 map[flag.ordinal()] = arr;
+                flagGrids[tile.getTeamID()][flag.ordinal()].add(tile);
             }
-            typeMap.put(tile.packedPosition(), new TileIndex(tile.block().flags, tile.getTeam()));
+            typeMap.put(tile.packedPosition(), new TileIndex(tile.block().flags, tile.getTeam(), tile));
         }
 
         if(ores == null) return;
@@ -201,8 +232,8 @@ public class BlockIndexer{
                 Mathf.clamp(quadrantY * oreQuadrantSize + oreQuadrantSize / 2, 0, world.height() - 1));
 
         //find all items that this quadrant contains
-        for(int x = quadrantX * structQuadrantSize; x < world.width() && x < (quadrantX + 1) * structQuadrantSize; x++){
-            for(int y = quadrantY * structQuadrantSize; y < world.height() && y < (quadrantY + 1) * structQuadrantSize; y++){
+        for(int x = quadrantX * oreQuadrantSize; x < world.width() && x < (quadrantX + 1) * oreQuadrantSize; x++){
+            for(int y = quadrantY * oreQuadrantSize; y < world.height() && y < (quadrantY + 1) * oreQuadrantSize; y++){
                 Tile result = world.tile(x, y);
                 if(result.block().drops == null || !scanOres.contains(result.block().drops.item)) continue;
 
@@ -223,48 +254,18 @@ public class BlockIndexer{
         }
     }
 
-    private void updateQuadrant(Tile tile){
-        //this quadrant is now 'dirty', re-scan the whole thing
-        int quadrantX = tile.x / structQuadrantSize;
-        int quadrantY = tile.y / structQuadrantSize;
-        int index = quadrantX + quadrantY * quadWidth();
-
-        for(Team team : Team.all){
-            TeamData data = state.teams.get(team);
-
-            //fast-set this quadrant to 'occupied' if the tile just placed is already of this team
-            if(tile.getTeam() == data.team && tile.entity != null && tile.block().targetable){
-                structQuadrants[data.team.ordinal()].set(index);
-                continue; //no need to process futher
-            }
+    private void updateStructure(Tile tile){
+        int pos = tile.packedPosition();
 
-            structQuadrants[data.team.ordinal()].clear(index);
-
-            outer:
-            for(int x = quadrantX * structQuadrantSize; x < world.width() && x < (quadrantX + 1) * structQuadrantSize; x++){
-                for(int y = quadrantY * structQuadrantSize; y < world.height() && y < (quadrantY + 1) * structQuadrantSize; y++){
-                    Tile result = world.tile(x, y);
-                    //when a targetable block is found, mark this quadrant as occupied and stop searching
-                    if(result.entity != null && result.getTeam() == data.team){
-                        structQuadrants[data.team.ordinal()].set(index);
-                        break outer;
-                    }
-                }
-            }
+        if(structureTeams[pos] != -1){
+            structures[structureTeams[pos]].remove(tile);
+            structureTeams[pos] = -1;
         }
-    }
-
-    private boolean getQuad(Team team, int quadrantX, int quadrantY){
-        int index = quadrantX + quadrantY * Mathf.ceil(world.width() / (float) structQuadrantSize);
-        return structQuadrants[team.ordinal()].get(index);
-    }
 
-    private int quadWidth(){
-        return Mathf.ceil(world.width() / (float) structQuadrantSize);
-    }
-
-    private int quadHeight(){
-        return Mathf.ceil(world.height() / (float) structQuadrantSize);
+        if(tile.entity != null && tile.block().targetable && tile.getTeam() != Team.none){
+            structures[tile.getTeamID()].add(tile);
+            structureTeams[pos] = tile.getTeamID();
+        }
     }
 
     private void scanOres(){
@@ -296,10 +297,13 @@ public class BlockIndexer{
     private class TileIndex{
         public final EnumSet<BlockFlag> flags;
         public final Team team;
+        /**The tile that was indexed, which is not the tile at its position anymore once a region replaces it.*/
+        public final Tile tile;
 
-        public TileIndex(EnumSet<BlockFlag> flags, Team team){
+        public TileIndex(EnumSet<BlockFlag> flags, Team team, Tile tile){
             this.flags = flags;
             this.team = team;
+            this.tile = tile;
         }
     }
 }
@@ -0,0 +1,110 @@
+package io.anuke.mindustry.ai;
+
+/**
+ * A resizable, ordered array of primitive ints, backed by a ring buffer.
+ * Functions like a libGDX Queue, but does not box values or hold object references.
+ */
+public class IntQueue{
+    private int[] values;
+    private int head = 0;
+    private int tail = 0;
+    public int size = 0;
+
+    public IntQueue(){
+        this(16);
+    }
+
+    public IntQueue(int initialSize){
+        values = new int[Math.max(initialSize, 1)];
+    }
+
+    /** Append the given value to the tail of the queue. */
+    public void addLast(int value){
+        if(size == values.length){
+            resize(values.length << 1);
+        }
+
+        values[tail++] = value;
+        if(tail == values.length){
+            tail = 0;
+        }
+        size++;
+    }
+
+    /** Prepend the given value to the head of the queue. */
+    public void addFirst(int value){
+        if(size == values.length){
+            resize(values.length << 1);
+        }
+
+        head--;
+        if(head == -1){
+            head = values.length - 1;
+        }
+        values[head] = value;
+        size++;
+    }
+
+    /** Remove the first item from the queue. Throws an exception if the queue is empty. */
+    public int removeFirst(){
+        if(size == 0){
+            throw new IllegalStateException("Queue is empty.");
+        }
+
+        int result = values[head];
+        head++;
+        if(head == values.length){
+            head = 0;
+        }
+        size--;
+        return result;
+    }
+
+    /** Remove the last item from the queue. Throws an exception if the queue is empty. */
+    public int removeLast(){
+        if(size == 0){
+            throw new IllegalStateException("Queue is empty.");
+        }
+
+        tail--;
+        if(tail == -1){
+            tail = values.length - 1;
+        }
+        size--;
+        return values[tail];
+    }
+
+    /** Increases the size of the backing array to accommodate the specified number of additional items. */
+    public void ensureCapacity(int additional){
+        int needed = size + additional;
+        if(values.length < needed){
+            resize(needed);
+        }
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public void clear(){
+        head = 0;
+        tail = 0;
+        size = 0;
+    }
+
+    private void resize(int newSize){
+        int[] newArray = new int[newSize];
+        if(head < tail){
+            System.arraycopy(values, head, newArray, 0, tail - head);
+        }else if(size > 0){
+            System.arraycopy(values, head, newArray, 0, values.length - head);
+            System.arraycopy(values, 0, newArray, values.length - head, tail);
+        }
+        values = newArray;
+        head = 0;
+        tail = size;
+        if(tail == newSize){
+            tail = 0;
+        }
+    }
+}
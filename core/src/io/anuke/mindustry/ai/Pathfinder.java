@@ -1,61 +1,151 @@
 package io.anuke.mindustry.ai;
 
 import com.badlogic.gdx.math.GridPoint2;
-import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
 import com.badlogic.gdx.utils.IntArray;
-import com.badlogic.gdx.utils.Queue;
 import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
 import io.anuke.mindustry.game.EventType.TileChangeEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadEvent;
 import io.anuke.mindustry.game.Team;
-import io.anuke.mindustry.game.Teams.TeamData;
 import io.anuke.mindustry.net.Net;
 import io.anuke.mindustry.world.Tile;
 import io.anuke.mindustry.world.meta.BlockFlag;
 import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.util.Geometry;
+import io.anuke.ucore.util.Log;
+
+import java.util.Arrays;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Maintains one flow field per active team, pointing towards enemy target blocks.
+ * Fields are stored in flat arrays indexed by packed tile position.
+ * Tile changes are repaired locally instead of restarting the search from every target.
+ * <p>
+ * When threaded, each team's field is computed on a worker thread into a private buffer.
+ * Finished fields are copied into one of two preallocated arrays, which is then swapped with the published one,
+ * so readers never wait on pathing. Readers only use a published array within one tick, so an array that was swapped
+ * out is only written to again once the logic thread has started a new tick.
+ * Workers never read tiles: the state of each tile that pathing depends on is packed into an int by the logic thread,
+ * which updates it before handing the change to the workers.
+ */
+public class Pathfinder{
+    /**Fraction of the map that an increased cost may invalidate before the whole field is rebuilt instead.*/
+    private static final float maxRepairFraction = 1f / 8f;
+    /**Lowest amount of tiles that a single repair may invalidate.*/
+    private static final int minRepairTiles = 1024;
 
-import static io.anuke.mindustry.Vars.state;
-import static io.anuke.mindustry.Vars.world;
+    //layout of packed tile state: cost in the low byte, then flags, then the team of the tile and of the block it belongs to
+    private static final int costMask = 0xff, openBit = 1 << 8, breakableBit = 1 << 9, targetBit = 1 << 10;
+    private static final int teamShift = 12, blockTeamShift = 16, teamMask = 0xf;
 
-public class Pathfinder{
     private long maxUpdate = TimeUtils.millisToNanos(4);
     private PathData[] paths;
-    private IntArray blocked = new IntArray();
+    private AsyncExecutor executor;
+    private boolean threaded;
+    /**Ticks the logic thread has started, which tells workers when a swapped out field is no longer being read.*/
+    private volatile int frame;
 
     public Pathfinder(){
         Events.on(WorldLoadEvent.class, event -> clear());
         Events.on(TileChangeEvent.class, event -> {
             if(Net.client()) return;
 
-            for(Team team : Team.all){
-                TeamData data = state.teams.get(team);
-                if(state.teams.isActive(team) && data.team != event.tile.getTeam() && paths[data.team.ordinal()].weights[event.tile.x][event.tile.y] >= Float.MAX_VALUE){
-                    update(event.tile, data.team);
-                }
-            }
-
-            update(event.tile, event.tile.getTeam());
+            updateTile(event.tile);
         });
     }
 
+    /**
+     * Sets whether flow fields are computed on worker threads, one per team.
+     * If a world is loaded, all fields are rebuilt in the new mode.
+     */
+    public void setThreaded(boolean threaded){
+        if(this.threaded == threaded) return;
+
+        this.threaded = threaded;
+
+        if(threaded){
+            executor = new AsyncExecutor(Team.all.length);
+        }else{
+            dispose();
+            executor.dispose();
+            executor = null;
+        }
+
+        if(paths != null){
+            clear();
+        }
+    }
+
+    public boolean isThreaded(){
+        return threaded;
+    }
+
     public void update(){
-        if(Net.client()) return;
+        if(Net.client() || paths == null) return;
+
+        frame++;
+        updateTeams();
+
+        if(threaded) return;
+
+        for(Team team : Team.all){
+            if(state.teams.isActive(team)){
+                updateFrontier(paths[team.ordinal()], maxUpdate);
+            }
+        }
+    }
+
+    /**
+     * Runs the frontier of every active team to completion, ignoring the time budget.
+     * Does nothing when threaded, as workers always run to completion.
+     */
+    public void updateAll(){
+        if(paths == null || threaded) return;
+
+        for(Team team : Team.all){
+            if(state.teams.isActive(team)){
+                updateFrontier(paths[team.ordinal()], -1);
+            }
+        }
+    }
+
+    /**Repairs the flow field of every active team around a tile that has changed.*/
+    public void updateTile(Tile tile){
+        if(paths == null) return;
+
+        //every field shares the same tile state; it is updated before any worker is told about the change
+        int pos = tile.x + tile.y * world.width();
+        if(pos < paths[0].tiles.length) paths[0].tiles[pos] = pack(tile);
 
         for(Team team : Team.all){
             if(state.teams.isActive(team)){
-                updateFrontier(team, maxUpdate);
+                PathData path = paths[team.ordinal()];
+
+                if(threaded){
+                    synchronized(path.changes){
+                        path.changes.add(pos);
+                    }
+                    schedule(path);
+                }else{
+                    repair(path, pos);
+                }
             }
         }
     }
 
     public Tile getTargetTile(Team team, Tile tile){
-        float[][] values = paths[team.ordinal()].weights;
+        if(paths == null || tile == null) return tile;
+
+        float[] values = paths[team.ordinal()].published;
+        int width = world.width();
 
-        if(values == null || tile == null) return tile;
+        if(values.length != width * world.height()) return tile;
 
-        float value = values[tile.x][tile.y];
+        float value = values[tile.x + tile.y * width];
 
         Tile target = null;
         float tl = 0f;
@@ -65,11 +155,13 @@ public class Pathfinder{
             Tile other = world.tile(dx, dy);
             if(other == null) continue;
 
-            if(values[dx][dy] < value && (target == null || values[dx][dy] < tl) &&
+            float otherValue = values[dx + dy * width];
+
+            if(otherValue < value && (target == null || otherValue < tl) &&
                     !other.solid() &&
                     !(point.x != 0 && point.y != 0 && (world.solid(tile.x + point.x, tile.y) || world.solid(tile.x, tile.y + point.y)))){ //diagonal corner trap
                 target = other;
-                tl = values[dx][dy];
+                tl = otherValue;
             }
         }
 
@@ -79,122 +171,424 @@ public class Pathfinder{
     }
 
     public float getDebugValue(int x, int y){
-        return paths[Team.blue.ordinal()].weights[x][y];
+        return paths[Team.blue.ordinal()].published[world.toPacked(x, y)];
     }
 
     public float getValueforTeam(Team team, int x, int y){
-        return paths == null || team.ordinal() >= paths.length ? 0 : paths[team.ordinal()].weights[x][y];
+        return paths == null || team.ordinal() >= paths.length ? 0 : paths[team.ordinal()].published[world.toPacked(x, y)];
+    }
+
+    /**Packs the state of a tile that pathing depends on into an int. Must be called from the logic thread.*/
+    private static int pack(Tile tile){
+        int packed = tile.cost & costMask;
+        if(!tile.solid() && !tile.floor().isLiquid) packed |= openBit;
+        if(tile.breakable()) packed |= breakableBit;
+        if(tile.block().flags != null && tile.block().flags.contains(BlockFlag.target)) packed |= targetBit;
+        return packed | (tile.getTeam().ordinal() << teamShift) | (tile.target().getTeam().ordinal() << blockTeamShift);
+    }
+
+    private static float cost(int packed){
+        return (packed & costMask) / 2f;
+    }
+
+    private boolean passable(int packed, PathData path){
+        return (packed & openBit) != 0
+                || ((packed & breakableBit) != 0 && ((packed >>> blockTeamShift) & teamMask) != path.team.ordinal());
     }
 
-    private boolean passable(Tile tile, Team team){
-        return (!tile.solid() && !(tile.floor().isLiquid))
-                || (tile.breakable() && (tile.target().getTeam() != team));
+    private boolean isTarget(int packed, PathData path){
+        return (packed & targetBit) != 0 && path.enemies[(packed >>> teamShift) & teamMask];
     }
 
-    private void update(Tile tile, Team team){
-        if(paths[team.ordinal()] != null){
+    /**
+     * Refreshes which teams each field paths to. Fields of teams whose enemies have changed, or that have just become
+     * active, are rebuilt from scratch, as tile changes are not applied to the fields of inactive teams.
+     */
+    private void updateTeams(){
+        for(Team team : Team.all){
             PathData path = paths[team.ordinal()];
+            boolean active = state.teams.isActive(team);
+            boolean changed = active && !path.active;
+            path.active = active;
+
+            for(Team other : Team.all){
+                boolean enemy = state.teams.areEnemies(other, team);
+                if(path.known[other.ordinal()] != enemy){
+                    path.known[other.ordinal()] = enemy;
+                    changed = true;
+                }
+            }
+
+            if(!changed || !active) continue;
+
+            if(threaded){
+                synchronized(path.changes){
+                    path.nextEnemies = path.known.clone();
+                }
+                schedule(path);
+            }else{
+                System.arraycopy(path.known, 0, path.enemies, 0, path.known.length);
+                if(path.created){
+                    reset(path);
+                }else{
+                    createFor(path);
+                    path.created = true;
+                }
+            }
+        }
+    }
 
-            if(!passable(tile, team)){
-                path.weights[tile.x][tile.y] = Float.MAX_VALUE;
+    /**Queues the worker of a team, if it is not already queued or running.*/
+    private void schedule(PathData path){
+        synchronized(path.changes){
+            if(path.scheduled) return;
+            path.scheduled = true;
+        }
+
+        executor.submit(() -> {
+            try{
+                work(path);
+            }catch(Throwable e){
+                //a disposed field may be reading a world that has since been replaced; its results are discarded anyway
+                if(!path.disposed){
+                    Log.err(e);
+                }
+                synchronized(path.changes){
+                    path.scheduled = false;
+                }
             }
+            return null;
+        });
+    }
+
+    /**Worker loop: applies queued changes, runs the frontier to completion and publishes the result, until no changes are left.*/
+    private void work(PathData path){
+        boolean first = !path.created, publish = first;
+
+        while(!path.disposed){
+            boolean[] enemies;
 
-            path.search++;
+            synchronized(path.changes){
+                enemies = path.nextEnemies;
+                path.nextEnemies = null;
 
-            if(path.lastSearchTime + 1000 / 60 * 3 > TimeUtils.millis()){
-                path.frontier.clear();
+                if(path.changes.size == 0 && enemies == null){
+                    if(!publish){
+                        path.scheduled = false;
+                        return;
+                    }
+                }else{
+                    path.pending.addAll(path.changes);
+                    path.changes.clear();
+                }
             }
 
-            path.lastSearchTime = TimeUtils.millis();
+            if(enemies != null){
+                System.arraycopy(enemies, 0, path.enemies, 0, enemies.length);
+                if(path.created) reset(path);
+            }
 
-            Array<Tile> set = world.indexer().getEnemy(team, BlockFlag.target);
-            for(Tile other : set){
-                path.weights[other.x][other.y] = 0;
-                path.searches[other.x][other.y] = path.search;
-                path.frontier.addFirst(other);
+            if(!path.created){
+                createFor(path);
+                path.created = true;
             }
+
+            for(int i = 0; i < path.pending.size; i++){
+                repair(path, path.pending.get(i));
+            }
+            path.pending.clear();
+
+            updateFrontier(path, -1);
+
+            if(path.disposed) return;
+
+            //the array that was swapped out last may still be read until the logic thread starts another tick
+            while(frame == path.swapped && !path.disposed){
+                try{
+                    Thread.sleep(1);
+                }catch(InterruptedException e){
+                    return;
+                }
+            }
+
+            if(path.disposed) return;
+
+            float[] next = path.back;
+            System.arraycopy(path.weights, 0, next, 0, next.length);
+            path.back = path.published;
+            path.published = next;
+            path.swapped = frame;
+
+            //spawn quadrants depend on the wave team's field, so they can only be checked once it exists
+            if(first && path.team == waveTeam){
+                threads.runDelay(() -> state.spawner.checkAllQuadrants());
+            }
+            first = publish = false;
         }
     }
 
-    private void createFor(Team team){
-        PathData path = new PathData();
-        path.search++;
-        path.frontier.ensureCapacity((world.width() + world.height()) * 3);
+    /**
+     * Repairs the field of a team around a single changed tile.
+     * Decreased costs are pushed onto the frontier and propagate on their own.
+     * Increased costs invalidate every tile that was reached through the changed tile, up to {@link #maxRepairTiles};
+     * the invalidated region is then re-seeded from its intact border.
+     */
+    private void repair(PathData path, int pos){
+        int width = path.width;
+        int x = pos % width, y = pos / width;
+        int packed = path.tiles[pos];
+
+        if(isTarget(packed, path)){
+            if(path.weights[pos] != 0 || path.searches[pos] != path.search){
+                path.weights[pos] = 0;
+                path.searches[pos] = path.search;
+                path.frontier.addFirst(pos);
+            }
+            return;
+        }
 
-        paths[team.ordinal()] = path;
+        float current = path.searches[pos] == path.search ? path.weights[pos] : Float.MAX_VALUE;
+        float ideal = Float.MAX_VALUE;
 
-        for(int x = 0; x < world.width(); x++){
-            for(int y = 0; y < world.height(); y++){
-                Tile tile = world.tile(x, y);
+        if(passable(packed, path)){
+            for(GridPoint2 point : Geometry.d4){
+                int dx = x + point.x, dy = y + point.y;
+                if(dx < 0 || dy < 0 || dx >= width || dy >= path.height) continue;
 
-                if(tile.block().flags != null && state.teams.areEnemies(tile.getTeam(), team)
-                        && tile.block().flags.contains(BlockFlag.target)){
-                    path.frontier.addFirst(tile);
-                    path.weights[x][y] = 0;
-                    path.searches[x][y] = path.search;
-                }else{
-                    path.weights[x][y] = Float.MAX_VALUE;
+                int other = dx + dy * width;
+                if(path.searches[other] == path.search && path.weights[other] < Float.MAX_VALUE){
+                    ideal = Math.min(ideal, path.weights[other] + cost(packed));
+                }
+            }
+        }
+
+        if(ideal < current){
+            path.weights[pos] = ideal;
+            path.searches[pos] = path.search;
+            path.frontier.addFirst(pos);
+        }else if(ideal > current){
+            invalidate(path, pos);
+        }
+    }
+
+    /**Invalidates a tile and everything downstream of it, then re-seeds the frontier from the border of that region.*/
+    private void invalidate(PathData path, int start){
+        int width = path.width, height = path.height;
+        IntArray dirty = path.dirty;
+        FloatArray dirtyWeights = path.dirtyWeights;
+
+        dirty.clear();
+        dirtyWeights.clear();
+        dirty.add(start);
+        dirtyWeights.add(path.weights[start]);
+        path.weights[start] = Float.MAX_VALUE;
+
+        for(int i = 0; i < dirty.size; i++){
+            int pos = dirty.get(i);
+            float cost = dirtyWeights.get(i);
+            int x = pos % width, y = pos / width;
+
+            for(GridPoint2 point : Geometry.d4){
+                int dx = x + point.x, dy = y + point.y;
+                if(dx < 0 || dy < 0 || dx >= width || dy >= height) continue;
+
+                int other = dx + dy * width;
+                float weight = path.weights[other];
+
+                //any neighbor that could have been reached through this tile is suspect
+                if(path.searches[other] == path.search && weight < Float.MAX_VALUE && weight > 0
+                        && weight >= cost + cost(path.tiles[other]) - 0.001f){
+                    dirty.add(other);
+                    dirtyWeights.add(weight);
+                    path.weights[other] = Float.MAX_VALUE;
                 }
             }
+
+            if(dirty.size > path.maxRepairTiles){
+                //too much of the field depends on this tile, a full rebuild is cheaper
+                reset(path);
+                return;
+            }
         }
 
-        updateFrontier(team, -1);
+        for(int i = 0; i < dirty.size; i++){
+            int pos = dirty.get(i);
+            int x = pos % width, y = pos / width;
+
+            for(GridPoint2 point : Geometry.d4){
+                int dx = x + point.x, dy = y + point.y;
+                if(dx < 0 || dy < 0 || dx >= width || dy >= height) continue;
+
+                int other = dx + dy * width;
+                if(path.searches[other] == path.search && path.weights[other] < Float.MAX_VALUE){
+                    path.frontier.addFirst(other);
+                }
+            }
+        }
     }
 
-    private void updateFrontier(Team team, long nsToRun){
-        PathData path = paths[team.ordinal()];
+    /**Restarts the search of a team from all enemy targets. The frontier is then processed over the next updates.*/
+    private void reset(PathData path){
+        path.search++;
+        path.frontier.clear();
+
+        for(int pos = 0; pos < path.tiles.length; pos++){
+            if(isTarget(path.tiles[pos], path)){
+                path.weights[pos] = 0;
+                path.searches[pos] = path.search;
+                path.frontier.addFirst(pos);
+            }
+        }
+    }
+
+    private void createFor(PathData path){
+        path.search++;
+        path.frontier.ensureCapacity((path.width + path.height) * 3);
+
+        for(int pos = 0; pos < path.tiles.length; pos++){
+            if(isTarget(path.tiles[pos], path)){
+                path.frontier.addFirst(pos);
+                path.weights[pos] = 0;
+                path.searches[pos] = path.search;
+            }else{
+                path.weights[pos] = Float.MAX_VALUE;
+            }
+        }
+
+        updateFrontier(path, -1);
+    }
+
+    private void updateFrontier(PathData path, long nsToRun){
+        int width = path.width, height = path.height;
 
         long start = TimeUtils.nanoTime();
 
-        while(path.frontier.size > 0 && (nsToRun < 0 || TimeUtils.timeSinceNanos(start) <= nsToRun)){
-            Tile tile = path.frontier.removeLast();
-            float cost = path.weights[tile.x][tile.y];
+        while(path.frontier.size > 0 && (nsToRun < 0 || TimeUtils.timeSinceNanos(start) <= nsToRun) && !path.disposed){
+            int pos = path.frontier.removeLast();
+            float cost = path.weights[pos];
 
             if(cost < Float.MAX_VALUE){
+                int x = pos % width, y = pos / width;
+
                 for(GridPoint2 point : Geometry.d4){
 
-                    int dx = tile.x + point.x, dy = tile.y + point.y;
-                    Tile other = world.tile(dx, dy);
+                    int dx = x + point.x, dy = y + point.y;
+                    if(dx < 0 || dy < 0 || dx >= width || dy >= height) continue;
 
-                    if(other != null && (path.weights[dx][dy] > cost + 1 || path.searches[dx][dy] < path.search)
-                            && passable(other, team)){
-                        path.frontier.addFirst(world.tile(dx, dy));
-                        path.weights[dx][dy] = cost + other.cost / 2f;
-                        path.searches[dx][dy] = path.search;
+                    int other = dx + dy * width;
+                    int packed = path.tiles[other];
+                    float next = cost + cost(packed);
+
+                    if((path.weights[other] > next || path.searches[other] < path.search) && passable(packed, path)){
+                        path.frontier.addFirst(other);
+                        path.weights[other] = next;
+                        path.searches[other] = path.search;
                     }
                 }
             }
         }
     }
 
+    /**Marks all current fields as disposed, which stops their workers.*/
+    private void dispose(){
+        if(paths == null) return;
+
+        for(PathData path : paths){
+            path.disposed = true;
+        }
+    }
+
     private void clear(){
         Timers.mark();
 
+        dispose();
+
         paths = new PathData[Team.all.length];
-        blocked.clear();
+
+        int[] tiles = new int[world.width() * world.height()];
+        for(int x = 0; x < world.width(); x++){
+            for(int y = 0; y < world.height(); y++){
+                tiles[x + y * world.width()] = pack(world.rawTile(x, y));
+            }
+        }
 
         for(Team team : Team.all){
-            PathData path = new PathData();
+            PathData path = new PathData(team, tiles);
             paths[team.ordinal()] = path;
 
-            if(state.teams.isActive(team)){
-                createFor(team);
+            path.active = state.teams.isActive(team);
+
+            if(path.active){
+                if(threaded){
+                    schedule(path);
+                }else{
+                    createFor(path);
+                    path.created = true;
+                }
             }
         }
 
-        state.spawner.checkAllQuadrants();
+        if(!threaded){
+            state.spawner.checkAllQuadrants();
+        }
     }
 
     class PathData{
-        float[][] weights;
-        int[][] searches;
+        final Team team;
+        final int width, height, maxRepairTiles;
+        /**Packed state of every tile, shared by the fields of all teams. Only written to by the logic thread.*/
+        final int[] tiles;
+        /**Whether the team at each ordinal is an enemy of this team, and has its target blocks pathed to.*/
+        final boolean[] enemies = new boolean[Team.all.length];
+        /**Enemies as last seen by the logic thread, which are handed to the worker when they change.*/
+        final boolean[] known = new boolean[Team.all.length];
+        /**Flow field weights, indexed by packed position. Only written to by whoever computes this field.*/
+        final float[] weights;
+        /**Search ID that each weight was last written in. Weights from older searches are stale.*/
+        final int[] searches;
+        final IntQueue frontier = new IntQueue();
+        /**Tiles invalidated by the current repair, and their weights before invalidation.*/
+        final IntArray dirty = new IntArray();
+        final FloatArray dirtyWeights = new FloatArray();
+        /**Positions of changed tiles waiting for the worker. Also used as the lock for {@link #scheduled}.*/
+        final IntArray changes = new IntArray();
+        /**Changes taken from the queue that the worker is currently applying.*/
+        final IntArray pending = new IntArray();
+        /**The field that is read by units. When not threaded, this is the same array as {@link #weights}.*/
+        volatile float[] published;
+        /**Array that the next finished field is copied into before it is swapped with {@link #published}.*/
+        float[] back;
+        /**Tick in which {@link #back} was swapped out, until which it may still be read.*/
+        int swapped;
+        /**Enemies that the worker has yet to rebuild the field for, or null. Guarded by {@link #changes}.*/
+        boolean[] nextEnemies;
+        volatile boolean disposed;
+        boolean scheduled, created, active;
         int search = 0;
-        long lastSearchTime;
-        Queue<Tile> frontier = new Queue<>();
 
-        PathData(){
-            weights = new float[world.width()][world.height()];
-            searches = new int[world.width()][world.height()];
+        PathData(Team team, int[] tiles){
+            this.team = team;
+            this.tiles = tiles;
+            this.width = world.width();
+            this.height = world.height();
+            this.maxRepairTiles = Math.max((int) (width * height * maxRepairFraction), minRepairTiles);
+            weights = new float[width * height];
+            searches = new int[width * height];
+
+            for(Team other : Team.all){
+                enemies[other.ordinal()] = known[other.ordinal()] = state.teams.areEnemies(other, team);
+            }
+
+            if(threaded){
+                //nothing is reachable until the worker publishes its first field
+                published = new float[width * height];
+                back = new float[width * height];
+                Arrays.fill(published, Float.MAX_VALUE);
+                //the first field is copied into an array that has never been read
+                swapped = frame - 1;
+            }else{
+                published = weights;
+            }
         }
     }
 }
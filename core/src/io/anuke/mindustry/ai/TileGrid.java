@@ -0,0 +1,187 @@
+package io.anuke.mindustry.ai;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.function.Consumer;
+import io.anuke.ucore.function.Predicate;
+
+import static io.anuke.mindustry.Vars.tilesize;
+import static io.anuke.mindustry.Vars.world;
+
+/**
+ * Buckets tiles into square cells, so they can be looked up by position without scanning empty parts of the map.
+ * Distances are measured to each tile's draw position, which is the position of its entity.
+ * <p>
+ * Queries only read, and do not allocate; they may run on several threads at once, as long as nothing is added or removed meanwhile.
+ */
+public class TileGrid{
+    /**Size of one cell, in tiles.*/
+    private static final int cellSize = 8;
+    /**Draw positions of multiblocks are up to this far from the tile they are bucketed by.*/
+    private static final float margin = tilesize;
+
+    /**Tiles that do not pass this are skipped by every query.*/
+    private final Predicate<Tile> filter;
+    private int width, height;
+    /**Packed positions of every tile, per cell. Cells are created when first used.*/
+    private IntArray[] cells = {};
+    private int size;
+
+    public TileGrid(Predicate<Tile> filter){
+        this.filter = filter;
+    }
+
+    /**Removes all tiles and resizes the grid to fit a map of the given size, in tiles.*/
+    public void resize(int mapWidth, int mapHeight){
+        width = Math.max((mapWidth + cellSize - 1) / cellSize, 1);
+        height = Math.max((mapHeight + cellSize - 1) / cellSize, 1);
+        cells = new IntArray[width * height];
+        size = 0;
+    }
+
+    public void add(Tile tile){
+        int cell = cell(tile.x, tile.y);
+        if(cells[cell] == null){
+            cells[cell] = new IntArray(false, 8);
+        }
+        cells[cell].add(tile.packedPosition());
+        size++;
+    }
+
+    public void remove(Tile tile){
+        IntArray cell = cells[cell(tile.x, tile.y)];
+        if(cell != null && cell.removeValue(tile.packedPosition())){
+            size--;
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**Returns the closest tile strictly within range that matches the predicate, or null.*/
+    public Tile findClosest(float x, float y, float range, Predicate<Tile> pred){
+        //units look for flagged blocks of teams that often have none, at any range
+        if(size == 0) return null;
+
+        Tile closest = null;
+        float cdist = 0f;
+
+        int cx = cellX(x), cy = cellY(y);
+        int maxRing = maxRing(range);
+
+        for(int r = 0; r <= maxRing; r++){
+            //every tile in the remaining rings is at least this far away
+            if(closest != null && cdist <= r * cellSize * tilesize - cellSize * tilesize - margin) break;
+
+            for(int rx = cx - r; rx <= cx + r; rx++){
+                //only the edges of the ring; the inside has already been checked
+                int step = (rx == cx - r || rx == cx + r) ? 1 : Math.max(r * 2, 1);
+
+                for(int ry = cy - r; ry <= cy + r; ry += step){
+                    if(rx < 0 || ry < 0 || rx >= width || ry >= height) continue;
+                    IntArray cell = cells[rx + ry * width];
+                    if(cell == null) continue;
+
+                    for(int i = 0; i < cell.size; i++){
+                        Tile tile = world.tile(cell.items[i]);
+                        float dst = Vector2.dst(x, y, tile.drawx(), tile.drawy());
+
+                        if(dst < range && (closest == null || dst < cdist) && filter.test(tile) && pred.test(tile)){
+                            closest = tile;
+                            cdist = dst;
+                        }
+                    }
+                }
+            }
+        }
+
+        return closest;
+    }
+
+    /**
+     * Finds up to the k closest tiles strictly within range that match the predicate.
+     * @param out cleared, then filled with the results, closest first.
+     */
+    public Array<Tile> findClosest(float x, float y, float range, int k, Predicate<Tile> pred, Array<Tile> out){
+        out.clear();
+        if(k <= 0 || size == 0) return out;
+
+        int cx = cellX(x), cy = cellY(y);
+        int maxRing = maxRing(range);
+
+        for(int r = 0; r <= maxRing; r++){
+            if(out.size == k && dst(x, y, out.peek()) <= r * cellSize * tilesize - cellSize * tilesize - margin) break;
+
+            for(int rx = cx - r; rx <= cx + r; rx++){
+                int step = (rx == cx - r || rx == cx + r) ? 1 : Math.max(r * 2, 1);
+
+                for(int ry = cy - r; ry <= cy + r; ry += step){
+                    if(rx < 0 || ry < 0 || rx >= width || ry >= height) continue;
+                    IntArray cell = cells[rx + ry * width];
+                    if(cell == null) continue;
+
+                    for(int i = 0; i < cell.size; i++){
+                        Tile tile = world.tile(cell.items[i]);
+                        float dst = dst(x, y, tile);
+
+                        if(dst >= range || (out.size == k && dst >= dst(x, y, out.peek())) || !filter.test(tile) || !pred.test(tile)) continue;
+
+                        //insertion sort; k is expected to be small
+                        int index = out.size;
+                        while(index > 0 && dst(x, y, out.get(index - 1)) > dst) index--;
+                        if(out.size == k) out.pop();
+                        out.insert(index, tile);
+                    }
+                }
+            }
+        }
+
+        return out;
+    }
+
+    /**Runs the consumer on every tile strictly within range.*/
+    public void each(float x, float y, float range, Consumer<Tile> cons){
+        if(size == 0) return;
+
+        int minx = cellX(x - range - margin), maxx = cellX(x + range + margin);
+        int miny = cellY(y - range - margin), maxy = cellY(y + range + margin);
+
+        for(int rx = minx; rx <= maxx; rx++){
+            for(int ry = miny; ry <= maxy; ry++){
+                IntArray cell = cells[rx + ry * width];
+                if(cell == null) continue;
+
+                for(int i = 0; i < cell.size; i++){
+                    Tile tile = world.tile(cell.items[i]);
+                    if(dst(x, y, tile) < range && filter.test(tile)){
+                        cons.accept(tile);
+                    }
+                }
+            }
+        }
+    }
+
+    private float dst(float x, float y, Tile tile){
+        return Vector2.dst(x, y, tile.drawx(), tile.drawy());
+    }
+
+    /**Returns the last ring of cells that can contain tiles within range.*/
+    private int maxRing(float range){
+        return (int) Math.min((range + margin) / (cellSize * tilesize) + 2, Math.max(width, height));
+    }
+
+    private int cell(int x, int y){
+        return Math.min(x / cellSize, width - 1) + Math.min(y / cellSize, height - 1) * width;
+    }
+
+    private int cellX(float x){
+        return Math.max(Math.min((int) (x / tilesize / cellSize), width - 1), 0);
+    }
+
+    private int cellY(float y){
+        return Math.max(Math.min((int) (y / tilesize / cellSize), height - 1), 0);
+    }
+}
@@ -6,6 +6,7 @@ import io.anuke.annotations.Annotations.Remote;
 import io.anuke.mindustry.content.Liquids;
 import io.anuke.mindustry.entities.Player;
 import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.game.EventType.TileConfigEvent;
 import io.anuke.mindustry.gen.Call;
 import io.anuke.mindustry.game.ContentList;
 import io.anuke.mindustry.type.Item;
@@ -15,6 +16,7 @@ import io.anuke.mindustry.world.Tile;
 import io.anuke.mindustry.world.blocks.PowerBlock;
 import io.anuke.mindustry.world.blocks.distribution.Sorter;
 import io.anuke.mindustry.world.blocks.power.PowerNode;
+import io.anuke.ucore.core.Events;
 import io.anuke.ucore.graphics.Draw;
 import io.anuke.ucore.scene.ui.ButtonGroup;
 import io.anuke.ucore.scene.ui.ImageButton;
@@ -32,6 +34,7 @@ public class DebugBlocks extends BlockList implements ContentList{
     public static void setLiquidSourceLiquid(Player player, Tile tile, Liquid liquid){
         LiquidSourceEntity entity = tile.entity();
         entity.source = liquid;
+        Events.fire(new TileConfigEvent(tile));
     }
 
     @Override
@@ -45,7 +48,6 @@ public class DebugBlocks extends BlockList implements ContentList{
         powerInfinite = new PowerNode("powerinfinite"){
             {
                 powerCapacity = 10000f;
-                powerSpeed = 100f;
                 maxNodes = 100;
             }
 
@@ -59,6 +59,7 @@ public class TurretBullets extends BulletList implements ContentList{
                     Effects.effect(BlockFx.healBlock, tile.drawx(), tile.drawy(), tile.block().size);
                     tile.entity.health += healAmount;
                     tile.entity.health = Mathf.clamp(tile.entity.health, 0, tile.block().health);
+                    tile.entity.noSleep();
                 }
             }
         };
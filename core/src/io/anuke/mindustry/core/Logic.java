@@ -3,7 +3,11 @@ package io.anuke.mindustry.core;
 import com.badlogic.gdx.utils.Array;
 import io.anuke.mindustry.Vars;
 import io.anuke.mindustry.core.GameState.State;
-import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.core.TickMetrics.Phase;
+import io.anuke.mindustry.entities.Targeting;
+import io.anuke.mindustry.entities.TileScheduler;
+import io.anuke.mindustry.entities.bullet.BulletGrid;
+import io.anuke.mindustry.entities.effect.EnvironmentGrid;
 import io.anuke.mindustry.game.EventType.GameOverEvent;
 import io.anuke.mindustry.game.EventType.PlayEvent;
 import io.anuke.mindustry.game.EventType.ResetEvent;
@@ -12,6 +16,7 @@ import io.anuke.mindustry.game.Teams;
 import io.anuke.mindustry.net.Net;
 import io.anuke.mindustry.type.ItemStack;
 import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.blocks.power.PowerGraphs;
 import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.entities.Entities;
@@ -31,6 +36,21 @@ import static io.anuke.mindustry.Vars.*;
  */
 public class Logic extends Module{
     public boolean doUpdate = true;
+    /**Whether entity updates are split into a read phase and the regular, serialized apply phase.*/
+    private boolean phased;
+    private final ReadPhase readPhase = new ReadPhase();
+    /**Timings of each phase of the logic tick.*/
+    public final TickMetrics metrics = new TickMetrics();
+    /**Updates the tile entities that are not sleeping.*/
+    public final TileScheduler tiles = new TileScheduler();
+    /**Moves power through every connected group of power blocks.*/
+    public final PowerGraphs power = new PowerGraphs();
+    /**Finds targets for turrets, from a grid of units shared by all of them.*/
+    public final Targeting targeting = new Targeting();
+    /**Collides bullets with units, through a grid of bullets that is rebuilt every tick.*/
+    public final BulletGrid bullets = new BulletGrid();
+    /**Fires and puddles by tile, and their effects on the units standing in them.*/
+    public final EnvironmentGrid environment = new EnvironmentGrid();
 
     public Logic(){
         state = new GameState();
@@ -42,6 +62,23 @@ public class Logic extends Module{
         EntityPhysics.collisions().setCollider(tilesize, world::solid);
     }
 
+    /**
+     * Enables or disables the phase-split entity update.
+     * @param threads amount of threads the read phase runs on; 1 runs it serially, with identical results.
+     */
+    public void setPhased(boolean phased, int threads){
+        this.phased = phased;
+        readPhase.setThreads(threads);
+    }
+
+    public boolean isPhased(){
+        return phased;
+    }
+
+    public ReadPhase readPhase(){
+        return readPhase;
+    }
+
     public void play(){
         state.set(State.playing);
         state.wavetime = wavespace * state.difficulty.timeScaling * 2;
@@ -66,7 +103,9 @@ public class Logic extends Module{
 
         Timers.clear();
         Entities.clear();
-        TileEntity.sleepingEntities = 0;
+        tiles.clear();
+        power.clear();
+        environment.clear();
 
         Events.fire(new ResetEvent());
     }
@@ -91,6 +130,10 @@ public class Logic extends Module{
     public void update(){
         if(threads.isEnabled() && !threads.isOnThread()) return;
 
+        metrics.begin(Phase.input);
+        Net.update();
+        metrics.end(Phase.input);
+
         if(Vars.control != null){
             control.runUpdateLogic();
         }
@@ -120,16 +163,27 @@ public class Logic extends Module{
                 if(!Entities.defaultGroup().isEmpty())
                     throw new RuntimeException("Do not add anything to the default group!");
 
+                metrics.begin(Phase.entities);
+
+                targeting.invalidate();
+
+                if(phased && !Net.client()){
+                    readPhase.run();
+                }
 
                 for(EntityGroup group : unitGroups){
                     Entities.update(group);
                 }
 
                 Entities.update(puddleGroup);
-                Entities.update(tileGroup);
+                //tile entities are updated by the scheduler, so sleeping ones are skipped
+                tileGroup.updateEvents();
+                tiles.update();
+                power.update();
                 Entities.update(shieldGroup);
                 Entities.update(bulletGroup);
                 Entities.update(fireGroup);
+                environment.update();
                 Entities.update(playerGroup);
 
                 //effect group only contains item drops in the headless version, update it!
@@ -137,15 +191,17 @@ public class Logic extends Module{
                     Entities.update(effectGroup);
                 }
 
-                for(EntityGroup group : unitGroups){
-                    if(!group.isEmpty()){
-                        EntityPhysics.collideGroups(bulletGroup, group);
-                    }
-                }
+                metrics.end(Phase.entities);
+                metrics.begin(Phase.collisions);
+
+                bullets.collide();
 
-                EntityPhysics.collideGroups(bulletGroup, playerGroup);
+                metrics.end(Phase.collisions);
+                metrics.begin(Phase.pathfinder);
 
                 world.pathfinder().update();
+
+                metrics.end(Phase.pathfinder);
             }
         }
 
@@ -0,0 +1,143 @@
+package io.anuke.mindustry.core;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free multi-producer, single-consumer queue of (id, value) messages.
+ * Messages are stored in a fixed ring of pre-allocated slots, so posting does not allocate.
+ * Any thread may {@link #post(int, Object)}; only one thread may {@link #drain(MessageHandler)}.
+ * <p>
+ * If the ring is full, messages spill into a locked overflow list until the consumer catches up.
+ * Messages from a single producer are always handled in the order they were posted.
+ */
+public class MessageQueue<T>{
+    private final Slot<T>[] slots;
+    private final int mask;
+    /**Position of the next slot to be claimed by a producer.*/
+    private final AtomicLong tail = new AtomicLong();
+    /**Position of the next slot to be read. Only touched by the consumer.*/
+    private long head;
+
+    private final Object overflowLock = new Object();
+    private volatile boolean overflowing;
+    private Array<T> overflowValues = new Array<>(), drainValues = new Array<>();
+    private IntArray overflowIDs = new IntArray(), drainIDs = new IntArray();
+
+    /**@param capacity amount of slots in the ring; rounded up to a power of two.*/
+    public MessageQueue(int capacity){
+        capacity = MathUtils.nextPowerOfTwo(Math.max(capacity, 2));
+        slots = new Slot[capacity];
+        mask = capacity - 1;
+
+        for(int i = 0; i < capacity; i++){
+            slots[i] = new Slot<>();
+            slots[i].sequence = i;
+        }
+    }
+
+    /**Adds a message to the queue. Can be called from any thread.*/
+    public void post(int id, T value){
+        if(!overflowing && offer(id, value)) return;
+
+        synchronized(overflowLock){
+            overflowing = true;
+            overflowIDs.add(id);
+            overflowValues.add(value);
+        }
+    }
+
+    /**
+     * Handles every message that is in the queue, in order, on the calling thread.
+     * Messages posted by the handler itself are handled as part of the same call.
+     * @return amount of messages handled.
+     */
+    public int drain(MessageHandler<T> handler){
+        int count = 0;
+
+        while(true){
+            Slot<T> slot = slots[(int) head & mask];
+            if(slot.sequence != head + 1) break;
+
+            int id = slot.id;
+            T value = slot.value;
+            slot.value = null;
+            //hand the slot back to producers before handling, in case the handler posts more messages
+            slot.sequence = head + slots.length;
+            head++;
+
+            handler.handle(id, value);
+            count++;
+        }
+
+        //overflow is only handled once every slot claimed before it has been read, to keep per-producer order
+        if(overflowing && tail.get() == head){
+            Array<T> values;
+            IntArray ids;
+
+            synchronized(overflowLock){
+                values = overflowValues;
+                ids = overflowIDs;
+                overflowValues = drainValues;
+                overflowIDs = drainIDs;
+                drainValues = values;
+                drainIDs = ids;
+                overflowing = false;
+            }
+
+            for(int i = 0; i < values.size; i++){
+                handler.handle(ids.get(i), values.get(i));
+            }
+            count += values.size;
+
+            values.clear();
+            ids.clear();
+        }
+
+        return count;
+    }
+
+    /**Returns whether there are no messages waiting. Only accurate when called from the consumer thread.*/
+    public boolean isEmpty(){
+        return tail.get() == head && !overflowing;
+    }
+
+    private boolean offer(int id, T value){
+        long pos = tail.get();
+
+        while(true){
+            Slot<T> slot = slots[(int) pos & mask];
+            long diff = slot.sequence - pos;
+
+            if(diff == 0){
+                if(tail.compareAndSet(pos, pos + 1)){
+                    slot.id = id;
+                    slot.value = value;
+                    //volatile write; publishes the message to the consumer
+                    slot.sequence = pos + 1;
+                    return true;
+                }
+                pos = tail.get();
+            }else if(diff < 0){
+                //slot has not been read yet since the last lap, ring is full
+                return false;
+            }else{
+                //another producer claimed this slot first
+                pos = tail.get();
+            }
+        }
+    }
+
+    private static class Slot<T>{
+        volatile long sequence;
+        int id;
+        T value;
+    }
+
+    public interface MessageHandler<T>{
+        void handle(int id, T value);
+    }
+}
@@ -4,6 +4,7 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.utils.Base64Coder;
 import com.badlogic.gdx.utils.IntSet;
+import com.badlogic.gdx.utils.LongMap;
 import com.badlogic.gdx.utils.TimeUtils;
 import io.anuke.annotations.Annotations.Loc;
 import io.anuke.annotations.Annotations.PacketPriority;
@@ -22,6 +23,8 @@ import io.anuke.mindustry.net.Net;
 import io.anuke.mindustry.net.Net.SendMode;
 import io.anuke.mindustry.net.NetworkIO;
 import io.anuke.mindustry.net.Packets.*;
+import io.anuke.mindustry.net.SnapshotAssembler;
+import io.anuke.mindustry.net.SnapshotHistory;
 import io.anuke.mindustry.net.TraceInfo;
 import io.anuke.mindustry.net.ValidateException;
 import io.anuke.mindustry.world.modules.InventoryModule;
@@ -33,13 +36,13 @@ import io.anuke.ucore.entities.EntityGroup;
 import io.anuke.ucore.io.ReusableByteArrayInputStream;
 import io.anuke.ucore.modules.Module;
 import io.anuke.ucore.util.Log;
-import io.anuke.ucore.util.Mathf;
 import io.anuke.ucore.util.Timer;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Random;
-import java.util.zip.InflaterInputStream;
 
 import static io.anuke.mindustry.Vars.*;
 
@@ -61,18 +64,19 @@ public class NetClient extends Module{
     /**Last snapshot ID recieved.*/
     private int lastSnapshotBaseID = -1;
 
-    /**Current snapshot that is being built from chinks.*/
-    private byte[] currentSnapshot;
-    /**Counter of how many chunks have been recieved.*/
-    private int recievedChunkCounter;
-    /**ID of snapshot that is currently being constructed.*/
-    private int currentSnapshotID = -1;
+    /**Puts snapshots back together from their chunks, and decompresses them.*/
+    private SnapshotAssembler assembler = new SnapshotAssembler(NetServer.maxSnapshotSize);
 
     /**List of entities that were removed, and need not be added while syncing.*/
     private IntSet removed = new IntSet();
     /**Byte stream for reading in snapshots.*/
     private ReusableByteArrayInputStream byteStream = new ReusableByteArrayInputStream();
     private DataInputStream dataStream = new DataInputStream(byteStream);
+    /**Byte stream for reading single entities out of a snapshot.*/
+    private ReusableByteArrayInputStream entityStream = new ReusableByteArrayInputStream();
+    private DataInputStream entityData = new DataInputStream(entityStream);
+    /**Entity encodings of recently recieved snapshots, used as baselines for delta snapshots.*/
+    private SnapshotHistory snapshots = new SnapshotHistory();
 
     public NetClient(){
 
@@ -125,7 +129,11 @@ public class NetClient extends Module{
 
         Net.handleClient(WorldStream.class, data -> {
             Log.info("Recieved world data: {0} bytes.", data.stream.available());
-            NetworkIO.loadWorld(new InflaterInputStream(data.stream));
+            try{
+                NetworkIO.loadWorld(NetworkIO.readWorldData(data.stream));
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
 
             finishConnecting();
         });
@@ -134,6 +142,11 @@ public class NetClient extends Module{
             packet.writeBuffer.position(0);
             RemoteReadClient.readPacket(packet.writeBuffer, packet.type);
         });
+
+        Net.handleClient(InvokeFramePacket.class, packet -> {
+            packet.writeBuffer.position(0);
+            RemoteReadClient.readFrame(packet.writeBuffer);
+        });
     }
 
     @Remote(called = Loc.server, targets = Loc.both, forward = true)
@@ -201,6 +214,18 @@ public class NetClient extends Module{
         });
     }
 
+    @Remote(variants = Variant.one)
+    public static void onWorldRegion(short x, short y, short width, short height, int rawLength, byte[] data){
+        //regions of a previous world may still arrive while another is being loaded
+        if(state.is(State.menu) || x + width > world.width() || y + height > world.height()) return;
+
+        try{
+            NetworkIO.loadWorldRegion(x, y, width, height, new ByteArrayInputStream(NetworkIO.inflate(data, rawLength)));
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
     @Remote(variants = Variant.one)
     public static void onPositionSet(float x, float y){
         players[0].x = x;
@@ -219,11 +244,9 @@ public class NetClient extends Module{
     }
 
     @Remote(variants = Variant.one, priority = PacketPriority.low, unreliable = true)
-    public static void onSnapshot(byte[] chunk, int snapshotID, short chunkID, int totalLength, int uncompressedLength){
-        int totalChunks = Mathf.ceil((float) totalLength / NetServer.maxSnapshotSize);
-
+    public static void onSnapshot(ByteBuffer chunk, int snapshotID, short chunkID, int totalLength, int uncompressedLength){
         if(NetServer.debugSnapshots)
-            Log.info("Recieved snapshot: len {0} ID {1} chunkID {2} / "+totalChunks+" totalLength {3} bclient-base {4}", chunk.length, snapshotID, chunkID, totalLength, netClient.lastSnapshotBaseID);
+            Log.info("Recieved snapshot: len {0} ID {1} chunkID {2} totalLength {3} bclient-base {4}", chunk.remaining(), snapshotID, chunkID, totalLength, netClient.lastSnapshotBaseID);
 
         //skip snapshot IDs that have already been recieved OR snapshots that are too far in front
         if(snapshotID < netClient.lastSnapshotBaseID){
@@ -232,58 +255,48 @@ public class NetClient extends Module{
         }
 
         try{
-            byte[] snapshot;
-
-            //total length exceeds that needed to hold one snapshot, therefore, it is split into chunks
-            if(totalLength > NetServer.maxSnapshotSize){
-                //total amount of chunks to recieve
-
-                //reset status when a new snapshot sending begins
-                if(netClient.currentSnapshotID != snapshotID || netClient.currentSnapshot == null){
-                    netClient.currentSnapshotID = snapshotID;
-                    netClient.currentSnapshot = new byte[totalLength];
-                    netClient.recievedChunkCounter = 0;
-                }
-
-                netClient.recievedChunkCounter++; //update recieved status
-                //copy the recieved bytes into the holding array
-                System.arraycopy(chunk, 0, netClient.currentSnapshot, chunkID * NetServer.maxSnapshotSize,
-                        Math.min(NetServer.maxSnapshotSize, totalLength - chunkID * NetServer.maxSnapshotSize));
-
-                //when all chunks have been recieved, begin
-                if(netClient.recievedChunkCounter >= totalChunks && netClient.currentSnapshot != null){
-                    snapshot = netClient.currentSnapshot;
-                }else{
-                    return;
-                }
-            }else{
-                snapshot = chunk;
-            }
+            //returns null until every chunk of the snapshot has been recieved
+            byte[] result = netClient.assembler.add(chunk, snapshotID, chunkID, totalLength, uncompressedLength);
+            if(result == null) return;
 
             if(NetServer.debugSnapshots)
-                Log.info("Finished recieving snapshot ID {0} length {1}", snapshotID, chunk.length);
-
-            byte[] result = Net.decompressSnapshot(snapshot, uncompressedLength);
-            int length = result.length;
-
-            netClient.lastSnapshotBaseID = snapshotID;
+                Log.info("Finished recieving snapshot ID {0} length {1}", snapshotID, totalLength);
 
             //set stream bytes to begin snapshot reading
-            netClient.byteStream.setBytes(result, 0, length);
+            netClient.byteStream.setBytes(result, 0, uncompressedLength);
 
             //get data input for reading from the stream
             DataInputStream input = netClient.dataStream;
 
-            netClient.readSnapshot(input);
-
-            //confirm that snapshot has been recieved
-            netClient.lastSnapshotBaseID = snapshotID;
+            //confirm that snapshot has been recieved; if its baseline is missing, the server resends in full once the acknowledged one is too old
+            if(netClient.readSnapshot(input, snapshotID)){
+                netClient.lastSnapshotBaseID = snapshotID;
+            }else if(NetServer.debugSnapshots){
+                Log.info("Missing baseline for snapshot ID {0}", snapshotID);
+            }
         }catch(Exception e){
             throw new RuntimeException(e);
         }
     }
 
+    /**Reads a full snapshot without storing it as a baseline.*/
     public void readSnapshot(DataInputStream input) throws IOException{
+        readSnapshot(input, -1);
+    }
+
+    /**
+     * Reads a snapshot, and stores its entities under its ID so it can be used as a baseline.
+     * @return false if the snapshot's baseline is not available, in which case nothing is read.
+     */
+    public boolean readSnapshot(DataInputStream input, int snapshotID) throws IOException{
+        int baseID = input.readInt();
+        LongMap<byte[]> baseline = snapshots.get(baseID);
+
+        if(baseID != -1 && baseline == null){
+            return false;
+        }
+
+        LongMap<byte[]> current = snapshotID == -1 ? null : snapshots.begin(snapshotID);
 
         //read wave info
         state.wavetime = input.readFloat();
@@ -328,8 +341,13 @@ public class NetClient extends Module{
                     }
                 }
 
+                long key = SnapshotHistory.key(groupID, id);
+                byte[] bytes = SnapshotHistory.read(baseline == null ? null : baseline.get(key), input);
+                if(current != null) current.put(key, bytes);
+
                 //read the entity
-                entity.read(input, timestamp);
+                entityStream.setBytes(bytes, 0, bytes.length);
+                entity.read(entityData, timestamp);
 
                 if(add){
                     entity.add();
@@ -337,6 +355,8 @@ public class NetClient extends Module{
                 }
             }
         }
+
+        return true;
     }
 
     @Override
@@ -381,9 +401,9 @@ public class NetClient extends Module{
         connecting = true;
         quiet = false;
         lastSent = 0;
-        currentSnapshot = null;
-        currentSnapshotID = -1;
+        assembler.clear();
         lastSnapshotBaseID = -1;
+        snapshots.clear();
 
         Entities.clear();
         ui.chatfrag.clearMessages();
@@ -415,7 +435,7 @@ public class NetClient extends Module{
                 requests[i] = player.getPlaceQueue().get(i);
             }
 
-            Call.onClientShapshot(lastSent++, TimeUtils.millis(), player.x, player.y,
+            Call.onClientShapshot(lastSent++, lastSnapshotBaseID, TimeUtils.millis(), player.x, player.y,
                 player.pointerX, player.pointerY, player.rotation, player.baseRotation,
                 player.getVelocity().x, player.getVelocity().y,
                 player.getMineTile(),
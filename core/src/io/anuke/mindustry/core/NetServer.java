@@ -6,15 +6,18 @@ import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.LongMap;
 import com.badlogic.gdx.utils.TimeUtils;
 import io.anuke.annotations.Annotations.Loc;
 import io.anuke.annotations.Annotations.Remote;
 import io.anuke.mindustry.content.Mechs;
 import io.anuke.mindustry.content.blocks.Blocks;
 import io.anuke.mindustry.core.GameState.State;
+import io.anuke.mindustry.core.TickMetrics.Phase;
 import io.anuke.mindustry.entities.Player;
 import io.anuke.mindustry.entities.traits.BuilderTrait.BuildRequest;
 import io.anuke.mindustry.entities.traits.SyncTrait;
+import io.anuke.mindustry.game.EventType.WorldLoadEvent;
 import io.anuke.mindustry.game.Team;
 import io.anuke.mindustry.game.Version;
 import io.anuke.mindustry.gen.Call;
@@ -23,24 +26,20 @@ import io.anuke.mindustry.net.*;
 import io.anuke.mindustry.net.Administration.PlayerInfo;
 import io.anuke.mindustry.net.Packets.*;
 import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.entities.Entities;
 import io.anuke.ucore.entities.EntityGroup;
-import io.anuke.ucore.entities.EntityPhysics;
 import io.anuke.ucore.entities.trait.Entity;
 import io.anuke.ucore.io.ByteBufferOutput;
-import io.anuke.ucore.io.CountableByteArrayOutputStream;
 import io.anuke.ucore.modules.Module;
 import io.anuke.ucore.util.Log;
 import io.anuke.ucore.util.Mathf;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.zip.DeflaterOutputStream;
 
 import static io.anuke.mindustry.Vars.*;
 
@@ -51,7 +50,6 @@ public class NetServer extends Module{
     public final static float maxSnapshotDelay = 200;
     public final static float snapshotDropchance = 0.01f;
 
-    private final static byte[] reusableSnapArray = new byte[maxSnapshotSize];
     private final static float serverSyncTime = 4, kickDuration = 30 * 1000;
     private final static Vector2 vector = new Vector2();
     private final static Rectangle viewport = new Rectangle();
@@ -60,6 +58,19 @@ public class NetServer extends Module{
     private final static float correctDist = 16f;
 
     public final Administration admins = new Administration();
+    /**Per-frame entity encodings, shared by every snapshot written in the same frame.*/
+    public final EncodingCache encodings = new EncodingCache();
+    /**Keeps track of which synced entities each connection can see.*/
+    public final InterestGrid interest = new InterestGrid();
+    /**Encodes and compresses world data for joining players, sharing the map part between them.*/
+    public final WorldDataCache worldData = new WorldDataCache();
+    /**Bandwidth statistics of sent snapshots.*/
+    public final SnapshotStats snapshotStats = new SnapshotStats();
+    /**
+     * Whether snapshots are sent as deltas against the last snapshot a client acknowledged.
+     * Off by default until its bandwidth has been measured on real servers.
+     */
+    public boolean deltaSnapshots = false;
 
     /**Maps connection IDs to players.*/
     private IntMap<Player> connections = new IntMap<>();
@@ -69,12 +80,17 @@ public class NetServer extends Module{
     private ByteBufferOutput outputBuffer = new ByteBufferOutput(writeBuffer);
 
     /**Stream for writing player sync data to.*/
-    private CountableByteArrayOutputStream syncStream = new CountableByteArrayOutputStream();
+    private ReusableByteOutStream syncStream = new ReusableByteOutStream();
+    /**Compressed snapshot that is being sent. Reused for every snapshot.*/
+    private ByteBuffer compressed;
     /**Data stream for writing player sync data to.*/
     private DataOutputStream dataStream = new DataOutputStream(syncStream);
 
     public NetServer(){
 
+        //entity IDs start over in a new world, so encodings from the old one could be returned for new entities
+        Events.on(WorldLoadEvent.class, event -> encodings.clear());
+
         Net.handleServer(Connect.class, (id, connect) -> {
             if(admins.isIPBanned(connect.addressTCP)){
                 kick(id, KickReason.banned);
@@ -159,6 +175,12 @@ public class NetServer extends Module{
                 return;
             }
 
+            //custom builds skip the build check, but still can not talk to a different protocol
+            if(packet.protocol != Version.protocol){
+                kick(id, packet.protocol > Version.protocol ? KickReason.serverOutdated : KickReason.clientOutdated);
+                return;
+            }
+
             if(packet.version == -1){
                 trace.modclient = true;
             }
@@ -218,31 +240,24 @@ public class NetServer extends Module{
         });
     }
 
-    /** Sends a raw byte[] snapshot to a client, splitting up into chunks when needed.*/
-    private static void sendSplitSnapshot(int userid, byte[] bytes, int snapshotID, int uncompressedLength){
-        if(bytes.length < maxSnapshotSize){
-            scheduleSnapshot(() -> Call.onSnapshot(userid, bytes, snapshotID, (short) 0, bytes.length, uncompressedLength));
-        }else{
-            int remaining = bytes.length;
-            int offset = 0;
-            int chunkid = 0;
-            while(remaining > 0){
-                int used = Math.min(remaining, maxSnapshotSize);
-                byte[] toSend;
-                //re-use sent byte arrays when possible
-                if(used == maxSnapshotSize && !debugSnapshots){
-                    toSend = reusableSnapArray;
-                    System.arraycopy(bytes, offset, toSend, 0, Math.min(offset + maxSnapshotSize, bytes.length) - offset);
-                }else{
-                    toSend = Arrays.copyOfRange(bytes, offset, Math.min(offset + maxSnapshotSize, bytes.length));
-                }
+    /**
+     * Sends a compressed snapshot to a client, splitting up into chunks when needed. Chunks are sent as views of the
+     * snapshot buffer, which are written out as they are sent; they are only copied when sending is delayed for debugging.
+     */
+    private static void sendSplitSnapshot(int userid, ByteBuffer bytes, int snapshotID, int uncompressedLength){
+        int length = bytes.limit();
+
+        for(int offset = 0, chunkid = 0; offset < length; offset += maxSnapshotSize, chunkid++){
+            bytes.limit(Math.min(offset + maxSnapshotSize, length));
+            bytes.position(offset);
 
-                short fchunk = (short)chunkid;
-                scheduleSnapshot(() -> Call.onSnapshot(userid, toSend, snapshotID, fchunk, bytes.length, uncompressedLength));
+            short fchunk = (short)chunkid;
 
-                remaining -= used;
-                offset += used;
-                chunkid++;
+            if(debugSnapshots){
+                ByteBuffer toSend = ByteBuffer.wrap(Arrays.copyOfRange(bytes.array(), offset, bytes.limit()));
+                scheduleSnapshot(() -> Call.onSnapshot(userid, toSend, snapshotID, fchunk, length, uncompressedLength));
+            }else{
+                Call.onSnapshot(userid, bytes, snapshotID, fchunk, length, uncompressedLength);
             }
         }
     }
@@ -258,14 +273,7 @@ public class NetServer extends Module{
     }
 
     public void sendWorldData(Player player, int clientID){
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        DeflaterOutputStream def = new DeflaterOutputStream(stream);
-        NetworkIO.writeWorld(player, def);
-        WorldStream data = new WorldStream();
-        data.stream = new ByteArrayInputStream(stream.toByteArray());
-        Net.sendStream(clientID, data);
-
-        Log.info("Packed {0} compressed bytes of world data.", stream.size());
+        worldData.send(player, clientID);
     }
 
     public static void onDisconnect(Player player){
@@ -289,7 +297,7 @@ public class NetServer extends Module{
     @Remote(targets = Loc.client, unreliable = true)
     public static void onClientShapshot(
         Player player,
-        int snapshotID, long sent,
+        int snapshotID, int ackedSnapshotID, long sent,
         float x, float y,
         float pointerX, float pointerY,
         float rotation, float baseRotation,
@@ -302,6 +310,8 @@ public class NetServer extends Module{
         NetConnection connection = player.con;
         if(connection == null || snapshotID < connection.lastRecievedClientSnapshot) return;
 
+        connection.lastAckedSnapshotID = ackedSnapshotID;
+
         boolean verifyPosition = !player.isDead() && netServer.admins.getStrict() && headless && player.getCarrier() == null;
 
         if(connection.lastRecievedClientTime == 0) connection.lastRecievedClientTime = TimeUtils.millis() - 16;
@@ -416,6 +426,8 @@ public class NetServer extends Module{
     public void update(){
         if(threads.isEnabled() && !threads.isOnThread()) return;
 
+        admins.update();
+
         if(!headless && !closing && Net.server() && state.is(State.menu)){
             closing = true;
             reset();
@@ -428,12 +440,26 @@ public class NetServer extends Module{
         }
 
         if(!state.is(State.menu) && Net.server()){
+            logic.metrics.begin(Phase.sync);
             sync();
+            worldData.update();
+            logic.metrics.end(Phase.sync);
+        }
+
+        //send the remote calls made this tick
+        if(Net.server()){
+            Net.flushFrames();
         }
     }
 
     public void reset(){
         admins.clearTraces();
+        encodings.clear();
+    }
+
+    /**Returns the player of a connection, once its connect packet has been handled. Null if it has none.*/
+    public Player getPlayer(int connection){
+        return connections.get(connection);
     }
 
     public void kickAll(KickReason reason){
@@ -454,9 +480,7 @@ public class NetServer extends Module{
         Player player = connections.get(con.id);
 
         if(player != null && (reason == KickReason.kick || reason == KickReason.banned) && player.uuid != null){
-            PlayerInfo info = admins.getInfo(player.uuid);
-            info.timesKicked++;
-            info.lastKicked = TimeUtils.millis();
+            admins.updatePlayerKicked(player.uuid);
         }
 
         Call.onKick(connection, reason);
@@ -466,8 +490,29 @@ public class NetServer extends Module{
         admins.save();
     }
 
+    /**Writes a full snapshot that is not stored as a baseline.*/
     public void writeSnapshot(Player player, DataOutputStream dataStream) throws IOException{
-        viewport.setSize(player.con.viewWidth, player.con.viewHeight).setCenter(player.con.viewX, player.con.viewY);
+        //this happens outside of sync(), so entities may have changed since they were last encoded
+        encodings.nextFrame();
+        interest.nextFrame();
+        writeSnapshot(player, dataStream, -1);
+    }
+
+    /**
+     * Writes a snapshot for a player. Entities are written relative to the last snapshot the client acknowledged, if possible.
+     * @param snapshotID ID to store the snapshot's entities under, so it can be used as a baseline later; -1 to not store it.
+     */
+    public void writeSnapshot(Player player, DataOutputStream dataStream, int snapshotID) throws IOException{
+        NetConnection connection = player.con;
+        viewport.setSize(connection.viewWidth, connection.viewHeight).setCenter(connection.viewX, connection.viewY);
+        interest.subscribe(connection);
+
+        //baseline has to be looked up before the new snapshot is stored, as that may replace it
+        LongMap<byte[]> baseline = snapshotID == -1 || !deltaSnapshots ? null : connection.snapshots.get(connection.lastAckedSnapshotID);
+        LongMap<byte[]> current = snapshotID == -1 ? null : connection.snapshots.begin(snapshotID);
+
+        //write baseline ID
+        dataStream.writeInt(baseline == null ? -1 : connection.lastAckedSnapshotID);
 
         //write wave datas
         dataStream.writeFloat(state.wavetime);
@@ -508,11 +553,7 @@ public class NetServer extends Module{
 
             returnArray.clear();
             if(represent.isClipped()){
-                EntityPhysics.getNearby(group, viewport, entity -> {
-                    if(((SyncTrait) entity).isSyncing() && viewport.contains(entity.getX(), entity.getY())){
-                        returnArray.add(entity);
-                    }
-                });
+                interest.query(connection, group.getID(), viewport, returnArray);
             }else{
                 for(Entity entity : group.all()){
                     if(((SyncTrait) entity).isSyncing()){
@@ -529,7 +570,20 @@ public class NetServer extends Module{
                 //write all entities now
                 dataStream.writeInt(entity.getID()); //write id
                 dataStream.writeByte(((SyncTrait) entity).getTypeID()); //write type ID
-                ((SyncTrait) entity).write(dataStream); //write entity
+
+                //encodings are shared between all clients that see this entity this frame
+                byte[] encoded = encodings.get(group.getID(), (SyncTrait) entity);
+
+                long key = SnapshotHistory.key(group.getID(), entity.getID());
+                byte[] last = baseline == null ? null : baseline.get(key);
+                int start = dataStream.size();
+
+                SnapshotHistory.write(last, encoded, dataStream); //write entity
+
+                if(current != null) current.put(key, encoded);
+                snapshotStats.entities++;
+                snapshotStats.entityBytes += encoded.length;
+                snapshotStats.writtenEntityBytes += dataStream.size() - start;
             }
         }
     }
@@ -586,6 +640,8 @@ public class NetServer extends Module{
 
     void sync(){
         try{
+            encodings.nextFrame();
+            interest.nextFrame();
 
             //iterate through each player
             for(Player player : connections.values()){
@@ -603,21 +659,34 @@ public class NetServer extends Module{
                 Timers.mark();
                 syncStream.reset();
 
-                writeSnapshot(player, dataStream);
+                int snapid = ++connection.lastSentSnapshotID;
+                writeSnapshot(player, dataStream, snapid);
 
                 dataStream.close();
 
-                byte[] bytes = syncStream.toByteArray();
-                int uncompressed = bytes.length;
-                bytes = Net.compressSnapshot(bytes);
-                int snapid = connection.lastSentSnapshotID ++;
+                int uncompressed = syncStream.size();
+                compressed = Net.compressSnapshot(syncStream.getBytes(), uncompressed, compressed);
+
+                snapshotStats.snapshots++;
+                snapshotStats.bytes += compressed.limit();
 
-                if(debugSnapshots) Log.info("Sent snapshot: {0} bytes.", bytes.length);
-                sendSplitSnapshot(connection.id, bytes, snapid, uncompressed);
+                if(debugSnapshots) Log.info("Sent snapshot: {0} bytes.", compressed.limit());
+                sendSplitSnapshot(connection.id, compressed, snapid, uncompressed);
             }
 
         }catch(IOException e){
             e.printStackTrace();
         }
     }
+
+    public static class SnapshotStats{
+        /**Amount of snapshots sent and their total compressed size.*/
+        public long snapshots, bytes;
+        /**Amount of entities written, the size they would have taken in full, and the size they actually took.*/
+        public long entities, entityBytes, writtenEntityBytes;
+
+        public void reset(){
+            snapshots = bytes = entities = entityBytes = writtenEntityBytes = 0;
+        }
+    }
 }
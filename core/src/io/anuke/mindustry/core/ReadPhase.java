@@ -0,0 +1,97 @@
+package io.anuke.mindustry.core;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import io.anuke.mindustry.entities.UnitGrid;
+import io.anuke.mindustry.entities.units.BaseUnit;
+import io.anuke.mindustry.game.Team;
+import io.anuke.ucore.entities.EntityGroup;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * The read phase of a phase-split logic update.
+ * Before any entity is updated, this computes each unit's intent (targeting, movement and avoidance)
+ * from the state at the start of the tick. Intents only write to the unit that owns them, so they can be
+ * computed on several threads; the serialized apply phase that follows is the regular entity update.
+ * <p>
+ * Results are identical whether this runs serially or in parallel.
+ */
+public class ReadPhase{
+    private final UnitGrid grid = new UnitGrid();
+    private final Array<BaseUnit> units = new Array<>();
+    private final Array<AsyncResult<Void>> results = new Array<>();
+    private AsyncExecutor executor;
+    private int threads = 1;
+
+    /**Sets the amount of threads intents are computed on. 1 or less computes them on the calling thread.*/
+    public void setThreads(int threads){
+        if(this.threads == threads) return;
+
+        if(executor != null){
+            executor.dispose();
+            executor = null;
+        }
+
+        this.threads = threads;
+
+        if(threads > 1){
+            executor = new AsyncExecutor(threads);
+        }
+    }
+
+    public int getThreads(){
+        return threads;
+    }
+
+    public UnitGrid grid(){
+        return grid;
+    }
+
+    public void run(){
+        grid.build();
+
+        units.clear();
+        for(EntityGroup<BaseUnit> group : unitGroups){
+            for(int i = 0; i < group.size(); i++){
+                BaseUnit unit = group.all().get(i);
+                if(!unit.isDead()){
+                    units.add(unit);
+                }
+            }
+        }
+
+        //make sure team data exists before it is read concurrently, as it is created lazily
+        for(Team team : Team.all){
+            state.teams.get(team);
+        }
+
+        if(executor == null || units.size < threads * 2){
+            computeIntents(0, units.size);
+            return;
+        }
+
+        int chunk = units.size / threads + 1;
+
+        results.clear();
+        for(int start = 0; start < units.size; start += chunk){
+            int from = start, to = Math.min(start + chunk, units.size);
+            results.add(executor.submit(() -> {
+                computeIntents(from, to);
+                return null;
+            }));
+        }
+
+        for(AsyncResult<Void> result : results){
+            result.get();
+        }
+        results.clear();
+    }
+
+    private void computeIntents(int from, int to){
+        for(int i = from; i < to; i++){
+            units.get(i).computeIntent(grid);
+        }
+    }
+}
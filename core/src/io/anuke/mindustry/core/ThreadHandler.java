@@ -1,8 +1,8 @@
 package io.anuke.mindustry.core;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.utils.Queue;
 import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.core.MessageQueue.MessageHandler;
 import io.anuke.ucore.core.Settings;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.util.Log;
@@ -11,7 +11,8 @@ import static io.anuke.mindustry.Vars.control;
 import static io.anuke.mindustry.Vars.logic;
 
 public class ThreadHandler{
-    private final Queue<Runnable> toRun = new Queue<>();
+    private final MessageQueue<Runnable> toRun = new MessageQueue<>(1024);
+    private final MessageHandler<Runnable> runner = (id, r) -> r.run();
     private final ThreadProvider impl;
     private final Object updateLock = new Object();
     private float delta = 1f;
@@ -33,9 +34,7 @@ public class ThreadHandler{
 
     public void run(Runnable r){
         if(enabled){
-            synchronized(toRun){
-                toRun.addLast(r);
-            }
+            toRun.post(0, r);
         }else{
             r.run();
         }
@@ -51,9 +50,7 @@ public class ThreadHandler{
 
     public void runDelay(Runnable r){
         if(enabled){
-            synchronized(toRun){
-                toRun.addLast(r);
-            }
+            toRun.post(0, r);
         }else{
             Gdx.app.postRunnable(r);
         }
@@ -133,18 +130,7 @@ public class ThreadHandler{
             while(true){
                 long time = TimeUtils.nanoTime();
 
-                while(true){
-                    Runnable r;
-                    synchronized(toRun){
-                        if(toRun.size > 0){
-                            r = toRun.removeFirst();
-                        }else{
-                            break;
-                        }
-                    }
-
-                    r.run();
-                }
+                toRun.drain(runner);
 
                 logic.doUpdate = true;
                 logic.update();
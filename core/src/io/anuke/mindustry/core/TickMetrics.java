@@ -0,0 +1,148 @@
+package io.anuke.mindustry.core;
+
+import com.badlogic.gdx.utils.JsonWriter.OutputType;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Records how long each phase of a logic tick takes, as histograms with power-of-two microsecond buckets.
+ * Only meant to be used from the thread that runs the logic.
+ */
+public class TickMetrics{
+    /**Amount of histogram buckets. The last bucket holds everything above 2^(buckets - 2) microseconds.*/
+    public static final int buckets = 20;
+
+    private final long[][] histograms = new long[Phase.all.length][buckets];
+    private final long[] totals = new long[Phase.all.length];
+    private final long[] maxes = new long[Phase.all.length];
+    private final long[] counts = new long[Phase.all.length];
+    private final long[] starts = new long[Phase.all.length];
+
+    private long ticks, skippedTicks, lateTicks;
+
+    public void begin(Phase phase){
+        starts[phase.ordinal()] = TimeUtils.nanoTime();
+    }
+
+    public void end(Phase phase){
+        record(phase, TimeUtils.timeSinceNanos(starts[phase.ordinal()]));
+    }
+
+    public void record(Phase phase, long nanos){
+        int i = phase.ordinal();
+        long micros = nanos / 1000;
+
+        histograms[i][Math.min(64 - Long.numberOfLeadingZeros(micros), buckets - 1)]++;
+        totals[i] += nanos;
+        maxes[i] = Math.max(maxes[i], nanos);
+        counts[i]++;
+    }
+
+    /**Records that a full tick has run. Late ticks are ones that ran as part of a catch-up.*/
+    public void tick(boolean late){
+        ticks++;
+        if(late) lateTicks++;
+    }
+
+    /**Records ticks that were dropped because the scheduler fell too far behind.*/
+    public void skip(long amount){
+        skippedTicks += amount;
+    }
+
+    public long getTicks(){
+        return ticks;
+    }
+
+    public long getSkippedTicks(){
+        return skippedTicks;
+    }
+
+    public long getLateTicks(){
+        return lateTicks;
+    }
+
+    public long getCount(Phase phase){
+        return counts[phase.ordinal()];
+    }
+
+    public float getAverageMillis(Phase phase){
+        int i = phase.ordinal();
+        return counts[i] == 0 ? 0f : totals[i] / (float) counts[i] / 1000000f;
+    }
+
+    public float getMaxMillis(Phase phase){
+        return maxes[phase.ordinal()] / 1000000f;
+    }
+
+    /**Returns an upper bound for the given percentile (0-1) of a phase's duration, in milliseconds.*/
+    public float getPercentileMillis(Phase phase, float percentile){
+        int i = phase.ordinal();
+        long target = (long) Math.ceil(counts[i] * percentile);
+        long seen = 0;
+
+        for(int b = 0; b < buckets; b++){
+            seen += histograms[i][b];
+            if(seen >= target && seen > 0){
+                return b == buckets - 1 ? getMaxMillis(phase) : Math.min((1L << b) / 1000f, getMaxMillis(phase));
+            }
+        }
+        return 0f;
+    }
+
+    public long[] getHistogram(Phase phase){
+        return histograms[phase.ordinal()];
+    }
+
+    public void reset(){
+        for(int i = 0; i < Phase.all.length; i++){
+            for(int b = 0; b < buckets; b++){
+                histograms[i][b] = 0;
+            }
+            totals[i] = maxes[i] = counts[i] = 0;
+        }
+        ticks = skippedTicks = lateTicks = 0;
+    }
+
+    /**Writes all metrics as a single JSON object.*/
+    public String toJson(){
+        StringBuilder out = new StringBuilder();
+        out.append("{\"ticks\":").append(ticks)
+            .append(",\"lateTicks\":").append(lateTicks)
+            .append(",\"skippedTicks\":").append(skippedTicks)
+            .append(",\"bucketUnit\":").append(OutputType.json.quoteValue("us"))
+            .append(",\"phases\":{");
+
+        for(Phase phase : Phase.all){
+            int i = phase.ordinal();
+            if(i > 0) out.append(',');
+
+            out.append(OutputType.json.quoteValue(phase.name())).append(":{")
+                .append("\"count\":").append(counts[i])
+                .append(",\"totalNanos\":").append(totals[i])
+                .append(",\"maxNanos\":").append(maxes[i])
+                .append(",\"histogram\":[");
+
+            for(int b = 0; b < buckets; b++){
+                if(b > 0) out.append(',');
+                out.append(histograms[i][b]);
+            }
+            out.append("]}");
+        }
+
+        return out.append("}}").toString();
+    }
+
+    public enum Phase{
+        /**Handling of packets received since the last tick.*/
+        input,
+        /**Updates of every entity group.*/
+        entities,
+        /**Bullet collisions.*/
+        collisions,
+        /**Flow field updates.*/
+        pathfinder,
+        /**Sending of snapshots to clients.*/
+        sync;
+
+        public static final Phase[] all = values();
+    }
+}
@@ -7,6 +7,7 @@ import io.anuke.mindustry.ai.BlockIndexer;
 import io.anuke.mindustry.ai.Pathfinder;
 import io.anuke.mindustry.content.blocks.Blocks;
 import io.anuke.mindustry.core.GameState.State;
+import io.anuke.mindustry.game.EventType.RegionLoadEvent;
 import io.anuke.mindustry.game.EventType.TileChangeEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadEvent;
 import io.anuke.mindustry.game.Team;
@@ -193,6 +194,8 @@ public class World extends Module{
      */
     public void beginMapLoad(){
         generating = true;
+        //power graphs refer to the tiles of the last map
+        logic.power.clear();
     }
 
     /**
@@ -216,6 +219,35 @@ public class World extends Module{
         Events.fire(new WorldLoadEvent());
     }
 
+    /**
+     * Call to signify the beginning of loading a region into an already loaded world.
+     * TileChangeEvents will not be fired until endRegionLoad().
+     */
+    public void beginRegionLoad(){
+        generating = true;
+    }
+
+    /**
+     * Call to signify the end of loading a region. Updates the occlusion of the region and the tiles around it,
+     * and the proximity of every block touching it. A RegionLoadEvent will be fired.
+     */
+    public void endRegionLoad(int x, int y, int width, int height){
+        for(int cx = Math.max(x - 1, 0); cx < Math.min(x + width + 1, tiles.length); cx++){
+            for(int cy = Math.max(y - 1, 0); cy < Math.min(y + height + 1, tiles[0].length); cy++){
+                tiles[cx][cy].updateOcclusion();
+
+                //blocks next to the region may only reach it with one of their parts
+                Tile target = tiles[cx][cy].target();
+                if(target.entity != null){
+                    target.entity.updateProximity();
+                }
+            }
+        }
+
+        generating = false;
+        Events.fire(new RegionLoadEvent(x, y, width, height));
+    }
+
     /**Loads up a sector map. This does not call play(), but calls reset().*/
     public void loadSector(Sector sector){
         currentSector = sector;
@@ -277,6 +309,11 @@ public class World extends Module{
         endMapLoad();
     }
 
+    /**Returns whether a map is being loaded or generated, between beginMapLoad() and endMapLoad().*/
+    public boolean isGenerating(){
+        return generating;
+    }
+
     public void notifyChanged(Tile tile){
         if(!generating){
             threads.runDelay(() -> Events.fire(new TileChangeEvent(tile)));
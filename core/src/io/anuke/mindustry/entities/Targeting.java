@@ -0,0 +1,57 @@
+package io.anuke.mindustry.entities;
+
+import io.anuke.mindustry.entities.traits.TargetTrait;
+import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.function.Predicate;
+
+/**
+ * Finds targets for blocks, such as turrets, using a {@link UnitGrid} that is built at most once per tick,
+ * on the first query. Queries do not allocate, so any amount of turrets can share the same grid.
+ */
+public class Targeting{
+    private static final Predicate<Tile> anyTile = tile -> true;
+
+    private final UnitGrid grid = new UnitGrid();
+    private boolean built;
+    private long queries, builds;
+
+    /**Marks the grid as out of date, so it is rebuilt on the next query. Called at the start of every tick.*/
+    public void invalidate(){
+        built = false;
+    }
+
+    public UnitGrid grid(){
+        if(!built){
+            grid.build();
+            built = true;
+            builds++;
+        }
+        return grid;
+    }
+
+    /**
+     * Returns the closest enemy unit in range, or the closest enemy tile if there is none.
+     * Same as {@link Units#getClosestTarget(Team, float, float, float, Predicate)} with a predicate that skips dead
+     * units, and flying ones if air is false.
+     */
+    public TargetTrait getClosestTarget(Team team, float x, float y, float range, boolean air){
+        queries++;
+
+        Unit unit = grid().getClosestEnemy(team, x, y, range, air);
+        if(unit != null){
+            return unit;
+        }else{
+            return Units.findEnemyTile(team, x, y, range, anyTile);
+        }
+    }
+
+    /**Returns how many queries have been made, and how many times the grid was built for them.*/
+    public long getQueries(){
+        return queries;
+    }
+
+    public long getBuilds(){
+        return builds;
+    }
+}
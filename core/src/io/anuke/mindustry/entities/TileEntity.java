@@ -32,14 +32,14 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
-import static io.anuke.mindustry.Vars.tileGroup;
-import static io.anuke.mindustry.Vars.world;
+import static io.anuke.mindustry.Vars.*;
 
 public class TileEntity extends BaseEntity implements TargetTrait, HealthTrait{
     public static final float timeToSleep = 60f * 4; //4 seconds to fall asleep
     private static final ObjectSet<Tile> tmpTiles = new ObjectSet<>();
-    /**This value is only used for debugging.*/
-    public static int sleepingEntities = 0;
+    /**Tiles marked as changing by the updates that are running, so each update ends exactly the changes it began.*/
+    private static final Array<Tile> changing = new Array<>(false, 64, Tile.class);
+    private static int updating;
 
     public Tile tile;
     public Timer timer;
@@ -53,14 +53,20 @@ public class TileEntity extends BaseEntity implements TargetTrait, HealthTrait{
 
     /**List of (cached) tiles with entities in proximity, used for outputting to*/
     private Array<Tile> proximity = new Array<>(8);
+    /**Tiles in proximity of the same team, and the edge of this tile facing each of them. Rebuilt when proximity or teams change.*/
+    private Array<Tile> dumpTargets = new Array<>(8), dumpEdges = new Array<>(8);
+    private boolean dumpTargetsValid;
     private boolean dead = false;
     private boolean sleeping;
     private float sleepTime;
+    /**Whether this entity is in the tile group, and whether it is in the update list of the scheduler.*/
+    boolean scheduled, inActiveList;
 
     @Remote(called = Loc.server)
     public static void onTileDamage(Tile tile, float health){
         if(tile.entity != null){
             tile.entity.health = health;
+            tile.entity.noSleep();
         }
     }
 
@@ -92,23 +98,24 @@ public class TileEntity extends BaseEntity implements TargetTrait, HealthTrait{
         return Timers.delta() * timeScale;
     }
 
-    /**Call when nothing is happening to the entity. This increments the internal sleep timer.*/
+    /**
+     * Call when nothing is happening to the entity. This increments the internal sleep timer.
+     * Sleeping entities are not updated until {@link #noSleep()} is called.
+     */
     public void sleep(){
         sleepTime += Timers.delta();
         if(!sleeping && sleepTime >= timeToSleep){
-            remove();
             sleeping = true;
-            sleepingEntities++;
+            logic.tiles.slept(this);
         }
     }
 
-    /**Call when this entity is updating. This wakes it up.*/
+    /**Call when this entity is updating, or when something happens that it needs to react to. This wakes it up.*/
     public void noSleep(){
         sleepTime = 0f;
         if(sleeping){
-            add();
             sleeping = false;
-            sleepingEntities--;
+            logic.tiles.woke(this);
         }
     }
 
@@ -167,6 +174,7 @@ public class TileEntity extends BaseEntity implements TargetTrait, HealthTrait{
             }
             if(other != null && other.entity != null){
                 other.entity.proximity.removeValue(tile, true);
+                other.entity.dumpTargetsValid = false;
             }
         }
     }
@@ -191,6 +199,7 @@ public class TileEntity extends BaseEntity implements TargetTrait, HealthTrait{
                 if(!other.entity.proximity.contains(tile, true)){
                     other.entity.proximity.add(tile);
                 }
+                other.entity.dumpTargetsValid = false;
             }
         }
 
@@ -198,6 +207,7 @@ public class TileEntity extends BaseEntity implements TargetTrait, HealthTrait{
         for(Tile tile : tmpTiles){
             proximity.add(tile);
         }
+        dumpTargetsValid = false;
 
         tile.block().onProximityUpdate(tile);
     }
@@ -206,6 +216,38 @@ public class TileEntity extends BaseEntity implements TargetTrait, HealthTrait{
         return proximity;
     }
 
+    /**Returns the tiles in proximity of the same team, which items and liquids can be dumped to.*/
+    public Array<Tile> dumpTargets(){
+        if(!dumpTargetsValid) updateDumpTargets();
+        return dumpTargets;
+    }
+
+    /**Returns the edge of this tile that faces each of the {@link #dumpTargets()}, in the same order.*/
+    public Array<Tile> dumpEdges(){
+        if(!dumpTargetsValid) updateDumpTargets();
+        return dumpEdges;
+    }
+
+    /**Call when the team of this tile or a tile in its proximity has changed.*/
+    public void invalidateDumpTargets(){
+        dumpTargetsValid = false;
+    }
+
+    private void updateDumpTargets(){
+        dumpTargets.clear();
+        dumpEdges.clear();
+
+        for(int i = 0; i < proximity.size; i++){
+            Tile other = proximity.get(i);
+            if(other.getTeamID() == tile.getTeamID()){
+                dumpTargets.add(other);
+                dumpEdges.add(Edges.getFacingEdge(tile, other));
+            }
+        }
+
+        dumpTargetsValid = true;
+    }
+
     @Override
     public void health(float health){
         this.health = health;
@@ -249,9 +291,30 @@ public class TileEntity extends BaseEntity implements TargetTrait, HealthTrait{
         return Vector2.Zero;
     }
 
+    /**
+     * Marks a tile that the running update writes into as changing, until that update ends. Updates already mark their
+     * own tile and every tile in their proximity; blocks that write into tiles further away, such as bridges, mark those.
+     */
+    public static void markChanging(Tile other){
+        if(updating == 0) throw new IllegalStateException("Tiles can only be marked as changing while an entity updates.");
+
+        other.beginChange();
+        changing.add(other);
+    }
+
     @Override
     public void update(){
-        synchronized(Tile.tileSetLock){
+        //the renderer reads entities from another thread; it discards what it read while they were being updated.
+        //blocks write into the blocks next to them when moving items and liquids, so those are marked as well
+        Tile tile = this.tile;
+        int from = changing.size;
+        updating++;
+        markChanging(tile);
+        for(int i = 0; i < proximity.size; i++){
+            markChanging(proximity.get(i));
+        }
+
+        try{
             //TODO better smoke effect, this one is awful
             if(health != 0 && health < tile.block().health && !(tile.block() instanceof Wall) &&
                     Mathf.chance(0.009f * Timers.delta() * (1f - health / tile.block().health))){
@@ -272,9 +335,26 @@ public class TileEntity extends BaseEntity implements TargetTrait, HealthTrait{
             if(tile.block() == previous && cons != null){
                 cons.update(this);
             }
+        }finally{
+            //proximity may have changed during the update, so the marked tiles are ended rather than proximity
+            for(int i = changing.size - 1; i >= from; i--){
+                changing.get(i).endChange();
+            }
+            changing.truncate(from);
+            updating--;
         }
     }
 
+    @Override
+    public void added(){
+        logic.tiles.added(this);
+    }
+
+    @Override
+    public void removed(){
+        logic.tiles.removed(this);
+    }
+
     @Override
     public EntityGroup targetGroup(){
         return tileGroup;
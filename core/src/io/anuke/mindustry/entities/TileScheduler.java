@@ -0,0 +1,90 @@
+package io.anuke.mindustry.entities;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Updates the tile entities that are awake.
+ * Every updating tile entity stays in the tile group; sleeping ones are only left out of the update list,
+ * until something wakes them up through {@link TileEntity#noSleep()}.
+ */
+public class TileScheduler{
+    private final Array<TileEntity> active = new Array<>(false, 256, TileEntity.class);
+    private int sleeping;
+    private long sleeps, wakeups;
+
+    /**Updates every awake entity once. Entities that fell asleep or were removed are dropped from the list here.*/
+    public void update(){
+        for(int i = 0; i < active.size; ){
+            TileEntity entity = active.items[i];
+
+            if(entity.isSleeping() || !entity.scheduled){
+                entity.inActiveList = false;
+                active.removeIndex(i);
+                continue;
+            }
+
+            entity.update();
+            i++;
+        }
+    }
+
+    void added(TileEntity entity){
+        entity.scheduled = true;
+        if(entity.isSleeping()){
+            sleeping++;
+        }else{
+            activate(entity);
+        }
+    }
+
+    void removed(TileEntity entity){
+        entity.scheduled = false;
+        if(entity.isSleeping()) sleeping--;
+    }
+
+    void slept(TileEntity entity){
+        if(!entity.scheduled) return;
+        sleeping++;
+        sleeps++;
+    }
+
+    void woke(TileEntity entity){
+        if(!entity.scheduled) return;
+        sleeping--;
+        wakeups++;
+        activate(entity);
+    }
+
+    private void activate(TileEntity entity){
+        if(!entity.inActiveList){
+            entity.inActiveList = true;
+            active.add(entity);
+        }
+    }
+
+    /**Returns the amount of entities that will be updated next tick. May include some that have just fallen asleep.*/
+    public int getActive(){
+        return active.size;
+    }
+
+    public int getSleeping(){
+        return sleeping;
+    }
+
+    /**Returns how many times entities have fallen asleep, and woken up.*/
+    public long getSleeps(){
+        return sleeps;
+    }
+
+    public long getWakeups(){
+        return wakeups;
+    }
+
+    public void clear(){
+        for(int i = 0; i < active.size; i++){
+            active.items[i].inActiveList = false;
+        }
+        active.clear();
+        sleeping = 0;
+    }
+}
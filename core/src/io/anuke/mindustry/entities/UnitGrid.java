@@ -0,0 +1,143 @@
+package io.anuke.mindustry.entities;
+
+import com.badlogic.gdx.math.Vector2;
+import io.anuke.mindustry.entities.units.BaseUnit;
+import io.anuke.mindustry.game.Team;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.util.Mathf;
+
+import java.util.Arrays;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Uniform grid of every unit and player, rebuilt once per tick.
+ * Once built, all queries are read-only and do not allocate, so they can be run from several threads at once,
+ * as long as nothing is added, removed or moved in the meantime.
+ */
+public class UnitGrid{
+    /**Size of one cell, in world units.*/
+    private static final float cellSize = tilesize * 8;
+
+    private int width, height;
+    /**Index of the first unit in each cell, or -1.*/
+    private int[] heads = {};
+    /**Index of the next unit in the same cell, or -1.*/
+    private int[] next = new int[64];
+    private Unit[] units = new Unit[64];
+    private int size;
+
+    /**Clears the grid and inserts every unit and player, in group order.*/
+    public void build(){
+        width = Math.max(Mathf.ceil(world.width() * tilesize / cellSize), 1);
+        height = Math.max(Mathf.ceil(world.height() * tilesize / cellSize), 1);
+
+        if(heads.length < width * height){
+            heads = new int[width * height];
+        }
+
+        Arrays.fill(heads, 0, width * height, -1);
+        Arrays.fill(units, 0, size, null);
+        size = 0;
+
+        for(EntityGroup<BaseUnit> group : unitGroups){
+            for(int i = 0; i < group.size(); i++){
+                insert(group.all().get(i));
+            }
+        }
+
+        for(int i = 0; i < playerGroup.size(); i++){
+            insert(playerGroup.all().get(i));
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Returns the closest living enemy unit or player strictly within range, or null.
+     * Matches {@link Units#getClosestEnemy(Team, float, float, float, io.anuke.ucore.function.Predicate)} without a predicate.
+     */
+    public Unit getClosestEnemy(Team team, float x, float y, float range){
+        return getClosestEnemy(team, x, y, range, true);
+    }
+
+    /**Returns the closest living enemy within range, or null. Flying units are only returned if air is true.*/
+    public Unit getClosestEnemy(Team team, float x, float y, float range, boolean air){
+        Unit result = null;
+        float cdist = 0f;
+
+        int minx = cellX(x - range), maxx = cellX(x + range);
+        int miny = cellY(y - range), maxy = cellY(y + range);
+
+        for(int cx = minx; cx <= maxx; cx++){
+            for(int cy = miny; cy <= maxy; cy++){
+                for(int i = heads[cx + cy * width]; i != -1; i = next[i]){
+                    Unit unit = units[i];
+
+                    if(unit.isDead() || (!air && unit.isFlying()) || !state.teams.areEnemies(team, unit.getTeam())) continue;
+
+                    float dist = Vector2.dst(unit.x, unit.y, x, y);
+                    if(dist < range && (result == null || dist < cdist)){
+                        result = unit;
+                        cdist = dist;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes the velocity that pushes a unit away from others in its group.
+     * Matches {@link Unit#avoidOthers(float)}, but writes into a vector instead of the unit's velocity.
+     */
+    public Vector2 getAvoidance(Unit unit, float avoidRange, Vector2 out){
+        out.setZero();
+
+        int minx = cellX(unit.x - avoidRange), maxx = cellX(unit.x + avoidRange);
+        int miny = cellY(unit.y - avoidRange), maxy = cellY(unit.y + avoidRange);
+
+        for(int cx = minx; cx <= maxx; cx++){
+            for(int cy = miny; cy <= maxy; cy++){
+                for(int i = heads[cx + cy * width]; i != -1; i = next[i]){
+                    Unit other = units[i];
+
+                    if(other == unit || other.getGroup() != unit.getGroup() || other.isDead() || other.isFlying() != unit.isFlying()
+                            || other.getCarrier() == unit || unit.getCarrier() == other) continue;
+
+                    float dst = unit.distanceTo(other);
+                    if(dst > avoidRange || dst <= 0f) continue;
+
+                    float scl = (1f - (dst / avoidRange)) / dst;
+                    out.add((unit.x - other.x) * scl, (unit.y - other.y) * scl);
+                }
+            }
+        }
+
+        return out;
+    }
+
+    private void insert(Unit unit){
+        if(size == units.length){
+            units = Arrays.copyOf(units, size * 2);
+            next = Arrays.copyOf(next, size * 2);
+        }
+
+        int cell = cellX(unit.x) + cellY(unit.y) * width;
+        units[size] = unit;
+        next[size] = heads[cell];
+        heads[cell] = size;
+        size++;
+    }
+
+    private int cellX(float x){
+        return Mathf.clamp((int) (x / cellSize), 0, width - 1);
+    }
+
+    private int cellY(float y){
+        return Mathf.clamp((int) (y / cellSize), 0, height - 1);
+    }
+}
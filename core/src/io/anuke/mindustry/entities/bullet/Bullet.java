@@ -99,6 +99,11 @@ public class Bullet extends BulletEntity<BulletType> implements TeamTrait, SyncT
         return type.collidesTiles;
     }
 
+    /**Whether this bullet can currently hit units. Used by {@link BulletGrid} to skip bullets before collision checks.*/
+    public boolean collidesUnits(){
+        return type.collides && !supressCollision && team != null;
+    }
+
     public void supress(){
         supressCollision = true;
         supressOnce = true;
@@ -0,0 +1,217 @@
+package io.anuke.mindustry.entities.bullet;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import io.anuke.mindustry.entities.Unit;
+import io.anuke.mindustry.entities.units.BaseUnit;
+import io.anuke.mindustry.game.Team;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.util.Mathf;
+
+import java.util.Arrays;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Collides bullets with units and players. Replaces colliding the bullet group with every unit group through the physics tree.
+ * Every tick, the box each bullet swept through since its last position is stored in flat arrays and bucketed into a
+ * uniform grid, with one set of cells for each team. Each unit then only checks the cells it overlaps, for teams that
+ * treat it as an enemy, and only touches bullet objects once their boxes overlap.
+ * Bullets that pass that check are swept against the unit's hitbox, so fast bullets only hit units their path crosses,
+ * at the point where it first touches them.
+ */
+public class BulletGrid{
+    /**Size of one cell, in world units.*/
+    private static final float cellSize = tilesize * 4;
+
+    private final Rectangle rect = new Rectangle(), other = new Rectangle();
+    private final Vector2 point = new Vector2();
+
+    private int width, height, cells;
+    /**Index of the first bullet in each cell of each team, or -1. Cells of a team start at team.ordinal() * cells.*/
+    private int[] heads = {};
+    /**Index of the next bullet in the same cell, or -1.*/
+    private int[] next = new int[256];
+    /**Swept box of each bullet.*/
+    private float[] minX = new float[256], minY = new float[256], maxX = new float[256], maxY = new float[256];
+    private Bullet[] bullets = new Bullet[256];
+    private int size;
+    /**Largest distance from a bullet's cell position to the edge of its box; queries are expanded by this much.*/
+    private float extent;
+
+    /**Collides every bullet with every unit and player that it overlaps. Called once per tick, after entities are updated.*/
+    public void collide(){
+        build(bulletGroup);
+
+        if(size == 0) return;
+
+        for(EntityGroup<BaseUnit> group : unitGroups){
+            collideGroup(group);
+        }
+
+        collideGroup(playerGroup);
+    }
+
+    /**Collides the bullets of one group with the units of another, such as groups of entities made for benchmarks.*/
+    public void collide(EntityGroup<? extends Bullet> bullets, EntityGroup<? extends Unit> units){
+        build(bullets);
+
+        if(size == 0) return;
+
+        collideGroup(units);
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**Clears the grid and inserts every bullet of a group that can collide this tick.*/
+    public void build(EntityGroup<? extends Bullet> group){
+        width = Math.max(Mathf.ceil(world.width() * tilesize / cellSize), 1);
+        height = Math.max(Mathf.ceil(world.height() * tilesize / cellSize), 1);
+        cells = width * height;
+
+        if(heads.length < cells * Team.all.length){
+            heads = new int[cells * Team.all.length];
+        }
+
+        Arrays.fill(heads, 0, cells * Team.all.length, -1);
+        Arrays.fill(bullets, 0, size, null);
+        size = 0;
+        extent = 0f;
+
+        for(int i = 0; i < group.size(); i++){
+            Bullet bullet = group.all().get(i);
+            if(!bullet.collidesUnits()) continue;
+
+            insert(bullet);
+        }
+    }
+
+    private void insert(Bullet bullet){
+        if(size == bullets.length){
+            int length = size * 2;
+            bullets = Arrays.copyOf(bullets, length);
+            next = Arrays.copyOf(next, length);
+            minX = Arrays.copyOf(minX, length);
+            minY = Arrays.copyOf(minY, length);
+            maxX = Arrays.copyOf(maxX, length);
+            maxY = Arrays.copyOf(maxY, length);
+        }
+
+        bullet.getHitbox(rect);
+        float dx = bullet.lastPosition().x - bullet.x, dy = bullet.lastPosition().y - bullet.y;
+
+        minX[size] = rect.x + Math.min(dx, 0f);
+        minY[size] = rect.y + Math.min(dy, 0f);
+        maxX[size] = rect.x + rect.width + Math.max(dx, 0f);
+        maxY[size] = rect.y + rect.height + Math.max(dy, 0f);
+
+        float cx = (minX[size] + maxX[size]) / 2f, cy = (minY[size] + maxY[size]) / 2f;
+        extent = Math.max(extent, Math.max(maxX[size] - cx, maxY[size] - cy));
+
+        int cell = bullet.getTeam().ordinal() * cells + cellX(cx) + cellY(cy) * width;
+        bullets[size] = bullet;
+        next[size] = heads[cell];
+        heads[cell] = size;
+        size++;
+    }
+
+    private void collideGroup(EntityGroup<? extends Unit> group){
+        for(int i = 0; i < group.size(); i++){
+            collide(group.all().get(i));
+        }
+    }
+
+    private void collide(Unit unit){
+        if(unit.isDead()) return;
+
+        unit.getHitbox(rect);
+        float dx = unit.lastPosition().x - unit.x, dy = unit.lastPosition().y - unit.y;
+        float ux = rect.x + Math.min(dx, 0f), uy = rect.y + Math.min(dy, 0f);
+        float ux2 = rect.x + rect.width + Math.max(dx, 0f), uy2 = rect.y + rect.height + Math.max(dy, 0f);
+
+        int minx = cellX(ux - extent), maxx = cellX(ux2 + extent);
+        int miny = cellY(uy - extent), maxy = cellY(uy2 + extent);
+
+        for(Team team : Team.all){
+            //same check as Unit#collides, done once per team instead of once per bullet
+            if(!state.teams.areEnemies(team, unit.getTeam())) continue;
+
+            int offset = team.ordinal() * cells;
+
+            for(int cx = minx; cx <= maxx; cx++){
+                for(int cy = miny; cy <= maxy; cy++){
+                    for(int i = heads[offset + cx + cy * width]; i != -1; i = next[i]){
+                        if(maxX[i] < ux || minX[i] > ux2 || maxY[i] < uy || minY[i] > uy2) continue;
+
+                        Bullet bullet = bullets[i];
+                        if(bullet.collides(unit) && unit.collides(bullet) && sweep(bullet, unit, rect, point)){
+                            hit(bullet, unit, point.x, point.y);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds where a bullet first touches a unit, as both move from their last positions to their current ones.
+     * The center of the bullet's hitbox is moved along its path relative to the unit, through the unit's hitbox grown by
+     * the bullet's; this is the same as sweeping the two boxes against each other.
+     * @param hitbox the unit's current hitbox.
+     * @return whether they touch. If they do, the point is set to where the bullet was when they first touched.
+     */
+    private boolean sweep(Bullet bullet, Unit unit, Rectangle hitbox, Vector2 out){
+        bullet.getHitbox(other);
+
+        float lastX = bullet.lastPosition().x, lastY = bullet.lastPosition().y;
+        float moveX = bullet.x - lastX, moveY = bullet.y - lastY;
+        float unitMoveX = unit.x - unit.lastPosition().x, unitMoveY = unit.y - unit.lastPosition().y;
+
+        //the unit's hitbox where it was, grown by half of the bullet's hitbox on every side
+        float minx = hitbox.x - unitMoveX - other.width / 2f, maxx = hitbox.x + hitbox.width - unitMoveX + other.width / 2f;
+        float miny = hitbox.y - unitMoveY - other.height / 2f, maxy = hitbox.y + hitbox.height - unitMoveY + other.height / 2f;
+
+        //center of the bullet's hitbox where it was, and how far it moved relative to the unit
+        float px = other.x + other.width / 2f - moveX, py = other.y + other.height / 2f - moveY;
+        float dx = moveX - unitMoveX, dy = moveY - unitMoveY;
+
+        float enter = 0f, exit = 1f;
+
+        if(Math.abs(dx) < 0.0001f){
+            if(px < minx || px > maxx) return false;
+        }else{
+            float t1 = (minx - px) / dx, t2 = (maxx - px) / dx;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+
+        if(Math.abs(dy) < 0.0001f){
+            if(py < miny || py > maxy) return false;
+        }else{
+            float t1 = (miny - py) / dy, t2 = (maxy - py) / dy;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+
+        if(enter > exit) return false;
+
+        out.set(lastX + moveX * enter, lastY + moveY * enter);
+        return true;
+    }
+
+    /**Called for every bullet and unit that collide, with the position of the bullet when they first touched.*/
+    protected void hit(Bullet bullet, Unit unit, float x, float y){
+        bullet.collision(unit, x, y);
+        unit.collision(bullet, x, y);
+    }
+
+    private int cellX(float x){
+        return Mathf.clamp((int) (x / cellSize), 0, width - 1);
+    }
+
+    private int cellY(float y){
+        return Mathf.clamp((int) (y / cellSize), 0, height - 1);
+    }
+}
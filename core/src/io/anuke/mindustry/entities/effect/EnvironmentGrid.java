@@ -0,0 +1,288 @@
+package io.anuke.mindustry.entities.effect;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntArray;
+import io.anuke.mindustry.entities.Unit;
+import io.anuke.mindustry.entities.units.BaseUnit;
+import io.anuke.mindustry.net.Net;
+import io.anuke.ucore.core.Timers;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.util.Mathf;
+
+import java.util.Arrays;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * The state of fires and puddles, stored in flat arrays indexed by {@link io.anuke.mindustry.world.Tile#packedPosition()}:
+ * how long each fire has burned and will burn for, and how much liquid each puddle holds.
+ * The {@link Fire} and {@link Puddle} entities on top of them are only there to be drawn, synced and saved,
+ * and hold the code that simulates a tile.
+ * <p>
+ * Each tick, only a slice of the fires and puddles is simulated, in the order they were created, up to {@link #fireSlice}
+ * and {@link #puddleSlice} of each. When there are more than that, each of them is simulated less often, with all the time
+ * since it last was, so they burn and dry at the same rate, but spread at most once per step.
+ * Fires and puddles can also only spread to a limited amount of new tiles per tick.
+ * <p>
+ * Fires and puddles do not look for the units on top of them. Instead, each ground unit looks up the tiles under it:
+ * every tick for fires, and every {@link #puddleSpacing} ticks for puddles. Units outside the box around all fires and
+ * puddles are skipped.
+ */
+public class EnvironmentGrid{
+    /**Most times fires can spread each tick.*/
+    private static final int spreadBudget = 20;
+    /**Most new puddles that existing puddles can spread into each tick.*/
+    private static final int puddleBudget = 20;
+    /**Most fires and puddles that are simulated each tick.*/
+    private static final int fireSlice = 250, puddleSlice = 250;
+    /**Ticks between puddles applying their effects to units.*/
+    private static final float puddleSpacing = 20f;
+
+    private final Rectangle hitbox = new Rectangle();
+    private Fire[] fires = {};
+    private Puddle[] puddles = {};
+    /**Ticks each fire has burned, and ticks it burns for in total.*/
+    private float[] fireTime = {}, fireLifetime = {};
+    /**Liquid in each puddle, and the most liquid poured into it in one tick since it was last simulated.*/
+    private float[] amount = {}, accepting = {};
+    /**{@link Timers#time()} of the last time each fire and puddle was simulated.*/
+    private float[] fireUpdated = {}, puddleUpdated = {};
+    /**Positions of every fire and puddle, in the order they are simulated.*/
+    private final IntArray firePositions = new IntArray(), puddlePositions = new IntArray();
+    private int fireCursor, puddleCursor;
+    private int spreads, puddleSpreads;
+    private float puddleTime;
+    /**Tile bounds of every fire and puddle that is active this tick.*/
+    private int minx, miny, maxx, maxy;
+
+    public Fire getFire(int position){
+        return position < fires.length ? fires[position] : null;
+    }
+
+    public Puddle getPuddle(int position){
+        return position < puddles.length ? puddles[position] : null;
+    }
+
+    /**Puts a fire on a tile without one, burning for the given amount of ticks.*/
+    void setFire(int position, Fire fire, float time, float lifetime){
+        ensure(position);
+        if(fires[position] == null) firePositions.add(position);
+        fires[position] = fire;
+        fireTime[position] = time;
+        fireLifetime[position] = lifetime;
+        fireUpdated[position] = Timers.time();
+    }
+
+    /**Puts a puddle on a tile without one, holding the given amount of liquid.*/
+    void setPuddle(int position, Puddle puddle, float liquid){
+        ensure(position);
+        if(puddles[position] == null) puddlePositions.add(position);
+        puddles[position] = puddle;
+        amount[position] = liquid;
+        accepting[position] = 0f;
+        puddleUpdated[position] = Timers.time();
+    }
+
+    void removeFire(int position, Fire fire){
+        if(position < fires.length && fires[position] == fire){
+            fires[position] = null;
+            fireCursor = remove(firePositions, position, fireCursor);
+        }
+    }
+
+    void removePuddle(int position, Puddle puddle){
+        if(position < puddles.length && puddles[position] == puddle){
+            puddles[position] = null;
+            puddleCursor = remove(puddlePositions, position, puddleCursor);
+        }
+    }
+
+    float fireTime(int position){
+        return fireTime[position];
+    }
+
+    void fireTime(int position, float time){
+        fireTime[position] = time;
+    }
+
+    float fireLifetime(int position){
+        return fireLifetime[position];
+    }
+
+    void fireLifetime(int position, float lifetime){
+        fireLifetime[position] = lifetime;
+    }
+
+    float amount(int position){
+        return amount[position];
+    }
+
+    void amount(int position, float liquid){
+        amount[position] = liquid;
+    }
+
+    /**Pours liquid into a puddle. Liquid poured into the same puddle in one tick does not add up.*/
+    void accept(int position, float liquid){
+        accepting[position] = Math.max(accepting[position], liquid);
+    }
+
+    /**Returns the liquid poured into a puddle since it was last simulated, and empties it.*/
+    float takeAccepted(int position){
+        float liquid = accepting[position];
+        accepting[position] = 0f;
+        return liquid;
+    }
+
+    /**Uses up one fire spread for this tick. Returns false if there are none left.*/
+    boolean spread(){
+        if(spreads <= 0) return false;
+        spreads--;
+        return true;
+    }
+
+    /**Uses up one puddle spread onto a tile without a puddle for this tick. Returns false if there are none left.*/
+    boolean spreadPuddle(){
+        if(puddleSpreads <= 0) return false;
+        puddleSpreads--;
+        return true;
+    }
+
+    /**Removes every fire and puddle from the grid. Their entities are removed with the rest.*/
+    public void clear(){
+        Arrays.fill(fires, null);
+        Arrays.fill(puddles, null);
+        firePositions.clear();
+        puddlePositions.clear();
+        fireCursor = puddleCursor = 0;
+    }
+
+    /**Simulates the next slice of fires and puddles. Called once per tick, serverside, after their entities are updated.*/
+    private void simulate(){
+        float time = Timers.time();
+
+        for(int i = 0; i < fireSlice && i < firePositions.size; i++){
+            if(fireCursor >= firePositions.size) fireCursor = 0;
+            int position = firePositions.get(fireCursor++);
+
+            float delta = time - fireUpdated[position];
+            fireUpdated[position] = time;
+            fires[position].simulate(delta);
+        }
+
+        for(int i = 0; i < puddleSlice && i < puddlePositions.size; i++){
+            if(puddleCursor >= puddlePositions.size) puddleCursor = 0;
+            int position = puddlePositions.get(puddleCursor++);
+
+            float delta = time - puddleUpdated[position];
+            puddleUpdated[position] = time;
+            puddles[position].simulate(delta);
+        }
+    }
+
+    private void ensure(int position){
+        if(position >= fires.length){
+            int size = Math.max(position + 1, world.width() * world.height());
+            fires = Arrays.copyOf(fires, size);
+            puddles = Arrays.copyOf(puddles, size);
+            fireTime = Arrays.copyOf(fireTime, size);
+            fireLifetime = Arrays.copyOf(fireLifetime, size);
+            amount = Arrays.copyOf(amount, size);
+            accepting = Arrays.copyOf(accepting, size);
+            fireUpdated = Arrays.copyOf(fireUpdated, size);
+            puddleUpdated = Arrays.copyOf(puddleUpdated, size);
+        }
+    }
+
+    /**Removes a position from a list that is simulated from the cursor, returning where the cursor is after that.*/
+    private int remove(IntArray positions, int position, int cursor){
+        int index = positions.indexOf(position);
+        if(index == -1) return cursor;
+
+        positions.removeIndex(index);
+        return index < cursor ? cursor - 1 : cursor;
+    }
+
+    /**Simulates fires and puddles, then applies them to the units on top of them. Called once per tick, after their entities are updated.*/
+    public void update(){
+        spreads = spreadBudget;
+        puddleSpreads = puddleBudget;
+        puddleTime -= Timers.delta();
+
+        if(!Net.client()){
+            simulate();
+        }
+
+        //fires only do damage serverside; puddle effects are also applied on clients
+        boolean burn = !Net.client() && fireGroup.size() > 0;
+        boolean wet = puddleTime <= 0f && puddleGroup.size() > 0;
+
+        if(puddleTime <= 0f){
+            puddleTime = puddleSpacing;
+        }
+
+        if(!burn && !wet) return;
+
+        minx = miny = Integer.MAX_VALUE;
+        maxx = maxy = Integer.MIN_VALUE;
+
+        if(burn){
+            for(int i = 0; i < fireGroup.size(); i++){
+                Fire fire = fireGroup.all().get(i);
+                include(world.toTile(fire.x), world.toTile(fire.y));
+            }
+        }
+
+        if(wet){
+            for(int i = 0; i < puddleGroup.size(); i++){
+                Puddle puddle = puddleGroup.all().get(i);
+                include(world.toTile(puddle.x), world.toTile(puddle.y));
+            }
+        }
+
+        for(EntityGroup<BaseUnit> group : unitGroups){
+            for(int i = 0; i < group.size(); i++){
+                apply(group.all().get(i), burn, wet);
+            }
+        }
+
+        for(int i = 0; i < playerGroup.size(); i++){
+            apply(playerGroup.all().get(i), burn, wet);
+        }
+    }
+
+    private void include(int x, int y){
+        minx = Math.min(minx, x);
+        miny = Math.min(miny, y);
+        maxx = Math.max(maxx, x);
+        maxy = Math.max(maxy, y);
+    }
+
+    private void apply(Unit unit, boolean burn, boolean wet){
+        if(unit.isFlying() || unit.isDead()) return;
+
+        unit.getHitbox(hitbox);
+
+        //fires reach a tile out from their center, and puddles may sit between two tiles, so look a bit further than that
+        float margin = tilesize * 1.5f;
+        int x1 = Math.max(world.toTile(hitbox.x - margin), minx), x2 = Math.min(world.toTile(hitbox.x + hitbox.width + margin), maxx);
+        int y1 = Math.max(world.toTile(hitbox.y - margin), miny), y2 = Math.min(world.toTile(hitbox.y + hitbox.height + margin), maxy);
+
+        for(int x = x1; x <= x2; x++){
+            for(int y = y1; y <= y2; y++){
+                if(!Mathf.inBounds(x, y, world.width(), world.height())) continue;
+
+                int position = x + y * world.width();
+
+                if(burn){
+                    Fire fire = getFire(position);
+                    if(fire != null) fire.burn(unit, hitbox);
+                }
+
+                if(wet){
+                    Puddle puddle = getPuddle(position);
+                    if(puddle != null) puddle.wet(unit, hitbox);
+                }
+            }
+        }
+    }
+}
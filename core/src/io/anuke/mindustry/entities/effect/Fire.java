@@ -1,15 +1,15 @@
 package io.anuke.mindustry.entities.effect;
 
 import com.badlogic.gdx.math.GridPoint2;
-import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Pool.Poolable;
 import io.anuke.annotations.Annotations.Loc;
 import io.anuke.annotations.Annotations.Remote;
 import io.anuke.mindustry.content.StatusEffects;
 import io.anuke.mindustry.content.bullets.TurretBullets;
 import io.anuke.mindustry.content.fx.EnvironmentFx;
-import io.anuke.mindustry.entities.Damage;
 import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.entities.Unit;
 import io.anuke.mindustry.entities.traits.SaveTrait;
 import io.anuke.mindustry.entities.traits.SyncTrait;
 import io.anuke.mindustry.gen.Call;
@@ -19,7 +19,7 @@ import io.anuke.mindustry.world.Tile;
 import io.anuke.ucore.core.Effects;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.entities.EntityGroup;
-import io.anuke.ucore.entities.impl.TimedEntity;
+import io.anuke.ucore.entities.impl.BaseEntity;
 import io.anuke.ucore.util.Geometry;
 import io.anuke.ucore.util.Mathf;
 import io.anuke.ucore.util.Pooling;
@@ -30,16 +30,16 @@ import java.io.IOException;
 
 import static io.anuke.mindustry.Vars.*;
 
-public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
-    private static final IntMap<Fire> map = new IntMap<>();
+public class Fire extends BaseEntity implements SaveTrait, SyncTrait, Poolable{
+    private static final Rectangle rect = new Rectangle();
     private static final float baseLifetime = 1000f;
     private static final float spreadChance = 0.05f, fireballChance = 0.07f;
 
     private int loadedPosition = -1;
+    private float loadedTime, loadedLifetime;
     private Tile tile;
     private Block block;
     private float baseFlammability = -1, puddleFlammability;
-    private float lifetime;
 
     /**
      * Deserialization use only!
@@ -53,31 +53,31 @@ public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
     public static void create(Tile tile){
         if(Net.client() || tile == null) return; //not clientside.
 
-        Fire fire = map.get(tile.packedPosition());
+        Fire fire = logic.environment.getFire(tile.packedPosition());
 
         if(fire == null){
             fire = Pooling.obtain(Fire.class, Fire::new);
             fire.tile = tile;
-            fire.lifetime = baseLifetime;
             fire.set(tile.worldx(), tile.worldy());
             fire.add();
-            map.put(tile.packedPosition(), fire);
+            logic.environment.setFire(tile.packedPosition(), fire, 0f, baseLifetime);
         }else{
-            fire.lifetime = baseLifetime;
-            fire.time = 0f;
+            logic.environment.fireLifetime(tile.packedPosition(), baseLifetime);
+            logic.environment.fireTime(tile.packedPosition(), 0f);
         }
     }
 
     public static boolean has(int x, int y){
-        return Mathf.inBounds(x, y, world.width(), world.height()) && map.containsKey(x + y * world.width());
+        return Mathf.inBounds(x, y, world.width(), world.height()) && logic.environment.getFire(x + y * world.width()) != null;
     }
 
     /**
      * Attempts to extinguish a fire by shortening its life. If there is no fire here, does nothing.
      */
     public static void extinguish(Tile tile, float intensity){
-        if(tile != null && map.containsKey(tile.packedPosition())){
-            map.get(tile.packedPosition()).time += intensity * Timers.delta();
+        if(tile != null && logic.environment.getFire(tile.packedPosition()) != null){
+            int position = tile.packedPosition();
+            logic.environment.fireTime(position, logic.environment.fireTime(position) + intensity * Timers.delta());
         }
     }
 
@@ -86,11 +86,6 @@ public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
         fireGroup.removeByID(fireid);
     }
 
-    @Override
-    public float lifetime(){
-        return lifetime;
-    }
-
     @Override
     public void update(){
         if(Mathf.chance(0.1 * Timers.delta())){
@@ -100,14 +95,15 @@ public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
         if(Mathf.chance(0.05 * Timers.delta())){
             Effects.effect(EnvironmentFx.smoke, x + Mathf.range(4f), y + Mathf.range(4f));
         }
+    }
 
-        if(Net.client()){
-            return;
-        }
-
-        time = Mathf.clamp(time + Timers.delta(), 0, lifetime());
+    /**Burns for the given amount of ticks. Called serverside by {@link EnvironmentGrid}, once every few ticks if there are many fires.*/
+    void simulate(float delta){
+        int position = tile.packedPosition();
+        float lifetime = logic.environment.fireLifetime(position);
+        float time = Mathf.clamp(logic.environment.fireTime(position) + delta, 0, lifetime);
 
-        if(time >= lifetime() || tile == null){
+        if(time >= lifetime){
             Call.onFireRemoved(getID());
             remove();
             return;
@@ -119,7 +115,7 @@ public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
         float flammability = baseFlammability + puddleFlammability;
 
         if(!damage && flammability <= 0){
-            time += Timers.delta() * 8;
+            time += delta * 8;
         }
 
         if(baseFlammability < 0 || block != tile.block()){
@@ -128,20 +124,24 @@ public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
         }
 
         if(damage){
-            lifetime += Mathf.clamp(flammability / 8f, 0f, 0.6f) * Timers.delta();
+            lifetime += Mathf.clamp(flammability / 8f, 0f, 0.6f) * delta;
         }
 
-        if(flammability > 1f && Mathf.chance(spreadChance * Timers.delta() * Mathf.clamp(flammability / 5f, 0.3f, 2f))){
+        logic.environment.fireTime(position, time);
+        logic.environment.fireLifetime(position, lifetime);
+
+        if(flammability > 1f && Mathf.chance(spreadChance * delta * Mathf.clamp(flammability / 5f, 0.3f, 2f)) && logic.environment.spread()){
             GridPoint2 p = Mathf.select(Geometry.d4);
             Tile other = world.tile(tile.x + p.x, tile.y + p.y);
             create(other);
 
-            if(Mathf.chance(fireballChance * Timers.delta() * Mathf.clamp(flammability / 10.0))){
+            if(Mathf.chance(fireballChance * delta * Mathf.clamp(flammability / 10.0))){
                 Call.createBullet(TurretBullets.fireball, x, y, Mathf.random(360f));
             }
         }
 
-        if(Mathf.chance(0.1 * Timers.delta())){
+        float chance = 0.1f * delta;
+        if(Mathf.chance(chance)){
             Puddle p = Puddle.getPuddle(tile);
             if(p != null){
                 puddleFlammability = p.getFlammability() / 3f;
@@ -149,25 +149,33 @@ public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
                 puddleFlammability = 0;
             }
 
+            //over long steps, the damage of every tick that would have done damage is dealt at once
             if(damage){
-                entity.damage(0.4f);
+                entity.damage(0.4f * Math.max(chance, 1f));
             }
-            Damage.damageUnits(null, tile.worldx(), tile.worldy(), tilesize, 3f, unit -> !unit.isFlying(), unit -> unit.applyEffect(StatusEffects.burning, 0.8f));
+        }
+    }
+
+    /**Damages a ground unit standing in this fire. Called by {@link EnvironmentGrid} every tick.*/
+    void burn(Unit unit, Rectangle hitbox){
+        if(tile != null && Mathf.chance(0.1 * Timers.delta()) && hitbox.overlaps(rect.setSize(tilesize * 2f).setCenter(tile.worldx(), tile.worldy()))){
+            unit.damage(3f);
+            unit.applyEffect(StatusEffects.burning, 0.8f);
         }
     }
 
     @Override
     public void writeSave(DataOutput stream) throws IOException{
         stream.writeInt(tile.packedPosition());
-        stream.writeFloat(lifetime);
-        stream.writeFloat(time);
+        stream.writeFloat(logic.environment.fireLifetime(tile.packedPosition()));
+        stream.writeFloat(logic.environment.fireTime(tile.packedPosition()));
     }
 
     @Override
     public void readSave(DataInput stream) throws IOException{
         this.loadedPosition = stream.readInt();
-        this.lifetime = stream.readFloat();
-        this.time = stream.readFloat();
+        this.loadedLifetime = stream.readFloat();
+        this.loadedTime = stream.readFloat();
         add();
     }
 
@@ -194,7 +202,7 @@ public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
     @Override
     public void added(){
         if(loadedPosition != -1){
-            map.put(loadedPosition, this);
+            logic.environment.setFire(loadedPosition, this, loadedTime, loadedLifetime);
             tile = world.tile(loadedPosition);
             set(tile.worldx(), tile.worldy());
         }
@@ -203,7 +211,7 @@ public class Fire extends TimedEntity implements SaveTrait, SyncTrait, Poolable{
     @Override
     public void removed(){
         if(tile != null){
-            map.remove(tile.packedPosition());
+            logic.environment.removeFire(tile.packedPosition(), this);
         }
         reset();
     }
@@ -3,7 +3,6 @@ package io.anuke.mindustry.entities.effect;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.GridPoint2;
 import com.badlogic.gdx.math.Rectangle;
-import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.Pool.Poolable;
 import io.anuke.annotations.Annotations.Loc;
 import io.anuke.annotations.Annotations.Remote;
@@ -12,7 +11,7 @@ import io.anuke.mindustry.content.blocks.Blocks;
 import io.anuke.mindustry.content.bullets.TurretBullets;
 import io.anuke.mindustry.content.fx.BlockFx;
 import io.anuke.mindustry.content.fx.EnvironmentFx;
-import io.anuke.mindustry.entities.Units;
+import io.anuke.mindustry.entities.Unit;
 import io.anuke.mindustry.entities.traits.SaveTrait;
 import io.anuke.mindustry.entities.traits.SyncTrait;
 import io.anuke.mindustry.gen.Call;
@@ -37,26 +36,25 @@ import java.io.DataOutput;
 import java.io.IOException;
 
 import static io.anuke.mindustry.Vars.content;
+import static io.anuke.mindustry.Vars.logic;
 import static io.anuke.mindustry.Vars.puddleGroup;
 import static io.anuke.mindustry.Vars.world;
 
 public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait, SyncTrait{
-    private static final IntMap<Puddle> map = new IntMap<>();
     private static final float maxLiquid = 70f;
     private static final int maxGeneration = 2;
     private static final Color tmp = new Color();
     private static final Rectangle rect = new Rectangle();
-    private static final Rectangle rect2 = new Rectangle();
     private static int seeds;
 
     private int loadedPosition = -1;
+    private float loadedAmount;
 
     private float updateTime;
     private float lastRipple;
     private Tile tile;
     private Liquid liquid;
-    private float amount, targetAmount;
-    private float accepting;
+    private float targetAmount;
     private byte generation;
 
     /**
@@ -83,7 +81,7 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
      * Returns the puddle on the specified tile. May return null.
      */
     public static Puddle getPuddle(Tile tile){
-        return map.get(tile.packedPosition());
+        return logic.environment.getPuddle(tile.packedPosition());
     }
 
     private static void deposit(Tile tile, Tile source, Liquid liquid, float amount, int generation){
@@ -91,7 +89,7 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
             reactPuddle(tile.floor().liquidDrop, liquid, amount, tile,
                     (tile.worldx() + source.worldx()) / 2f, (tile.worldy() + source.worldy()) / 2f);
 
-            Puddle p = map.get(tile.packedPosition());
+            Puddle p = logic.environment.getPuddle(tile.packedPosition());
 
             if(generation == 0 && p != null && p.lastRipple <= Timers.time() - 40f){
                 Effects.effect(BlockFx.ripple, tile.floor().liquidDrop.color,
@@ -101,27 +99,26 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
             return;
         }
 
-        Puddle p = map.get(tile.packedPosition());
+        Puddle p = logic.environment.getPuddle(tile.packedPosition());
         if(p == null){
             if(Net.client()) return; //not clientside.
 
             Puddle puddle = Pooling.obtain(Puddle.class, Puddle::new);
             puddle.tile = tile;
             puddle.liquid = liquid;
-            puddle.amount = amount;
             puddle.generation = (byte) generation;
             puddle.set((tile.worldx() + source.worldx()) / 2f, (tile.worldy() + source.worldy()) / 2f);
             puddle.add();
-            map.put(tile.packedPosition(), puddle);
+            logic.environment.setPuddle(tile.packedPosition(), puddle, amount);
         }else if(p.liquid == liquid){
-            p.accepting = Math.max(amount, p.accepting);
+            logic.environment.accept(tile.packedPosition(), amount);
 
-            if(generation == 0  && p.lastRipple <= Timers.time() - 40f && p.amount >= maxLiquid / 2f){
+            if(generation == 0  && p.lastRipple <= Timers.time() - 40f && p.amount() >= maxLiquid / 2f){
                 Effects.effect(BlockFx.ripple, p.liquid.color, (tile.worldx() + source.worldx()) / 2f, (tile.worldy() + source.worldy()) / 2f);
                 p.lastRipple = Timers.time();
             }
         }else{
-            p.amount -= reactPuddle(p.liquid, liquid, amount, p.tile, p.x, p.y);
+            p.amount(p.amount() - reactPuddle(p.liquid, liquid, amount, p.tile, p.x, p.y));
         }
     }
 
@@ -163,72 +160,89 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
     }
 
     public float getFlammability(){
-        return liquid.flammability * amount;
+        return liquid.flammability * amount();
+    }
+
+    private float amount(){
+        return logic.environment.amount(tile.packedPosition());
+    }
+
+    private void amount(float amount){
+        logic.environment.amount(tile.packedPosition(), amount);
     }
 
     @Override
     public void update(){
-
-        //no updating happens clientside
+        //puddles are simulated serverside by the environment grid; clients only move towards the synced amount
         if(Net.client()){
-            amount = Mathf.lerpDelta(amount, targetAmount, 0.15f);
-        }else{
-            //update code
-            float addSpeed = accepting > 0 ? 3f : 0f;
-
-            amount -= Timers.delta() * (1f - liquid.viscosity) / (5f + addSpeed);
-
-            amount += accepting;
-            accepting = 0f;
-
-            if(amount >= maxLiquid / 1.5f && generation < maxGeneration){
-                float deposited = Math.min((amount - maxLiquid / 1.5f) / 4f, 0.3f) * Timers.delta();
-                for(GridPoint2 point : Geometry.d4){
-                    Tile other = world.tile(tile.x + point.x, tile.y + point.y);
-                    if(other != null && other.block() == Blocks.air && !other.hasCliffs()){
-                        deposit(other, tile, liquid, deposited, generation + 1);
-                        amount -= deposited / 2f; //tweak to speed up/slow down puddle propagation
-                    }
-                }
-            }
-
-            amount = Mathf.clamp(amount, 0, maxLiquid);
+            amount(Mathf.lerpDelta(amount(), targetAmount, 0.15f));
+        }
+    }
 
-            if(amount <= 0f){
-                Call.onPuddleRemoved(getID());
+    /**Spreads and dries for the given amount of ticks. Called serverside by {@link EnvironmentGrid}, once every few ticks if there are many puddles.*/
+    void simulate(float delta){
+        float amount = amount();
+        float accepting = logic.environment.takeAccepted(tile.packedPosition());
+        float addSpeed = accepting > 0 ? 3f : 0f;
+
+        amount -= delta * (1f - liquid.viscosity) / (5f + addSpeed);
+
+        //liquid is poured in every tick, so a long step takes in what was poured in its busiest tick, every tick
+        amount += accepting * Math.max(delta / Math.max(Timers.delta(), 0.001f), 1f);
+
+        if(amount >= maxLiquid / 1.5f && generation < maxGeneration){
+            float deposited = Math.min((amount - maxLiquid / 1.5f) / 4f, 0.3f) * delta;
+            for(GridPoint2 point : Geometry.d4){
+                Tile other = world.tile(tile.x + point.x, tile.y + point.y);
+                //spreading onto a tile without a puddle creates one, which is limited per tick
+                if(other != null && other.block() == Blocks.air && !other.hasCliffs()
+                        && (getPuddle(other) != null || logic.environment.spreadPuddle())){
+                    deposit(other, tile, liquid, deposited, generation + 1);
+                    amount -= deposited / 2f; //tweak to speed up/slow down puddle propagation
+                }
             }
         }
 
-        //effects-only code
-        if(amount >= maxLiquid / 2f && updateTime <= 0f){
-            Units.getNearby(rect.setSize(Mathf.clamp(amount / (maxLiquid / 1.5f)) * 10f).setCenter(x, y), unit -> {
-                if(unit.isFlying()) return;
-
-                unit.getHitbox(rect2);
-                if(!rect.overlaps(rect2)) return;
+        amount = Mathf.clamp(amount, 0, maxLiquid);
+        amount(amount);
 
-                unit.applyEffect(liquid.effect, 0.5f);
+        if(amount <= 0f){
+            Call.onPuddleRemoved(getID());
+            return;
+        }
 
-                if(unit.getVelocity().len() > 0.1){
-                    Effects.effect(BlockFx.ripple, liquid.color, unit.x, unit.y);
-                }
-            });
+        //effects on units are applied by the environment grid
+        updateTime -= delta;
 
-            if(liquid.temperature > 0.7f && tile.entity != null && Mathf.chance(0.3 * Timers.delta())){
+        if(amount >= maxLiquid / 2f && updateTime <= 0f){
+            if(liquid.temperature > 0.7f && tile.entity != null && Mathf.chance(0.3 * Timers.delta() * Math.max(delta / 20f, 1f))){
                 Fire.create(tile);
             }
 
             updateTime = 20f;
         }
+    }
+
+    /**Applies this puddle's liquid to a ground unit standing in it. Called by {@link EnvironmentGrid} every few ticks.*/
+    void wet(Unit unit, Rectangle hitbox){
+        float amount = amount();
+        if(amount < maxLiquid / 2f) return;
+
+        rect.setSize(Mathf.clamp(amount / (maxLiquid / 1.5f)) * 10f).setCenter(x, y);
+        if(!rect.overlaps(hitbox)) return;
 
-        updateTime -= Timers.delta();
+        unit.applyEffect(liquid.effect, 0.5f);
+
+        if(unit.getVelocity().len() > 0.1){
+            Effects.effect(BlockFx.ripple, liquid.color, unit.x, unit.y);
+        }
     }
 
     @Override
     public void draw(){
         seeds = id;
         boolean onLiquid = tile.floor().isLiquid;
-        float f = Mathf.clamp(amount / (maxLiquid / 1.5f));
+        float f = Mathf.clamp(amount() / (maxLiquid / 1.5f));
         float smag = onLiquid ? 0.8f : 0f;
         float sscl = 20f;
 
@@ -253,7 +267,7 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
         stream.writeFloat(x);
         stream.writeFloat(y);
         stream.writeByte(liquid.id);
-        stream.writeFloat(amount);
+        stream.writeFloat(amount());
         stream.writeByte(generation);
     }
 
@@ -263,7 +277,7 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
         this.x = stream.readFloat();
         this.y = stream.readFloat();
         this.liquid = content.liquid(stream.readByte());
-        this.amount = stream.readFloat();
+        this.loadedAmount = stream.readFloat();
         this.generation = stream.readByte();
         add();
     }
@@ -273,22 +287,21 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
         loadedPosition = -1;
         tile = null;
         liquid = null;
-        amount = 0;
+        targetAmount = 0;
         generation = 0;
-        accepting = 0;
     }
 
     @Override
     public void added(){
         if(loadedPosition != -1){
-            map.put(loadedPosition, this);
+            logic.environment.setPuddle(loadedPosition, this, loadedAmount);
             tile = world.tile(loadedPosition);
         }
     }
 
     @Override
     public void removed(){
-        map.remove(tile.packedPosition());
+        logic.environment.removePuddle(tile.packedPosition(), this);
         reset();
     }
 
@@ -297,7 +310,7 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
         data.writeFloat(x);
         data.writeFloat(y);
         data.writeByte(liquid.id);
-        data.writeShort((short) (amount * 4));
+        data.writeShort((short) (amount() * 4));
         data.writeInt(tile.packedPosition());
     }
 
@@ -309,7 +322,9 @@ public class Puddle extends BaseEntity implements SaveTrait, Poolable, DrawTrait
         targetAmount = data.readShort() / 4f;
         tile = world.tile(data.readInt());
 
-        map.put(tile.packedPosition(), this);
+        if(getPuddle(tile) != this){
+            logic.environment.setPuddle(tile.packedPosition(), this, targetAmount);
+        }
     }
 
     @Override
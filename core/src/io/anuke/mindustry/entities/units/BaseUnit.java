@@ -1,6 +1,7 @@
 package io.anuke.mindustry.entities.units;
 
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
 import io.anuke.annotations.Annotations.Loc;
 import io.anuke.annotations.Annotations.Remote;
 import io.anuke.mindustry.Vars;
@@ -8,6 +9,7 @@ import io.anuke.mindustry.content.fx.ExplosionFx;
 import io.anuke.mindustry.entities.Damage;
 import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.entities.Unit;
+import io.anuke.mindustry.entities.UnitGrid;
 import io.anuke.mindustry.entities.Units;
 import io.anuke.mindustry.entities.effect.ScorchDecal;
 import io.anuke.mindustry.entities.traits.ShooterTrait;
@@ -26,6 +28,7 @@ import io.anuke.mindustry.world.meta.BlockFlag;
 import io.anuke.ucore.core.Effects;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.function.Predicate;
 import io.anuke.ucore.graphics.Draw;
 import io.anuke.ucore.util.Angles;
 import io.anuke.ucore.util.Geometry;
@@ -47,6 +50,10 @@ public abstract class BaseUnit extends Unit implements ShooterTrait{
     protected static final int timerShootLeft = timerIndex++;
     protected static final int timerShootRight = timerIndex++;
 
+    protected static final float retargetInterval = 20f;
+    protected static final float avoidRange = 8f;
+    private static final Predicate<Tile> anyTile = tile -> true;
+
     protected UnitType type;
     protected Timer timer = new Timer(5);
     protected StateMachine state = new StateMachine();
@@ -55,6 +62,15 @@ public abstract class BaseUnit extends Unit implements ShooterTrait{
     protected boolean isWave;
     protected Squad squad;
     protected int spawner = -1;
+    /**Time of the last retarget while phased. Unphased updates use {@link #timerTarget}, as they always have.*/
+    protected float lastRetarget;
+
+    /**Whether an intent has been computed for this update by the read phase. See {@link io.anuke.mindustry.core.ReadPhase}.*/
+    protected boolean hasIntent;
+    /**Whether this unit is expected to retarget this update, in which case {@link #intentTarget} is valid.*/
+    protected boolean intentRetarget;
+    protected TargetTrait intentTarget;
+    protected final Vector2 intentAvoidance = new Vector2();
 
     /**internal constructor used for deserialization, DO NOT USE*/
     public BaseUnit(){
@@ -158,11 +174,53 @@ public abstract class BaseUnit extends Unit implements ShooterTrait{
     }
 
     public void retarget(Runnable run){
-        if(timer.get(timerTarget, 20)){
+        if(hasIntent){
+            //the read phase has already decided whether this update retargets, from the time of the last retarget
+            if(intentRetarget){
+                lastRetarget = Timers.time();
+                run.run();
+            }
+        }else if(timer.get(timerTarget, retargetInterval)){
             run.run();
         }
     }
 
+    /**
+     * Computes this unit's intent for the next update from the current state.
+     * This may be called from any thread, so it must only write to this unit's intent fields.
+     */
+    public void computeIntent(UnitGrid grid){
+        intentRetarget = Timers.time() - lastRetarget >= retargetInterval || Timers.time() < lastRetarget;
+
+        if(intentRetarget){
+            float range = getWeapon().getAmmo().getRange();
+            intentTarget = grid.getClosestEnemy(team, x, y, range);
+
+            if(intentTarget == null){
+                for(Team enemy : Team.all){
+                    if(state.teams.areEnemies(team, enemy)){
+                        intentTarget = world.indexer().findTile(enemy, x, y, range, anyTile);
+                        if(intentTarget != null) break;
+                    }
+                }
+            }
+        }else{
+            intentTarget = null;
+        }
+
+        grid.getAvoidance(this, avoidRange, intentAvoidance);
+        hasIntent = true;
+    }
+
+    @Override
+    public void avoidOthers(float avoidRange){
+        if(hasIntent && avoidRange == BaseUnit.avoidRange){
+            velocity.add(intentAvoidance);
+        }else{
+            super.avoidOthers(avoidRange);
+        }
+    }
+
     /**
      * Only runs when the unit has a target.
      */
@@ -178,17 +236,21 @@ public abstract class BaseUnit extends Unit implements ShooterTrait{
     }
 
     public void targetClosestAllyFlag(BlockFlag flag){
-        Tile target = Geometry.findClosest(x, y, world.indexer().getAllied(team, flag));
+        Tile target = world.indexer().findClosestAllied(team, flag, x, y);
         if(target != null) this.target = target.entity;
     }
 
     public void targetClosestEnemyFlag(BlockFlag flag){
-        Tile target = Geometry.findClosest(x, y, world.indexer().getEnemy(team, flag));
+        Tile target = world.indexer().findClosestEnemy(team, flag, x, y);
         if(target != null) this.target = target.entity;
     }
 
     public void targetClosest(){
-        target = Units.getClosestTarget(team, x, y, getWeapon().getAmmo().getRange());
+        if(hasIntent && intentRetarget){
+            target = intentTarget;
+        }else{
+            target = Units.getClosestTarget(team, x, y, getWeapon().getAmmo().getRange());
+        }
     }
 
     public TileEntity getClosestEnemyCore(){
@@ -294,6 +356,7 @@ public abstract class BaseUnit extends Unit implements ShooterTrait{
 
         if(isDead()){
             updateRespawning();
+            hasIntent = false;
             return;
         }
 
@@ -304,7 +367,7 @@ public abstract class BaseUnit extends Unit implements ShooterTrait{
         }
 
         if(!Net.client()){
-            avoidOthers(8f);
+            avoidOthers(avoidRange);
 
             if(spawner != -1 && (world.tile(spawner) == null || world.tile(spawner).entity == null)){
                 damage(health);
@@ -326,6 +389,8 @@ public abstract class BaseUnit extends Unit implements ShooterTrait{
             x = Mathf.clamp(x, 0, world.width() * tilesize);
             y = Mathf.clamp(y, 0, world.height() * tilesize);
         }
+
+        hasIntent = false;
     }
 
     @Override
@@ -346,6 +411,8 @@ public abstract class BaseUnit extends Unit implements ShooterTrait{
     @Override
     public void removed(){
         spawner = -1;
+        hasIntent = false;
+        intentTarget = null;
     }
 
     @Override
@@ -95,7 +95,7 @@ public abstract class FlyingUnit extends BaseUnit implements CarryTrait{
                 state.set(attack);
             }else if(!targetHasFlag(BlockFlag.repair)){
                 retarget(() -> {
-                    Tile target = Geometry.findClosest(x, y, world.indexer().getAllied(team, BlockFlag.repair));
+                    Tile target = world.indexer().findClosestAllied(team, BlockFlag.repair, x, y);
                     if(target != null) FlyingUnit.this.target = target.entity;
                 });
             }else{
@@ -162,7 +162,7 @@ public abstract class FlyingUnit extends BaseUnit implements CarryTrait{
     @Override
     public void behavior(){
         if(health <= health * type.retreatPercent && !isCommanded() &&
-         Geometry.findClosest(x, y, world.indexer().getAllied(team, BlockFlag.repair)) != null){
+         world.indexer().findClosestAllied(team, BlockFlag.repair, x, y) != null){
             setState(retreat);
         }
 
@@ -5,6 +5,7 @@ import com.badlogic.gdx.math.Vector2;
 import io.anuke.mindustry.Vars;
 import io.anuke.mindustry.entities.Predict;
 import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.entities.UnitGrid;
 import io.anuke.mindustry.entities.Units;
 import io.anuke.mindustry.game.Team;
 import io.anuke.mindustry.type.AmmoType;
@@ -31,6 +32,8 @@ public abstract class GroundUnit extends BaseUnit{
     protected float walkTime;
     protected float baseRotation;
     protected Weapon weapon;
+    /**Tile this unit was on when its intent was computed, and the tile the flow field pointed to from there.*/
+    protected Tile intentTile, intentPath;
 
     public final UnitState
 
@@ -140,6 +143,14 @@ public abstract class GroundUnit extends BaseUnit{
         }
     }
 
+    @Override
+    public void computeIntent(UnitGrid grid){
+        super.computeIntent(grid);
+
+        intentTile = world.tileWorld(x, y);
+        intentPath = intentTile == null ? null : world.pathfinder().getTargetTile(team, intentTile);
+    }
+
     @Override
     public Weapon getWeapon(){
         return weapon;
@@ -236,7 +247,7 @@ public abstract class GroundUnit extends BaseUnit{
     protected void moveToCore(){
         Tile tile = world.tileWorld(x, y);
         if(tile == null) return;
-        Tile targetTile = world.pathfinder().getTargetTile(team, tile);
+        Tile targetTile = hasIntent && tile == intentTile ? intentPath : world.pathfinder().getTargetTile(team, tile);
 
         if(tile == targetTile) return;
 
@@ -31,7 +31,6 @@ import io.anuke.ucore.entities.EntityPhysics;
 import io.anuke.ucore.graphics.Draw;
 import io.anuke.ucore.graphics.Shapes;
 import io.anuke.ucore.util.Angles;
-import io.anuke.ucore.util.Geometry;
 import io.anuke.ucore.util.Mathf;
 import io.anuke.ucore.util.ThreadQueue;
 
@@ -229,7 +228,7 @@ public class Drone extends FlyingUnit implements BuilderTrait{
                 state.set(attack);
             }else if(!targetHasFlag(BlockFlag.repair)){
                 if(timer.get(timerTarget, 20)){
-                    Tile target = Geometry.findClosest(x, y, world.indexer().getAllied(team, BlockFlag.repair));
+                    Tile target = world.indexer().findClosestAllied(team, BlockFlag.repair, x, y);
                     if(target != null) Drone.this.target = target.entity;
                 }
             }else{
@@ -335,7 +334,7 @@ public class Drone extends FlyingUnit implements BuilderTrait{
     @Override
     public void behavior(){
         if(health <= health * type.retreatPercent &&
-                Geometry.findClosest(x, y, world.indexer().getAllied(team, BlockFlag.repair)) != null){
+                world.indexer().findClosestAllied(team, BlockFlag.repair, x, y) != null){
             setState(retreat);
         }
     }
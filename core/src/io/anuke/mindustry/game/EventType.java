@@ -53,6 +53,33 @@ public class EventType{
         }
     }
 
+    /**
+     * Called when the configuration of a block changes without the block itself changing, such as a power node being
+     * linked or a sorter item being set. Called from the logic thread. Do not access graphics here!
+     */
+    public static class TileConfigEvent implements Event{
+        public final Tile tile;
+
+        public TileConfigEvent(Tile tile){
+            this.tile = tile;
+        }
+    }
+
+    /**
+     * Called on clients when a region of the world has arrived from the server, after the rest of the world was loaded.
+     * Called from the logic thread. Do not access graphics here!
+     */
+    public static class RegionLoadEvent implements Event{
+        public final int x, y, width, height;
+
+        public RegionLoadEvent(int x, int y, int width, int height){
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
     public static class StateChangeEvent implements Event{
         public final State from, to;
 
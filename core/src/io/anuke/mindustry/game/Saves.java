@@ -1,5 +1,6 @@
 package io.anuke.mindustry.game;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntArray;
@@ -13,6 +14,7 @@ import io.anuke.mindustry.maps.Map;
 import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Settings;
 import io.anuke.ucore.core.Timers;
+import io.anuke.ucore.util.Log;
 import io.anuke.ucore.util.Strings;
 import io.anuke.ucore.util.ThreadArray;
 
@@ -79,14 +81,7 @@ public class Saves{
             if(time > Settings.getInt("saveinterval") * 60){
                 saving = true;
 
-                Timers.run(2f, () -> {
-                    try{
-                        current.save();
-                    }catch(Exception e){
-                        e.printStackTrace();
-                    }
-                    saving = false;
-                });
+                Timers.run(2f, () -> current.saveAsync(() -> saving = false));
 
                 time = 0;
             }
@@ -186,6 +181,43 @@ public class Saves{
             });
         }
 
+        /**
+         * Saves without waiting for the file to be written. Only the game state is captured on the logic thread;
+         * the listener is run on the main thread once the save is done, whether it succeeded or not.
+         */
+        public void saveAsync(Runnable listener){
+            long time = totalPlaytime;
+
+            threads.runGraphics(() -> {
+                renderer.fog().writeFog();
+
+                threads.run(() -> {
+                    long prev = totalPlaytime;
+                    totalPlaytime = time;
+
+                    try{
+                        SaveIO.saveToSlotAsync(index, error -> {
+                            if(error != null){
+                                Log.err(error);
+                            }else{
+                                meta = SaveIO.getData(index);
+                            }
+                            listener.run();
+                        });
+
+                        if(!state.is(State.menu)){
+                            current = this;
+                        }
+                    }catch(Exception e){
+                        Log.err(e);
+                        Gdx.app.postRunnable(listener);
+                    }
+
+                    totalPlaytime = prev;
+                });
+            });
+        }
+
         public boolean isHidden(){
             return meta.sector != invalidSector;
         }
@@ -17,6 +17,11 @@ public class Version{
     public static String modifier;
     /**Build number, e.g. '43'. set to '-1' for custom builds.*/
     public static int build = 0;
+    /**
+     * Version of the network protocol, which must match between client and server even for custom builds.
+     * Increment whenever packets or remote calls change. 1: snapshot acknowledgements for delta snapshots.
+     */
+    public static final int protocol = 1;
 
     public static void init(){
         try{
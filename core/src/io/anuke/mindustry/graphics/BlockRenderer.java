@@ -4,6 +4,7 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntSet;
 import com.badlogic.gdx.utils.Sort;
 import io.anuke.mindustry.content.blocks.Blocks;
+import io.anuke.mindustry.game.EventType.RegionLoadEvent;
 import io.anuke.mindustry.game.EventType.TileChangeEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadGraphicsEvent;
 import io.anuke.mindustry.game.Team;
@@ -44,6 +45,10 @@ public class BlockRenderer{
             lastCamY = lastCamX = -99; //invalidate camera position so blocks get updated
         });
 
+        Events.on(RegionLoadEvent.class, event -> {
+            threads.runGraphics(() -> lastCamY = lastCamX = -99);
+        });
+
         Events.on(TileChangeEvent.class, event -> {
             threads.runGraphics(() -> {
                 int avgx = Mathf.scl(camera.position.x, tilesize);
@@ -107,34 +112,38 @@ public class BlockRenderer{
             for(int y = miny; y <= maxy; y++){
                 boolean expanded = (Math.abs(x - avgx) > rangex || Math.abs(y - avgy) > rangey);
 
-                synchronized(Tile.tileSetLock){
-                    Tile tile = world.rawTile(x, y);
+                Tile tile = world.rawTile(x, y);
+                if(tile == null) continue;
 
-                    if(tile != null){
-                        Block block = tile.block();
-                        Team team = tile.getTeam();
+                int version = tile.version();
 
-                        if(!expanded && block != Blocks.air && world.isAccessible(x, y)){
-                            tile.block().drawShadow(tile);
+                try{
+                    Block block = tile.block();
+                    Team team = tile.getTeam();
+
+                    if(!expanded && block != Blocks.air && world.isAccessible(x, y)){
+                        block.drawShadow(tile);
+                    }
+
+                    if(block != Blocks.air){
+                        if(!expanded){
+                            addRequest(tile, Layer.block);
+                            teamChecks.add(team.ordinal());
                         }
 
-                        if(block != Blocks.air){
-                            if(!expanded){
-                                addRequest(tile, Layer.block);
-                                teamChecks.add(team.ordinal());
+                        if(block.expanded || !expanded){
+                            if(block.layer != null && block.isLayer(tile)){
+                                addRequest(tile, block.layer);
                             }
 
-                            if(block.expanded || !expanded){
-                                if(block.layer != null && block.isLayer(tile)){
-                                    addRequest(tile, block.layer);
-                                }
-
-                                if(block.layer2 != null && block.isLayer2(tile)){
-                                    addRequest(tile, block.layer2);
-                                }
+                            if(block.layer2 != null && block.isLayer2(tile)){
+                                addRequest(tile, block.layer2);
                             }
                         }
                     }
+                }catch(RuntimeException e){
+                    //the logic thread changed this tile while it was read; the change invalidates the requests anyway
+                    if(!tile.changedSince(version)) throw e;
                 }
             }
         }
@@ -171,17 +180,7 @@ public class BlockRenderer{
                 layerBegins(req.layer);
             }
 
-            synchronized(Tile.tileSetLock){
-                Block block = req.tile.block();
-
-                if(req.layer == Layer.block){
-                    block.draw(req.tile);
-                }else if(req.layer == block.layer){
-                    block.drawLayer(req.tile);
-                }else if(req.layer == block.layer2){
-                    block.drawLayer2(req.tile);
-                }
-            }
+            drawRequest(req);
 
             lastLayer = req.layer;
         }
@@ -199,17 +198,28 @@ public class BlockRenderer{
             BlockRequest req = requests.get(index);
             if(req.tile.getTeam() != team) continue;
 
-            synchronized(Tile.tileSetLock){
-                Block block = req.tile.block();
+            drawRequest(req);
+        }
+    }
 
-                if(req.layer == Layer.block){
-                    block.draw(req.tile);
-                }else if(req.layer == block.layer){
-                    block.drawLayer(req.tile);
-                }else if(req.layer == block.layer2){
-                    block.drawLayer2(req.tile);
-                }
+    private void drawRequest(BlockRequest req){
+        Tile tile = req.tile;
+        int version = tile.version();
+        if(tile.changedSince(version)) return;
+
+        try{
+            Block block = tile.block();
+
+            if(req.layer == Layer.block){
+                block.draw(tile);
+            }else if(req.layer == block.layer){
+                block.drawLayer(tile);
+            }else if(req.layer == block.layer2){
+                block.drawLayer2(tile);
             }
+        }catch(RuntimeException e){
+            //the logic thread changed this tile while it was drawn; it is drawn correctly next frame
+            if(!tile.changedSince(version)) throw e;
         }
     }
 
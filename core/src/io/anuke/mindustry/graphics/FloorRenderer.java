@@ -8,6 +8,8 @@ import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.IntSet;
 import com.badlogic.gdx.utils.IntSet.IntSetIterator;
 import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.game.EventType.RegionLoadEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadGraphicsEvent;
 import io.anuke.mindustry.maps.Sector;
 import io.anuke.mindustry.maps.generation.WorldGenerator.GenResult;
@@ -27,11 +29,14 @@ import io.anuke.ucore.util.Mathf;
 import java.util.Arrays;
 
 import static io.anuke.mindustry.Vars.mapPadding;
+import static io.anuke.mindustry.Vars.threads;
 import static io.anuke.mindustry.Vars.tilesize;
 import static io.anuke.mindustry.Vars.world;
 
 public class FloorRenderer{
     private final static int chunksize = 64;
+    /**Milliseconds between rebuilding the cache while regions of the world are arriving.*/
+    private final static long recacheSpacing = 1000;
 
     private int gutter;
     private Tile gutterTile;
@@ -40,9 +45,12 @@ public class FloorRenderer{
     private CacheBatch cbatch;
     private IntSet drawnLayerSet = new IntSet();
     private IntArray drawnLayers = new IntArray();
+    private boolean recache;
+    private long lastCache;
 
     public FloorRenderer(){
         Events.on(WorldLoadGraphicsEvent.class, event -> clearTiles());
+        Events.on(RegionLoadEvent.class, event -> threads.runGraphics(() -> recache = true));
 
         gutterTile = new Tile(0, 0){
             @Override
@@ -70,6 +78,11 @@ public class FloorRenderer{
             return;
         }
 
+        //regions tend to arrive many at a time, so rebuild everything at most once per interval instead of once per region
+        if(recache && TimeUtils.timeSinceMillis(lastCache) > recacheSpacing){
+            clearTiles();
+        }
+
         OrthographicCamera camera = Core.camera;
 
         int crangex = (int) (camera.viewportWidth * camera.zoom / (chunksize * tilesize)) + 1;
@@ -253,6 +266,9 @@ public class FloorRenderer{
     public void clearTiles(){
         if(cbatch != null) cbatch.dispose();
 
+        recache = false;
+        lastCache = TimeUtils.millis();
+
         if(world.getSector() != null){
             gutter = mapPadding;
         }else{
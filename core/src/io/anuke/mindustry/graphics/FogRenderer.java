@@ -11,6 +11,7 @@ import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
 import io.anuke.mindustry.entities.Unit;
+import io.anuke.mindustry.game.EventType.RegionLoadEvent;
 import io.anuke.mindustry.game.EventType.TileChangeEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadGraphicsEvent;
 import io.anuke.mindustry.world.Tile;
@@ -68,6 +69,17 @@ public class FogRenderer implements Disposable{
             dirty = true;
         });
 
+        Events.on(RegionLoadEvent.class, event -> threads.runGraphics(() -> {
+            for(int x = event.x; x < event.x + event.width; x++){
+                for(int y = event.y; y < event.y + event.height; y++){
+                    Tile tile = world.tile(x, y);
+                    if(tile.getTeam() == players[0].getTeam() && tile.block().synthetic() && tile.block().viewRange > 0){
+                        changeQueue.add(tile);
+                    }
+                }
+            }
+        }));
+
         Events.on(TileChangeEvent.class, event -> threads.runGraphics(() -> {
             if(event.tile.getTeam() == players[0].getTeam() && event.tile.block().synthetic() && event.tile.block().viewRange > 0){
                 changeQueue.add(event.tile);
@@ -11,6 +11,7 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
 import io.anuke.mindustry.entities.Unit;
 import io.anuke.mindustry.entities.Units;
+import io.anuke.mindustry.game.EventType.RegionLoadEvent;
 import io.anuke.mindustry.game.EventType.TileChangeEvent;
 import io.anuke.mindustry.game.EventType.WorldLoadGraphicsEvent;
 import io.anuke.mindustry.world.ColorMapper;
@@ -46,6 +47,17 @@ public class MinimapRenderer implements Disposable{
 
         //make sure to call on the graphics thread
         Events.on(TileChangeEvent.class, event -> Gdx.app.postRunnable(() -> update(event.tile)));
+
+        Events.on(RegionLoadEvent.class, event -> Gdx.app.postRunnable(() -> {
+            if(pixmap == null) return;
+
+            for(int x = event.x; x < event.x + event.width; x++){
+                for(int y = event.y; y < event.y + event.height; y++){
+                    pixmap.drawPixel(x, pixmap.getHeight() - 1 - y, colorFor(world.tile(x, y)));
+                }
+            }
+            texture.draw(pixmap, 0, 0);
+        }));
     }
 
     public Texture getTexture(){
@@ -50,8 +50,12 @@ public class OverlayRenderer{
             if(input.frag.config.isShown()){
                 Tile tile = input.frag.config.getSelectedTile();
 
-                synchronized(Tile.tileSetLock){
+                int version = tile.version();
+                try{
                     tile.block().drawConfigure(tile);
+                }catch(RuntimeException e){
+                    //the logic thread changed this tile while it was drawn
+                    if(!tile.changedSince(version)) throw e;
                 }
             }
 
@@ -109,7 +113,8 @@ public class OverlayRenderer{
                         Draw.reset();
                     }
 
-                    synchronized(Tile.tileSetLock){
+                    int version = target.version();
+                    try{
                         Block block = target.block();
                         TileEntity entity = target.entity;
 
@@ -155,6 +160,9 @@ public class OverlayRenderer{
 
 
                         target.block().drawSelect(target);
+                    }catch(RuntimeException e){
+                        //the logic thread changed this tile while it was drawn
+                        if(!target.changedSince(version)) throw e;
                     }
                 }
             }
@@ -11,6 +11,7 @@ import io.anuke.mindustry.entities.Player;
 import io.anuke.mindustry.entities.Units;
 import io.anuke.mindustry.entities.effect.ItemTransfer;
 import io.anuke.mindustry.entities.traits.BuilderTrait.BuildRequest;
+import io.anuke.mindustry.game.EventType.TileConfigEvent;
 import io.anuke.mindustry.gen.Call;
 import io.anuke.mindustry.net.Net;
 import io.anuke.mindustry.net.ValidateException;
@@ -120,6 +121,7 @@ public abstract class InputHandler extends InputAdapter{
     public static void onTileTapped(Player player, Tile tile){
         if(tile == null || player == null) return;
         tile.block().tapped(tile, player);
+        Events.fire(new TileConfigEvent(tile));
     }
 
     public void update(){
@@ -6,6 +6,7 @@ import io.anuke.mindustry.game.Difficulty;
 import io.anuke.mindustry.game.MappableContent;
 import io.anuke.mindustry.type.ContentType;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -75,7 +76,23 @@ public abstract class SaveFileVersion{
         }
     }
 
+    /**
+     * Captures the current game state on the calling thread, so it can be written later from any thread.
+     * By default, this writes the whole save into memory.
+     */
+    public SaveData snapshot() throws IOException{
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(new DataOutputStream(out));
+        byte[] bytes = out.toByteArray();
+        return stream -> stream.write(bytes);
+    }
+
     public abstract void read(DataInputStream stream) throws IOException;
 
     public abstract void write(DataOutputStream stream) throws IOException;
+
+    /**Game state captured by {@link #snapshot()}.*/
+    public interface SaveData{
+        void write(DataOutputStream stream) throws IOException;
+    }
 }
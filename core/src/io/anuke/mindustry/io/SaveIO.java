@@ -1,15 +1,21 @@
 package io.anuke.mindustry.io;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Base64Coder;
 import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
 import io.anuke.mindustry.Vars;
+import io.anuke.mindustry.io.SaveFileVersion.SaveData;
 import io.anuke.mindustry.io.versions.Save16;
+import io.anuke.mindustry.io.versions.Save17;
 import io.anuke.ucore.core.Settings;
+import io.anuke.ucore.function.Consumer;
 
 import java.io.*;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.InflaterInputStream;
 
@@ -19,8 +25,11 @@ public class SaveIO{
     public static final IntArray breakingVersions = IntArray.with(47, 48, 49, 50, 51, 52);
     public static final IntMap<SaveFileVersion> versions = new IntMap<>();
     public static final Array<SaveFileVersion> versionArray = Array.with(
-        new Save16()
+        new Save16(),
+        new Save17()
     );
+    /**Writes saves started with {@link #saveToSlotAsync(int, Consumer)}, one at a time.*/
+    private static final AsyncExecutor saveExecutor = new AsyncExecutor(1);
 
     static{
         for(SaveFileVersion version : versionArray){
@@ -35,15 +44,47 @@ public class SaveIO{
             Settings.putString("save-" + slot + "-data", new String(Base64Coder.encode(stream.toByteArray())));
             Settings.save();
         }else{
-            FileHandle file = fileFor(slot);
-            boolean exists = file.exists();
-            if(exists) file.moveTo(file.sibling(file.name() + "-backup." + file.extension()));
+            writeSlot(slot, snapshot());
+        }
+    }
+
+    /**
+     * Saves to a slot without waiting for compression or disk IO. The game state is captured immediately, so this must be
+     * called on the logic thread; the rest happens in the background. Once done, the listener is called on the main thread
+     * with the exception the save failed with, or null.
+     */
+    public static void saveToSlotAsync(int slot, Consumer<Throwable> listener){
+        if(gwt){
+            saveToSlot(slot);
+            listener.accept(null);
+            return;
+        }
+
+        SaveData data = snapshot();
+        saveExecutor.submit(() -> {
+            Throwable error = null;
             try{
-                write(fileFor(slot));
-            }catch(Exception e){
-                if(exists) file.sibling(file.name() + "-backup." + file.extension()).moveTo(file);
-                throw new RuntimeException(e);
+                writeSlot(slot, data);
+            }catch(Throwable e){
+                error = e;
             }
+
+            Throwable result = error;
+            Gdx.app.postRunnable(() -> listener.accept(result));
+            return null;
+        });
+    }
+
+    private static synchronized void writeSlot(int slot, SaveData data){
+        FileHandle file = fileFor(slot);
+        FileHandle backup = file.sibling(file.name() + "-backup." + file.extension());
+        boolean exists = file.exists();
+        if(exists) file.moveTo(backup);
+        try{
+            write(file, data);
+        }catch(Exception e){
+            if(exists) backup.moveTo(file);
+            throw new RuntimeException(e);
         }
     }
 
@@ -111,14 +152,28 @@ public class SaveIO{
     }
 
     public static void write(FileHandle file){
-        write(new DeflaterOutputStream(file.write(false)){
+        write(file, snapshot());
+    }
+
+    /**Writes captured game state to a file. Can be called from any thread.*/
+    public static void write(FileHandle file, SaveData data){
+        //the save compresses its own data; the outer stream only keeps the file a single zlib stream
+        Deflater deflater = new Deflater(Deflater.NO_COMPRESSION);
+
+        try(DataOutputStream stream = new DataOutputStream(new DeflaterOutputStream(file.write(false), deflater){
             byte[] tmp = {0};
 
             public void write(int var1) throws IOException {
                 tmp[0] = (byte)(var1 & 255);
                 this.write(tmp, 0, 1);
             }
-        });
+        })){
+            data.write(stream);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }finally{
+            deflater.end();
+        }
     }
 
     public static void write(OutputStream os){
@@ -165,6 +220,15 @@ public class SaveIO{
         }
     }
 
+    /**Captures the current game state with the latest save version.*/
+    public static SaveData snapshot(){
+        try{
+            return getVersion().snapshot();
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
     public static SaveFileVersion getVersion(){
         return versionArray.peek();
     }
@@ -364,6 +364,23 @@ public class TypeIO{
         return bytes;
     }
 
+    /**Writes the remaining bytes of a buffer, leaving the buffer at its limit.*/
+    @WriteClass(ByteBuffer.class)
+    public static void writeBuffer(ByteBuffer buffer, ByteBuffer bytes){
+        buffer.putShort((short) bytes.remaining());
+        buffer.put(bytes);
+    }
+
+    /**Reads bytes as a view of the buffer they are read from, which is only valid until that buffer is reused.*/
+    @ReadClass(ByteBuffer.class)
+    public static ByteBuffer readBuffer(ByteBuffer buffer){
+        short length = buffer.getShort();
+        ByteBuffer bytes = buffer.slice();
+        bytes.limit(length);
+        buffer.position(buffer.position() + length);
+        return bytes;
+    }
+
     @WriteClass(TraceInfo.class)
     public static void writeTrace(ByteBuffer buffer, TraceInfo info){
         buffer.putInt(info.playerid);
@@ -0,0 +1,449 @@
+package io.anuke.mindustry.io.versions;
+
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import io.anuke.mindustry.content.blocks.Blocks;
+import io.anuke.mindustry.content.blocks.StorageBlocks;
+import io.anuke.mindustry.entities.traits.SaveTrait;
+import io.anuke.mindustry.entities.traits.TypeTrait;
+import io.anuke.mindustry.game.Difficulty;
+import io.anuke.mindustry.game.EventType.TileChangeEvent;
+import io.anuke.mindustry.game.EventType.TileConfigEvent;
+import io.anuke.mindustry.game.EventType.WorldLoadEvent;
+import io.anuke.mindustry.game.GameMode;
+import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.game.Version;
+import io.anuke.mindustry.io.SaveFileVersion;
+import io.anuke.mindustry.maps.Map;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.blocks.BlockPart;
+import io.anuke.ucore.core.Events;
+import io.anuke.ucore.entities.Entities;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.entities.trait.Entity;
+import io.anuke.ucore.util.Bits;
+
+import java.io.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Same data as {@link Save16}, but entities and each square chunk of tiles are compressed separately.
+ * This lets chunks be compressed in parallel, and chunks that did not change since the last save reuse their
+ * previous compressed bytes. Tiles are written in the same format as before, in chunk order; air runs end at chunk borders.
+ * <p>
+ * Only changed chunks are written again. A chunk has changed if a block in it was placed, removed or configured, if a
+ * tile in it has a new {@link Tile#version()}, which is the case for every tile an entity update or block change wrote
+ * into, or if one of its entities is awake, as anything that changes a sleeping entity wakes it up.
+ * <p>
+ * Game state is captured into memory by {@link #snapshot()}; compression happens in the background.
+ */
+public class Save17 extends SaveFileVersion{
+    /**Width and height of a chunk, in tiles.*/
+    private static final int chunkSize = 32;
+
+    private final AsyncExecutor executor = new AsyncExecutor(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1));
+    private final ChunkStream chunkStream = new ChunkStream();
+    private final DataOutputStream chunkData = new DataOutputStream(chunkStream);
+    /**Chunks of the last snapshot, by index. Only used on the logic thread, like everything below.*/
+    private Chunk[] chunks = {};
+    /**Sum of the tile versions of each chunk at the last snapshot. Versions only grow, so the sum changes with them.*/
+    private long[] versions = {};
+    /**Chunks with blocks that were placed, removed or configured since the last snapshot.*/
+    private boolean[] dirty = {};
+    private int chunksx;
+
+    public Save17(){
+        super(17);
+
+        Events.on(WorldLoadEvent.class, event -> chunks = new Chunk[0]);
+        Events.on(TileChangeEvent.class, event -> changed(event.tile));
+        Events.on(TileConfigEvent.class, event -> changed(event.tile));
+    }
+
+    /**Marks every chunk the block of this tile covers as dirty.*/
+    private void changed(Tile tile){
+        if(chunks.length == 0) return;
+
+        int chunksy = chunks.length / chunksx;
+        int offset = (tile.block().size - 1) / 2;
+        int minx = Math.max(tile.x - offset, 0) / chunkSize, miny = Math.max(tile.y - offset, 0) / chunkSize;
+        int maxx = Math.min((tile.x - offset + tile.block().size - 1) / chunkSize, chunksx - 1);
+        int maxy = Math.min((tile.y - offset + tile.block().size - 1) / chunkSize, chunksy - 1);
+
+        for(int x = minx; x <= maxx; x++){
+            for(int y = miny; y <= maxy; y++){
+                dirty[x + y * chunksx] = true;
+            }
+        }
+    }
+
+    @Override
+    public void read(DataInputStream stream) throws IOException{
+        stream.readLong(); //time
+        stream.readLong(); //total playtime
+        stream.readInt(); //build
+        int sector = stream.readInt(); //sector ID
+
+        //general state
+
+        byte mode = stream.readByte();
+        String mapname = stream.readUTF();
+        Map map = world.maps().getByName(mapname);
+        world.setMap(map);
+
+        world.setSector(world.sectors().get(sector));
+
+        int wave = stream.readInt();
+        byte difficulty = stream.readByte();
+        float wavetime = stream.readFloat();
+
+        state.difficulty = Difficulty.values()[difficulty];
+        state.mode = GameMode.values()[mode];
+        state.wave = wave;
+        state.wavetime = wavetime;
+
+        content.setTemporaryMapper(readContentHeader(stream));
+
+        state.spawner.read(stream);
+
+        //entities
+
+        DataInputStream entities = readBlock(stream);
+        byte groups = entities.readByte();
+
+        for(int i = 0; i < groups; i++){
+            int amount = entities.readInt();
+            for(int j = 0; j < amount; j++){
+                byte typeid = entities.readByte();
+                SaveTrait trait = (SaveTrait) TypeTrait.getTypeByID(typeid).get();
+                trait.readSave(entities);
+            }
+        }
+
+        //map
+
+        short width = stream.readShort();
+        short height = stream.readShort();
+        short size = stream.readShort();
+
+        if(world.getSector() != null){
+            world.setMap(new Map("Sector " + world.getSector().x + ", " + world.getSector().y, width, height));
+        }else if(map == null){
+            world.setMap(new Map("unknown", width, height));
+        }
+
+        world.beginMapLoad();
+
+        Tile[][] tiles = world.createTiles(width, height);
+
+        for(int cy = 0; cy < height; cy += size){
+            for(int cx = 0; cx < width; cx += size){
+                readChunk(readBlock(stream), tiles, cx, cy, Math.min(size, width - cx), Math.min(size, height - cy));
+            }
+        }
+
+        for(int i = 0; i < width * height; i++){
+            boolean discovered = stream.readBoolean();
+            int consecutives = stream.readUnsignedShort();
+            if(discovered){
+                for(int j = i + 1; j < i + 1 + consecutives; j++){
+                    int newx = j % width, newy = j / width;
+                    tiles[newx][newy].setVisibility((byte) 1);
+                }
+            }
+            i += consecutives;
+        }
+
+        content.setTemporaryMapper(null);
+        world.endMapLoad();
+    }
+
+    private void readChunk(DataInputStream stream, Tile[][] tiles, int offsetx, int offsety, int width, int height) throws IOException{
+        for(int i = 0; i < width * height; i++){
+            int x = offsetx + i % width, y = offsety + i / width;
+            byte floorid = stream.readByte();
+            byte wallid = stream.readByte();
+            byte elevation = stream.readByte();
+
+            Tile tile = new Tile(x, y, floorid, wallid);
+            tile.setElevation(elevation);
+
+            if(wallid == Blocks.blockpart.id){
+                tile.link = stream.readByte();
+            }else if(tile.entity != null){
+                byte tr = stream.readByte();
+                short health = stream.readShort();
+
+                byte team = Bits.getLeftByte(tr);
+                byte rotation = Bits.getRightByte(tr);
+
+                Team t = Team.all[team];
+
+                tile.setTeam(Team.all[team]);
+                tile.entity.health = health;
+                tile.setRotation(rotation);
+
+                if(tile.entity.items != null) tile.entity.items.read(stream);
+                if(tile.entity.power != null) tile.entity.power.read(stream);
+                if(tile.entity.liquids != null) tile.entity.liquids.read(stream);
+                if(tile.entity.cons != null) tile.entity.cons.read(stream);
+
+                tile.entity.read(stream);
+
+                if(tile.block() == StorageBlocks.core){
+                    state.teams.get(t).cores.add(tile);
+                }
+            }else if(wallid == 0){
+                int consecutives = stream.readUnsignedByte();
+
+                for(int j = i + 1; j < i + 1 + consecutives; j++){
+                    int newx = offsetx + j % width, newy = offsety + j / width;
+                    Tile newTile = new Tile(newx, newy, floorid, wallid);
+                    newTile.setElevation(elevation);
+                    tiles[newx][newy] = newTile;
+                }
+
+                i += consecutives;
+            }
+
+            tiles[x][y] = tile;
+        }
+    }
+
+    @Override
+    public void write(DataOutputStream stream) throws IOException{
+        snapshot().write(stream);
+    }
+
+    @Override
+    public SaveData snapshot() throws IOException{
+        ByteArrayOutputStream headBytes = new ByteArrayOutputStream();
+        DataOutputStream head = new DataOutputStream(headBytes);
+
+        //--META--
+        head.writeInt(version); //version id
+        head.writeLong(TimeUtils.millis()); //last saved
+        head.writeLong(headless ? 0 : control.getSaves().getTotalPlaytime()); //playtime
+        head.writeInt(Version.build); //build
+        head.writeInt(world.getSector() == null ? invalidSector : world.getSector().packedPosition()); //sector ID
+
+        //--GENERAL STATE--
+        head.writeByte(state.mode.ordinal()); //gamemode
+        head.writeUTF(world.getMap().name); //map ID
+
+        head.writeInt(state.wave); //wave
+        head.writeByte(state.difficulty.ordinal()); //difficulty ordinal
+        head.writeFloat(state.wavetime); //wave countdown
+
+        writeContentHeader(head);
+
+        state.spawner.write(head); //spawnes
+
+        //--ENTITIES--
+
+        ByteArrayOutputStream entityBytes = new ByteArrayOutputStream();
+        DataOutputStream entities = new DataOutputStream(entityBytes);
+
+        int groups = 0;
+
+        for(EntityGroup<?> group : Entities.getAllGroups()){
+            if(!group.isEmpty() && group.all().get(0) instanceof SaveTrait){
+                groups++;
+            }
+        }
+
+        entities.writeByte(groups);
+
+        for(EntityGroup<?> group : Entities.getAllGroups()){
+            if(!group.isEmpty() && group.all().get(0) instanceof SaveTrait){
+                entities.writeInt(group.size());
+                for(Entity entity : group.all()){
+                    entities.writeByte(((SaveTrait) entity).getTypeID());
+                    ((SaveTrait) entity).writeSave(entities);
+                }
+            }
+        }
+
+        Chunk entityChunk = compress(entityBytes.toByteArray());
+
+        //--MAP DATA--
+
+        int width = world.width(), height = world.height();
+        int chunksy = (height + chunkSize - 1) / chunkSize;
+        chunksx = (width + chunkSize - 1) / chunkSize;
+
+        //a new world, or the first snapshot of this one; every chunk is written
+        if(chunks.length != chunksx * chunksy){
+            chunks = new Chunk[chunksx * chunksy];
+            versions = new long[chunks.length];
+            dirty = new boolean[chunks.length];
+        }
+
+        for(int cy = 0; cy < chunksy; cy++){
+            for(int cx = 0; cx < chunksx; cx++){
+                int index = cx + cy * chunksx;
+                int offsetx = cx * chunkSize, offsety = cy * chunkSize;
+                int cwidth = Math.min(chunkSize, width - offsetx), cheight = Math.min(chunkSize, height - offsety);
+
+                long version = 0;
+                boolean awake = false;
+                for(int i = 0; i < cwidth * cheight; i++){
+                    Tile tile = world.tile(offsetx + i % cwidth, offsety + i / cwidth);
+                    version += tile.version();
+                    awake |= tile.entity != null && !tile.entity.isSleeping();
+                }
+
+                //unchanged chunks keep their compressed bytes
+                if(chunks[index] == null || dirty[index] || awake || versions[index] != version){
+                    chunkStream.reset();
+                    writeChunk(chunkData, offsetx, offsety, cwidth, cheight);
+
+                    //a chunk that was written again can still be the same, e.g. if its blocks were only updated
+                    if(chunks[index] == null || !chunkStream.matches(chunks[index].raw)){
+                        chunks[index] = compress(chunkStream.toByteArray());
+                    }
+                }
+
+                versions[index] = version;
+                dirty[index] = false;
+            }
+        }
+
+        Chunk[] mapChunks = chunks.clone();
+
+        //write visibility, length-run encoded
+        ByteArrayOutputStream visibilityBytes = new ByteArrayOutputStream();
+        DataOutputStream visibility = new DataOutputStream(visibilityBytes);
+
+        for(int i = 0; i < width * height; i++){
+            Tile tile = world.tile(i);
+            boolean discovered = tile.discovered();
+
+            int consecutives = 0;
+
+            for(int j = i + 1; j < width * height && consecutives < 32767*2-1; j++){
+                Tile nextTile = world.tile(j);
+
+                if(nextTile.discovered() != discovered){
+                    break;
+                }
+
+                consecutives++;
+            }
+
+            visibility.writeBoolean(discovered);
+            visibility.writeShort(consecutives);
+            i += consecutives;
+        }
+
+        return stream -> {
+            headBytes.writeTo(stream);
+            entityChunk.write(stream);
+
+            stream.writeShort(width);
+            stream.writeShort(height);
+            stream.writeShort(chunkSize);
+
+            for(Chunk chunk : mapChunks){
+                chunk.write(stream);
+            }
+
+            visibilityBytes.writeTo(stream);
+        };
+    }
+
+    private void writeChunk(DataOutputStream stream, int offsetx, int offsety, int width, int height) throws IOException{
+        for(int i = 0; i < width * height; i++){
+            Tile tile = world.tile(offsetx + i % width, offsety + i / width);
+
+            stream.writeByte(tile.getFloorID());
+            stream.writeByte(tile.getBlockID());
+            stream.writeByte(tile.getElevation());
+
+            if(tile.block() instanceof BlockPart){
+                stream.writeByte(tile.link);
+            }else if(tile.entity != null){
+                stream.writeByte(Bits.packByte(tile.getTeamID(), tile.getRotation())); //team + rotation
+                stream.writeShort((short) tile.entity.health); //health
+
+                if(tile.entity.items != null) tile.entity.items.write(stream);
+                if(tile.entity.power != null) tile.entity.power.write(stream);
+                if(tile.entity.liquids != null) tile.entity.liquids.write(stream);
+                if(tile.entity.cons != null) tile.entity.cons.write(stream);
+
+                tile.entity.write(stream);
+            }else if(tile.block() == Blocks.air){
+                int consecutives = 0;
+
+                for(int j = i + 1; j < width * height && consecutives < 255; j++){
+                    Tile nextTile = world.tile(offsetx + j % width, offsety + j / width);
+
+                    if(nextTile.getFloorID() != tile.getFloorID() || nextTile.block() != Blocks.air || nextTile.getElevation() != tile.getElevation()){
+                        break;
+                    }
+
+                    consecutives++;
+                }
+
+                stream.writeByte(consecutives);
+                i += consecutives;
+            }
+        }
+    }
+
+    /**Starts compressing the bytes in the background.*/
+    private Chunk compress(byte[] raw){
+        Chunk chunk = new Chunk();
+        chunk.raw = raw;
+        chunk.compressed = executor.submit(() -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 16);
+            try(DeflaterOutputStream deflater = new DeflaterOutputStream(out)){
+                deflater.write(raw);
+            }
+            return out.toByteArray();
+        });
+        return chunk;
+    }
+
+    /**Reads a block written by {@link Chunk#write(DataOutputStream)}, and returns a stream of its uncompressed bytes.*/
+    private DataInputStream readBlock(DataInputStream stream) throws IOException{
+        byte[] compressed = new byte[stream.readInt()];
+        byte[] raw = new byte[stream.readInt()];
+        stream.readFully(compressed);
+
+        try(DataInputStream inflater = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)))){
+            inflater.readFully(raw);
+        }
+
+        return new DataInputStream(new ByteArrayInputStream(raw));
+    }
+
+    static class Chunk{
+        byte[] raw;
+        AsyncResult<byte[]> compressed;
+
+        /**Writes the compressed bytes, waiting for compression to finish if needed.*/
+        void write(DataOutputStream stream) throws IOException{
+            byte[] bytes = compressed.get();
+            stream.writeInt(bytes.length);
+            stream.writeInt(raw.length);
+            stream.write(bytes);
+        }
+    }
+
+    static class ChunkStream extends ByteArrayOutputStream{
+
+        boolean matches(byte[] bytes){
+            if(bytes.length != count) return false;
+
+            for(int i = 0; i < count; i++){
+                if(bytes[i] != buf[i]) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -3,14 +3,19 @@ package io.anuke.mindustry.net;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.TimeUtils;
 import io.anuke.annotations.Annotations.Serialize;
 import io.anuke.ucore.core.Settings;
 
-import static io.anuke.mindustry.Vars.headless;
+import static io.anuke.mindustry.Vars.*;
 
 public class Administration{
     public static final int defaultMaxBrokenBlocks = 15;
     public static final int defaultBreakCooldown = 1000 * 15;
+    /**Changed player info is written at least this often, in milliseconds.*/
+    private static final long flushInterval = 1000 * 10;
+    private static final Array<PlayerInfo> emptyInfos = new Array<>(0);
 
     /**All player info. Maps UUIDs to info. This persists throughout restarts.*/
     private ObjectMap<String, PlayerInfo> playerInfo = new ObjectMap<>();
@@ -18,7 +23,15 @@ public class Administration{
     private ObjectMap<String, TraceInfo> traceInfo = new ObjectMap<>();
     /** Maps packed coordinates to logs for that coordinate*/
     private IntMap<Array<EditLog>> editLogs = new IntMap<>();
-    private Array<String> bannedIPs = new Array<>();
+    private ObjectSet<String> bannedIPs = new ObjectSet<>();
+    /**Maps every IP a player has used to the players that used it.*/
+    private ObjectMap<String, Array<PlayerInfo>> ipIndex = new ObjectMap<>();
+    /**Maps every name a player has used to the players that used it.*/
+    private ObjectMap<String, Array<PlayerInfo>> nameIndex = new ObjectMap<>();
+    /**Maps lowercase last names to the players that last used them.*/
+    private ObjectMap<String, Array<PlayerInfo>> lastNameIndex = new ObjectMap<>();
+    private PlayerInfoStore store = new PlayerInfoStore(gwt ? null : dataDirectory.child("players.dat"));
+    private long lastFlush;
 
     public Administration(){
         Settings.defaultList(
@@ -61,11 +74,30 @@ public class Administration{
      */
     public void updatePlayerJoined(String id, String ip, String name){
         PlayerInfo info = getCreateInfo(id);
+        index(lastNameIndex, info.lastName.toLowerCase()).removeValue(info, true);
         info.lastName = name;
         info.lastIP = ip;
         info.timesJoined++;
-        if(!info.names.contains(name, false)) info.names.add(name);
-        if(!info.ips.contains(ip, false)) info.ips.add(ip);
+        if(!info.names.contains(name, false)){
+            info.names.add(name);
+            index(nameIndex, name).add(info);
+        }
+        if(!info.ips.contains(ip, false)){
+            info.ips.add(ip);
+            index(ipIndex, ip).add(info);
+        }
+        index(lastNameIndex, name.toLowerCase()).add(info);
+        store.put(info);
+    }
+
+    /**
+     * Call when a player is kicked or banned.
+     */
+    public void updatePlayerKicked(String id){
+        PlayerInfo info = getCreateInfo(id);
+        info.timesKicked++;
+        info.lastKicked = TimeUtils.millis();
+        store.put(info);
     }
 
     /**
@@ -86,16 +118,16 @@ public class Administration{
      * If there are players who at any point had this IP, they will be UUID banned as well.
      */
     public boolean banPlayerIP(String ip){
-        if(bannedIPs.contains(ip, false))
+        if(bannedIPs.contains(ip))
             return false;
 
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.ips.contains(ip, false)){
-                info.banned = true;
-            }
+        for(PlayerInfo info : findByIPs(ip)){
+            info.banned = true;
+            store.put(info);
         }
 
         bannedIPs.add(ip);
+        store.banIP(ip);
         save();
 
         return true;
@@ -108,8 +140,9 @@ public class Administration{
         if(playerInfo.containsKey(id) && playerInfo.get(id).banned)
             return false;
 
-        getCreateInfo(id).banned = true;
-
+        PlayerInfo info = getCreateInfo(id);
+        info.banned = true;
+        store.put(info);
         save();
 
         return true;
@@ -120,16 +153,17 @@ public class Administration{
      * This method also unbans any player that was banned and had this IP.
      */
     public boolean unbanPlayerIP(String ip){
-        boolean found = bannedIPs.contains(ip, false);
+        boolean found = bannedIPs.contains(ip);
 
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.ips.contains(ip, false)){
-                info.banned = false;
-                found = true;
-            }
+        for(PlayerInfo info : findByIPs(ip)){
+            info.banned = false;
+            store.put(info);
+            found = true;
         }
 
-        bannedIPs.removeValue(ip, false);
+        if(bannedIPs.remove(ip)){
+            store.unbanIP(ip);
+        }
 
         if(found) save();
 
@@ -147,7 +181,12 @@ public class Administration{
             return false;
 
         info.banned = false;
-        bannedIPs.removeAll(info.ips, false);
+        store.put(info);
+        for(String ip : info.ips){
+            if(bannedIPs.remove(ip)){
+                store.unbanIP(ip);
+            }
+        }
         save();
 
         return true;
@@ -182,7 +221,7 @@ public class Administration{
     /**
      * Returns all banned IPs. This does not include the IPs of ID-banned players.
      */
-    public Array<String> getBannedIPs(){
+    public ObjectSet<String> getBannedIPs(){
         return bannedIPs;
     }
 
@@ -197,6 +236,7 @@ public class Administration{
 
         info.adminUsid = usid;
         info.admin = true;
+        store.put(info);
         save();
 
         return true;
@@ -212,13 +252,20 @@ public class Administration{
             return false;
 
         info.admin = false;
+        store.put(info);
         save();
 
         return true;
     }
 
     public boolean isIPBanned(String ip){
-        return bannedIPs.contains(ip, false) || (findByIP(ip) != null && findByIP(ip).banned);
+        if(bannedIPs.contains(ip)) return true;
+
+        Array<PlayerInfo> infos = findByIPs(ip);
+        for(int i = 0; i < infos.size; i++){
+            if(infos.get(i).banned) return true;
+        }
+        return false;
     }
 
     public boolean isIDBanned(String uuid){
@@ -231,27 +278,21 @@ public class Administration{
     }
 
     public Array<PlayerInfo> findByName(String name, boolean last){
-        Array<PlayerInfo> result = new Array<>();
+        Array<PlayerInfo> result = new Array<>(lastNameIndex.get(name.toLowerCase(), emptyInfos));
 
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.lastName.toLowerCase().equals(name.toLowerCase()) || (last && info.names.contains(name, false))){
-                result.add(info);
+        if(last){
+            Array<PlayerInfo> infos = nameIndex.get(name, emptyInfos);
+            for(int i = 0; i < infos.size; i++){
+                if(!result.contains(infos.get(i), true)) result.add(infos.get(i));
             }
         }
 
         return result;
     }
 
+    /**Returns all players that have used an IP. The returned array must not be modified.*/
     public Array<PlayerInfo> findByIPs(String ip){
-        Array<PlayerInfo> result = new Array<>();
-
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.ips.contains(ip, false)){
-                result.add(info);
-            }
-        }
-
-        return result;
+        return ipIndex.get(ip, emptyInfos);
     }
 
     public PlayerInfo getInfo(String id){
@@ -263,12 +304,8 @@ public class Administration{
     }
 
     public PlayerInfo findByIP(String ip){
-        for(PlayerInfo info : playerInfo.values()){
-            if(info.ips.contains(ip, false)){
-                return info;
-            }
-        }
-        return null;
+        Array<PlayerInfo> infos = findByIPs(ip);
+        return infos.size == 0 ? null : infos.first();
     }
 
     private PlayerInfo getCreateInfo(String id){
@@ -277,20 +314,71 @@ public class Administration{
         }else{
             PlayerInfo info = new PlayerInfo(id);
             playerInfo.put(id, info);
-            save();
+            addIndex(info);
+            store.put(info);
             return info;
         }
     }
 
+    /**Returns the players stored under a key of an index, creating the entry if needed.*/
+    private Array<PlayerInfo> index(ObjectMap<String, Array<PlayerInfo>> index, String key){
+        Array<PlayerInfo> infos = index.get(key);
+        if(infos == null){
+            infos = new Array<>(false, 1);
+            index.put(key, infos);
+        }
+        return infos;
+    }
+
+    private void addIndex(PlayerInfo info){
+        for(String ip : info.ips) index(ipIndex, ip).add(info);
+        for(String name : info.names) index(nameIndex, name).add(info);
+        index(lastNameIndex, info.lastName.toLowerCase()).add(info);
+    }
+
+    /**Writes changed player info if enough time has passed since the last write. Call every frame.*/
+    public void update(){
+        if(store.hasChanges() && TimeUtils.timeSinceMillis(lastFlush) > flushInterval){
+            save();
+        }
+    }
+
+    /**Starts writing all changed player info in the background.*/
     public void save(){
-        Settings.putBinary("player-info", playerInfo);
-        Settings.putBinary("banned-ips", bannedIPs);
-        Settings.save();
+        if(store.needsCompaction(playerInfo.size + bannedIPs.size)){
+            store.compact(playerInfo, bannedIPs);
+        }else{
+            store.flush();
+        }
+        lastFlush = TimeUtils.millis();
+    }
+
+    /**Writes all changed player info, and waits until it is written.*/
+    public void dispose(){
+        store.dispose();
     }
 
     private void load(){
-        playerInfo = Settings.getBinary("player-info", ObjectMap.class, () -> new ObjectMap<>());
-        bannedIPs = Settings.getBinary("banned-ips", Array.class, () -> new Array<>());
+        if(store.exists()){
+            if(store.load(playerInfo, bannedIPs)){
+                store.compact(playerInfo, bannedIPs);
+            }
+        }else{
+            //player info used to be stored in the settings
+            ObjectMap<String, PlayerInfo> infos = Settings.getBinary("player-info", ObjectMap.class, () -> new ObjectMap<>());
+            Array<String> ips = Settings.getBinary("banned-ips", Array.class, () -> new Array<>());
+
+            playerInfo.putAll(infos);
+            for(String ip : ips) bannedIPs.add(ip);
+
+            if(playerInfo.size > 0 || bannedIPs.size > 0){
+                store.compact(playerInfo, bannedIPs);
+            }
+        }
+
+        for(PlayerInfo info : playerInfo.values()){
+            addIndex(info);
+        }
     }
 
     @Serialize
@@ -0,0 +1,117 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.LongMap.Values;
+import com.badlogic.gdx.utils.Pool;
+import io.anuke.mindustry.entities.traits.SyncTrait;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Encodes each synced entity at most once per frame, so snapshots for several clients can share the result.
+ * When an entity's encoding is the same as the last time it was encoded, the same array is returned again,
+ * which also lets snapshot baselines recognize it as unchanged by identity.
+ * Returned arrays must not be modified.
+ */
+public class EncodingCache{
+    /**Entries that have not been used for this many frames are removed.*/
+    private static final int maxAge = 120;
+
+    private final LongMap<Entry> entries = new LongMap<>();
+    private final Pool<Entry> pool = new Pool<Entry>(){
+        @Override
+        protected Entry newObject(){
+            return new Entry();
+        }
+    };
+    private final EncodeStream stream = new EncodeStream();
+    private final DataOutputStream data = new DataOutputStream(stream);
+    private long frame;
+    private long encoded, hits;
+
+    /**Starts a new frame. Encodings from previous frames are no longer returned without checking the entity again.*/
+    public void nextFrame(){
+        frame++;
+
+        if(frame % maxAge == 0){
+            Values<Entry> values = entries.values();
+            while(values.hasNext()){
+                Entry entry = values.next();
+                if(frame - entry.frame > maxAge){
+                    values.remove();
+                    pool.free(entry);
+                }
+            }
+        }
+    }
+
+    /**Returns the encoding of an entity for the current frame, writing it if this is the first request for it this frame.*/
+    public byte[] get(int groupID, SyncTrait entity) throws IOException{
+        long key = SnapshotHistory.key(groupID, entity.getID());
+        Entry entry = entries.get(key);
+
+        if(entry != null && entry.frame == frame){
+            hits++;
+            return entry.bytes;
+        }
+
+        if(entry == null){
+            entry = pool.obtain();
+            entries.put(key, entry);
+        }
+
+        stream.reset();
+        entity.write(data);
+        encoded++;
+
+        //only allocate a new array when the encoding changed
+        if(entry.bytes == null || !stream.matches(entry.bytes)){
+            entry.bytes = stream.toByteArray();
+        }
+        entry.frame = frame;
+
+        return entry.bytes;
+    }
+
+    /**Returns how many times an entity was actually written, and how many requests were served from the cache.*/
+    public long getEncoded(){
+        return encoded;
+    }
+
+    public long getHits(){
+        return hits;
+    }
+
+    /**Removes every encoding. Called when a world is loaded or the server is reset, as entity IDs may then be reused.*/
+    public void clear(){
+        for(Entry entry : entries.values()){
+            pool.free(entry);
+        }
+        entries.clear();
+    }
+
+    static class EncodeStream extends ByteArrayOutputStream{
+
+        boolean matches(byte[] bytes){
+            if(bytes.length != count) return false;
+
+            for(int i = 0; i < count; i++){
+                if(bytes[i] != buf[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    static class Entry implements Pool.Poolable{
+        byte[] bytes;
+        long frame = -1;
+
+        @Override
+        public void reset(){
+            bytes = null;
+            frame = -1;
+        }
+    }
+}
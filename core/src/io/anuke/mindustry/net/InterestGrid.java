@@ -0,0 +1,258 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.LongMap.Values;
+import com.badlogic.gdx.utils.Pool;
+import io.anuke.mindustry.entities.traits.SyncTrait;
+import io.anuke.ucore.entities.Entities;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.entities.trait.Entity;
+import io.anuke.ucore.util.Mathf;
+
+import java.util.Arrays;
+
+import static io.anuke.mindustry.Vars.tilesize;
+import static io.anuke.mindustry.Vars.world;
+
+/**
+ * Finds the synced entities each connection can see, without going through every entity for every connection.
+ * Synced entities are kept in a uniform grid, with one set of cells for each entity group. Entities are only moved
+ * between cells when they cross into another one, once per frame, the first time the grid is used in it.
+ * Each connection is subscribed to the cells around its view, and only reads entities from those cells.
+ * Subscriptions cover a margin around the view, and only change once the view leaves them; the cells a connection
+ * enters and leaves are counted when they do.
+ */
+public class InterestGrid{
+    /**Size of one cell, in world units.*/
+    private static final float cellSize = tilesize * 8;
+    /**Distance around a view whose cells are subscribed to as well.*/
+    private static final float margin = tilesize * 6;
+    /**Entries of entities that have not been seen for this many frames are freed.*/
+    private static final int maxAge = 120;
+
+    private final LongMap<Entry> entries = new LongMap<>();
+    private final Pool<Entry> pool = new Pool<Entry>(){
+        @Override
+        protected Entry newObject(){
+            return new Entry();
+        }
+    };
+    private final Rectangle rect = new Rectangle();
+
+    private int width, height, cells, groups;
+    /**First entry in each cell of each group, or null. Cells of a group start at its ID * cells.*/
+    private Entry[] heads = {};
+    /**Changes whenever the grid is resized, which invalidates every subscription.*/
+    private int generation;
+    private long frame;
+    private boolean dirty = true;
+    private long moves, entered, left;
+
+    /**Starts a new frame. Entities are moved into their current cells the next time the grid is used.*/
+    public void nextFrame(){
+        dirty = true;
+    }
+
+    /**
+     * Updates the cells a connection is subscribed to from its view. Cells that start or stop being subscribed to
+     * are counted as entered and left.
+     */
+    public void subscribe(NetConnection connection){
+        update();
+
+        Subscription sub = connection.interest;
+        rect.setSize(connection.viewWidth, connection.viewHeight).setCenter(connection.viewX, connection.viewY);
+
+        //views that stay inside the subscribed cells keep them
+        if(sub.generation == generation && cellX(rect.x) >= sub.minX && cellY(rect.y) >= sub.minY
+        && cellX(rect.x + rect.width) <= sub.maxX && cellY(rect.y + rect.height) <= sub.maxY){
+            return;
+        }
+
+        int minX = cellX(rect.x - margin), minY = cellY(rect.y - margin);
+        int maxX = cellX(rect.x + rect.width + margin), maxY = cellY(rect.y + rect.height + margin);
+
+        if(sub.generation == generation){
+            left += count(sub.minX, sub.minY, sub.maxX, sub.maxY, minX, minY, maxX, maxY);
+            entered += count(minX, minY, maxX, maxY, sub.minX, sub.minY, sub.maxX, sub.maxY);
+        }else{
+            entered += (maxX - minX + 1) * (maxY - minY + 1);
+        }
+
+        sub.set(minX, minY, maxX, maxY, generation);
+    }
+
+    /**
+     * Adds every syncing entity of a group that is inside the rectangle, and in the cells the connection is subscribed to,
+     * to the array. The connection must have been subscribed this frame.
+     */
+    public void query(NetConnection connection, int groupID, Rectangle viewport, Array<Entity> out){
+        Subscription sub = connection.interest;
+        if(sub.generation != generation || groupID >= groups) return;
+
+        int offset = groupID * cells;
+
+        for(int cy = sub.minY; cy <= sub.maxY; cy++){
+            for(int cx = sub.minX; cx <= sub.maxX; cx++){
+                for(Entry entry = heads[offset + cx + cy * width]; entry != null; entry = entry.next){
+                    //entries of entities that were removed are not seen again, and are freed later
+                    if(entry.frame != frame) continue;
+
+                    Entity entity = entry.entity;
+                    if(((SyncTrait) entity).isSyncing() && viewport.contains(entity.getX(), entity.getY())){
+                        out.add(entity);
+                    }
+                }
+            }
+        }
+    }
+
+    /**Returns how many times an entity moved into another cell, and how many cells connections entered and left.*/
+    public long getMoves(){
+        return moves;
+    }
+
+    public long getEntered(){
+        return entered;
+    }
+
+    public long getLeft(){
+        return left;
+    }
+
+    public void clear(){
+        for(Entry entry : entries.values()){
+            pool.free(entry);
+        }
+        entries.clear();
+        Arrays.fill(heads, null);
+        generation++;
+    }
+
+    /**Moves every synced entity into the cell it is in now, if that has not been done this frame.*/
+    private void update(){
+        if(!dirty) return;
+        dirty = false;
+        frame++;
+
+        int groupCount = 0;
+        for(EntityGroup<?> group : Entities.getAllGroups()){
+            groupCount = Math.max(groupCount, group.getID() + 1);
+        }
+
+        int w = Math.max(Mathf.ceil(world.width() * tilesize / cellSize), 1);
+        int h = Math.max(Mathf.ceil(world.height() * tilesize / cellSize), 1);
+
+        if(w != width || h != height || groupCount != groups){
+            width = w;
+            height = h;
+            cells = w * h;
+            groups = groupCount;
+            heads = new Entry[cells * groups];
+            clear();
+        }
+
+        for(EntityGroup<?> group : Entities.getAllGroups()){
+            if(group.isEmpty() || !(group.all().get(0) instanceof SyncTrait)) continue;
+
+            int offset = group.getID() * cells;
+
+            for(int i = 0; i < group.size(); i++){
+                Entity entity = group.all().get(i);
+                long key = SnapshotHistory.key(group.getID(), entity.getID());
+                int cell = offset + cellX(entity.getX()) + cellY(entity.getY()) * width;
+                Entry entry = entries.get(key);
+
+                if(entry == null){
+                    entry = pool.obtain();
+                    entries.put(key, entry);
+                    link(entry, cell);
+                }else if(entry.cell != cell){
+                    unlink(entry);
+                    link(entry, cell);
+                    moves++;
+                }
+
+                //IDs can be reused by a new entity
+                entry.entity = entity;
+                entry.frame = frame;
+            }
+        }
+
+        if(frame % maxAge == 0){
+            Values<Entry> values = entries.values();
+            while(values.hasNext()){
+                Entry entry = values.next();
+                if(frame - entry.frame > maxAge){
+                    unlink(entry);
+                    values.remove();
+                    pool.free(entry);
+                }
+            }
+        }
+    }
+
+    private void link(Entry entry, int cell){
+        entry.cell = cell;
+        entry.prev = null;
+        entry.next = heads[cell];
+        if(entry.next != null) entry.next.prev = entry;
+        heads[cell] = entry;
+    }
+
+    private void unlink(Entry entry){
+        if(entry.prev != null){
+            entry.prev.next = entry.next;
+        }else{
+            heads[entry.cell] = entry.next;
+        }
+        if(entry.next != null) entry.next.prev = entry.prev;
+        entry.prev = entry.next = null;
+    }
+
+    /**Returns how many cells of the first area are not in the second one.*/
+    private static int count(int minX, int minY, int maxX, int maxY, int otherMinX, int otherMinY, int otherMaxX, int otherMaxY){
+        int overlapX = Math.max(Math.min(maxX, otherMaxX) - Math.max(minX, otherMinX) + 1, 0);
+        int overlapY = Math.max(Math.min(maxY, otherMaxY) - Math.max(minY, otherMinY) + 1, 0);
+        return (maxX - minX + 1) * (maxY - minY + 1) - overlapX * overlapY;
+    }
+
+    private int cellX(float x){
+        return Mathf.clamp((int) (x / cellSize), 0, width - 1);
+    }
+
+    private int cellY(float y){
+        return Mathf.clamp((int) (y / cellSize), 0, height - 1);
+    }
+
+    /**Cells of the grid that a connection receives entities from.*/
+    public static class Subscription{
+        int minX, minY, maxX = -1, maxY = -1;
+        int generation = -1;
+
+        void set(int minX, int minY, int maxX, int maxY, int generation){
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.generation = generation;
+        }
+    }
+
+    static class Entry implements Pool.Poolable{
+        Entity entity;
+        Entry prev, next;
+        int cell = -1;
+        long frame = -1;
+
+        @Override
+        public void reset(){
+            entity = null;
+            prev = next = null;
+            cell = -1;
+            frame = -1;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.utils.Array;
+import io.anuke.mindustry.net.Net.SendMode;
+import io.anuke.mindustry.net.Packets.InvokeFramePacket;
+import io.anuke.mindustry.net.Packets.InvokePacket;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Collects the reliable remote calls that the server makes during a tick, and sends them to each connection as one
+ * {@link InvokeFramePacket} at the end of the tick, instead of sending every call as a packet of its own.
+ * Each connection has a single frame, and calls sent to everyone are added to every frame, so calls still arrive in the
+ * order they were made. A frame is sent early when it is full, or when something else is about to be sent to its connection.
+ */
+public class InvokeBatcher{
+    /**Largest frame that is sent in one packet. Leaves room for the packet header in the serialization buffer.*/
+    public static final int maxFrameSize = 4000;
+    /**Bytes written before each call in a frame: its method ID, and its length as a short.*/
+    private static final int callHeaderSize = 3;
+
+    /**Frames are written out as soon as they are sent, so one packet is enough.*/
+    private final InvokeFramePacket packet = new InvokeFramePacket();
+
+    /**Adds a call to the frame of a connection. The first length bytes of the buffer are the call's parameters.*/
+    public synchronized void add(NetConnection connection, byte type, ByteBuffer buffer, int length){
+        //calls that do not fit in a frame are sent by themselves, after the calls made before them
+        if(callHeaderSize + length > maxFrameSize){
+            flush(connection);
+
+            InvokePacket invoke = new InvokePacket();
+            invoke.type = type;
+            invoke.writeBuffer = buffer;
+            invoke.writeLength = length;
+            connection.send(invoke, SendMode.tcp);
+            return;
+        }
+
+        if(connection.frame == null){
+            connection.frame = ByteBuffer.allocate(maxFrameSize);
+        }else if(connection.frame.position() + callHeaderSize + length > maxFrameSize){
+            flush(connection);
+        }
+
+        ByteBuffer frame = connection.frame;
+        frame.put(type);
+        frame.putShort((short) length);
+        frame.put(buffer.array(), buffer.arrayOffset(), length);
+    }
+
+    /**Sends the calls waiting for a connection, if there are any.*/
+    public synchronized void flush(NetConnection connection){
+        if(connection.frame == null || connection.frame.position() == 0) return;
+
+        packet.writeBuffer = connection.frame;
+        packet.writeLength = connection.frame.position();
+        connection.send(packet, SendMode.tcp);
+        connection.frame.clear();
+    }
+
+    /**Sends the calls waiting for every connection.*/
+    public synchronized void flush(){
+        Array<NetConnection> connections = Net.getConnections();
+        for(int i = 0; i < connections.size; i++){
+            flush(connections.get(i));
+        }
+    }
+}
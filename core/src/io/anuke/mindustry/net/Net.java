@@ -21,6 +21,7 @@ import io.anuke.ucore.util.Log;
 import io.anuke.ucore.util.Pooling;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import static io.anuke.mindustry.Vars.headless;
 import static io.anuke.mindustry.Vars.ui;
@@ -36,6 +37,8 @@ public class Net{
     private static ObjectMap<Class<?>, BiConsumer<Integer, Object>> serverListeners = new ObjectMap<>();
     private static ClientProvider clientProvider;
     private static ServerProvider serverProvider;
+    private static BiConsumer<Integer, Object> serverRecorder;
+    private static InvokeBatcher batcher = new InvokeBatcher();
 
     private static IntMap<StreamBuilder> streams = new IntMap<>();
 
@@ -118,12 +121,12 @@ public class Net{
         active = false;
     }
 
-    public static byte[] compressSnapshot(byte[] input){
-        return serverProvider.compressSnapshot(input);
+    public static ByteBuffer compressSnapshot(byte[] input, int length, ByteBuffer output){
+        return serverProvider.compressSnapshot(input, length, output);
     }
 
-    public static byte[] decompressSnapshot(byte[] input, int size){
-        return clientProvider.decompressSnapshot(input, size);
+    public static byte[] decompressSnapshot(byte[] input, int offset, int size, byte[] output){
+        return clientProvider.decompressSnapshot(input, offset, size, output);
     }
 
     /**
@@ -153,6 +156,7 @@ public class Net{
      */
     public static void send(Object object, SendMode mode){
         if(server){
+            if(mode == SendMode.tcp) flushFrames();
             if(serverProvider != null) serverProvider.send(object, mode);
         }else{
             if(clientProvider != null) clientProvider.send(object, mode);
@@ -163,6 +167,7 @@ public class Net{
      * Send an object to a certain client. Server-side only
      */
     public static void sendTo(int id, Object object, SendMode mode){
+        if(mode == SendMode.tcp) flushFrame(id);
         serverProvider.sendTo(id, object, mode);
     }
 
@@ -170,6 +175,7 @@ public class Net{
      * Send an object to everyone EXCEPT certain client. Server-side only
      */
     public static void sendExcept(int id, Object object, SendMode mode){
+        if(mode == SendMode.tcp) flushFrames();
         serverProvider.sendExcept(id, object, mode);
     }
 
@@ -177,9 +183,52 @@ public class Net{
      * Send a stream to a specific client. Server-side only.
      */
     public static void sendStream(int id, Streamable stream){
+        flushFrame(id);
         serverProvider.sendStream(id, stream);
     }
 
+    /**
+     * Adds a reliable remote call to the frame of every connection, to be sent at the end of the tick.
+     * The first length bytes of the buffer are the parameters of the call. Server-side only.
+     */
+    public static void batch(byte type, ByteBuffer buffer, int length){
+        Array<NetConnection> connections = getConnections();
+        for(int i = 0; i < connections.size; i++){
+            batcher.add(connections.get(i), type, buffer, length);
+        }
+    }
+
+    /**
+     * Adds a reliable remote call to the frame of a certain client. Server-side only.
+     */
+    public static void batchTo(int id, byte type, ByteBuffer buffer, int length){
+        NetConnection connection = getConnection(id);
+        if(connection != null) batcher.add(connection, type, buffer, length);
+    }
+
+    /**
+     * Adds a reliable remote call to the frame of everyone EXCEPT a certain client. Server-side only.
+     */
+    public static void batchExcept(int id, byte type, ByteBuffer buffer, int length){
+        Array<NetConnection> connections = getConnections();
+        for(int i = 0; i < connections.size; i++){
+            if(connections.get(i).id != id) batcher.add(connections.get(i), type, buffer, length);
+        }
+    }
+
+    /**
+     * Sends the remote calls batched for every client. Called at the end of each tick, and before anything else is
+     * sent reliably, so that calls keep their order. Server-side only.
+     */
+    public static void flushFrames(){
+        if(serverProvider != null) batcher.flush();
+    }
+
+    private static void flushFrame(int id){
+        NetConnection connection = getConnection(id);
+        if(connection != null) batcher.flush(connection);
+    }
+
     /**
      * Sets the net clientProvider, e.g. what handles sending, recieving and connecting to a server.
      */
@@ -194,6 +243,18 @@ public class Net{
         Net.serverProvider = provider;
     }
 
+    public static ServerProvider getServerProvider(){
+        return serverProvider;
+    }
+
+    /**
+     * Sets a listener that is given every packet the server receives, before it is handled.
+     * Used to record sessions; the packet must not be kept or modified. Pass null to remove it.
+     */
+    public static void setServerRecorder(BiConsumer<Integer, Object> recorder){
+        Net.serverRecorder = recorder;
+    }
+
     /**
      * Registers a client listener for when an object is recieved.
      */
@@ -252,6 +313,9 @@ public class Net{
      * Call to handle a packet being recieved for the server.
      */
     public static void handleServerReceived(int connection, Object object){
+        if(serverRecorder != null){
+            serverRecorder.accept(connection, object);
+        }
 
         if(serverListeners.get(object.getClass()) != null){
             if(serverListeners.get(object.getClass()) != null)
@@ -264,6 +328,16 @@ public class Net{
         }
     }
 
+    /**
+     * Handles every packet the server has received since the last call.
+     * Called at the start of each logic update, on the thread the logic runs on.
+     * Anything else that changes the game from another thread, such as server commands, must be posted through
+     * {@link io.anuke.mindustry.core.ThreadHandler#runDelay(Runnable)} so that it runs on the same thread.
+     */
+    public static void update(){
+        if(serverProvider != null) serverProvider.handleReceived();
+    }
+
     /**
      * Pings a host in an new thread. If an error occured, failed() should be called with the exception.
      */
@@ -361,8 +435,11 @@ public class Net{
         /**Disconnect from the server.*/
         void disconnect();
 
-        /**Decompress an input snapshot byte array.*/
-        byte[] decompressSnapshot(byte[] input, int size);
+        /**
+         * Decompresses a snapshot that starts at an offset of the input into output, which is replaced by a larger
+         * array if it is too small. Returns the array holding the result.
+         */
+        byte[] decompressSnapshot(byte[] input, int offset, int size, byte[] output);
 
         /**
          * Discover servers. This should run the callback regardless of whether any servers are found. Should not block.
@@ -397,8 +474,14 @@ public class Net{
         /**Close the server connection.*/
         void close();
 
-        /**Compress an input snapshot byte array.*/
-        byte[] compressSnapshot(byte[] input);
+        /**Passes all packets received since the last call to {@link Net#handleServerReceived(int, Object)}, in order.*/
+        void handleReceived();
+
+        /**
+         * Compresses the first length bytes of input into output, which is replaced by a larger buffer if it is too small.
+         * Returns the buffer holding the result, from position 0 to its limit.
+         */
+        ByteBuffer compressSnapshot(byte[] input, int length, ByteBuffer output);
 
         /**Return all connected users.*/
         Array<? extends NetConnection> getConnections();
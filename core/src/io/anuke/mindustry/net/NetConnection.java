@@ -2,11 +2,19 @@ package io.anuke.mindustry.net;
 
 import io.anuke.mindustry.net.Net.SendMode;
 
+import java.nio.ByteBuffer;
+
 public abstract class NetConnection{
     public final int id;
     public final String address;
 
     public int lastSentSnapshotID = -1;
+    /**ID of the last server snapshot the client has confirmed reading. Used as the baseline for delta snapshots.*/
+    public int lastAckedSnapshotID = -1;
+    /**Entity encodings of recently sent snapshots.*/
+    public final SnapshotHistory snapshots = new SnapshotHistory();
+    /**Cells of the interest grid this connection receives entities from.*/
+    final InterestGrid.Subscription interest = new InterestGrid.Subscription();
 
     /**ID of last recieved client snapshot.*/
     public int lastRecievedClientSnapshot = -1;
@@ -17,6 +25,9 @@ public abstract class NetConnection{
     public boolean hasBegunConnecting = false;
     public float viewWidth, viewHeight, viewX, viewY;
 
+    /**Reliable remote calls waiting to be sent to this connection in one packet. Only used by {@link InvokeBatcher}.*/
+    ByteBuffer frame;
+
     public NetConnection(int id, String address){
         this.id = id;
         this.address = address;
@@ -26,6 +37,11 @@ public abstract class NetConnection{
         return true;
     }
 
+    /**Returns how many bytes are waiting to be written to this connection, or 0 if that is not known.*/
+    public int getPendingBytes(){
+        return 0;
+    }
+
     public abstract void send(Object object, SendMode mode);
 
     public abstract void close();
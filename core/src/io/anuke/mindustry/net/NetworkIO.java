@@ -1,5 +1,6 @@
 package io.anuke.mindustry.net;
 
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.ObjectMap.Entry;
 import com.badlogic.gdx.utils.TimeUtils;
@@ -21,129 +22,165 @@ import io.anuke.ucore.util.Bits;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.util.zip.InflaterInputStream;
 
 import static io.anuke.mindustry.Vars.*;
 
 public class NetworkIO{
 
-    public static void writeWorld(Player player, OutputStream os){
-
-        try(DataOutputStream stream = new DataOutputStream(os)){
-
-            stream.writeFloat(Timers.time()); //timer time
-            stream.writeLong(TimeUtils.millis()); //timestamp
-
-            //--GENERAL STATE--
-            stream.writeByte(state.mode.ordinal()); //gamemode
-            stream.writeUTF(world.getMap().name); //map name
-
-            //write tags
-            ObjectMap<String, String> tags = world.getMap().meta.tags;
-            stream.writeByte(tags.size);
-            for(Entry<String, String> entry : tags.entries()){
-                stream.writeUTF(entry.key);
-                stream.writeUTF(entry.value);
-            }
-
-            stream.writeInt(state.wave); //wave
-            stream.writeFloat(state.wavetime); //wave countdown
-
-            stream.writeInt(player.id);
-            player.write(stream);
+    /**Writes the part of the world data that is different for every player: timers, general state and the player itself.*/
+    public static void writeWorldHeader(Player player, DataOutputStream stream) throws IOException{
+        stream.writeFloat(Timers.time()); //timer time
+        stream.writeLong(TimeUtils.millis()); //timestamp
+
+        //--GENERAL STATE--
+        stream.writeByte(state.mode.ordinal()); //gamemode
+        stream.writeUTF(world.getMap().name); //map name
+
+        //write tags
+        ObjectMap<String, String> tags = world.getMap().meta.tags;
+        stream.writeByte(tags.size);
+        for(Entry<String, String> entry : tags.entries()){
+            stream.writeUTF(entry.key);
+            stream.writeUTF(entry.value);
+        }
 
-            //--MAP DATA--
+        stream.writeInt(state.wave); //wave
+        stream.writeFloat(state.wavetime); //wave countdown
 
-            //map size
-            stream.writeShort(world.width());
-            stream.writeShort(world.height());
+        stream.writeInt(player.id);
+        player.write(stream);
+    }
 
-            for(int i = 0; i < world.width() * world.height(); i++){
-                Tile tile = world.tile(i);
+    /**
+     * Writes the part of the world data that is the same for every player: the map size and teams.
+     * Tiles are not included, and are sent afterwards in regions with {@link #writeWorldRegion(int, int, int, int, DataOutputStream)}.
+     */
+    public static void writeWorldMap(DataOutputStream stream) throws IOException{
+        //map size
+        stream.writeShort(world.width());
+        stream.writeShort(world.height());
 
-                stream.writeByte(tile.getFloorID());
-                stream.writeByte(tile.getBlockID());
-                stream.writeByte(tile.getElevation());
+        stream.write(Team.all.length);
 
-                if(tile.block() instanceof BlockPart){
-                    stream.writeByte(tile.link);
-                }else if(tile.entity != null){
-                    stream.writeByte(Bits.packByte(tile.getTeamID(), tile.getRotation())); //team + rotation
-                    stream.writeShort((short) tile.entity.health); //health
+        //write team data
+        for(Team team : Team.all){
+            TeamData data = state.teams.get(team);
+            stream.writeByte(team.ordinal());
 
-                    if(tile.entity.items != null) tile.entity.items.write(stream);
-                    if(tile.entity.power != null) tile.entity.power.write(stream);
-                    if(tile.entity.liquids != null) tile.entity.liquids.write(stream);
-                    if(tile.entity.cons != null) tile.entity.cons.write(stream);
+            stream.writeByte(data.enemies.size());
+            for(Team enemy : data.enemies){
+                stream.writeByte(enemy.ordinal());
+            }
 
-                    tile.entity.write(stream);
-                }else if(tile.block() == Blocks.air){
-                    int consecutives = 0;
+            stream.writeByte(data.cores.size);
+            for(Tile tile : data.cores){
+                stream.writeInt(tile.packedPosition());
+            }
+        }
+    }
 
-                    for(int j = i + 1; j < world.width() * world.height() && consecutives < 255; j++){
-                        Tile nextTile = world.tile(j);
+    /**
+     * Writes the tiles and visibility of a region of the map, row by row.
+     * Runs of air are only encoded within the region, so that every region can be read on its own.
+     */
+    public static void writeWorldRegion(int x, int y, int width, int height, DataOutputStream stream) throws IOException{
+        int size = width * height;
 
-                        if(nextTile.getFloorID() != tile.getFloorID() || nextTile.block() != Blocks.air || nextTile.getElevation() != tile.getElevation()){
-                            break;
-                        }
+        for(int i = 0; i < size; i++){
+            Tile tile = world.rawTile(x + i % width, y + i / width);
 
-                        consecutives++;
-                    }
+            stream.writeByte(tile.getFloorID());
+            stream.writeByte(tile.getBlockID());
+            stream.writeByte(tile.getElevation());
 
-                    stream.writeByte(consecutives);
-                    i += consecutives;
-                }
-            }
+            if(tile.block() instanceof BlockPart){
+                stream.writeByte(tile.link);
+            }else if(tile.entity != null){
+                stream.writeByte(Bits.packByte(tile.getTeamID(), tile.getRotation())); //team + rotation
+                stream.writeShort((short) tile.entity.health); //health
 
-            //write visibility, length-run encoded
-            for(int i = 0; i < world.width() * world.height(); i++){
-                Tile tile = world.tile(i);
-                boolean discovered = tile.discovered();
+                if(tile.entity.items != null) tile.entity.items.write(stream);
+                if(tile.entity.power != null) tile.entity.power.write(stream);
+                if(tile.entity.liquids != null) tile.entity.liquids.write(stream);
+                if(tile.entity.cons != null) tile.entity.cons.write(stream);
 
+                tile.entity.write(stream);
+            }else if(tile.block() == Blocks.air){
                 int consecutives = 0;
 
-                for(int j = i + 1; j < world.width() * world.height() && consecutives < 32767*2-1; j++){
-                    Tile nextTile = world.tile(j);
+                for(int j = i + 1; j < size && consecutives < 255; j++){
+                    Tile nextTile = world.rawTile(x + j % width, y + j / width);
 
-                    if(nextTile.discovered() != discovered){
+                    if(nextTile.getFloorID() != tile.getFloorID() || nextTile.block() != Blocks.air || nextTile.getElevation() != tile.getElevation()){
                         break;
                     }
 
                     consecutives++;
                 }
 
-                stream.writeBoolean(discovered);
-                stream.writeShort(consecutives);
+                stream.writeByte(consecutives);
                 i += consecutives;
             }
+        }
 
-            stream.write(Team.all.length);
+        //write visibility, length-run encoded
+        for(int i = 0; i < size; i++){
+            boolean discovered = world.rawTile(x + i % width, y + i / width).discovered();
 
-            //write team data
-            for(Team team : Team.all){
-                TeamData data = state.teams.get(team);
-                stream.writeByte(team.ordinal());
+            int consecutives = 0;
 
-                stream.writeByte(data.enemies.size());
-                for(Team enemy : data.enemies){
-                    stream.writeByte(enemy.ordinal());
+            for(int j = i + 1; j < size && consecutives < 32767*2-1; j++){
+                if(world.rawTile(x + j % width, y + j / width).discovered() != discovered){
+                    break;
                 }
 
-                stream.writeByte(data.cores.size);
-                for(Tile tile : data.cores){
-                    stream.writeInt(tile.packedPosition());
-                }
+                consecutives++;
             }
 
-            //now write a snapshot.
-            player.con.viewX = world.width() * tilesize/2f;
-            player.con.viewY = world.height() * tilesize/2f;
-            player.con.viewWidth = world.width() * tilesize;
-            player.con.viewHeight = world.height() * tilesize;
-            netServer.writeSnapshot(player, stream);
+            stream.writeBoolean(discovered);
+            stream.writeShort(consecutives);
+            i += consecutives;
+        }
+    }
 
-        }catch(IOException e){
-            throw new RuntimeException(e);
+    /**Writes a snapshot of every entity in the world, as the last part of the world data.*/
+    public static void writeWorldSnapshot(Player player, DataOutputStream stream) throws IOException{
+        player.con.viewX = world.width() * tilesize/2f;
+        player.con.viewY = world.height() * tilesize/2f;
+        player.con.viewWidth = world.width() * tilesize;
+        player.con.viewHeight = world.height() * tilesize;
+        netServer.writeSnapshot(player, stream);
+    }
+
+    /**
+     * Reads world data sent as compressed blocks by {@link WorldDataCache}, and returns a stream of its uncompressed
+     * bytes, which can be passed to {@link #loadWorld(InputStream)}.
+     */
+    public static InputStream readWorldData(InputStream is) throws IOException{
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataInputStream stream = new DataInputStream(is);
+
+        for(int i = 0; i < WorldDataCache.blocks; i++){
+            byte[] compressed = new byte[stream.readInt()];
+            int length = stream.readInt();
+            stream.readFully(compressed);
+
+            out.write(inflate(compressed, length));
         }
+
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    /**Decompresses bytes that were compressed by {@link WorldDataCache}, given their uncompressed length.*/
+    public static byte[] inflate(byte[] compressed, int length) throws IOException{
+        byte[] raw = new byte[length];
+
+        try(DataInputStream inflater = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)))){
+            inflater.readFully(raw);
+        }
+
+        return raw;
     }
 
     /**
@@ -202,13 +239,66 @@ public class NetworkIO{
 
             Tile[][] tiles = world.createTiles(width, height);
 
-            for(int i = 0; i < width * height; i++){
-                int x = i % width, y = i / width;
+            //tiles arrive later in regions; until then, they are solid empty space
+            for(int x = 0; x < width; x++){
+                for(int y = 0; y < height; y++){
+                    tiles[x][y] = new Tile(x, y, Blocks.space.id, Blocks.air.id);
+                }
+            }
+
+            player.reset();
+            state.teams = new Teams();
+
+            byte teams = stream.readByte();
+            for(int i = 0; i < teams; i++){
+                Team team = Team.all[stream.readByte()];
+
+                byte enemies = stream.readByte();
+                Team[] enemyArr = new Team[enemies];
+                for(int j = 0; j < enemies; j++){
+                    enemyArr[j] = Team.all[stream.readByte()];
+                }
+
+                state.teams.add(team, enemyArr);
+
+                byte cores = stream.readByte();
+
+                for(int j = 0; j < cores; j++){
+                    state.teams.get(team).cores.add(world.tile(stream.readInt()));
+                }
+
+                if(team == players[0].getTeam() && cores > 0){
+                    Core.camera.position.set(state.teams.get(team).cores.first().drawx(), state.teams.get(team).cores.first().drawy(), 0);
+                }
+            }
+
+            world.endMapLoad();
+
+            //read raw snapshot
+            netClient.readSnapshot(stream);
+
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Loads a region of tiles written by {@link #writeWorldRegion(int, int, int, int, DataOutputStream)} into the
+     * current world, replacing the tiles that were there.
+     */
+    public static void loadWorldRegion(int x, int y, int width, int height, InputStream is){
+        Tile[][] tiles = world.getTiles();
+        int size = width * height;
+
+        world.beginRegionLoad();
+
+        try(DataInputStream stream = new DataInputStream(is)){
+            for(int i = 0; i < size; i++){
                 byte floorid = stream.readByte();
                 byte wallid = stream.readByte();
                 byte elevation = stream.readByte();
 
-                Tile tile = new Tile(x, y, floorid, wallid);
+                Tile tile = new Tile(x + i % width, y + i / width, floorid, wallid);
                 tile.setElevation(elevation);
 
                 if(wallid == Blocks.blockpart.id){
@@ -234,64 +324,51 @@ public class NetworkIO{
                     int consecutives = stream.readUnsignedByte();
 
                     for(int j = i + 1; j < i + 1 + consecutives; j++){
-                        int newx = j % width, newy = j / width;
-                        Tile newTile = new Tile(newx, newy, floorid, wallid);
+                        Tile newTile = new Tile(x + j % width, y + j / width, floorid, wallid);
                         newTile.setElevation(elevation);
-                        tiles[newx][newy] = newTile;
+                        replaceTile(tiles, newTile);
                     }
 
                     i += consecutives;
                 }
 
-                tiles[x][y] = tile;
+                replaceTile(tiles, tile);
             }
 
-            for(int i = 0; i < width * height; i++){
+            for(int i = 0; i < size; i++){
                 boolean discovered = stream.readBoolean();
                 int consecutives = stream.readUnsignedShort();
                 if(discovered){
-                    for(int j = i + 1; j < i + 1 + consecutives; j++){
-                        int newx = j % width, newy = j / width;
-                        tiles[newx][newy].setVisibility((byte) 1);
+                    for(int j = i; j < i + 1 + consecutives; j++){
+                        tiles[x + j % width][y + j / width].setVisibility((byte) 1);
                     }
                 }
                 i += consecutives;
             }
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
 
-            player.reset();
-            state.teams = new Teams();
-
-            byte teams = stream.readByte();
-            for(int i = 0; i < teams; i++){
-                Team team = Team.all[stream.readByte()];
-
-                byte enemies = stream.readByte();
-                Team[] enemyArr = new Team[enemies];
-                for(int j = 0; j < enemies; j++){
-                    enemyArr[j] = Team.all[stream.readByte()];
-                }
-
-                state.teams.add(team, enemyArr);
-
-                byte cores = stream.readByte();
-
-                for(int j = 0; j < cores; j++){
-                    state.teams.get(team).cores.add(world.tile(stream.readInt()));
-                }
-
-                if(team == players[0].getTeam() && cores > 0){
-                    Core.camera.position.set(state.teams.get(team).cores.first().drawx(), state.teams.get(team).cores.first().drawy(), 0);
+        //cores were looked up before their tiles arrived
+        for(Team team : Team.all){
+            Array<Tile> cores = state.teams.get(team).cores;
+            for(int i = 0; i < cores.size; i++){
+                Tile core = cores.get(i);
+                if(core.x >= x && core.y >= y && core.x < x + width && core.y < y + height){
+                    cores.set(i, tiles[core.x][core.y]);
                 }
             }
+        }
 
-            world.endMapLoad();
-
-            //read raw snapshot
-            netClient.readSnapshot(stream);
+        world.endRegionLoad(x, y, width, height);
+    }
 
-        }catch(IOException e){
-            throw new RuntimeException(e);
+    private static void replaceTile(Tile[][] tiles, Tile tile){
+        Tile last = tiles[tile.x][tile.y];
+        if(last.entity != null){
+            last.entity.remove();
         }
+        tiles[tile.x][tile.y] = tile;
     }
 
     public static ByteBuffer writeServerData(){
@@ -64,7 +64,7 @@ public class Packets{
     }
 
     public static class ConnectPacket implements Packet{
-        public int version;
+        public int version, protocol;
         public String name, uuid, usid;
         public boolean mobile;
         public int color;
@@ -77,6 +77,7 @@ public class Packets{
             buffer.put(mobile ? (byte) 1 : 0);
             buffer.putInt(color);
             buffer.put(Base64Coder.decode(uuid));
+            buffer.putInt(Version.protocol);
         }
 
         @Override
@@ -89,6 +90,8 @@ public class Packets{
             byte[] idbytes = new byte[8];
             buffer.get(idbytes);
             uuid = new String(Base64Coder.encode(idbytes));
+            //clients from before the protocol was versioned do not send it
+            protocol = buffer.hasRemaining() ? buffer.getInt() : 0;
         }
     }
 
@@ -114,10 +117,9 @@ public class Packets{
             buffer.put(priority);
             buffer.putShort((short) writeLength);
 
-            writeBuffer.position(0);
-            for(int i = 0; i < writeLength; i++){
-                buffer.put(writeBuffer.get());
-            }
+            //write buffers are always heap buffers, so copy their contents in one go
+            buffer.put(writeBuffer.array(), writeBuffer.arrayOffset(), writeLength);
+            writeBuffer.position(writeLength);
         }
 
         @Override
@@ -136,6 +138,29 @@ public class Packets{
         }
     }
 
+    /**
+     * Remote calls that were sent together, in the order they were made. Each call is its method ID,
+     * the length of its parameters as a short, and then the parameters. See {@link InvokeBatcher}.
+     */
+    public static class InvokeFramePacket implements Packet{
+        public ByteBuffer writeBuffer;
+        public int writeLength;
+
+        @Override
+        public void read(ByteBuffer buffer){
+            writeLength = buffer.getShort();
+            byte[] bytes = new byte[writeLength];
+            buffer.get(bytes);
+            writeBuffer = ByteBuffer.wrap(bytes);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer){
+            buffer.putShort((short) writeLength);
+            buffer.put(writeBuffer.array(), writeBuffer.arrayOffset(), writeLength);
+        }
+    }
+
     /**Marks the beginning of a stream.*/
     public static class StreamBegin implements Packet{
         private static int lastid;
@@ -0,0 +1,244 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import io.anuke.mindustry.net.Administration.PlayerInfo;
+import io.anuke.ucore.util.Log;
+
+import java.io.*;
+
+/**
+ * Append-only log of player info and IP bans.
+ * Changed records are collected in memory and appended in batches on a background thread; when loading, the last
+ * record of every player wins. The log is rewritten with only the current records when it grows too large.
+ */
+public class PlayerInfoStore{
+    private static final int fileVersion = 1;
+    private static final byte recordInfo = 0, recordBanIP = 1, recordUnbanIP = 2;
+    /**The log is compacted when it has more than this many records per live record.*/
+    private static final int maxRecordsPerLive = 4;
+    /**Logs with less records than this are never compacted.*/
+    private static final int minCompactRecords = 1024;
+
+    private final FileHandle file;
+    private final AsyncExecutor executor = new AsyncExecutor(1);
+    private final ObjectSet<PlayerInfo> dirty = new ObjectSet<>();
+    private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pending = new DataOutputStream(pendingBytes);
+    /**Records in the file, including ones waiting to be appended.*/
+    private int records;
+
+    /**@param file file to store records in, or null to not store them at all.*/
+    public PlayerInfoStore(FileHandle file){
+        this.file = file;
+    }
+
+    public boolean exists(){
+        return file != null && file.exists();
+    }
+
+    /**
+     * Reads every record into the given collections. A record cut off by a crash is ignored.
+     * Returns whether the log should be compacted.
+     */
+    public boolean load(ObjectMap<String, PlayerInfo> infos, ObjectSet<String> bannedIPs){
+        records = 0;
+        if(!exists()) return false;
+
+        boolean truncated = false;
+
+        try(DataInputStream stream = new DataInputStream(new BufferedInputStream(file.read()))){
+            if(stream.readInt() != fileVersion){
+                throw new IOException("Unknown player info version.");
+            }
+
+            while(true){
+                int type = stream.read();
+                if(type == -1) break;
+
+                if(type == recordInfo){
+                    PlayerInfo info = readInfo(stream);
+                    infos.put(info.id, info);
+                }else if(type == recordBanIP){
+                    bannedIPs.add(stream.readUTF());
+                }else if(type == recordUnbanIP){
+                    bannedIPs.remove(stream.readUTF());
+                }else{
+                    throw new IOException("Unknown record type: " + type);
+                }
+                records++;
+            }
+        }catch(EOFException e){
+            truncated = true;
+        }catch(IOException e){
+            Log.err("Failed to read player info: {0}", e.getMessage());
+            truncated = true;
+        }
+
+        return truncated || needsCompaction(infos.size + bannedIPs.size);
+    }
+
+    /**Marks a player's info as changed. It is written on the next flush.*/
+    public void put(PlayerInfo info){
+        dirty.add(info);
+    }
+
+    public void banIP(String ip){
+        writeRecord(recordBanIP, ip);
+    }
+
+    public void unbanIP(String ip){
+        writeRecord(recordUnbanIP, ip);
+    }
+
+    public boolean hasChanges(){
+        return dirty.size > 0 || pendingBytes.size() > 0;
+    }
+
+    public boolean needsCompaction(int live){
+        return records >= minCompactRecords && records > live * maxRecordsPerLive;
+    }
+
+    /**Serializes all changes, and appends them to the file in the background.*/
+    public void flush(){
+        if(!hasChanges()) return;
+
+        if(file == null){
+            dirty.clear();
+            pendingBytes.reset();
+            return;
+        }
+
+        try{
+            for(PlayerInfo info : dirty){
+                pending.writeByte(recordInfo);
+                writeInfo(pending, info);
+                records++;
+            }
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+        dirty.clear();
+
+        byte[] bytes = pendingBytes.toByteArray();
+        pendingBytes.reset();
+
+        executor.submit(() -> {
+            try{
+                if(!file.exists()){
+                    file.writeBytes(header(), false);
+                }
+                file.writeBytes(bytes, true);
+            }catch(Exception e){
+                Log.err("Failed to write player info: {0}", e.getMessage());
+            }
+            return null;
+        });
+    }
+
+    /**Replaces the file with only the given records, in the background. Pending changes are dropped, as they are included.*/
+    public void compact(ObjectMap<String, PlayerInfo> infos, ObjectSet<String> bannedIPs){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream stream = new DataOutputStream(bytes);
+
+        try{
+            stream.write(header());
+            for(PlayerInfo info : infos.values()){
+                stream.writeByte(recordInfo);
+                writeInfo(stream, info);
+            }
+            for(String ip : bannedIPs){
+                stream.writeByte(recordBanIP);
+                stream.writeUTF(ip);
+            }
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+
+        dirty.clear();
+        pendingBytes.reset();
+        records = infos.size + bannedIPs.size;
+
+        if(file == null) return;
+
+        byte[] data = bytes.toByteArray();
+        executor.submit(() -> {
+            try{
+                FileHandle temp = file.sibling(file.name() + ".tmp");
+                temp.writeBytes(data, false);
+                temp.moveTo(file);
+            }catch(Exception e){
+                Log.err("Failed to compact player info: {0}", e.getMessage());
+            }
+            return null;
+        });
+    }
+
+    /**Flushes all changes and waits for them to be written.*/
+    public void dispose(){
+        flush();
+        executor.dispose();
+    }
+
+    private void writeRecord(byte type, String ip){
+        try{
+            pending.writeByte(type);
+            pending.writeUTF(ip);
+            records++;
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    private byte[] header(){
+        return new byte[]{(byte) (fileVersion >>> 24), (byte) (fileVersion >>> 16), (byte) (fileVersion >>> 8), (byte) fileVersion};
+    }
+
+    private static void writeInfo(DataOutputStream stream, PlayerInfo info) throws IOException{
+        stream.writeUTF(info.id);
+        stream.writeUTF(info.lastName);
+        stream.writeUTF(info.lastIP);
+        stream.writeShort(info.ips.size);
+        for(String ip : info.ips){
+            stream.writeUTF(ip);
+        }
+        stream.writeShort(info.names.size);
+        for(String name : info.names){
+            stream.writeUTF(name);
+        }
+        stream.writeBoolean(info.adminUsid != null);
+        if(info.adminUsid != null) stream.writeUTF(info.adminUsid);
+        stream.writeInt(info.timesKicked);
+        stream.writeInt(info.timesJoined);
+        stream.writeInt(info.totalBlockPlaced);
+        stream.writeInt(info.totalBlocksBroken);
+        stream.writeBoolean(info.banned);
+        stream.writeBoolean(info.admin);
+        stream.writeLong(info.lastKicked);
+    }
+
+    private static PlayerInfo readInfo(DataInputStream stream) throws IOException{
+        PlayerInfo info = new PlayerInfo(stream.readUTF());
+        info.lastName = stream.readUTF();
+        info.lastIP = stream.readUTF();
+        int ips = stream.readUnsignedShort();
+        for(int i = 0; i < ips; i++){
+            info.ips.add(stream.readUTF());
+        }
+        int names = stream.readUnsignedShort();
+        for(int i = 0; i < names; i++){
+            info.names.add(stream.readUTF());
+        }
+        if(stream.readBoolean()) info.adminUsid = stream.readUTF();
+        info.timesKicked = stream.readInt();
+        info.timesJoined = stream.readInt();
+        info.totalBlockPlaced = stream.readInt();
+        info.totalBlocksBroken = stream.readInt();
+        info.banned = stream.readBoolean();
+        info.admin = stream.readBoolean();
+        info.lastKicked = stream.readLong();
+        return info;
+    }
+}
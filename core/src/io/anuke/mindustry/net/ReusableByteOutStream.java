@@ -0,0 +1,12 @@
+package io.anuke.mindustry.net;
+
+import java.io.ByteArrayOutputStream;
+
+/**A byte output stream whose contents can be read without copying them, so that it can be reused without allocating.*/
+public class ReusableByteOutStream extends ByteArrayOutputStream{
+
+    /**Returns the array bytes are written to. Only the first {@link #size()} bytes are valid, and the array is replaced when the stream grows.*/
+    public byte[] getBytes(){
+        return buf;
+    }
+}
@@ -0,0 +1,87 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.utils.Bits;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Puts snapshots that were split into chunks back together, and decompresses them.
+ * Chunks of the last few snapshots are collected at the same time, so a snapshot is not lost when its chunks arrive
+ * mixed with the chunks of the next one. Every buffer is reused, so nothing is allocated once they have grown
+ * to the size of the largest snapshot.
+ */
+public class SnapshotAssembler{
+    /**Amount of snapshots that can be put together at once. Must be a power of two.*/
+    private static final int slots = 4;
+
+    private final int chunkSize;
+    private final Slot[] ring = new Slot[slots];
+    private byte[] result = {};
+
+    /**Creates an assembler for snapshots that are split into chunks of the given size.*/
+    public SnapshotAssembler(int chunkSize){
+        this.chunkSize = chunkSize;
+        for(int i = 0; i < slots; i++){
+            ring[i] = new Slot();
+        }
+    }
+
+    /**
+     * Adds a received chunk. Once every chunk of its snapshot has arrived, returns the decompressed snapshot;
+     * otherwise, returns null. The returned array is reused for the next snapshot, and only its first
+     * uncompressedLength bytes are valid.
+     */
+    public byte[] add(ByteBuffer chunk, int snapshotID, int chunkID, int totalLength, int uncompressedLength){
+        //snapshots that fit in one chunk are decompressed straight from the packet
+        if(totalLength <= chunkSize){
+            return decompress(chunk.array(), chunk.arrayOffset() + chunk.position(), uncompressedLength);
+        }
+
+        int chunks = (totalLength + chunkSize - 1) / chunkSize;
+        Slot slot = ring[snapshotID & (slots - 1)];
+
+        if(slot.id != snapshotID){
+            slot.reset(snapshotID, totalLength);
+        }
+
+        //ignore chunks that do not belong to this snapshot, or that arrived twice
+        if(chunkID < 0 || chunkID >= chunks || slot.received.get(chunkID)) return null;
+
+        slot.received.set(chunkID);
+        chunk.get(slot.bytes, chunkID * chunkSize, Math.min(chunkSize, totalLength - chunkID * chunkSize));
+        slot.count++;
+
+        if(slot.count < chunks) return null;
+
+        //the slot is done; chunks that arrive late start a new snapshot, which is never finished
+        slot.id = -1;
+        return decompress(slot.bytes, 0, uncompressedLength);
+    }
+
+    /**Forgets every snapshot that is being put together.*/
+    public void clear(){
+        for(Slot slot : ring){
+            slot.id = -1;
+        }
+    }
+
+    private byte[] decompress(byte[] input, int offset, int size){
+        result = Net.decompressSnapshot(input, offset, size, result);
+        return result;
+    }
+
+    private static class Slot{
+        final Bits received = new Bits();
+        byte[] bytes = {};
+        int id = -1, count;
+
+        void reset(int id, int length){
+            this.id = id;
+            count = 0;
+            received.clear();
+            if(bytes.length < length){
+                bytes = new byte[length];
+            }
+        }
+    }
+}
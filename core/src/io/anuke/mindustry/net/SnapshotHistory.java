@@ -0,0 +1,161 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.utils.LongMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Entity encodings of the last few snapshots exchanged with one connection.
+ * The server keeps one per client to build delta snapshots against what the client has acknowledged;
+ * the client keeps one to rebuild entities from those deltas. Both sides must store exactly the same encodings.
+ */
+public class SnapshotHistory{
+    /**Amount of snapshots kept. Snapshots older than this can not be used as a baseline.*/
+    public static final int size = 16;
+
+    /**How an entity is written into a snapshot: in full, unchanged from the baseline, or as changed byte runs.*/
+    public static final byte entityFull = 0, entityUnchanged = 1, entityDelta = 2;
+    /**Runs of changed bytes are merged when fewer unchanged bytes than this are between them; a run header is 4 bytes.*/
+    private static final int runGap = 4;
+
+    private final int[] ids = new int[size];
+    private final LongMap<byte[]>[] snapshots = new LongMap[size];
+    private int index;
+
+    public SnapshotHistory(){
+        for(int i = 0; i < size; i++){
+            ids[i] = -1;
+            snapshots[i] = new LongMap<>();
+        }
+    }
+
+    /**Returns the key an entity's encoding is stored under.*/
+    public static long key(int groupID, int entityID){
+        return ((long) groupID << 32) | (entityID & 0xffffffffL);
+    }
+
+    /**Starts storing a new snapshot, replacing the oldest one. Returns the map to put its entity encodings in.*/
+    public LongMap<byte[]> begin(int snapshotID){
+        index = (index + 1) % size;
+        ids[index] = snapshotID;
+        snapshots[index].clear();
+        return snapshots[index];
+    }
+
+    /**
+     * Returns the entity encodings of a stored snapshot, or null if it is not stored (anymore).
+     * The oldest snapshot is never returned, as it is the one the next {@link #begin(int)} replaces.
+     */
+    public LongMap<byte[]> get(int snapshotID){
+        if(snapshotID == -1) return null;
+
+        for(int i = 0; i < size; i++){
+            if(ids[i] == snapshotID && i != (index + 1) % size){
+                return snapshots[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes an entity encoding relative to its encoding in the baseline snapshot.
+     * @param last encoding in the baseline, or null if the entity was not in it.
+     */
+    public static void write(byte[] last, byte[] current, DataOutput out) throws IOException{
+        if(last != null && (last == current || Arrays.equals(last, current))){
+            out.writeByte(entityUnchanged);
+            return;
+        }
+
+        if(last != null && last.length == current.length){
+            int runs = 0, size = 2;
+            for(int i = 0; i < current.length; ){
+                if(last[i] == current[i]){
+                    i++;
+                    continue;
+                }
+
+                int end = runEnd(last, current, i);
+                runs++;
+                size += 4 + end - i;
+                i = end;
+            }
+
+            //only worth it when smaller than the full encoding
+            if(size < current.length + 2){
+                out.writeByte(entityDelta);
+                out.writeShort(runs);
+
+                for(int i = 0; i < current.length; ){
+                    if(last[i] == current[i]){
+                        i++;
+                        continue;
+                    }
+
+                    int end = runEnd(last, current, i);
+                    out.writeShort(i);
+                    out.writeShort(end - i);
+                    out.write(current, i, end - i);
+                    i = end;
+                }
+                return;
+            }
+        }
+
+        out.writeByte(entityFull);
+        out.writeShort(current.length);
+        out.write(current);
+    }
+
+    /**
+     * Reads an entity encoding written by {@link #write(byte[], byte[], DataOutput)}.
+     * @param last encoding in the baseline, or null if the entity was not in it.
+     */
+    public static byte[] read(byte[] last, DataInput in) throws IOException{
+        byte type = in.readByte();
+
+        if(type == entityFull){
+            byte[] bytes = new byte[in.readUnsignedShort()];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        if(last == null){
+            throw new IOException("Recieved entity delta without a baseline!");
+        }
+
+        if(type == entityUnchanged){
+            return last;
+        }
+
+        byte[] bytes = Arrays.copyOf(last, last.length);
+        int runs = in.readUnsignedShort();
+        for(int i = 0; i < runs; i++){
+            int offset = in.readUnsignedShort();
+            int length = in.readUnsignedShort();
+            in.readFully(bytes, offset, length);
+        }
+        return bytes;
+    }
+
+    /**Returns the index after the run of changed bytes starting at start.*/
+    private static int runEnd(byte[] last, byte[] current, int start){
+        int end = start + 1;
+        for(int i = start + 1; i < current.length && i - end < runGap; i++){
+            if(last[i] != current[i]){
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    public void clear(){
+        for(int i = 0; i < size; i++){
+            ids[i] = -1;
+            snapshots[i].clear();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package io.anuke.mindustry.net;
+
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import io.anuke.mindustry.entities.Player;
+import io.anuke.mindustry.game.EventType.TileChangeEvent;
+import io.anuke.mindustry.game.EventType.TileConfigEvent;
+import io.anuke.mindustry.game.EventType.WorldLoadEvent;
+import io.anuke.mindustry.gen.Call;
+import io.anuke.mindustry.net.Packets.WorldStream;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.core.Events;
+import io.anuke.ucore.util.Log;
+import io.anuke.ucore.util.Mathf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+
+import static io.anuke.mindustry.Vars.state;
+import static io.anuke.mindustry.Vars.threads;
+import static io.anuke.mindustry.Vars.world;
+
+/**
+ * Builds the world data that is streamed to joining players, as {@link #blocks} separately compressed blocks:
+ * a header for the player, the map size and teams, and a snapshot of the entities.
+ * Tiles are sent afterwards, in square regions of {@link #regionSize} tiles, starting with the regions closest to the
+ * player's core, so that players can start playing before the whole map has arrived.
+ * Regions are the same for every player, so encoded regions are kept, and are only encoded again once a tile or the
+ * configuration of a block in them has changed; sending an older region would undo the change on the client.
+ * Regions are encoded on the logic thread, and compressed on a background thread.
+ */
+public class WorldDataCache{
+    /**Amount of compressed blocks in the world data.*/
+    public static final int blocks = 3;
+    /**Tiles along each side of a region.*/
+    public static final int regionSize = 32;
+    /**Largest compressed region that is sent in one packet. Larger regions are split in half until they fit.*/
+    private static final int maxRegionBytes = 3072;
+    /**Regions are only sent to a connection while less than this many bytes are waiting to be written to it.*/
+    private static final int maxPendingBytes = 1024;
+    /**Most regions sent to one connection each tick.*/
+    private static final int regionsPerTick = 4;
+
+    /**Single thread, so that blocks are compressed in the order they are submitted.*/
+    private final AsyncExecutor executor = new AsyncExecutor(1);
+    private final IntMap<RegionQueue> queues = new IntMap<>();
+    private final Runnable sender = this::sendRegions;
+    private final ByteArrayOutputStream regionBytes = new ByteArrayOutputStream();
+    private final DataOutputStream regionStream = new DataOutputStream(regionBytes);
+    private int regionsX, regionsY;
+    private Region[] regions = {};
+    private long encodes, sends;
+
+    public WorldDataCache(){
+        Events.on(WorldLoadEvent.class, event -> {
+            regionsX = Mathf.ceil((float) world.width() / regionSize);
+            regionsY = Mathf.ceil((float) world.height() / regionSize);
+            regions = new Region[regionsX * regionsY];
+            for(int i = 0; i < regions.length; i++){
+                int x = (i % regionsX) * regionSize, y = (i / regionsX) * regionSize;
+                regions[i] = new Region(x, y, Math.min(regionSize, world.width() - x), Math.min(regionSize, world.height() - y));
+            }
+            //everyone is sent the new world from the start
+            queues.clear();
+        });
+
+        Events.on(TileChangeEvent.class, event -> changed(event.tile));
+        Events.on(TileConfigEvent.class, event -> changed(event.tile));
+    }
+
+    /**Returns how many times a region was encoded, and how many times world data was sent.*/
+    public long getEncodes(){
+        return encodes;
+    }
+
+    public long getSends(){
+        return sends;
+    }
+
+    /**
+     * Encodes the world data for a player, and sends it once it has been compressed. Regions are queued, and are
+     * sent over the following ticks. Must be called from the logic thread.
+     */
+    public void send(Player player, int clientID){
+        byte[] header, map, snapshot;
+
+        try{
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            NetworkIO.writeWorldHeader(player, new DataOutputStream(bytes));
+            header = bytes.toByteArray();
+
+            bytes = new ByteArrayOutputStream();
+            NetworkIO.writeWorldMap(new DataOutputStream(bytes));
+            map = bytes.toByteArray();
+
+            bytes = new ByteArrayOutputStream();
+            NetworkIO.writeWorldSnapshot(player, new DataOutputStream(bytes));
+            snapshot = bytes.toByteArray();
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+
+        RegionQueue queue = new RegionQueue(order(player));
+        queues.put(clientID, queue);
+        sends++;
+
+        executor.submit(() -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DataOutputStream stream = new DataOutputStream(out);
+            stream.write(compress(header));
+            stream.write(compress(map));
+            stream.write(compress(snapshot));
+
+            WorldStream data = new WorldStream();
+            data.stream = new ByteArrayInputStream(out.toByteArray());
+
+            threads.runDelay(() -> {
+                Net.sendStream(clientID, data);
+                queue.started = true;
+                Log.info("Packed {0} compressed bytes of world data.", out.size());
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Sends queued regions to connections that are not falling behind. Called once per tick from the logic thread.
+     * Regions are sent before the next tick starts, once the tile changes and configuration of this tick have been
+     * handled, so a region that is sent always has every change that was already sent to the client.
+     */
+    public void update(){
+        if(queues.size > 0){
+            threads.runDelay(sender);
+        }
+    }
+
+    /**Marks the regions a block is in as changed, so that they are encoded again before they are next sent.*/
+    private void changed(Tile tile){
+        if(regions.length == 0) return;
+
+        int offset = (tile.block().size - 1) / 2;
+        int minx = Math.max(tile.x - offset, 0) / regionSize, miny = Math.max(tile.y - offset, 0) / regionSize;
+        int maxx = Math.min((tile.x - offset + tile.block().size - 1) / regionSize, regionsX - 1);
+        int maxy = Math.min((tile.y - offset + tile.block().size - 1) / regionSize, regionsY - 1);
+
+        for(int x = minx; x <= maxx; x++){
+            for(int y = miny; y <= maxy; y++){
+                regions[x + y * regionsX].version++;
+            }
+        }
+    }
+
+    private void sendRegions(){
+        IntMap.Entries<RegionQueue> entries = queues.entries();
+
+        while(entries.hasNext()){
+            IntMap.Entry<RegionQueue> entry = entries.next();
+            NetConnection connection = Net.getConnection(entry.key);
+            RegionQueue queue = entry.value;
+
+            if(connection == null){
+                entries.remove();
+                continue;
+            }
+
+            //clients drop regions that arrive before the rest of the world
+            for(int i = 0; i < regionsPerTick && queue.started && queue.next < queue.regions.length && connection.getPendingBytes() < maxPendingBytes; i++){
+                Region region = regions[queue.regions[queue.next]];
+
+                //regions are sent in order, so the connection waits for one that is still being compressed
+                if(!prepare(region, region)) break;
+
+                send(connection.id, region);
+                queue.next++;
+            }
+
+            //start on the regions that are sent next, so that they are compressed by the time they are needed
+            for(int i = queue.next; i < Math.min(queue.next + regionsPerTick, queue.regions.length); i++){
+                Region region = regions[queue.regions[i]];
+                prepare(region, region);
+            }
+
+            if(queue.next >= queue.regions.length){
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns whether every part of a region has been compressed from the current version of its tiles.
+     * Parts that have not are encoded now, and compressed in the background.
+     */
+    private boolean prepare(Region root, Region region){
+        if(region.first != null){
+            boolean first = prepare(root, region.first), second = prepare(root, region.second);
+            return first && second;
+        }
+
+        if(region.encoded == root.version) return true;
+
+        if(!region.compressing){
+            int version = root.version;
+            byte[] raw = encode(region.x, region.y, region.width, region.height);
+            region.compressing = true;
+
+            executor.submit(() -> {
+                byte[] compressed = deflate(raw);
+                threads.runDelay(() -> compressed(root, region, version, raw.length, compressed));
+                return null;
+            });
+        }
+
+        return false;
+    }
+
+    /**Stores a compressed part of a region, unless its tiles changed while it was being compressed. Called from the logic thread.*/
+    private void compressed(Region root, Region region, int version, int rawLength, byte[] compressed){
+        region.compressing = false;
+
+        //the world was loaded again, or the tiles changed; the region is encoded again when it is next sent
+        if(root.index >= regions.length || regions[root.index] != root || root.version != version) return;
+
+        if(compressed.length > maxRegionBytes && region.width * region.height > 1){
+            region.split();
+        }else{
+            region.compressed = compressed;
+            region.rawLength = rawLength;
+            region.encoded = version;
+        }
+    }
+
+    private void send(int clientID, Region region){
+        if(region.first != null){
+            send(clientID, region.first);
+            send(clientID, region.second);
+        }else{
+            Call.onWorldRegion(clientID, (short) region.x, (short) region.y, (short) region.width, (short) region.height,
+                region.rawLength, region.compressed);
+        }
+    }
+
+    private byte[] encode(int x, int y, int width, int height){
+        try{
+            regionBytes.reset();
+            NetworkIO.writeWorldRegion(x, y, width, height, regionStream);
+            encodes++;
+            return regionBytes.toByteArray();
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**Returns the indices of every region, ordered by their distance to the core of the player's team.*/
+    private int[] order(Player player){
+        float focusX = player.x, focusY = player.y;
+        if(state.teams.get(player.getTeam()).cores.size > 0){
+            Tile core = state.teams.get(player.getTeam()).cores.first();
+            focusX = core.worldx();
+            focusY = core.worldy();
+        }
+
+        int fx = world.toTile(focusX) / regionSize, fy = world.toTile(focusY) / regionSize;
+
+        //sort by distance in the upper bits, and keep the index in the lower ones
+        long[] keys = new long[regions.length];
+        for(int i = 0; i < keys.length; i++){
+            long dx = i % regionsX - fx, dy = i / regionsX - fy;
+            keys[i] = ((dx * dx + dy * dy) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[keys.length];
+        for(int i = 0; i < keys.length; i++){
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    private static byte[] deflate(byte[] raw){
+        try{
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 16);
+            try(DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)){
+                deflater.write(raw);
+            }
+            return compressed.toByteArray();
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**Compresses bytes into a block, which is read by {@link NetworkIO#readWorldData(java.io.InputStream)}.*/
+    private static byte[] compress(byte[] raw) throws IOException{
+        byte[] compressed = deflate(raw);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length + 8);
+        DataOutputStream stream = new DataOutputStream(out);
+        stream.writeInt(compressed.length);
+        stream.writeInt(raw.length);
+        stream.write(compressed);
+        return out.toByteArray();
+    }
+
+    /**
+     * A square of tiles that is sent to connections, or a part of one. Parts that are too large for one packet when
+     * compressed are split in half along their longest side, and stay split.
+     */
+    private class Region{
+        final int x, y, width, height;
+        /**Index of the region in the world that this is, or is a part of.*/
+        final int index;
+        /**Halves this region is sent in, or null.*/
+        Region first, second;
+        byte[] compressed;
+        int rawLength;
+        /**Incremented when a tile in this region changes. Only used for regions that are not a part of another.*/
+        int version;
+        /**Version of the tiles that the compressed bytes were encoded from, or -1.*/
+        int encoded = -1;
+        boolean compressing;
+
+        Region(int x, int y, int width, int height){
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.index = (x / regionSize) + (y / regionSize) * regionsX;
+        }
+
+        void split(){
+            if(width >= height){
+                first = new Region(x, y, width / 2, height);
+                second = new Region(x + width / 2, y, width - width / 2, height);
+            }else{
+                first = new Region(x, y, width, height / 2);
+                second = new Region(x, y + height / 2, width, height - height / 2);
+            }
+            compressed = null;
+        }
+    }
+
+    /**Regions that still have to be sent to one connection, in order.*/
+    private static class RegionQueue{
+        final int[] regions;
+        int next;
+        /**Whether the rest of the world data has been sent, after which regions can follow.*/
+        boolean started;
+
+        RegionQueue(int[] regions){
+            this.regions = regions;
+        }
+    }
+}
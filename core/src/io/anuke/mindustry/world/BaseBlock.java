@@ -30,6 +30,8 @@ public abstract class BaseBlock extends MappableContent{
     public float liquidCapacity = 10f;
     public float liquidFlowFactor = 4.9f;
     public float powerCapacity = 10f;
+    /**Whether this block shares power with the power blocks next to it.*/
+    public boolean conductivePower = false;
 
     public Consumers consumes = new Consumers();
     public Producers produces = new Producers();
@@ -82,6 +84,7 @@ public abstract class BaseBlock extends MappableContent{
     }
 
     public void handleItem(Item item, Tile tile, Tile source){
+        tile.entity.noSleep();
         tile.entity.items.add(item, 1);
     }
 
@@ -96,6 +99,7 @@ public abstract class BaseBlock extends MappableContent{
     }
 
     public void handleLiquid(Tile tile, Tile source, Liquid liquid, float amount){
+        tile.entity.noSleep();
         tile.entity.liquids.add(liquid, amount);
     }
 
@@ -112,16 +116,34 @@ public abstract class BaseBlock extends MappableContent{
         return canAccept;
     }
 
-    public void tryDumpLiquid(Tile tile, Liquid liquid){
+    /**
+     * Adds every tile this tile shares power with to the array. Connections only have to be listed by one of the two tiles.
+     * By default, these are the adjacent power blocks of the same team, if either of them is conductive.
+     */
+    public void getPowerConnections(Tile tile, Array<Tile> out){
         Array<Tile> proximity = tile.entity.proximity();
-        int dump = tile.getDump();
 
         for(int i = 0; i < proximity.size; i++){
-            incrementDump(tile, proximity.size);
-            Tile other = proximity.get((i + dump) % proximity.size);
-            Tile in = Edges.getFacingEdge(tile, other);
+            Tile other = proximity.get(i);
+            if(other.entity != null && other.entity.power != null && other.getTeamID() == tile.getTeamID()
+                && (conductivePower || other.block().conductivePower)){
+                out.add(other);
+            }
+        }
+    }
+
+    public void tryDumpLiquid(Tile tile, Liquid liquid){
+        Array<Tile> targets = tile.entity.dumpTargets();
+        Array<Tile> edges = tile.entity.dumpEdges();
+        int dump = tile.getDump();
 
-            if(other.getTeamID() == tile.getTeamID() && other.block().hasLiquids && canDumpLiquid(tile, other, liquid)){
+        for(int i = 0; i < targets.size; i++){
+            incrementDump(tile, targets.size);
+            int index = (i + dump) % targets.size;
+            Tile other = targets.get(index);
+            Tile in = edges.get(index);
+
+            if(other.block().hasLiquids && canDumpLiquid(tile, other, liquid)){
                 float ofract = other.entity.liquids.get(liquid) / other.block().liquidCapacity;
                 float fract = tile.entity.liquids.get(liquid) / liquidCapacity;
 
@@ -192,14 +214,16 @@ public abstract class BaseBlock extends MappableContent{
      * containers, it gets added to the block's inventory.
      */
     public void offloadNear(Tile tile, Item item){
-        Array<Tile> proximity = tile.entity.proximity();
+        Array<Tile> targets = tile.entity.dumpTargets();
+        Array<Tile> edges = tile.entity.dumpEdges();
         int dump = tile.getDump();
 
-        for(int i = 0; i < proximity.size; i++){
-            incrementDump(tile, proximity.size);
-            Tile other = proximity.get((i + dump) % proximity.size);
-            Tile in = Edges.getFacingEdge(tile, other);
-            if(other.getTeamID() == tile.getTeamID() && other.block().acceptItem(item, other, in) && canDump(tile, other, item)){
+        for(int i = 0; i < targets.size; i++){
+            incrementDump(tile, targets.size);
+            int index = (i + dump) % targets.size;
+            Tile other = targets.get(index);
+            Tile in = edges.get(index);
+            if(other.block().acceptItem(item, other, in) && canDump(tile, other, item)){
                 other.block().handleItem(item, other, in);
                 return;
             }
@@ -225,38 +249,41 @@ public abstract class BaseBlock extends MappableContent{
         if(entity == null || !hasItems || tile.entity.items.total() == 0 || (todump != null && !entity.items.has(todump)))
             return false;
 
-        Array<Tile> proximity = entity.proximity();
+        Array<Tile> targets = entity.dumpTargets();
+        Array<Tile> edges = entity.dumpEdges();
         int dump = tile.getDump();
 
-        if(proximity.size == 0) return false;
+        if(targets.size == 0) return false;
 
-        for(int i = 0; i < proximity.size; i++){
-            Tile other = proximity.get((i + dump) % proximity.size);
-            Tile in = Edges.getFacingEdge(tile, other);
+        for(int i = 0; i < targets.size; i++){
+            int index = (i + dump) % targets.size;
+            Tile other = targets.get(index);
+            Tile in = edges.get(index);
 
             if(todump == null){
 
-                for(int ii = 0; ii < Vars.content.items().size; ii++){
-                    Item item = Vars.content.item(ii);
+                //only go through the items this tile has
+                for(int id = entity.items.nextItem(0); id != -1; id = entity.items.nextItem(id + 1)){
+                    Item item = Vars.content.item(id);
 
-                    if(other.getTeamID() == tile.getTeamID() && entity.items.has(item) && other.block().acceptItem(item, other, in) && canDump(tile, other, item)){
+                    if(other.block().acceptItem(item, other, in) && canDump(tile, other, item)){
                         other.block().handleItem(item, other, in);
                         tile.entity.items.remove(item, 1);
-                        incrementDump(tile, proximity.size);
+                        incrementDump(tile, targets.size);
                         return true;
                     }
                 }
             }else{
 
-                if(other.getTeamID() == tile.getTeamID() && other.block().acceptItem(todump, other, in) && canDump(tile, other, todump)){
+                if(other.block().acceptItem(todump, other, in) && canDump(tile, other, todump)){
                     other.block().handleItem(todump, other, in);
                     tile.entity.items.remove(todump, 1);
-                    incrementDump(tile, proximity.size);
+                    incrementDump(tile, targets.size);
                     return true;
                 }
             }
 
-            incrementDump(tile, proximity.size);
+            incrementDump(tile, targets.size);
         }
 
         return false;
@@ -9,6 +9,7 @@ import io.anuke.mindustry.entities.traits.TargetTrait;
 import io.anuke.mindustry.game.Team;
 import io.anuke.mindustry.world.blocks.BlockPart;
 import io.anuke.mindustry.world.blocks.Floor;
+import io.anuke.mindustry.world.blocks.power.PowerNode;
 import io.anuke.mindustry.world.modules.ConsumeModule;
 import io.anuke.mindustry.world.modules.InventoryModule;
 import io.anuke.mindustry.world.modules.LiquidModule;
@@ -22,7 +23,6 @@ import static io.anuke.mindustry.Vars.*;
 
 
 public class Tile implements PosTrait, TargetTrait{
-    public static final Object tileSetLock = new Object();
     /**
      * The coordinates of the core tile this is linked to, in the form of two bytes packed into one.
      * This is relative to the block it is linked to; negate coords to find the link.
@@ -45,6 +45,10 @@ public class Tile implements PosTrait, TargetTrait{
     private byte elevation;
     /** Visibility status: 3 states, but saved as a single bit. 0 = unexplored, 1 = visited, 2 = currently visible (saved as 1)*/
     private byte visibility;
+    /** Incremented before and after the block or entity changes, so it is odd during a change. See {@link #changedSince(int)}.*/
+    private volatile int version;
+    /** Depth of nested block changes of this tile. Only accessed by the thread changing blocks.*/
+    private byte changeDepth;
 
     public Tile(int x, int y){
         this.x = (short) x;
@@ -146,7 +150,17 @@ public class Tile implements PosTrait, TargetTrait{
     }
 
     public void setTeam(Team team){
+        if(this.team == team.ordinal()) return;
+
         this.team = (byte) team.ordinal();
+
+        if(entity != null){
+            entity.invalidateDumpTargets();
+            Array<Tile> proximity = entity.proximity();
+            for(int i = 0; i < proximity.size; i++){
+                if(proximity.get(i).entity != null) proximity.get(i).entity.invalidateDumpTargets();
+            }
+        }
     }
 
     public byte getTeamID(){
@@ -154,33 +168,61 @@ public class Tile implements PosTrait, TargetTrait{
     }
 
     public void setBlock(Block type, int rotation){
-        synchronized(tileSetLock){
-            preChanged();
-            if(rotation < 0) rotation = (-rotation + 2);
-            this.wall = type;
-            this.link = 0;
-            setRotation((byte) (rotation % 4));
-            changed();
-        }
+        beginChange();
+        preChanged();
+        if(rotation < 0) rotation = (-rotation + 2);
+        this.wall = type;
+        this.link = 0;
+        setRotation((byte) (rotation % 4));
+        changed();
+        endChange();
     }
 
     public void setBlock(Block type, Team team){
-        synchronized(tileSetLock){
-            preChanged();
-            this.wall = type;
-            this.team = (byte)team.ordinal();
-            this.link = 0;
-            changed();
-        }
+        beginChange();
+        preChanged();
+        this.wall = type;
+        this.team = (byte)team.ordinal();
+        this.link = 0;
+        changed();
+        endChange();
     }
 
     public void setBlock(Block type){
-        synchronized(tileSetLock){
-            preChanged();
-            this.wall = type;
-            this.link = 0;
-            changed();
-        }
+        beginChange();
+        preChanged();
+        this.wall = type;
+        this.link = 0;
+        changed();
+        endChange();
+    }
+
+    /**
+     * Returns the current version of this tile's block and entity.
+     * Threads other than the one changing blocks, such as the renderer, read tiles without locking:
+     * they take the version first, read, and then check {@link #changedSince(int)}. If the tile has changed, what
+     * they read may be inconsistent, and should be discarded. Tiles are changing while their own entity updates, and
+     * while any update writes into them; see {@link TileEntity#markChanging(Tile)}.
+     */
+    public int version(){
+        return version;
+    }
+
+    /**Returns whether this tile's block or entity was being changed when the version was taken, or has changed since.*/
+    public boolean changedSince(int version){
+        return (version & 1) != 0 || this.version != version;
+    }
+
+    /**
+     * Marks the start of a change to this tile's block or entity, such as an entity update. Calls may be nested;
+     * readers see the tile as changing until the matching {@link #endChange()}. Only the thread that runs the game may call this.
+     */
+    public void beginChange(){
+        if(changeDepth++ == 0) version++;
+    }
+
+    public void endChange(){
+        if(--changeDepth == 0) version++;
     }
 
     public void setFloor(Floor type){
@@ -396,44 +438,49 @@ public class Tile implements PosTrait, TargetTrait{
     }
 
     private void preChanged(){
-        synchronized(tileSetLock){
-            block().removed(this);
-            if(entity != null){
-                entity.removeFromProximity();
-            }
-            team = 0;
+        block().removed(this);
+        if(entity != null){
+            if(entity.power != null) logic.power.remove(this);
+            entity.removeFromProximity();
         }
+        team = 0;
     }
 
     private void changed(){
+        if(entity != null){
+            entity.remove();
+            entity = null;
+        }
 
-        synchronized(tileSetLock){
-            if(entity != null){
-                entity.remove();
-                entity = null;
-            }
+        Block block = block();
 
-            Block block = block();
-
-            if(block.hasEntity()){
-                entity = block.getEntity().init(this, block.update);
-                entity.cons = new ConsumeModule();
-                if(block.hasItems) entity.items = new InventoryModule();
-                if(block.hasLiquids) entity.liquids = new LiquidModule();
-                if(block.hasPower) entity.power = new PowerModule();
-                entity.updateProximity();
-            }else if(!(block instanceof BlockPart)){
-                //since the entity won't update proximity for us, update proximity for all nearby tiles manually
-                for(GridPoint2 p : Geometry.d4){
-                    Tile tile = world.tile(x + p.x, y + p.y);
-                    if(tile != null){
-                        tile = tile.target();
-                        tile.block().onProximityUpdate(tile);
-                    }
+        if(block.hasEntity()){
+            entity = block.getEntity().init(this, block.update);
+            entity.cons = new ConsumeModule();
+            if(block.hasItems) entity.items = new InventoryModule();
+            if(block.hasLiquids) entity.liquids = new LiquidModule();
+            if(block.hasPower){
+                entity.power = new PowerModule();
+                entity.power.capacity = block.powerCapacity;
+            }
+            entity.updateProximity();
+            if(entity.power != null) logic.power.connect(this);
+        }else if(!(block instanceof BlockPart)){
+            //since the entity won't update proximity for us, update proximity for all nearby tiles manually
+            for(GridPoint2 p : Geometry.d4){
+                Tile tile = world.tile(x + p.x, y + p.y);
+                if(tile != null){
+                    tile = tile.target();
+                    tile.block().onProximityUpdate(tile);
                 }
             }
+        }
+
+        updateOcclusion();
 
-            updateOcclusion();
+        //maps are loaded with links that are already valid
+        if(!world.isGenerating()){
+            PowerNode.blockChanged(this);
         }
 
         world.notifyChanged(this);
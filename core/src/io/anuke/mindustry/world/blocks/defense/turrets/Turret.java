@@ -36,6 +36,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 
 import static io.anuke.mindustry.Vars.content;
+import static io.anuke.mindustry.Vars.logic;
 import static io.anuke.mindustry.Vars.tilesize;
 
 public abstract class Turret extends Block{
@@ -231,8 +232,7 @@ public abstract class Turret extends Block{
     protected void findTarget(Tile tile){
         TurretEntity entity = tile.entity();
 
-        entity.target = Units.getClosestTarget(tile.getTeam(),
-                tile.drawx(), tile.drawy(), range, e -> !e.isDead() && (!e.isFlying() || targetAir));
+        entity.target = logic.targeting.getClosestTarget(tile.getTeam(), tile.drawx(), tile.drawy(), range, targetAir);
     }
 
     protected void turnToTarget(Tile tile, float targetRot){
@@ -33,6 +33,7 @@ public class BufferedItemBridge extends ExtendingItemBridge{
         Item item = entity.buffer.poll();
         if(entity.timer.get(timerAccept, 4) && item != null && other.block().acceptItem(item, other, tile)){
             entity.cycleSpeed = Mathf.lerpDelta(entity.cycleSpeed, 4f, 0.05f);
+            TileEntity.markChanging(other);
             other.block().handleItem(item, other, tile);
             entity.buffer.remove();
         }else{
@@ -9,10 +9,17 @@ import io.anuke.mindustry.world.modules.LiquidModule;
 import io.anuke.ucore.graphics.Draw;
 import io.anuke.ucore.util.Mathf;
 
+import static io.anuke.mindustry.Vars.content;
+
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
+/**
+ * Conduits that flow into each other are simulated together as a {@link ConduitSegment}: the conduit at its end moves
+ * the liquid of every conduit in it, in one pass over arrays. Only the end of a segment moves liquid into other blocks,
+ * so leaks and reactions between liquids only happen there.
+ */
 public class Conduit extends LiquidBlock{
     protected final int timerFlow = timers++;
 
@@ -71,6 +78,11 @@ public class Conduit extends LiquidBlock{
             entity.blendbits = 1;
             entity.blendshadowrot = 1;
         }
+
+        //the segment this conduit is in may have changed; it is found again on the next update
+        if(entity.segment != null){
+            entity.segment.invalidate();
+        }
     }
 
     private boolean blends(Tile tile, int direction){
@@ -102,16 +114,82 @@ public class Conduit extends LiquidBlock{
     @Override
     public void update(Tile tile){
         ConduitEntity entity = tile.entity();
-        entity.smoothLiquid = Mathf.lerpDelta(entity.smoothLiquid, entity.liquids.total() / liquidCapacity, 0.05f);
 
-        if(tile.entity.liquids.total() > 0.001f && tile.entity.timer.get(timerFlow, 1)){
-            tryMoveLiquid(tile, tile.getNearby(tile.getRotation()), true, tile.entity.liquids.current());
+        if(entity.segment == null || !entity.segment.valid){
+            findSegment(tile);
+        }
+
+        ConduitSegment segment = entity.segment;
+
+        //the end of the segment updates all of it; the others only need to wake up when they get liquid
+        if(segment.entities[0] != entity){
+            entity.sleep();
+            return;
+        }
+
+        for(int i = 0; i < segment.size; i++){
+            ConduitEntity member = segment.entities[i];
+            if(member.isDead()){
+                segment.invalidate();
+                return;
+            }
+            TileEntity.markChanging(member.tile);
+            member.smoothLiquid = Mathf.lerpDelta(member.smoothLiquid, member.liquids.total() / member.tile.block().liquidCapacity, 0.05f);
+        }
+
+        if(segment.total() > 0.001f){
+            if(entity.timer.get(timerFlow, 1)){
+                segment.flow();
+                if(entity.liquids.total() > 0.001f){
+                    tryMoveLiquid(tile, tile.getNearby(tile.getRotation()), true, entity.liquids.current());
+                }
+            }
             entity.noSleep();
         }else{
             entity.sleep();
         }
     }
 
+    /**Finds the segment this tile is in, and assigns it to every conduit in it.*/
+    private void findSegment(Tile tile){
+        ConduitSegment segment = new ConduitSegment();
+
+        //follow the flow to the end, stopping if it loops back
+        Tile head = tile;
+        segment.visit(tile.entity());
+        for(Tile next = next(head); next != null && next.<ConduitEntity>entity().segment != segment; next = next(next)){
+            segment.visit(next.entity());
+            head = next;
+        }
+
+        //then collect everything that flows into it, ordered from the end back
+        segment.add(head.entity(), -1);
+
+        for(int i = 0; i < segment.size; i++){
+            Tile current = segment.entities[i].tile;
+
+            for(int d = 0; d < 4; d++){
+                Tile other = current.getNearby(d);
+                if(other != null && next(other) == current && !segment.contains(other.entity())){
+                    segment.add(other.entity(), i);
+                }
+            }
+        }
+
+        if(segment.total() > 0.001f){
+            segment.entities[0].noSleep();
+        }
+    }
+
+    /**Returns the conduit this one flows into, or null.*/
+    private Tile next(Tile tile){
+        if(!(tile.entity instanceof ConduitEntity)) return null;
+
+        Tile other = tile.getNearby(tile.getRotation());
+        return other != null && other.block() instanceof Conduit && other.getTeamID() == tile.getTeamID()
+            && other.entity instanceof ConduitEntity && other.getNearby(other.getRotation()) != tile ? other : null;
+    }
+
     @Override
     public TextureRegion[] getIcon(){
         if(icon == null){
@@ -122,7 +200,6 @@ public class Conduit extends LiquidBlock{
 
     @Override
     public boolean acceptLiquid(Tile tile, Tile source, Liquid liquid, float amount){
-        tile.entity.noSleep();
         return super.acceptLiquid(tile, source, liquid, amount) && ((2 + source.relativeTo(tile.x, tile.y)) % 4 != tile.getRotation());
     }
 
@@ -131,11 +208,161 @@ public class Conduit extends LiquidBlock{
         return new ConduitEntity();
     }
 
+    @Override
+    public void handleLiquid(Tile tile, Tile source, Liquid liquid, float amount){
+        super.handleLiquid(tile, source, liquid, amount);
+        tile.<ConduitEntity>entity().wakeSegment();
+    }
+
+    /**
+     * Conduits that flow into one conduit at the end, which is the first entity. Each conduit has the index of the one
+     * it flows into, which is always lower than its own.
+     */
+    public static class ConduitSegment{
+        ConduitEntity[] entities = new ConduitEntity[8];
+        int[] next = new int[8];
+        float[] capacity = new float[8], amount = new float[8];
+        int[] liquid = new int[8];
+        int size;
+        /**Set to false when any conduit in the segment or next to it changes.*/
+        boolean valid = true;
+
+        void add(ConduitEntity entity, int target){
+            if(size == entities.length){
+                int length = size * 2;
+                ConduitEntity[] resized = new ConduitEntity[length];
+                System.arraycopy(entities, 0, resized, 0, size);
+                entities = resized;
+                next = copy(next, new int[length]);
+                liquid = copy(liquid, new int[length]);
+                capacity = copy(capacity, new float[length]);
+                amount = copy(amount, new float[length]);
+            }
+
+            entity.segment = this;
+            entity.index = size;
+            entities[size] = entity;
+            next[size] = target;
+            capacity[size] = entity.tile.block().liquidCapacity;
+            size++;
+        }
+
+        /**Marks a conduit as seen while looking for the end of this segment, without adding it.*/
+        void visit(ConduitEntity entity){
+            entity.segment = this;
+            entity.index = -1;
+        }
+
+        /**
+         * Marks this segment as changed, and wakes up every conduit in it. Conduits other than the end sleep until they
+         * get liquid, so they would otherwise never find the segment they are in now, even when they are holding liquid.
+         */
+        void invalidate(){
+            if(!valid) return;
+
+            valid = false;
+            for(int i = 0; i < size; i++){
+                entities[i].noSleep();
+            }
+        }
+
+        boolean contains(ConduitEntity entity){
+            return entity.segment == this && entity.index != -1;
+        }
+
+        public int size(){
+            return size;
+        }
+
+        public boolean isValid(){
+            return valid;
+        }
+
+        public ConduitEntity get(int index){
+            return entities[index];
+        }
+
+        /**Returns the index of the conduit that the one at an index flows into, or -1 for the end.*/
+        public int next(int index){
+            return next[index];
+        }
+
+        float total(){
+            float total = 0f;
+            for(int i = 0; i < size; i++){
+                total += entities[i].liquids.total();
+            }
+            return total;
+        }
+
+        /**Moves liquid one step along every conduit, the same way it would be moved between single conduits.*/
+        public void flow(){
+            for(int i = 0; i < size; i++){
+                LiquidModule module = entities[i].liquids;
+                liquid[i] = module.current().id;
+                amount[i] = module.currentAmount();
+            }
+
+            //conduits further along go first, so liquid only moves one conduit per update
+            for(int i = 1; i < size; i++){
+                int n = next[i];
+                if(amount[i] <= 0f) continue;
+
+                //conduits only hold one liquid at a time; mixing is left to the end of the segment
+                if(liquid[n] != liquid[i] && amount[n] >= 0.01f) continue;
+
+                float fract = amount[i] / capacity[i];
+                float ofract = amount[n] / capacity[n];
+                float flow = Math.min(Mathf.clamp(fract - ofract) * capacity[i], amount[i]);
+                flow = Math.min(flow, capacity[n] - amount[n] - 0.001f);
+
+                if(flow > 0f && ofract <= fract){
+                    amount[i] -= flow;
+                    amount[n] += flow;
+                    liquid[n] = liquid[i];
+                }
+            }
+
+            for(int i = 0; i < size; i++){
+                LiquidModule module = entities[i].liquids;
+                if(module.current().id != liquid[i] || module.currentAmount() != amount[i]){
+                    module.reset(content.liquid(liquid[i]), amount[i]);
+                }
+            }
+        }
+
+        private int[] copy(int[] source, int[] dest){
+            System.arraycopy(source, 0, dest, 0, size);
+            return dest;
+        }
+
+        private float[] copy(float[] source, float[] dest){
+            System.arraycopy(source, 0, dest, 0, size);
+            return dest;
+        }
+    }
+
     public static class ConduitEntity extends TileEntity{
         public float smoothLiquid;
 
         byte blendbits;
         int blendshadowrot;
+        ConduitSegment segment;
+        /**Index in the segment, or -1 if it has only been visited while finding it.*/
+        int index = -1;
+
+        /**Returns the segment this conduit is in, or null if it has not been found yet.*/
+        public ConduitSegment segment(){
+            return segment;
+        }
+
+        /**Wakes up the conduit that updates the segment this one is in.*/
+        void wakeSegment(){
+            noSleep();
+            if(segment != null && segment.valid){
+                segment.entities[0].noSleep();
+            }
+        }
 
         @Override
         public void write(DataOutputStream stream) throws IOException{
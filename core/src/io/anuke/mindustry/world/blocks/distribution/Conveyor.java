@@ -2,7 +2,6 @@ package io.anuke.mindustry.world.blocks.distribution;
 
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.LongArray;
 import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.entities.Unit;
 import io.anuke.mindustry.graphics.Layer;
@@ -20,18 +19,19 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
-import static io.anuke.mindustry.Vars.itemSize;
-import static io.anuke.mindustry.Vars.tilesize;
-
 import static io.anuke.mindustry.Vars.*;
 
+/**
+ * Straight runs of conveyors of the same type are simulated together as a {@link ConveyorLine}: the conveyor at the
+ * end of the run updates every conveyor in it, and items are handed between them directly.
+ * Only the end of a run offloads into other blocks.
+ */
 public class Conveyor extends Block{
     private static final float itemSpace = 0.135f * 2.2f;
     private static final float offsetScl = 128f * 3f;
     private static final float minmove = 1f / (Short.MAX_VALUE - 2);
-    private static ItemPos drawpos = new ItemPos();
-    private static ItemPos pos1 = new ItemPos();
-    private static ItemPos pos2 = new ItemPos();
+    private static final byte[] writeBytes = new byte[4];
+    private static final byte[] readBytes = new byte[4];
     private final Translator tr1 = new Translator();
     private final Translator tr2 = new Translator();
 
@@ -51,12 +51,6 @@ public class Conveyor extends Block{
         itemCapacity = 4;
     }
 
-    private static int compareItems(long a, long b){
-        pos1.set(a, ItemPos.packShorts);
-        pos2.set(b, ItemPos.packShorts);
-        return Float.compare(pos1.y, pos2.y);
-    }
-
     @Override
     public void setBars(){}
 
@@ -130,6 +124,11 @@ public class Conveyor extends Block{
             entity.blendbits = 1;
             entity.blendshadowrot = 1;
         }
+
+        //the run this conveyor is in may have changed; it is found again on the next update
+        if(entity.line != null){
+            entity.line.invalidate();
+        }
     }
 
     private boolean blends(Tile tile, int direction){
@@ -156,17 +155,15 @@ public class Conveyor extends Block{
 
         try{
 
-            for(int i = 0; i < entity.convey.size; i++){
-                ItemPos pos = drawpos.set(entity.convey.get(i), ItemPos.drawShorts);
-
-                if(pos.item == null) continue;
+            for(int i = 0; i < entity.len; i++){
+                Item item = entity.types[i];
 
                 tr1.trns(rotation * 90, tilesize, 0);
-                tr2.trns(rotation * 90, -tilesize / 2, pos.x * tilesize / 2);
+                tr2.trns(rotation * 90, -tilesize / 2, entity.xs[i] * tilesize / 2);
 
-                Draw.rect(pos.item.region,
-                        (int) (tile.x * tilesize + tr1.x * pos.y + tr2.x),
-                        (int) (tile.y * tilesize + tr1.y * pos.y + tr2.y), itemSize, itemSize);
+                Draw.rect(item.region,
+                        (int) (tile.x * tilesize + tr1.x * entity.ys[i] + tr2.x),
+                        (int) (tile.y * tilesize + tr1.y * entity.ys[i] + tr2.y), itemSize, itemSize);
             }
 
         }catch(IndexOutOfBoundsException e){
@@ -178,7 +175,7 @@ public class Conveyor extends Block{
     public void unitOn(Tile tile, Unit unit){
         ConveyorEntity entity = tile.entity();
 
-        entity.noSleep();
+        entity.wakeLine();
 
         float speed = this.speed * tilesize / 2.3f;
         float centerSpeed = 0.1f;
@@ -195,50 +192,81 @@ public class Conveyor extends Block{
             if(Math.abs(tile.worldx() - unit.x) < 1f) centerx = 0f;
         }
 
-        if(entity.convey.size * itemSpace < 0.9f){
+        if(entity.len * itemSpace < 0.9f){
             unit.getVelocity().add((tx * speed + centerx) * entity.delta(), (ty * speed + centery) * entity.delta());
         }
     }
 
     @Override
-    public synchronized void update(Tile tile){
-
+    public void update(Tile tile){
         ConveyorEntity entity = tile.entity();
-        entity.minitem = 1f;
 
-        int minremove = Integer.MAX_VALUE;
+        if(entity.line == null || !entity.line.valid){
+            findLine(tile);
+        }
+
+        ConveyorLine line = entity.line;
+
+        //the end of the run updates all of it; the others only need to wake up when they get items
+        if(line.head() != entity){
+            entity.sleep();
+            return;
+        }
 
-        for(int i = entity.convey.size - 1; i >= 0; i--){
-            long value = entity.convey.get(i);
-            ItemPos pos = pos1.set(value, ItemPos.updateShorts);
+        int total = 0;
 
-            //..this should never happen, but in case it does, remove it and stop here
-            if(pos.item == null){
-                entity.convey.removeValue(value);
-                break;
+        for(int i = line.size - 1; i >= 0; i--){
+            ConveyorEntity current = line.entities[i];
+
+            if(current.isDead()){
+                line.invalidate();
+                return;
             }
 
-            float nextpos = (i == entity.convey.size - 1 ? 100f : pos2.set(entity.convey.get(i + 1), ItemPos.updateShorts).y) - itemSpace;
-            float maxmove = Math.min(nextpos - pos.y, speed * entity.delta());
+            TileEntity.markChanging(current.tile);
+
+            updateItems(current, i == line.size - 1 ? null : line.entities[i + 1]);
+            total += current.len;
+        }
+
+        if(total == 0){
+            entity.sleep();
+        }else{
+            entity.noSleep();
+        }
+    }
+
+    /**Moves the items of one conveyor. Items at its end are passed to the next conveyor of the run, or offloaded if there is none.*/
+    private void updateItems(ConveyorEntity entity, ConveyorEntity next){
+        entity.minitem = 1f;
+
+        if(entity.len == 0){
+            entity.clogHeat = 0f;
+            return;
+        }
+
+        float[] xs = entity.xs, ys = entity.ys;
+        float move = speed * entity.delta();
+        int minremove = Integer.MAX_VALUE;
+
+        for(int i = entity.len - 1; i >= 0; i--){
+            float nextpos = (i == entity.len - 1 ? 100f : ys[i + 1]) - itemSpace;
+            float maxmove = Math.min(nextpos - ys[i], move);
 
             if(maxmove > minmove){
-                pos.y += maxmove;
-                pos.x = Mathf.lerpDelta(pos.x, 0, 0.06f);
+                ys[i] += maxmove;
+                xs[i] = Mathf.lerpDelta(xs[i], 0, 0.06f);
             }else{
-                pos.x = Mathf.lerpDelta(pos.x, pos.seed / offsetScl, 0.1f);
+                xs[i] = Mathf.lerpDelta(xs[i], entity.seeds[i] / offsetScl, 0.1f);
             }
 
-            pos.y = Mathf.clamp(pos.y);
+            ys[i] = Mathf.clamp(ys[i]);
 
-            if(pos.y >= 0.9999f && offloadDir(tile, pos.item)){
+            if(ys[i] >= 0.9999f && (next == null ? offloadDir(entity.tile, entity.types[i]) : pass(entity.types[i], next))){
                 minremove = Math.min(i, minremove);
-                tile.entity.items.remove(pos.item, 1);
-            }else{
-                value = pos.pack();
-
-                if(pos.y < entity.minitem)
-                    entity.minitem = pos.y;
-                entity.convey.set(i, value);
+                entity.items.remove(entity.types[i], 1);
+            }else if(ys[i] < entity.minitem){
+                entity.minitem = ys[i];
             }
         }
 
@@ -248,13 +276,54 @@ public class Conveyor extends Block{
             entity.clogHeat = Mathf.lerpDelta(entity.clogHeat, 0f, 1f);
         }
 
-        if(entity.items.total() == 0){
-            entity.sleep();
-        }else{
-            entity.noSleep();
+        if(minremove != Integer.MAX_VALUE) entity.len = minremove;
+    }
+
+    /**Passes an item to the start of the next conveyor in a run, if it has space. Same as offloading into it straight on.*/
+    private boolean pass(Item item, ConveyorEntity next){
+        if(next.minitem <= itemSpace) return false;
+
+        next.insert(0, item, 0f, 0f, (byte) Mathf.random(255));
+        next.items.add(item, 1);
+        return true;
+    }
+
+    /**Finds the straight run of conveyors this tile is in, and assigns it to all of them.*/
+    private void findLine(Tile tile){
+        Tile tail = tile;
+        for(Tile prev = previous(tile); prev != null; prev = previous(prev)){
+            tail = prev;
+        }
+
+        ConveyorLine line = new ConveyorLine();
+        boolean hasItems = false;
+
+        for(Tile current = tail; current != null; current = next(current)){
+            ConveyorEntity entity = current.entity();
+            entity.line = line;
+            line.add(entity);
+            hasItems |= entity.len > 0;
+        }
+
+        //the end may have been asleep while it was in the middle of a run
+        if(hasItems){
+            line.head().noSleep();
         }
+    }
+
+    /**Returns the conveyor that feeds straight into this one as part of the same run, or null.*/
+    private Tile previous(Tile tile){
+        return linked(tile, tile.getNearby((tile.getRotation() + 2) % 4));
+    }
+
+    /**Returns the conveyor this one feeds straight into as part of the same run, or null.*/
+    private Tile next(Tile tile){
+        return linked(tile, tile.getNearby(tile.getRotation()));
+    }
 
-        if(minremove != Integer.MAX_VALUE) entity.convey.truncate(minremove);
+    private Tile linked(Tile tile, Tile other){
+        return other != null && other.block() == this && other.getRotation() == tile.getRotation()
+            && other.getTeamID() == tile.getTeamID() && other.entity instanceof ConveyorEntity ? other : null;
     }
 
     @Override
@@ -263,17 +332,15 @@ public class Conveyor extends Block{
     }
 
     @Override
-    public synchronized int removeStack(Tile tile, Item item, int amount){
+    public int removeStack(Tile tile, Item item, int amount){
         ConveyorEntity entity = tile.entity();
-        entity.noSleep();
+        entity.wakeLine();
         int removed = 0;
 
         for(int j = 0; j < amount; j++){
-            for(int i = 0; i < entity.convey.size; i++){
-                long val = entity.convey.get(i);
-                ItemPos pos = pos1.set(val, ItemPos.drawShorts);
-                if(pos.item == item){
-                    entity.convey.removeValue(val);
+            for(int i = 0; i < entity.len; i++){
+                if(entity.types[i] == item){
+                    entity.remove(i);
                     entity.items.remove(item, 1);
                     removed++;
                     break;
@@ -289,22 +356,21 @@ public class Conveyor extends Block{
     }
 
     @Override
-    public synchronized int acceptStack(Item item, int amount, Tile tile, Unit source){
+    public int acceptStack(Item item, int amount, Tile tile, Unit source){
         ConveyorEntity entity = tile.entity();
         return Math.min((int)(entity.minitem / itemSpace), amount);
     }
 
     @Override
-    public synchronized void handleStack(Item item, int amount, Tile tile, Unit source){
+    public void handleStack(Item item, int amount, Tile tile, Unit source){
         ConveyorEntity entity = tile.entity();
 
         for(int i = amount - 1; i >= 0; i--){
-            long result = ItemPos.packItem(item, 0f, i * itemSpace, (byte) Mathf.random(255));
-            entity.convey.insert(0, result);
+            entity.insert(0, item, 0f, i * itemSpace, (byte) Mathf.random(255));
             entity.items.add(item, 1);
         }
 
-        entity.noSleep();
+        entity.wakeLine();
     }
 
     @Override
@@ -326,24 +392,15 @@ public class Conveyor extends Block{
         float y = (ang == -1 || ang == 3) ? 1 : (ang == 1 || ang == -3) ? -1 : 0;
 
         ConveyorEntity entity = tile.entity();
-        entity.noSleep();
-        long result = ItemPos.packItem(item, y * 0.9f, pos, (byte) Mathf.random(255));
-        boolean inserted = false;
+        entity.wakeLine();
 
         tile.entity.items.add(item, 1);
 
-        for(int i = 0; i < entity.convey.size; i++){
-            if(compareItems(result, entity.convey.get(i)) < 0){
-                entity.convey.insert(i, result);
-                inserted = true;
-                break;
-            }
-        }
+        //keep items sorted by position
+        int index = 0;
+        while(index < entity.len && entity.ys[index] <= pos) index++;
 
-        //this item must be greater than anything there...
-        if(!inserted){
-            entity.convey.add(result);
-        }
+        entity.insert(index, item, y * 0.9f, pos, (byte) Mathf.random(255));
     }
 
     @Override
@@ -352,7 +409,8 @@ public class Conveyor extends Block{
         Array<Object> arr = super.getDebugInfo(tile);
         arr.addAll(Array.with(
                 "clogHeat", entity.clogHeat,
-                "sleeping", entity.isSleeping()
+                "sleeping", entity.isSleeping(),
+                "line", entity.line == null ? 0 : entity.line.size
         ));
         return arr;
     }
@@ -362,112 +420,125 @@ public class Conveyor extends Block{
         return new ConveyorEntity();
     }
 
-    public static class ConveyorEntity extends TileEntity{
+    /**A straight run of conveyors, from the first to the one at its end.*/
+    static class ConveyorLine{
+        ConveyorEntity[] entities = new ConveyorEntity[8];
+        int size;
+        /**Set to false when any conveyor in the run or next to it changes.*/
+        boolean valid = true;
+
+        void add(ConveyorEntity entity){
+            if(size == entities.length){
+                ConveyorEntity[] resized = new ConveyorEntity[size * 2];
+                System.arraycopy(entities, 0, resized, 0, size);
+                entities = resized;
+            }
+            entities[size++] = entity;
+        }
 
-        LongArray convey = new LongArray();
+        ConveyorEntity head(){
+            return entities[size - 1];
+        }
+
+        /**
+         * Marks this run as changed, and wakes up every conveyor in it. Conveyors behind the end sleep until they get
+         * items, so they would otherwise never find the run they are in now, even when they are holding items.
+         */
+        void invalidate(){
+            if(!valid) return;
+
+            valid = false;
+            for(int i = 0; i < size; i++){
+                entities[i].noSleep();
+            }
+        }
+    }
+
+    public static class ConveyorEntity extends TileEntity{
+        /**Items on this conveyor, sorted by position along it. Positions are 0-1 along the conveyor, offsets -1 to 1 across it.*/
+        Item[] types = new Item[4];
+        float[] xs = new float[4], ys = new float[4];
+        byte[] seeds = new byte[4];
+        int len;
         float minitem = 1;
 
+        ConveyorLine line;
+
         int blendshadowrot = -1;
         int blendbits;
         int blendsclx, blendscly;
 
         float clogHeat = 0f;
 
-        @Override
-        public void write(DataOutputStream stream) throws IOException{
-            stream.writeInt(convey.size);
-
-            for(int i = 0; i < convey.size; i++){
-                stream.writeInt(ItemPos.toInt(convey.get(i)));
+        /**Wakes up the conveyor that updates the run this one is in.*/
+        void wakeLine(){
+            noSleep();
+            if(line != null && line.valid){
+                line.head().noSleep();
             }
         }
 
-        @Override
-        public void read(DataInputStream stream) throws IOException{
-            convey.clear();
-            int amount = stream.readInt();
-            convey.ensureCapacity(amount);
-
-            for(int i = 0; i < amount; i++){
-                convey.add(ItemPos.toLong(stream.readInt()));
+        void insert(int index, Item item, float x, float y, byte seed){
+            if(len == types.length){
+                int size = len * 2;
+                types = copy(types, new Item[size]);
+                xs = copy(xs, new float[size]);
+                ys = copy(ys, new float[size]);
+                seeds = copy(seeds, new byte[size]);
             }
-        }
-    }
-
-    //Container class. Do not instantiate.
-    static class ItemPos{
-        private static short[] writeShort = new short[4];
-        private static byte[] writeByte = new byte[4];
-
-        private static short[] packShorts = new short[4];
-        private static short[] drawShorts = new short[4];
-        private static short[] updateShorts = new short[4];
 
-        Item item;
-        float x, y;
-        byte seed;
+            System.arraycopy(types, index, types, index + 1, len - index);
+            System.arraycopy(xs, index, xs, index + 1, len - index);
+            System.arraycopy(ys, index, ys, index + 1, len - index);
+            System.arraycopy(seeds, index, seeds, index + 1, len - index);
 
-        private ItemPos(){
+            types[index] = item;
+            xs[index] = x;
+            ys[index] = y;
+            seeds[index] = seed;
+            len++;
         }
 
-        static long packItem(Item item, float x, float y, byte seed){
-            short[] shorts = packShorts;
-            shorts[0] = (short) item.id;
-            shorts[1] = (short) (x * Short.MAX_VALUE);
-            shorts[2] = (short) ((y - 1f) * Short.MAX_VALUE);
-            shorts[3] = seed;
-            return Bits.packLong(shorts);
+        void remove(int index){
+            len--;
+            System.arraycopy(types, index + 1, types, index, len - index);
+            System.arraycopy(xs, index + 1, xs, index, len - index);
+            System.arraycopy(ys, index + 1, ys, index, len - index);
+            System.arraycopy(seeds, index + 1, seeds, index, len - index);
         }
 
-        static int toInt(long value){
-            short[] values = Bits.getShorts(value, writeShort);
-
-            short itemid = values[0];
-            float x = values[1] / (float) Short.MAX_VALUE;
-            float y = ((float) values[2]) / Short.MAX_VALUE + 1f;
-            byte seed = (byte) values[3];
-
-            byte[] bytes = writeByte;
-            bytes[0] = (byte) itemid;
-            bytes[1] = (byte) (x * 127);
-            bytes[2] = (byte) (y * 255 - 128);
-            bytes[3] = seed;
-
-            return Bits.packInt(bytes);
+        private <T> T copy(T source, T dest){
+            System.arraycopy(source, 0, dest, 0, len);
+            return dest;
         }
 
-        static long toLong(int value){
-            byte[] values = Bits.getBytes(value, writeByte);
-
-            byte itemid = values[0];
-            float x = values[1] / 127f;
-            float y = ((int) values[2] + 128) / 255f;
-            byte seed = values[3];
-
-            short[] shorts = writeShort;
-            shorts[0] = (short) itemid;
-            shorts[1] = (short) (x * Short.MAX_VALUE);
-            shorts[2] = (short) ((y - 1f) * Short.MAX_VALUE);
-            shorts[3] = seed;
-            return Bits.packLong(shorts);
+        @Override
+        public void write(DataOutputStream stream) throws IOException{
+            stream.writeInt(len);
+
+            for(int i = 0; i < len; i++){
+                byte[] bytes = writeBytes;
+                bytes[0] = (byte) types[i].id;
+                bytes[1] = (byte) (xs[i] * 127);
+                bytes[2] = (byte) (ys[i] * 255 - 128);
+                bytes[3] = seeds[i];
+                stream.writeInt(Bits.packInt(bytes));
+            }
         }
 
-        ItemPos set(long lvalue, short[] values){
-            Bits.getShorts(lvalue, values);
+        @Override
+        public void read(DataInputStream stream) throws IOException{
+            len = 0;
+            int amount = stream.readInt();
 
-            if(values[0] >= content.items().size || values[0] < 0)
-                item = null;
-            else
-                item = content.items().get(values[0]);
+            for(int i = 0; i < amount; i++){
+                byte[] values = Bits.getBytes(stream.readInt(), readBytes);
 
-            x = values[1] / (float) Short.MAX_VALUE;
-            y = ((float) values[2]) / Short.MAX_VALUE + 1f;
-            seed = (byte) values[3];
-            return this;
-        }
+                //..this should never happen, but in case it does, skip the item
+                if(values[0] < 0 || values[0] >= content.items().size) continue;
 
-        long pack(){
-            return packItem(item, x, y, seed);
+                insert(len, content.items().get(values[0]), values[1] / 127f, ((int) values[2] + 128) / 255f, values[3]);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -9,6 +9,7 @@ import io.anuke.annotations.Annotations.Loc;
 import io.anuke.annotations.Annotations.Remote;
 import io.anuke.mindustry.entities.Player;
 import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.game.EventType.TileConfigEvent;
 import io.anuke.mindustry.gen.Call;
 import io.anuke.mindustry.graphics.Layer;
 import io.anuke.mindustry.graphics.Palette;
@@ -16,6 +17,7 @@ import io.anuke.mindustry.type.Item;
 import io.anuke.mindustry.world.Block;
 import io.anuke.mindustry.world.Tile;
 import io.anuke.mindustry.world.meta.BlockGroup;
+import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.graphics.CapStyle;
 import io.anuke.ucore.graphics.Draw;
@@ -59,15 +61,19 @@ public class ItemBridge extends Block{
         ItemBridgeEntity oe = other.entity();
         entity.link = other.packedPosition();
         oe.incoming.add(tile.packedPosition());
+        Events.fire(new TileConfigEvent(tile));
+        Events.fire(new TileConfigEvent(other));
     }
 
     @Remote(targets = Loc.both, called = Loc.server, forward = true)
     public static void unlinkItemBridge(Player player, Tile tile, Tile other){
         ItemBridgeEntity entity = tile.entity();
         entity.link = -1;
+        Events.fire(new TileConfigEvent(tile));
         if(other != null){
             ItemBridgeEntity oe = other.entity();
             oe.incoming.remove(tile.packedPosition());
+            Events.fire(new TileConfigEvent(other));
         }
     }
 
@@ -192,6 +198,7 @@ public class ItemBridge extends Block{
         if(entity.uptime >= 0.5f && entity.timer.get(timerTransport, transportTime)){
             Item item = entity.items.take();
             if(item != null && other.block().acceptItem(item, other, tile)){
+                TileEntity.markChanging(other);
                 other.block().handleItem(item, other, tile);
                 entity.cycleSpeed = Mathf.lerpDelta(entity.cycleSpeed, 4f, 0.05f);
             }else{
@@ -1,5 +1,6 @@
 package io.anuke.mindustry.world.blocks.distribution;
 
+import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.type.Item;
 import io.anuke.mindustry.type.Liquid;
 import io.anuke.mindustry.world.Tile;
@@ -37,6 +38,7 @@ public class LiquidBridge extends ItemBridge{
             }
 
             if(entity.uptime >= 0.5f){
+                TileEntity.markChanging(other);
 
                 if(tryMoveLiquid(tile, other, false, entity.liquids.current()) > 0.1f){
                     entity.cycleSpeed = Mathf.lerpDelta(entity.cycleSpeed, 4f, 0.05f);
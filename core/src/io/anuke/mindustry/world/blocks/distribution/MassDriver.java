@@ -13,6 +13,7 @@ import io.anuke.mindustry.content.fx.ShootFx;
 import io.anuke.mindustry.entities.Player;
 import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.entities.bullet.Bullet;
+import io.anuke.mindustry.game.EventType.TileConfigEvent;
 import io.anuke.mindustry.gen.Call;
 import io.anuke.mindustry.graphics.Layer;
 import io.anuke.mindustry.graphics.Palette;
@@ -23,6 +24,7 @@ import io.anuke.mindustry.world.meta.BlockStat;
 import io.anuke.mindustry.world.meta.StatUnit;
 import io.anuke.ucore.core.Effects;
 import io.anuke.ucore.core.Effects.Effect;
+import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.graphics.Draw;
 import io.anuke.ucore.graphics.Lines;
@@ -64,7 +66,10 @@ public class MassDriver extends Block{
         MassDriverEntity entity = tile.entity();
 
         //called in main thread to prevent issues
-        threads.run(() -> entity.link = position);
+        threads.run(() -> {
+            entity.link = position;
+            Events.fire(new TileConfigEvent(tile));
+        });
     }
 
     @Remote(called = Loc.server)
@@ -272,16 +277,22 @@ public class MassDriver extends Block{
         public void handlePayload(Bullet bullet, DriverBulletData data){
             int totalItems = items.total();
 
-            //add all the items possible
-            for(int i = 0; i < data.items.length; i++){
-                int maxAdd = Math.min(data.items[i], itemCapacity - totalItems);
-                items.add(content.item(i), maxAdd);
-                data.items[i] -= maxAdd;
-                totalItems += maxAdd;
-
-                if(totalItems >= itemCapacity){
-                    break;
+            //payloads are delivered by bullets, outside of any tile update, so this tile is marked as changing here
+            tile.beginChange();
+            try{
+                //add all the items possible
+                for(int i = 0; i < data.items.length; i++){
+                    int maxAdd = Math.min(data.items[i], itemCapacity - totalItems);
+                    items.add(content.item(i), maxAdd);
+                    data.items[i] -= maxAdd;
+                    totalItems += maxAdd;
+
+                    if(totalItems >= itemCapacity){
+                        break;
+                    }
                 }
+            }finally{
+                tile.endChange();
             }
 
             //drop all items remaining on the ground
@@ -42,6 +42,8 @@ public class Router extends Block{
                 entity.items.remove(entity.lastItem, 1);
                 entity.lastItem = null;
             }
+        }else{
+            entity.sleep();
         }
     }
 
@@ -55,6 +57,7 @@ public class Router extends Block{
     @Override
     public void handleItem(Item item, Tile tile, Tile source){
         SplitterEntity entity = tile.entity();
+        entity.noSleep();
         entity.items.add(item, 1);
         entity.lastItem = item;
         entity.time = 0f;
@@ -62,13 +65,15 @@ public class Router extends Block{
     }
 
     Tile getTileTarget(Tile tile, Item item, Tile from, boolean set){
-        Array<Tile> proximity = tile.entity.proximity();
+        Array<Tile> targets = tile.entity.dumpTargets();
+        Array<Tile> edges = tile.entity.dumpEdges();
         int counter = tile.getDump();
-        for(int i = 0; i < proximity.size; i++){
-            Tile other = proximity.get((i + counter) % proximity.size);
+        for(int i = 0; i < targets.size; i++){
+            int index = (i + counter) % targets.size;
+            Tile other = targets.get(index);
             if(tile == from) continue;
-            if(set) tile.setDump((byte) ((tile.getDump() + 1) % proximity.size));
-            if(other.block().acceptItem(item, other, Edges.getFacingEdge(tile, other))){
+            if(set) tile.setDump((byte) ((tile.getDump() + 1) % targets.size));
+            if(other.block().acceptItem(item, other, edges.get(index))){
                 return other;
             }
         }
@@ -105,9 +105,6 @@ public abstract class ItemGenerator extends PowerGenerator{
             entity.explosiveness = item.explosiveness;
             entity.generateTime = 1f;
         }
-
-        distributePower(tile);
-
     }
 
     protected abstract float getItemEfficiency(Item item);
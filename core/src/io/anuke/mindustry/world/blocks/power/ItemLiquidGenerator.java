@@ -76,8 +76,6 @@ public abstract class ItemLiquidGenerator extends ItemGenerator{
                 entity.generateTime = 1f;
             }
         }
-
-        distributePower(tile);
     }
 
     @Override
@@ -60,8 +60,6 @@ public abstract class LiquidGenerator extends PowerGenerator{
                 Effects.effect(generateEffect, tile.drawx() + Mathf.range(3f), tile.drawy() + Mathf.range(3f));
             }
         }
-
-        distributePower(tile);
     }
 
     @Override
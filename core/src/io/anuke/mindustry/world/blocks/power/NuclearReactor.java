@@ -123,8 +123,6 @@ public class NuclearReactor extends PowerGenerator{
 
         if(entity.heat >= 0.999f){
             entity.kill();
-        }else{
-            distributePower(tile);
         }
     }
 
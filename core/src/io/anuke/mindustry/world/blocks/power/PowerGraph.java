@@ -0,0 +1,177 @@
+package io.anuke.mindustry.world.blocks.power;
+
+import com.badlogic.gdx.utils.Array;
+import io.anuke.mindustry.world.Block;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.modules.PowerModule;
+
+/**
+ * A set of connected power blocks, which share power as one network.
+ * Each update, power stored in generators is moved to consumers, and whatever is left over goes into batteries.
+ * Batteries make up for what generators can not supply. Power is moved in proportion to what each block has or needs,
+ * so the result does not depend on update order.
+ */
+public class PowerGraph{
+    private final Array<Tile> tiles = new Array<>(false, 16, Tile.class);
+    private final Array<PowerModule> producers = new Array<>(false, 16, PowerModule.class);
+    private final Array<PowerModule> consumers = new Array<>(false, 16, PowerModule.class);
+    private final Array<PowerModule> batteries = new Array<>(false, 16, PowerModule.class);
+
+    private float flow;
+
+    /**Index in the list of graphs, used by {@link PowerGraphs}.*/
+    int index = -1;
+
+    /**Returns what a block does in a power graph.*/
+    public static Role roleOf(Block block){
+        if(block instanceof PowerGenerator){
+            return Role.producer;
+        }else if(block instanceof PowerDistributor || block instanceof PowerNode){
+            return Role.battery;
+        }else{
+            return Role.consumer;
+        }
+    }
+
+    /**Moves power between the blocks in this graph.*/
+    public void update(){
+        float produced = 0f, needed = 0f, stored = 0f, space = 0f;
+
+        for(int i = 0; i < producers.size; i++){
+            produced += Math.max(producers.items[i].amount, 0f);
+        }
+
+        for(int i = 0; i < consumers.size; i++){
+            PowerModule module = consumers.items[i];
+            needed += Math.max(module.capacity - module.amount, 0f);
+        }
+
+        for(int i = 0; i < batteries.size; i++){
+            PowerModule module = batteries.items[i];
+            stored += Math.max(module.amount, 0f);
+            space += Math.max(module.capacity - module.amount, 0f);
+        }
+
+        float fromProducers = Math.min(produced, needed);
+        float fromBatteries = Math.min(stored, needed - fromProducers);
+        float toBatteries = Math.min(space, produced - fromProducers);
+
+        if(needed > 0f && fromProducers + fromBatteries > 0f){
+            float fraction = (fromProducers + fromBatteries) / needed;
+            for(int i = 0; i < consumers.size; i++){
+                PowerModule module = consumers.items[i];
+                module.amount += Math.max(module.capacity - module.amount, 0f) * fraction;
+            }
+        }
+
+        if(produced > 0f){
+            float fraction = (fromProducers + toBatteries) / produced;
+            for(int i = 0; i < producers.size; i++){
+                PowerModule module = producers.items[i];
+                module.amount -= Math.max(module.amount, 0f) * fraction;
+            }
+        }
+
+        if(fromBatteries > 0f){
+            float fraction = fromBatteries / stored;
+            for(int i = 0; i < batteries.size; i++){
+                PowerModule module = batteries.items[i];
+                module.amount -= Math.max(module.amount, 0f) * fraction;
+            }
+        }else if(toBatteries > 0f){
+            float fraction = toBatteries / space;
+            for(int i = 0; i < batteries.size; i++){
+                PowerModule module = batteries.items[i];
+                module.amount += Math.max(module.capacity - module.amount, 0f) * fraction;
+            }
+        }
+
+        float moved = fromProducers + fromBatteries + toBatteries;
+        float missing = needed - fromProducers - fromBatteries;
+        flow = moved > 0f ? moved / (moved + missing) : 0f;
+    }
+
+    /**Returns how much of the power that was needed last update could be moved, from 0 to 1. 0 if nothing was moved.*/
+    public float getFlow(){
+        return flow;
+    }
+
+    public void add(Tile tile){
+        tiles.add(tile);
+        add(tile.entity.power, roleOf(tile.block()));
+    }
+
+    /**Adds a power module by itself. Modules that are not part of a tile are never split off.*/
+    public void add(PowerModule module, Role role){
+        module.graph = this;
+
+        if(role == Role.producer){
+            producers.add(module);
+        }else if(role == Role.battery){
+            batteries.add(module);
+        }else{
+            consumers.add(module);
+        }
+    }
+
+    /**Moves everything in the smaller of the two graphs into the larger one, and returns the larger one.*/
+    public PowerGraph merge(PowerGraph other){
+        if(other == this) return this;
+
+        if(other.size() > size()){
+            return other.merge(this);
+        }
+
+        tiles.addAll(other.tiles);
+        moveAll(other.producers, producers);
+        moveAll(other.consumers, consumers);
+        moveAll(other.batteries, batteries);
+        other.tiles.clear();
+
+        return this;
+    }
+
+    /**Takes a tile out of this graph.*/
+    public void remove(Tile tile){
+        tiles.removeValue(tile, true);
+        producers.removeValue(tile.entity.power, true);
+        consumers.removeValue(tile.entity.power, true);
+        batteries.removeValue(tile.entity.power, true);
+    }
+
+    /**Drops the tiles and modules that were added to another graph since they were added to this one.*/
+    public void retainOwn(){
+        for(int i = tiles.size - 1; i >= 0; i--){
+            if(tiles.items[i].entity.power.graph != this) tiles.removeIndex(i);
+        }
+        retainOwn(producers);
+        retainOwn(consumers);
+        retainOwn(batteries);
+    }
+
+    private void retainOwn(Array<PowerModule> modules){
+        for(int i = modules.size - 1; i >= 0; i--){
+            if(modules.items[i].graph != this) modules.removeIndex(i);
+        }
+    }
+
+    private void moveAll(Array<PowerModule> from, Array<PowerModule> to){
+        for(int i = 0; i < from.size; i++){
+            from.items[i].graph = this;
+        }
+        to.addAll(from);
+        from.clear();
+    }
+
+    public Array<Tile> getTiles(){
+        return tiles;
+    }
+
+    public int size(){
+        return producers.size + consumers.size + batteries.size;
+    }
+
+    public enum Role{
+        producer, consumer, battery
+    }
+}
@@ -0,0 +1,289 @@
+package io.anuke.mindustry.world.blocks.power;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.modules.PowerModule;
+
+import static io.anuke.mindustry.Vars.world;
+
+/**
+ * Keeps track of every {@link PowerGraph} in the world, and updates them.
+ * New connections are queued, and merge graphs at the start of the next update. Lost connections are handled right away:
+ * the graph is only searched from the tiles that lost them, until it is known which parts of it were cut off, and only those
+ * parts are moved into graphs of their own.
+ * <p>
+ * Every connected tile remembers the tiles it is connected to in {@link PowerModule#connections}, in both directions,
+ * as power nodes can link to blocks that do not link back.
+ */
+public class PowerGraphs{
+    private final Array<PowerGraph> graphs = new Array<>(false, 64, PowerGraph.class);
+    private final Array<Tile> pending = new Array<>(false, 64, Tile.class);
+    private final Array<Tile> connections = new Array<>();
+
+    //state of the search for cut off parts; one search is started from each tile that lost a connection
+    private final Array<Tile> seeds = new Array<>(false, 8, Tile.class);
+    private final Array<Array<Tile>> found = new Array<>();
+    private final IntArray heads = new IntArray(), groups = new IntArray();
+    private final ObjectIntMap<Tile> searched = new ObjectIntMap<>();
+
+    public void update(){
+        if(pending.size > 0){
+            connectPending();
+        }
+
+        for(int i = 0; i < graphs.size; i++){
+            graphs.items[i].update();
+        }
+    }
+
+    /**Queues a tile to be put in a graph, and connected to everything it links to.*/
+    public void connect(Tile tile){
+        pending.add(tile);
+    }
+
+    /**
+     * Removes the connection between two tiles, after one stopped linking to the other. Does nothing if they are still
+     * connected some other way, e.g. by being next to each other. Splits their graph if this was the last path between them.
+     */
+    public void disconnect(Tile tile, Tile other){
+        if(!valid(tile) || !valid(other) || !tile.entity.power.connections.contains(other, true)) return;
+        if(connects(tile, other) || connects(other, tile)) return;
+
+        tile.entity.power.connections.removeValue(other, true);
+        other.entity.power.connections.removeValue(tile, true);
+
+        seeds.clear();
+        seeds.add(tile);
+        seeds.add(other);
+        split(tile.entity.power.graph);
+    }
+
+    /**Takes a tile out of its graph, before its block is removed. Splits the graph if the tile held parts of it together.*/
+    public void remove(Tile tile){
+        if(tile.entity == null || tile.entity.power == null) return;
+
+        PowerModule module = tile.entity.power;
+        PowerGraph graph = module.graph;
+
+        seeds.clear();
+        for(int i = 0; i < module.connections.size; i++){
+            Tile other = module.connections.items[i];
+            other.entity.power.connections.removeValue(tile, true);
+            seeds.add(other);
+        }
+        module.connections.clear();
+
+        if(graph == null) return;
+
+        graph.remove(tile);
+        module.graph = null;
+
+        if(graph.size() == 0){
+            unregister(graph);
+        }else{
+            split(graph);
+        }
+    }
+
+    public int getGraphs(){
+        return graphs.size;
+    }
+
+    public void clear(){
+        graphs.clear();
+        pending.clear();
+    }
+
+    private void connectPending(){
+        for(int i = 0; i < pending.size; i++){
+            Tile tile = pending.items[i];
+            if(valid(tile) && tile.entity.power.graph == null){
+                PowerGraph graph = new PowerGraph();
+                graph.add(tile);
+                register(graph);
+            }
+        }
+
+        for(int i = 0; i < pending.size; i++){
+            Tile tile = pending.items[i];
+            if(!valid(tile) || tile.entity.power.graph == null) continue;
+
+            connections.clear();
+            tile.block().getPowerConnections(tile, connections);
+
+            for(Tile other : connections){
+                PowerModule module = other.entity.power;
+                if(module.graph == null) continue;
+
+                if(!module.connections.contains(tile, true)){
+                    module.connections.add(tile);
+                    tile.entity.power.connections.add(other);
+                }
+
+                if(module.graph != tile.entity.power.graph){
+                    merge(tile.entity.power.graph, module.graph);
+                }
+            }
+        }
+
+        pending.clear();
+    }
+
+    /**
+     * Finds out which of the seeds are still connected after the graph lost a connection. A search is run from each
+     * seed, one tile of each at a time, and searches that reach each other are joined into one group. Once every group
+     * but one has run out of tiles, the tiles of the finished groups are moved into new graphs; the tiles of the last
+     * group are never all visited, so the work done depends on the size of the parts that were cut off.
+     */
+    private void split(PowerGraph graph){
+        int count = seeds.size;
+        searched.clear();
+        heads.clear();
+        groups.clear();
+
+        while(found.size < count){
+            found.add(new Array<>(false, 16, Tile.class));
+        }
+
+        for(int i = 0; i < count; i++){
+            Tile seed = seeds.items[i];
+            found.get(i).clear();
+            heads.add(0);
+            groups.add(i);
+
+            int owner = searched.get(seed, -1);
+            if(owner == -1){
+                searched.put(seed, i);
+                found.get(i).add(seed);
+            }else{
+                join(i, owner);
+            }
+        }
+
+        while(openGroups() > 1){
+            for(int i = 0; i < count; i++){
+                Array<Tile> tiles = found.get(i);
+                if(heads.get(i) >= tiles.size) continue;
+
+                Tile tile = tiles.get(heads.get(i));
+                heads.incr(i, 1);
+
+                Array<Tile> next = tile.entity.power.connections;
+                for(int j = 0; j < next.size; j++){
+                    int owner = searched.get(next.items[j], -1);
+                    if(owner == -1){
+                        searched.put(next.items[j], i);
+                        tiles.add(next.items[j]);
+                    }else{
+                        join(i, owner);
+                    }
+                }
+            }
+        }
+
+        //if every group finished, the largest one stays in the graph
+        int kept = -1;
+        for(int i = 0; i < count; i++){
+            if(group(i) == i && (kept == -1 || open(i) || (!open(kept) && groupSize(i) > groupSize(kept)))){
+                kept = i;
+            }
+        }
+
+        boolean moved = false;
+        for(int i = 0; i < count; i++){
+            if(group(i) != i || i == kept) continue;
+
+            PowerGraph result = new PowerGraph();
+            for(int j = 0; j < count; j++){
+                if(group(j) != i) continue;
+
+                Array<Tile> tiles = found.get(j);
+                for(int k = 0; k < tiles.size; k++){
+                    result.add(tiles.items[k]);
+                }
+            }
+
+            register(result);
+            moved = true;
+        }
+
+        if(moved){
+            graph.retainOwn();
+        }
+
+        seeds.clear();
+    }
+
+    /**Returns how many groups of searches still have tiles left to visit.*/
+    private int openGroups(){
+        int open = 0;
+        for(int i = 0; i < seeds.size; i++){
+            if(group(i) == i && open(i)) open++;
+        }
+        return open;
+    }
+
+    /**Returns whether any search in the group of this search has tiles left to visit.*/
+    private boolean open(int search){
+        for(int i = 0; i < seeds.size; i++){
+            if(group(i) == group(search) && heads.get(i) < found.get(i).size) return true;
+        }
+        return false;
+    }
+
+    private int groupSize(int search){
+        int size = 0;
+        for(int i = 0; i < seeds.size; i++){
+            if(group(i) == group(search)) size += found.get(i).size;
+        }
+        return size;
+    }
+
+    private int group(int search){
+        while(groups.get(search) != search){
+            search = groups.get(search);
+        }
+        return search;
+    }
+
+    private void join(int a, int b){
+        int ga = group(a), gb = group(b);
+        if(ga != gb){
+            groups.set(Math.max(ga, gb), Math.min(ga, gb));
+        }
+    }
+
+    /**Returns whether a tile links to another by itself.*/
+    private boolean connects(Tile tile, Tile other){
+        connections.clear();
+        tile.block().getPowerConnections(tile, connections);
+        return connections.contains(other, true);
+    }
+
+    private void merge(PowerGraph a, PowerGraph b){
+        PowerGraph result = a.merge(b);
+        unregister(result == a ? b : a);
+    }
+
+    private void register(PowerGraph graph){
+        graph.index = graphs.size;
+        graphs.add(graph);
+    }
+
+    private void unregister(PowerGraph graph){
+        if(graph.index == -1) return;
+
+        PowerGraph last = graphs.pop();
+        if(last != graph){
+            graphs.items[graph.index] = last;
+            last.index = graph.index;
+        }
+        graph.index = -1;
+    }
+
+    private boolean valid(Tile tile){
+        return tile.entity != null && tile.entity.power != null && world.rawTile(tile.x, tile.y) == tile;
+    }
+}
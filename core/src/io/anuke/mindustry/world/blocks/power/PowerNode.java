@@ -1,19 +1,23 @@
 package io.anuke.mindustry.world.blocks.power;
 
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntArray;
 import io.anuke.annotations.Annotations.Loc;
 import io.anuke.annotations.Annotations.Remote;
 import io.anuke.mindustry.entities.Player;
 import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.game.EventType.TileConfigEvent;
 import io.anuke.mindustry.gen.Call;
 import io.anuke.mindustry.graphics.Layer;
 import io.anuke.mindustry.graphics.Palette;
 import io.anuke.mindustry.world.Edges;
 import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.blocks.BlockPart;
 import io.anuke.mindustry.world.blocks.PowerBlock;
 import io.anuke.mindustry.world.meta.BlockStat;
 import io.anuke.mindustry.world.meta.StatUnit;
+import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Settings;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.graphics.Draw;
@@ -35,12 +39,13 @@ public class PowerNode extends PowerBlock{
 
     //last distribution block placed
     private static int lastPlaced = -1;
+    //longest laser range of any node, in tiles
+    private static float maxLaserRange;
 
     protected Translator t1 = new Translator();
     protected Translator t2 = new Translator();
 
     protected float laserRange = 6;
-    protected float powerSpeed = 0.5f;
     protected int maxNodes = 3;
 
     public PowerNode(String name){
@@ -68,6 +73,10 @@ public class PowerNode extends PowerBlock{
                 oe.links.add(tile.packedPosition());
             }
         }
+
+        logic.power.connect(tile);
+        Events.fire(new TileConfigEvent(tile));
+        Events.fire(new TileConfigEvent(other));
     }
 
     @Remote(targets = Loc.both, called = Loc.server, forward = true)
@@ -83,6 +92,36 @@ public class PowerNode extends PowerBlock{
 
             oe.links.removeValue(tile.packedPosition());
         }
+
+        logic.power.disconnect(tile, other);
+        Events.fire(new TileConfigEvent(tile));
+        Events.fire(new TileConfigEvent(other));
+    }
+
+    /**
+     * Checks the links of every power node that could reach a tile whose block just changed. Links that are no longer
+     * valid are dropped; nodes that still link to the tile are connected to its new block.
+     */
+    public static void blockChanged(Tile tile){
+        if(tile.block() instanceof BlockPart) return;
+
+        //links reach a few tiles further than the laser range for large blocks
+        int range = (int) Math.ceil(maxLaserRange) + 4;
+
+        for(int x = tile.x - range; x <= tile.x + range; x++){
+            for(int y = tile.y - range; y <= tile.y + range; y++){
+                Tile other = world.tile(x, y);
+                if(other != null && other != tile && other.block() instanceof PowerNode){
+                    ((PowerNode) other.block()).validateLink(other, tile);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void init(){
+        super.init();
+        maxLaserRange = Math.max(maxLaserRange, laserRange);
     }
 
     @Override
@@ -104,12 +143,25 @@ public class PowerNode extends PowerBlock{
         super.setStats();
 
         stats.add(BlockStat.powerRange, laserRange, StatUnit.blocks);
-        stats.add(BlockStat.powerTransferSpeed, powerSpeed * 60 / 2f, StatUnit.powerSecond); //divided by 2 since passback exists
     }
 
     @Override
     public void update(Tile tile){
-        distributeLaserPower(tile);
+        //links are checked when the blocks they point to change, so there is nothing to do each tick
+        tile.entity.sleep();
+    }
+
+    @Override
+    public void getPowerConnections(Tile tile, Array<Tile> out){
+        super.getPowerConnections(tile, out);
+
+        DistributorEntity entity = tile.entity();
+
+        for(int i = 0; i < entity.links.size; i++){
+            Tile target = world.tile(entity.links.get(i));
+            if(target != null) target = target.target();
+            if(linkValid(tile, target, false)) out.add(target);
+        }
     }
 
     @Override
@@ -197,7 +249,8 @@ public class PowerNode extends PowerBlock{
 
         DistributorEntity entity = tile.entity();
 
-        entity.laserColor = Mathf.lerpDelta(entity.laserColor, Mathf.clamp(entity.powerRecieved / (powerSpeed)), 0.08f);
+        PowerGraph graph = entity.power.graph;
+        entity.laserColor = Mathf.lerpDelta(entity.laserColor, graph == null ? 0f : graph.getFlow(), 0.08f);
 
         Draw.color(Palette.powerLaserFrom, Palette.powerLaserTo, entity.laserColor * (1f - flashScl) + Mathf.sin(Timers.time(), 1.7f, flashScl));
 
@@ -209,70 +262,17 @@ public class PowerNode extends PowerBlock{
         Draw.color();
     }
 
-    @Override
-    public float addPower(Tile tile, float amount){
+    /**Drops the link from a node to a block that changed if it is no longer valid, or connects the node to the new block.*/
+    protected void validateLink(Tile tile, Tile target){
         DistributorEntity entity = tile.entity();
+        int index = entity.links.indexOf(target.packedPosition());
+        if(index == -1) return;
 
-        if(entity.lastRecieved != threads.getFrameID()){
-            entity.lastRecieved = threads.getFrameID();
-            entity.powerRecieved = 0f;
-        }
-
-        float canAccept = Math.min(powerCapacity * Timers.delta() - tile.entity.power.amount, amount);
-
-        tile.entity.power.amount += canAccept;
-        entity.powerRecieved += canAccept;
-
-        return canAccept;
-    }
-
-    protected boolean shouldDistribute(Tile tile, Tile other){
-        return other != null && other.entity != null && other.block().hasPower && other.getTeamID() == tile.getTeamID() && other.entity.power.amount / other.block().powerCapacity <= tile.entity.power.amount / powerCapacity &&
-                !(other.block() instanceof PowerGenerator); //do not distribute to power generators
-    }
-
-    protected boolean shouldLeechPower(Tile tile, Tile other){
-        return other.getTeamID() == tile.getTeamID() && !(other.block() instanceof PowerNode)
-                && other.block() instanceof PowerDistributor //only suck power from batteries and power generators
-                && other.entity.power.amount / other.block().powerCapacity > tile.entity.power.amount / powerCapacity;
-    }
-
-    protected void distributeLaserPower(Tile tile){
-        DistributorEntity entity = tile.entity();
-
-        if(Float.isNaN(entity.power.amount)){
-            entity.power.amount = 0f;
-        }
-
-        int targets = 0;
-
-        //validate everything first.
-        for(int i = 0; i < entity.links.size; i++){
-            Tile target = world.tile(entity.links.get(i));
-            if(!linkValid(tile, target)){
-                entity.links.removeIndex(i);
-                i--;
-            }else if(shouldDistribute(tile, target)){
-                targets++;
-            }
-        }
-
-        float result = Math.min(entity.power.amount / targets, powerSpeed * Timers.delta());
-
-        for(int i = 0; i < entity.links.size; i++){
-            Tile target = world.tile(entity.links.get(i));
-            if(targets > 0 && shouldDistribute(tile, target)){
-
-                float transmit = Math.min(result, entity.power.amount);
-                if(target.block().acceptPower(target, tile, transmit)){
-                    entity.power.amount -= target.block().addPower(target, transmit);
-                }
-            }else if(shouldLeechPower(tile, target)){
-                float diff = (target.entity.power.amount / target.block().powerCapacity - tile.entity.power.amount / powerCapacity) / 1.4f;
-                float transmit = Math.min(Math.min(target.block().powerCapacity * diff, target.entity.power.amount), powerCapacity - tile.entity.power.amount);
-                entity.power.amount += transmit;
-                target.entity.power.amount -= transmit;
-            }
+        if(linkValid(tile, target)){
+            logic.power.connect(tile);
+        }else{
+            entity.links.removeIndex(index);
+            logic.power.disconnect(tile, target);
         }
     }
 
@@ -321,8 +321,6 @@ public class PowerNode extends PowerBlock{
 
     public static class DistributorEntity extends TileEntity{
         public float laserColor = 0f;
-        public float powerRecieved = 0f;
-        public long lastRecieved = 0;
         public IntArray links = new IntArray();
 
         @Override
@@ -5,10 +5,12 @@ import io.anuke.annotations.Annotations.Loc;
 import io.anuke.annotations.Annotations.Remote;
 import io.anuke.mindustry.entities.Player;
 import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.game.EventType.TileConfigEvent;
 import io.anuke.mindustry.gen.Call;
 import io.anuke.mindustry.type.Item;
 import io.anuke.mindustry.world.Tile;
 import io.anuke.mindustry.world.blocks.SelectionTrait;
+import io.anuke.ucore.core.Events;
 import io.anuke.ucore.graphics.Draw;
 import io.anuke.ucore.scene.ui.layout.Table;
 
@@ -29,6 +31,7 @@ public class SortedUnloader extends Unloader implements SelectionTrait{
         SortedUnloaderEntity entity = tile.entity();
         entity.items.clear();
         entity.sortItem = item;
+        Events.fire(new TileConfigEvent(tile));
     }
 
     @Override
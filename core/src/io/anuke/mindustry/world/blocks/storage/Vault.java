@@ -3,7 +3,6 @@ package io.anuke.mindustry.world.blocks.storage;
 import com.badlogic.gdx.utils.Array;
 import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.type.Item;
-import io.anuke.mindustry.world.Edges;
 import io.anuke.mindustry.world.Tile;
 import io.anuke.ucore.core.Timers;
 import static io.anuke.mindustry.Vars.*;
@@ -44,26 +43,29 @@ public class Vault extends StorageBlock{
         if(entity == null || !hasItems || tile.entity.items.total() == 0 || (todump != null && !entity.items.has(todump)))
             return false;
 
-        Array<Tile> proximity = entity.proximity();
+        //dump targets only hold blocks of the same team, so vaults only move items into storage of their own team
+        Array<Tile> targets = entity.dumpTargets();
+        Array<Tile> edges = entity.dumpEdges();
         int dump = tile.getDump();
 
-        if(proximity.size == 0) return false;
+        if(targets.size == 0) return false;
 
-        for(int i = 0; i < proximity.size; i++){
-            Tile other = proximity.get((i + dump) % proximity.size);
-            Tile in = Edges.getFacingEdge(tile, other);
+        for(int i = 0; i < targets.size; i++){
+            int index = (i + dump) % targets.size;
+            Tile other = targets.get(index);
+            Tile in = edges.get(index);
 
             if(other == null || !(other.block() instanceof StorageBlock)) continue;
 
             if(!(other.block() instanceof Vault)){
 
-                for(int ii = 0; ii < content.items().size; ii++){
-                    Item item = content.item(ii);
+                for(int id = entity.items.nextItem(0); id != -1; id = entity.items.nextItem(id + 1)){
+                    Item item = content.item(id);
 
-                    if(entity.items.has(item) && other.block().acceptItem(item, other, in) && canDump(tile, other, item)){
+                    if(other.block().acceptItem(item, other, in) && canDump(tile, other, item)){
                         other.block().handleItem(item, other, in);
                         tile.entity.items.remove(item, 1);
-                        incrementDump(tile, proximity.size);
+                        incrementDump(tile, targets.size);
                         return true;
                     }
                 }
@@ -72,12 +74,12 @@ public class Vault extends StorageBlock{
 
                 if(other.block().acceptItem(todump, other, in) && canDump(tile, other, todump)){
                     other.block().handleItem(removeItem(tile, null), other, in);
-                    incrementDump(tile, proximity.size);
+                    incrementDump(tile, targets.size);
                     return true;
                 }
             }
 
-            incrementDump(tile, proximity.size);
+            incrementDump(tile, targets.size);
         }
 
         return false;
@@ -10,6 +10,7 @@ import io.anuke.mindustry.entities.TileEntity;
 import io.anuke.mindustry.entities.Unit;
 import io.anuke.mindustry.entities.Units;
 import io.anuke.mindustry.entities.traits.SpawnerTrait;
+import io.anuke.mindustry.game.EventType.TileConfigEvent;
 import io.anuke.mindustry.gen.Call;
 import io.anuke.mindustry.graphics.Palette;
 import io.anuke.mindustry.graphics.Shaders;
@@ -17,6 +18,7 @@ import io.anuke.mindustry.world.Block;
 import io.anuke.mindustry.world.Tile;
 import io.anuke.ucore.core.Effects;
 import io.anuke.ucore.core.Effects.Effect;
+import io.anuke.ucore.core.Events;
 import io.anuke.ucore.core.Graphics;
 import io.anuke.ucore.core.Timers;
 import io.anuke.ucore.graphics.Draw;
@@ -105,6 +107,8 @@ public class Reconstructor extends Block{
 
             entity.link = other.packedPosition();
             oe.link = tile.packedPosition();
+            Events.fire(new TileConfigEvent(tile));
+            Events.fire(new TileConfigEvent(other));
         });
     }
 
@@ -120,6 +124,8 @@ public class Reconstructor extends Block{
         threads.run(() -> {
             unlink(entity);
             unlink(oe);
+            Events.fire(new TileConfigEvent(tile));
+            Events.fire(new TileConfigEvent(other));
         });
     }
 
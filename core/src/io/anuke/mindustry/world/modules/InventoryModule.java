@@ -1,5 +1,6 @@
 package io.anuke.mindustry.world.modules;
 
+import com.badlogic.gdx.utils.Bits;
 import io.anuke.mindustry.type.Item;
 import io.anuke.mindustry.type.ItemStack;
 
@@ -11,6 +12,8 @@ import static io.anuke.mindustry.Vars.content;
 
 public class InventoryModule extends BlockModule{
     private int[] items = new int[content.items().size];
+    /**IDs of the items there is at least one of.*/
+    private Bits present = new Bits(items.length);
     private int total;
 
     public void forEach(ItemConsumer cons){
@@ -65,6 +68,7 @@ public class InventoryModule extends BlockModule{
             if(items[i] > 0){
                 items[i]--;
                 total--;
+                updatePresent(i);
                 return content.item(i);
             }
         }
@@ -75,14 +79,21 @@ public class InventoryModule extends BlockModule{
         return items[item.id];
     }
 
+    /**Returns the ID of the first item at or after the given ID that there is any of, or -1 if there is none.*/
+    public int nextItem(int from){
+        return present.nextSetBit(from);
+    }
+
     public void set(Item item, int amount){
         total += (amount - items[item.id]);
         items[item.id] = amount;
+        updatePresent(item.id);
     }
 
     public void add(Item item, int amount){
         items[item.id] += amount;
         total += amount;
+        updatePresent(item.id);
     }
 
     public void remove(Item item, int amount){
@@ -90,6 +101,7 @@ public class InventoryModule extends BlockModule{
 
         items[item.id] -= amount;
         total -= amount;
+        updatePresent(item.id);
     }
 
     public void remove(ItemStack stack){
@@ -98,9 +110,18 @@ public class InventoryModule extends BlockModule{
 
     public void clear(){
         Arrays.fill(items, 0);
+        present.clear();
         total = 0;
     }
 
+    private void updatePresent(int id){
+        if(items[id] > 0){
+            present.set(id);
+        }else{
+            present.clear(id);
+        }
+    }
+
     @Override
     public void write(DataOutput stream) throws IOException{
         byte amount = 0;
@@ -127,6 +148,7 @@ public class InventoryModule extends BlockModule{
             int itemid = stream.readByte();
             int itemamount = stream.readInt();
             items[content.item(itemid).id] = itemamount;
+            updatePresent(content.item(itemid).id);
             total += itemamount;
         }
     }
@@ -1,5 +1,9 @@
 package io.anuke.mindustry.world.modules;
 
+import com.badlogic.gdx.utils.Array;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.blocks.power.PowerGraph;
+
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
@@ -8,6 +12,10 @@ public class PowerModule extends BlockModule{
     public float amount;
     public float capacity = 10f;
     public float voltage = 0.0001f;
+    /**Graph this module shares power with. Null until the graphs are next updated.*/
+    public PowerGraph graph;
+    /**Tiles this module is connected to in its graph, whichever side the connection comes from. Kept by the power graphs.*/
+    public final Array<Tile> connections = new Array<>(false, 4, Tile.class);
 
     public boolean acceptsPower(){
         return amount + 0.001f <= capacity;
@@ -109,10 +109,13 @@ public class KryoClient implements ClientProvider{
     }
 
     @Override
-    public byte[] decompressSnapshot(byte[] input, int size){
-        byte[] result = new byte[size];
-        decompressor.decompress(input, result);
-        return result;
+    public byte[] decompressSnapshot(byte[] input, int offset, int size, byte[] output){
+        if(output == null || output.length < size){
+            output = new byte[size];
+        }
+
+        decompressor.decompress(input, offset, output, 0, size);
+        return output;
     }
 
     @Override
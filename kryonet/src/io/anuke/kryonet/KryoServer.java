@@ -1,6 +1,5 @@
 package io.anuke.kryonet;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.utils.Array;
 import com.dosse.upnp.UPnP;
 import com.esotericsoftware.kryonet.Connection;
@@ -10,6 +9,8 @@ import com.esotericsoftware.kryonet.Listener.LagListener;
 import com.esotericsoftware.kryonet.Server;
 import com.esotericsoftware.kryonet.util.InputStreamSender;
 import io.anuke.mindustry.Vars;
+import io.anuke.mindustry.core.MessageQueue;
+import io.anuke.mindustry.core.MessageQueue.MessageHandler;
 import io.anuke.mindustry.net.*;
 import io.anuke.mindustry.net.Net.SendMode;
 import io.anuke.mindustry.net.Net.ServerProvider;
@@ -35,10 +36,18 @@ public class KryoServer implements ServerProvider {
     final CopyOnWriteArraySet<Integer> missing = new CopyOnWriteArraySet<>();
     final Array<KryoConnection> array = new Array<>();
     final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    /**Packets received by the network thread, waiting to be handled at the start of the next logic update.*/
+    final MessageQueue<Object> received = new MessageQueue<>(8192);
+    final MessageHandler<Object> receiver = this::handle;
     Thread serverThread;
 
     int lastconnection = 0;
 
+    /**Stream chunks are never smaller than this, so small streams still interleave with other messages.*/
+    static final int minChunkSize = 512;
+    /**Largest stream chunk that still fits in the 4096 byte object buffer of clients, with room for the chunk header.*/
+    static final int maxChunkSize = 4096 - 64;
+
     public KryoServer(){
         KryoCore.init();
 
@@ -65,7 +74,7 @@ public class KryoServer implements ServerProvider {
                 Log.info("&bRecieved connection: {0} / {1}. Kryonet ID: {2}", c.id, c.addressTCP, connection.getID());
 
                 connections.add(kn);
-                Gdx.app.postRunnable(() -> Net.handleServerReceived(kn.id, c));
+                received.post(kn.id, c);
             }
 
             @Override
@@ -79,10 +88,7 @@ public class KryoServer implements ServerProvider {
 
                 Log.info("&bLost connection: {0}", k.id);
 
-                Gdx.app.postRunnable(() -> {
-                    Net.handleServerReceived(k.id, c);
-                    connections.remove(k);
-                });
+                received.post(k.id, c);
             }
 
             @Override
@@ -90,13 +96,7 @@ public class KryoServer implements ServerProvider {
                 KryoConnection k = getByKryoID(connection.getID());
                 if(object instanceof FrameworkMessage || k == null) return;
 
-                Gdx.app.postRunnable(() -> {
-                    try{
-                        Net.handleServerReceived(k.id, object);
-                    }catch (Exception e){
-                        e.printStackTrace();
-                    }
-                });
+                received.post(k.id, object);
             }
         };
 
@@ -108,8 +108,20 @@ public class KryoServer implements ServerProvider {
     }
 
     @Override
-    public byte[] compressSnapshot(byte[] input){
-        return compressor.compress(input);
+    public void handleReceived(){
+        received.drain(receiver);
+    }
+
+    @Override
+    public ByteBuffer compressSnapshot(byte[] input, int length, ByteBuffer output){
+        int max = compressor.maxCompressedLength(length);
+        if(output == null || output.capacity() < max){
+            output = ByteBuffer.allocate(max);
+        }
+
+        output.clear();
+        output.limit(compressor.compress(input, 0, length, output.array(), 0, max));
+        return output;
     }
 
     @Override
@@ -182,7 +194,7 @@ public class KryoServer implements ServerProvider {
 
             if (connection.connection != null) {
 
-                connection.connection.addListener(new InputStreamSender(stream.stream, 512) {
+                connection.connection.addListener(new InputStreamSender(stream.stream, chunkSize(stream.stream.available())) {
                     int id;
 
                     protected void start() {
@@ -208,9 +220,10 @@ public class KryoServer implements ServerProvider {
                 begin.type = Registrator.getID(stream.getClass());
                 connection.send(begin, SendMode.tcp);
                 cid = begin.id;
+                int size = chunkSize(begin.total);
 
                 while (stream.stream.available() > 0) {
-                    byte[] bytes = new byte[Math.min(512, stream.stream.available())];
+                    byte[] bytes = new byte[Math.min(size, stream.stream.available())];
                     stream.stream.read(bytes);
 
                     StreamChunk chunk = new StreamChunk();
@@ -224,6 +237,11 @@ public class KryoServer implements ServerProvider {
         }
     }
 
+    /**Returns the chunk size for a stream of the given length. Large streams use large chunks, so they take fewer messages.*/
+    static int chunkSize(int total){
+        return Math.max(minChunkSize, Math.min(maxChunkSize, total / 16));
+    }
+
     @Override
     public void send(Object object, SendMode mode) {
         for(int i = 0; i < connections.size(); i ++){
@@ -272,6 +290,20 @@ public class KryoServer implements ServerProvider {
         return null;
     }
 
+    void handle(int id, Object object){
+        try{
+            Net.handleServerReceived(id, object);
+        }catch (Exception e){
+            e.printStackTrace();
+        }
+
+        //connections are only removed once their disconnect has been handled
+        if(object instanceof Disconnect){
+            KryoConnection k = getByID(id);
+            if(k != null) connections.remove(k);
+        }
+    }
+
     void async(Runnable run){
         Thread thread = new Thread(run);
         thread.setDaemon(true);
@@ -291,6 +323,11 @@ public class KryoServer implements ServerProvider {
             return connection.isConnected();
         }
 
+        @Override
+        public int getPendingBytes(){
+            return connection.getTcpWriteBufferSize();
+        }
+
         @Override
         public void send(Object object, SendMode mode){
             try {
@@ -0,0 +1,97 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.ucore.util.Log;
+import io.anuke.ucore.util.Strings;
+
+/**
+ * Base class of the benchmarks that are run from the server console. {@link ServerControl} registers one command for
+ * each of them, checks that the server is in the state the benchmark needs, and parses its arguments, which are all
+ * whole numbers with a default and a minimum. Benchmarks only build what they run on and time it. Checks, which build a
+ * case that used to go wrong and report whether it still does, are run the same way.
+ */
+public abstract class Benchmark{
+    public final String name, description;
+    public final Requires requires;
+    private final Array<String> params = new Array<>();
+    private final IntArray defaults = new IntArray(), minimums = new IntArray();
+
+    protected Benchmark(String name, Requires requires, String description){
+        this.name = name;
+        this.requires = requires;
+        this.description = description;
+    }
+
+    /**Runs the benchmark with parsed arguments, one for every parameter, in the order they were added.*/
+    public abstract void run(int[] args);
+
+    /**Adds a parameter with a default value, and the lowest value it can be set to.*/
+    protected void param(String name, int defaultValue, int minimum){
+        params.add(name);
+        defaults.add(defaultValue);
+        minimums.add(minimum);
+    }
+
+    /**Returns the parameters in the form used by command help, e.g. "[bullets] [ticks]".*/
+    public String params(){
+        StringBuilder builder = new StringBuilder();
+        for(String param : params){
+            if(builder.length() > 0) builder.append(' ');
+            builder.append('[').append(param).append(']');
+        }
+        return builder.toString();
+    }
+
+    /**Parses the arguments of a command. Returns null after logging an error if any of them is invalid.*/
+    public int[] parse(String[] args){
+        int[] values = new int[params.size];
+
+        for(int i = 0; i < values.length; i++){
+            if(i >= args.length){
+                values[i] = defaults.get(i);
+            }else if(!Strings.canParseInt(args[i]) || Integer.parseInt(args[i]) < minimums.get(i)){
+                Log.err("'{0}' must be a number, at least {1}.", params.get(i), minimums.get(i));
+                return null;
+            }else{
+                values[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Returns the nanoseconds one run of a task takes. The task is run once before it is timed, so that every way of
+     * doing the same work is timed after it has been compiled; tasks must leave things as they found them.
+     */
+    protected static long time(Runnable task){
+        task.run();
+
+        long start = TimeUtils.nanoTime();
+        task.run();
+        return TimeUtils.timeSinceNanos(start);
+    }
+
+    /**Like {@link #time(Runnable)}, for tasks that only time part of what they do, and return that time themselves.*/
+    protected static long measure(Timed task){
+        task.run();
+        return task.run();
+    }
+
+    protected interface Timed{
+        /**Runs the task, returning the nanoseconds spent in the part of it that is timed.*/
+        long run();
+    }
+
+    /**What has to be loaded for a benchmark to run.*/
+    public enum Requires{
+        /**Nothing; the benchmark makes everything it uses.*/
+        nothing,
+        /**A hosted game, which the benchmark only reads, or adds entities of its own to.*/
+        game,
+        /**No hosted game, as the benchmark loads a map of its own with {@link BenchmarkWorld}.*/
+        noGame
+    }
+}
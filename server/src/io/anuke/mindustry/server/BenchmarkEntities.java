@@ -0,0 +1,138 @@
+package io.anuke.mindustry.server;
+
+import io.anuke.mindustry.content.UnitTypes;
+import io.anuke.mindustry.content.bullets.StandardBullets;
+import io.anuke.mindustry.entities.bullet.Bullet;
+import io.anuke.mindustry.entities.bullet.BulletType;
+import io.anuke.mindustry.entities.units.types.Dagger;
+import io.anuke.mindustry.game.Team;
+import io.anuke.ucore.entities.Entities;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.entities.EntityPhysics;
+import io.anuke.ucore.entities.trait.SolidTrait;
+import io.anuke.ucore.util.Mathf;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Bullets and units for benchmarks, which are not part of the game. They are kept in groups of their own, which are
+ * empty outside of benchmarks, so snapshots and saves skip them. When updated, they only move in a straight line and wrap
+ * around the edges of the map: bullets never hit blocks or expire, and collisions are only counted, without damaging anything.
+ * Everything that is added is removed again by {@link #clear()}.
+ */
+class BenchmarkEntities{
+    /**Groups are registered once and shared by every benchmark, as registered groups can not be removed.*/
+    private static EntityGroup<BenchmarkBullet> sharedBullets;
+    private static EntityGroup<BenchmarkUnit> sharedUnits;
+
+    final EntityGroup<BenchmarkBullet> bullets;
+    final EntityGroup<BenchmarkUnit> units;
+    /**Collisions that bullets have been told about since the last reset.*/
+    long hits;
+
+    BenchmarkEntities(){
+        if(sharedBullets == null){
+            sharedBullets = Entities.addGroup(BenchmarkBullet.class);
+            sharedUnits = Entities.addGroup(BenchmarkUnit.class);
+        }
+
+        bullets = sharedBullets;
+        units = sharedUnits;
+
+        //groups registered after the world was loaded have not been sized to it yet
+        EntityPhysics.resizeTree(0, 0, world.width() * tilesize, world.height() * tilesize);
+    }
+
+    /**Adds bullets of a team at random positions and angles, until there are the given amount.*/
+    void addBullets(int amount, Team team){
+        for(int i = bullets.size(); i < amount; i++){
+            bullets.add(new BenchmarkBullet(StandardBullets.copper, team, randomX(), randomY(), Mathf.random(360f)));
+        }
+        bullets.updateEvents();
+    }
+
+    /**Adds ground units of a team at random positions, moving in random directions, until there are the given amount.*/
+    void addUnits(int amount, Team team){
+        for(int i = units.size(); i < amount; i++){
+            BenchmarkUnit unit = new BenchmarkUnit();
+            unit.init(UnitTypes.dagger, team);
+            unit.set(randomX(), randomY());
+            unit.getVelocity().set(0, UnitTypes.dagger.speed).setAngle(Mathf.random(360f));
+            units.add(unit);
+        }
+        units.updateEvents();
+    }
+
+    /**Moves every bullet and unit by one tick, through the same group update that the game uses.*/
+    void update(){
+        Entities.update(bullets);
+        Entities.update(units);
+    }
+
+    void clear(){
+        bullets.clear();
+        units.clear();
+        hits = 0;
+    }
+
+    private static float randomX(){
+        return Mathf.random(world.width() * tilesize);
+    }
+
+    private static float randomY(){
+        return Mathf.random(world.height() * tilesize);
+    }
+
+    /**Moves an entity along its velocity, wrapping it around the edges of the map without sweeping across it.*/
+    private static void move(SolidTrait entity, float vx, float vy){
+        entity.lastPosition().set(entity.getX(), entity.getY(), entity.lastPosition().z);
+
+        float x = entity.getX() + vx, y = entity.getY() + vy;
+        float width = world.width() * tilesize, height = world.height() * tilesize;
+
+        if(x < 0 || y < 0 || x > width || y > height){
+            x = (x % width + width) % width;
+            y = (y % height + height) % height;
+            entity.lastPosition().set(x, y, entity.lastPosition().z);
+        }
+
+        entity.set(x, y);
+    }
+
+    class BenchmarkBullet extends Bullet{
+        BenchmarkBullet(BulletType type, Team team, float x, float y, float angle){
+            this.type = type;
+            resetOwner(null, team);
+            velocity.set(0, type.speed).setAngle(angle);
+            hitbox.setSize(type.hitsize);
+            set(x, y);
+            lastPosition().set(x, y, angle);
+        }
+
+        @Override
+        public void update(){
+            move(this, velocity.x, velocity.y);
+        }
+
+        @Override
+        public void collision(SolidTrait other, float x, float y){
+            hits++;
+        }
+
+        @Override
+        public void removed(){
+            //these were never obtained from the bullet pool, so they must not be freed into it
+        }
+    }
+
+    static class BenchmarkUnit extends Dagger{
+        @Override
+        public void update(){
+            move(this, getVelocity().x, getVelocity().y);
+        }
+
+        @Override
+        public void collision(SolidTrait other, float x, float y){
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.ObjectMap;
+import io.anuke.mindustry.content.blocks.Blocks;
+import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.maps.Map;
+import io.anuke.mindustry.maps.MapMeta;
+import io.anuke.mindustry.world.Block;
+import io.anuke.mindustry.world.Tile;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Generated maps for benchmarks that need blocks of their own. A map is loaded the way sectors are, so blocks get their
+ * entities, proximity and indexes just like in a game, but it is never played: the server stays in the menu, where no
+ * logic runs, so benchmarks can update blocks themselves without anything else changing them.
+ * Only used by benchmarks that require {@link Benchmark.Requires#noGame}.
+ */
+class BenchmarkWorld{
+
+    /**Loads an empty stone map of the given size, placing blocks with the generator while it is loaded.*/
+    static void load(int width, int height, Generator generator){
+        logic.reset();
+        world.beginMapLoad();
+
+        Tile[][] tiles = world.createTiles(width, height);
+        for(int x = 0; x < width; x++){
+            for(int y = 0; y < height; y++){
+                tiles[x][y] = new Tile(x, y, Blocks.stone.id, Blocks.air.id);
+            }
+        }
+
+        world.setMap(new Map("Benchmark", new MapMeta(0, new ObjectMap<>(), width, height, null), true, () -> null));
+
+        generator.generate();
+
+        world.endMapLoad();
+    }
+
+    /**Places a block while a map is loaded, returning the tile it was placed on.*/
+    static Tile place(int x, int y, Block block, Team team){
+        Tile tile = world.rawTile(x, y);
+        world.setBlock(tile, block, team);
+        return tile;
+    }
+
+    /**Removes every block and entity of the generated map, leaving the server as it was before it was loaded.*/
+    static void unload(){
+        logic.reset();
+    }
+
+    interface Generator{
+        /**Places the blocks of the map, with {@link BenchmarkWorld#place(int, int, Block, Team)}.*/
+        void generate();
+    }
+}
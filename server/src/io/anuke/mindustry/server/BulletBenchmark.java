@@ -0,0 +1,78 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.entities.Unit;
+import io.anuke.mindustry.entities.bullet.Bullet;
+import io.anuke.mindustry.entities.bullet.BulletGrid;
+import io.anuke.ucore.entities.EntityPhysics;
+import io.anuke.ucore.util.Log;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Compares colliding bullets with units through {@link EntityPhysics#collideGroups}, which is how bullets used to collide,
+ * against {@link BulletGrid}. Both run on the same {@link BenchmarkEntities} every tick: bullets of the default team and
+ * units of the wave team, which are not part of the game. Collisions are only counted, so nothing is damaged, and the
+ * game's own bullets and units are not touched.
+ */
+public class BulletBenchmark extends Benchmark{
+    private final CountingGrid grid = new CountingGrid();
+    private long gridHits;
+
+    public BulletBenchmark(){
+        super("bulletbench", Requires.game, "Benchmark colliding bullets with units, using bullets and units that are not part of the game.");
+        param("bullets", 10000, 1);
+        param("units", 200, 1);
+        param("ticks", 500, 1);
+    }
+
+    /**Runs both methods with the given amount of bullets and units, for the given amount of ticks.*/
+    @Override
+    public void run(int[] args){
+        int bullets = args[0], units = args[1], ticks = args[2];
+        BenchmarkEntities entities = new BenchmarkEntities();
+
+        try{
+            entities.addBullets(bullets, defaultTeam);
+            entities.addUnits(units, waveTeam);
+
+            //both methods run on the same ticks, so they are warmed up together
+            run(entities, Math.max(ticks / 4, 1));
+            entities.hits = gridHits = 0;
+
+            long[] result = run(entities, ticks);
+
+            Log.info("&ly{0} bullets, {1} units, {2} ticks", bullets, units, ticks);
+            Log.info("&lccollideGroups: &ly{0} us/tick, {1} collisions", result[0] / 1000f / ticks, entities.hits);
+            Log.info("&lcbullet grid:   &ly{0} us/tick, {1} collisions", result[1] / 1000f / ticks, gridHits);
+        }finally{
+            entities.clear();
+        }
+    }
+
+    /**Returns the time spent colliding through the physics tree, and through the grid, on the same ticks.*/
+    private long[] run(BenchmarkEntities entities, int ticks){
+        long physics = 0, shared = 0;
+
+        for(int t = 0; t < ticks; t++){
+            entities.update();
+
+            long start = TimeUtils.nanoTime();
+            EntityPhysics.collideGroups(entities.bullets, entities.units);
+            physics += TimeUtils.timeSinceNanos(start);
+
+            start = TimeUtils.nanoTime();
+            grid.collide(entities.bullets, entities.units);
+            shared += TimeUtils.timeSinceNanos(start);
+        }
+
+        return new long[]{physics, shared};
+    }
+
+    private class CountingGrid extends BulletGrid{
+        @Override
+        protected void hit(Bullet bullet, Unit unit, float x, float y){
+            gridHits++;
+        }
+    }
+}
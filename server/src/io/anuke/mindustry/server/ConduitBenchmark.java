@@ -0,0 +1,100 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.content.Liquids;
+import io.anuke.mindustry.content.blocks.LiquidBlocks;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.blocks.distribution.Conduit.ConduitEntity;
+import io.anuke.mindustry.world.blocks.distribution.Conduit.ConduitSegment;
+import io.anuke.ucore.util.Log;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Compares moving liquid through conduits one conduit at a time, through tryMoveLiquid, which is how every conduit used
+ * to update, against moving it through each whole {@link ConduitSegment} at once. Both run on a generated map of
+ * straight lines of conduits, with water in the first half of every line. Only the moves between conduits of a segment
+ * are timed; liquid never leaves a segment, and the water is put back after every run.
+ */
+public class ConduitBenchmark extends Benchmark{
+    private final Array<ConduitSegment> segments = new Array<>();
+    private final Array<ConduitEntity> conduits = new Array<>();
+
+    public ConduitBenchmark(){
+        super("conduitbench", Requires.noGame, "Benchmark moving liquid through conduits one at a time and as segments, on a map of conduit lines.");
+        param("lines", 100, 1);
+        param("length", 50, 2);
+        param("ticks", 1000, 1);
+    }
+
+    /**Generates the given amount of lines of conduits, and runs both ways of moving liquid for the given amount of ticks.*/
+    @Override
+    public void run(int[] args){
+        int lines = args[0], length = args[1], ticks = args[2];
+
+        //lines are a row apart and flow to the right, towards the empty column at the edge of the map
+        BenchmarkWorld.load(length + 1, lines * 2, () -> {
+            for(int y = 0; y < lines * 2; y += 2){
+                for(int x = 0; x < length; x++){
+                    conduits.add(BenchmarkWorld.place(x, y, LiquidBlocks.conduit, defaultTeam).entity());
+                }
+            }
+        });
+
+        try{
+            //conduits find their segment when updated; as they are empty, nothing flows yet
+            for(int i = 0; i < conduits.size; i++){
+                conduits.get(i).update();
+            }
+
+            for(int i = length - 1; i < conduits.size; i += length){
+                segments.add(conduits.get(i).segment());
+            }
+
+            long single = measure(() -> run(ticks, false));
+            long segmented = measure(() -> run(ticks, true));
+            long moves = (long) conduits.size * ticks;
+
+            Log.info("&ly{0} segments, {1} conduits, {2} ticks", segments.size, conduits.size, ticks);
+            Log.info("&lcper conduit: &ly{0} ns/conduit", single / (float) moves);
+            Log.info("&lcper segment: &ly{0} ns/conduit, {1}x faster", segmented / (float) moves, single / (float) Math.max(segmented, 1));
+        }finally{
+            segments.clear();
+            conduits.clear();
+            BenchmarkWorld.unload();
+        }
+    }
+
+    /**Fills the first half of every line with water, moves liquid for the given amount of ticks and returns the time it took.*/
+    private long run(int ticks, boolean segmented){
+        for(int s = 0; s < segments.size; s++){
+            ConduitSegment segment = segments.get(s);
+            for(int i = 0; i < segment.size(); i++){
+                ConduitEntity entity = segment.get(i);
+                //segments are ordered from the end, so the last half of them is the start of the line
+                entity.liquids.reset(Liquids.water, i >= segment.size() / 2 ? entity.tile.block().liquidCapacity : 0f);
+            }
+        }
+
+        long start = TimeUtils.nanoTime();
+
+        for(int t = 0; t < ticks; t++){
+            for(int s = 0; s < segments.size; s++){
+                ConduitSegment segment = segments.get(s);
+
+                if(segmented){
+                    segment.flow();
+                }else{
+                    //the end of the segment is skipped, as it moves liquid out of the segment either way
+                    for(int i = 1; i < segment.size(); i++){
+                        Tile tile = segment.get(i).tile;
+                        tile.block().tryMoveLiquid(tile, tile.getNearby(tile.getRotation()), true, tile.entity.liquids.current());
+                    }
+                }
+            }
+        }
+
+        return TimeUtils.timeSinceNanos(start);
+    }
+}
@@ -0,0 +1,90 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.Array;
+import io.anuke.mindustry.content.Items;
+import io.anuke.mindustry.content.blocks.DebugBlocks;
+import io.anuke.mindustry.content.blocks.DistributionBlocks;
+import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.util.Log;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Checks that conveyors keep moving items after the end of their line is replaced. A line of conveyors is filled with
+ * items, which clog up at its end, and is updated until the conveyors behind the end fall asleep. The end is then
+ * removed, an item void is placed where it was, and the line is updated until every item has left it.
+ * Conveyors that stay asleep after their line changed would keep their items forever.
+ */
+public class ConveyorCheck extends Benchmark{
+    private final Array<Tile> line = new Array<>();
+
+    public ConveyorCheck(){
+        super("conveyorcheck", Requires.noGame, "Check that items keep moving on a conveyor line after its end is replaced.");
+        param("length", 20, 2);
+        param("ticks", 10000, 1);
+    }
+
+    /**Runs the check on a line of the given length, failing if items are left on it after the given amount of ticks.*/
+    @Override
+    public void run(int[] args){
+        int length = args[0], ticks = args[1];
+
+        BenchmarkWorld.load(length, 3, () -> {
+            for(int x = 0; x < length; x++){
+                line.add(BenchmarkWorld.place(x, 1, DistributionBlocks.conveyor, defaultTeam));
+            }
+        });
+
+        try{
+            for(Tile tile : line){
+                tile.block().handleStack(Items.copper, 1, tile, null);
+            }
+
+            update((int) (TileEntity.timeToSleep * 2));
+
+            int asleep = 0;
+            for(Tile tile : line){
+                if(tile.entity.isSleeping()) asleep++;
+            }
+
+            Tile end = line.pop();
+            int items = count() + end.entity.items.total();
+
+            world.removeBlock(end);
+            world.setBlock(end, DebugBlocks.itemVoid, defaultTeam);
+
+            int updated = 0;
+            while(updated < ticks && count() > 0){
+                update(1);
+                updated++;
+            }
+
+            if(count() == 0){
+                Log.info("&lcAll &ly{0}&lc items left the line after &ly{1}&lc ticks. {2} conveyors were asleep when its end was replaced.",
+                    items, updated, asleep);
+            }else{
+                Log.err("{0} of {1} items are still on the line after {2} ticks. {3} conveyors were asleep when its end was replaced.",
+                    count(), items, ticks, asleep);
+            }
+        }finally{
+            line.clear();
+            BenchmarkWorld.unload();
+        }
+    }
+
+    private void update(int ticks){
+        for(int i = 0; i < ticks; i++){
+            logic.tiles.update();
+        }
+    }
+
+    /**Returns the amount of items on the conveyors that are left of the line.*/
+    private int count(){
+        int total = 0;
+        for(Tile tile : line){
+            total += tile.entity.items.total();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,102 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.content.Items;
+import io.anuke.mindustry.content.blocks.CraftingBlocks;
+import io.anuke.mindustry.content.blocks.DistributionBlocks;
+import io.anuke.mindustry.type.Item;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.util.Log;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Times {@link io.anuke.mindustry.world.BaseBlock#tryDump(Tile, Item)} on a generated map of smelters, each holding
+ * the items it uses and makes, with a router on every side. Three of the routers are on the smelter's team; the fourth is
+ * on the wave team, so it is not a dump target. Only the calls to tryDump are timed: after every pass, the routers are
+ * emptied and the smelters refilled, so every call moves one item.
+ */
+public class DumpBenchmark extends Benchmark{
+    private final Array<Tile> smelters = new Array<>(), routers = new Array<>();
+    private int moved;
+
+    public DumpBenchmark(){
+        super("dumpbench", Requires.noGame, "Benchmark blocks dumping items into the blocks next to them, on a map of smelters and routers.");
+        param("smelters", 1000, 1);
+        param("passes", 1000, 1);
+    }
+
+    /**Dumps from every smelter the given amount of times, first only the item it makes, then any item it has.*/
+    @Override
+    public void run(int[] args){
+        int amount = args[0], passes = args[1];
+        int side = (int) Math.ceil(Math.sqrt(amount));
+
+        //smelters are 4 tiles apart, so routers of different smelters never touch
+        BenchmarkWorld.load(side * 4, side * 4, () -> {
+            for(int i = 0; i < amount; i++){
+                int x = (i % side) * 4 + 1, y = (i / side) * 4 + 1;
+
+                smelters.add(BenchmarkWorld.place(x, y, CraftingBlocks.smelter, defaultTeam));
+                routers.add(BenchmarkWorld.place(x + 1, y, DistributionBlocks.router, defaultTeam));
+                routers.add(BenchmarkWorld.place(x, y + 1, DistributionBlocks.router, defaultTeam));
+                routers.add(BenchmarkWorld.place(x, y - 1, DistributionBlocks.router, defaultTeam));
+                routers.add(BenchmarkWorld.place(x - 1, y, DistributionBlocks.router, waveTeam));
+            }
+        });
+
+        try{
+            refill();
+
+            long output = measure(() -> run(passes, Items.densealloy));
+            int outputMoved = moved;
+            long any = measure(() -> run(passes, null));
+            long calls = (long) amount * passes;
+
+            Log.info("&ly{0} smelters, {1} passes", amount, passes);
+            Log.info("&lcoutput item: &ly{0} ns/dump, {1} items moved", output / (float) calls, outputMoved);
+            Log.info("&lcany item:    &ly{0} ns/dump, {1} items moved", any / (float) calls, moved);
+        }finally{
+            smelters.clear();
+            routers.clear();
+            BenchmarkWorld.unload();
+        }
+    }
+
+    /**Dumps from every smelter, returning the time spent in tryDump. A null item dumps any item.*/
+    private long run(int passes, Item item){
+        long time = 0;
+        moved = 0;
+
+        for(int pass = 0; pass < passes; pass++){
+            long start = TimeUtils.nanoTime();
+            for(int i = 0; i < smelters.size; i++){
+                Tile tile = smelters.get(i);
+                if(item == null ? tile.block().tryDump(tile) : tile.block().tryDump(tile, item)) moved++;
+            }
+            time += TimeUtils.timeSinceNanos(start);
+
+            refill();
+        }
+
+        return time;
+    }
+
+    private void refill(){
+        for(int i = 0; i < routers.size; i++){
+            Tile tile = routers.get(i);
+            for(int id = tile.entity.items.nextItem(0); id != -1; id = tile.entity.items.nextItem(id + 1)){
+                //removing the stack through the router also clears the item it is holding
+                tile.block().removeStack(tile, content.item(id), tile.entity.items.get(content.item(id)));
+            }
+        }
+
+        for(int i = 0; i < smelters.size; i++){
+            Tile tile = smelters.get(i);
+            tile.entity.items.set(Items.copper, 1);
+            tile.entity.items.set(Items.lead, 2);
+            tile.entity.items.set(Items.densealloy, 5);
+        }
+    }
+}
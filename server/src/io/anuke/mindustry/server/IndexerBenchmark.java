@@ -0,0 +1,124 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import io.anuke.mindustry.ai.TileGrid;
+import io.anuke.mindustry.content.blocks.Blocks;
+import io.anuke.mindustry.content.blocks.DefenseBlocks;
+import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.function.Predicate;
+import io.anuke.ucore.util.Log;
+import io.anuke.ucore.util.Mathf;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Compares finding the closest block of a team through the block indexer of the world, which keeps a {@link TileGrid}
+ * per team, against scanning every block of the team, which is how flagged blocks used to be found. Both run on a
+ * generated map with walls of one team in random places, and answer the same queries from random positions, once within
+ * turret range and once at any range. Queries against a team with no blocks, which units run every tick, are timed as well.
+ */
+public class IndexerBenchmark extends Benchmark{
+    private static final float range = tilesize * 30;
+    private static final Predicate<Tile> anyTile = tile -> true;
+
+    private final Array<Tile> tiles = new Array<>();
+    private float[] points;
+    /**Closest block to each point found by the last scan, which the indexer is checked against.*/
+    private Tile[] found;
+    private int mismatches;
+    /**Queries that found a block, so that they can not be skipped.*/
+    private long hits;
+
+    public IndexerBenchmark(){
+        super("indexbench", Requires.noGame, "Benchmark finding the closest block through the block indexer against scanning every block.");
+        param("queries", 100000, 1);
+        param("size", 300, 10);
+        param("blocks", 5000, 1);
+    }
+
+    /**Generates a square map of the given size with the given amount of walls, and runs the given amount of queries on it.*/
+    @Override
+    public void run(int[] args){
+        int queries = args[0], size = args[1], blocks = Math.min(args[2], size * size);
+        Team team = defaultTeam, empty = waveTeam;
+
+        BenchmarkWorld.load(size, size, () -> {
+            while(tiles.size < blocks){
+                Tile tile = world.rawTile(Mathf.random(size - 1), Mathf.random(size - 1));
+                if(tile.block() == Blocks.air){
+                    tiles.add(BenchmarkWorld.place(tile.x, tile.y, DefenseBlocks.copperWall, team));
+                }
+            }
+        });
+
+        try{
+            points = new float[queries * 2];
+            for(int i = 0; i < queries; i++){
+                points[i * 2] = Mathf.random(size * tilesize);
+                points[i * 2 + 1] = Mathf.random(size * tilesize);
+            }
+            found = new Tile[queries];
+            mismatches = 0;
+
+            long scanNear = time(() -> scan(range));
+            long gridNear = time(() -> query(team, range));
+            check(team, range);
+            long scanFar = time(() -> scan(Float.MAX_VALUE));
+            long gridFar = time(() -> query(team, Float.MAX_VALUE));
+            check(team, Float.MAX_VALUE);
+            long emptyFar = time(() -> query(empty, Float.MAX_VALUE));
+
+            Log.info("&ly{0} blocks on a {1}x{2} map, {3} queries", tiles.size, size, size, queries);
+            Log.info("&lcwithin {0} tiles: &lyscan {1} ns/query, indexer {2} ns/query", (int) (range / tilesize),
+                scanNear / (float) queries, gridNear / (float) queries);
+            Log.info("&lcany range: &lyscan {0} ns/query, indexer {1} ns/query", scanFar / (float) queries, gridFar / (float) queries);
+            Log.info("&lcteam with no blocks, any range: &ly{0} ns/query", emptyFar / (float) queries);
+            if(mismatches > 0){
+                Log.err("{0} queries found a different tile than the scan.", mismatches);
+            }
+        }finally{
+            tiles.clear();
+            points = null;
+            found = null;
+            BenchmarkWorld.unload();
+        }
+    }
+
+    /**Finds the closest block to every point by going through all of them.*/
+    private void scan(float range){
+        for(int i = 0; i < points.length; i += 2){
+            float x = points[i], y = points[i + 1];
+            Tile closest = null;
+            float cdist = 0f;
+
+            for(int j = 0; j < tiles.size; j++){
+                Tile tile = tiles.get(j);
+                float dst = Vector2.dst(x, y, tile.drawx(), tile.drawy());
+                if(dst < range && (closest == null || dst < cdist)){
+                    closest = tile;
+                    cdist = dst;
+                }
+            }
+
+            found[i / 2] = closest;
+        }
+    }
+
+    /**Finds the closest block of a team to every point through the block indexer.*/
+    private void query(Team team, float range){
+        for(int i = 0; i < points.length; i += 2){
+            if(world.indexer().findTile(team, points[i], points[i + 1], range, anyTile) != null) hits++;
+        }
+    }
+
+    /**Checks the indexer against the results of the scan that was run last, which used the same range.*/
+    private void check(Team team, float range){
+        for(int i = 0; i < points.length; i += 2){
+            TileEntity entity = world.indexer().findTile(team, points[i], points[i + 1], range, anyTile);
+            if((entity == null ? null : entity.tile) != found[i / 2]) mismatches++;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.entities.traits.SyncTrait;
+import io.anuke.mindustry.net.InterestGrid;
+import io.anuke.mindustry.net.Net.SendMode;
+import io.anuke.mindustry.net.NetConnection;
+import io.anuke.ucore.entities.Entities;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.entities.EntityPhysics;
+import io.anuke.ucore.entities.trait.Entity;
+import io.anuke.ucore.util.Angles;
+import io.anuke.ucore.util.Log;
+import io.anuke.ucore.util.Mathf;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Compares finding the entities each connection can see through the physics tree, one query per connection and entity group,
+ * which is how snapshots used to find them, against {@link InterestGrid}. Every viewport is the size of a typical screen,
+ * and drifts across the map. Bullets of {@link BenchmarkEntities} are added at random positions and move every tick,
+ * so that there are enough entities to find; the game's own entities are only read, and the bullets are removed at the end.
+ */
+public class InterestBenchmark extends Benchmark{
+    private static final float viewWidth = tilesize * 60, viewHeight = tilesize * 34;
+    /**Distance a viewport drifts each tick, in world units.*/
+    private static final float speed = 4f;
+
+    private final Rectangle viewport = new Rectangle();
+    private final Array<Entity> found = new Array<>();
+    private InterestGrid grid;
+    private BenchmarkEntities entities;
+    private NetConnection[] connections;
+    private float[] velocities;
+    private long physicsFound, gridFound;
+
+    public InterestBenchmark(){
+        super("interestbench", Requires.game, "Benchmark finding the entities that each player can see.");
+        param("viewports", 100, 1);
+        param("bullets", 5000, 0);
+        param("ticks", 300, 1);
+    }
+
+    /**Runs both methods with the given amount of viewports and bullets, for the given amount of ticks.*/
+    @Override
+    public void run(int[] args){
+        int viewports = args[0], bullets = args[1], ticks = args[2];
+        grid = new InterestGrid();
+        entities = new BenchmarkEntities();
+        physicsFound = gridFound = 0;
+
+        connections = new NetConnection[viewports];
+        velocities = new float[viewports * 2];
+        for(int i = 0; i < viewports; i++){
+            connections[i] = new NetConnection(-1 - i, "benchmark"){
+                @Override
+                public void send(Object object, SendMode mode){
+                }
+
+                @Override
+                public void close(){
+                }
+            };
+            connections[i].viewX = Mathf.random(world.width() * tilesize);
+            connections[i].viewY = Mathf.random(world.height() * tilesize);
+            connections[i].viewWidth = viewWidth;
+            connections[i].viewHeight = viewHeight;
+
+            float angle = Mathf.random(360f);
+            velocities[i * 2] = Angles.trnsx(angle, speed);
+            velocities[i * 2 + 1] = Angles.trnsy(angle, speed);
+        }
+
+        long physics, shared;
+
+        try{
+            entities.addBullets(bullets, defaultTeam);
+
+            physics = measure(() -> run(ticks, false));
+            shared = measure(() -> run(ticks, true));
+            //counts are for the timed runs only
+            physicsFound /= 2;
+            gridFound /= 2;
+        }finally{
+            entities.clear();
+        }
+
+        Log.info("&ly{0} viewports, {1} bullets, {2} ticks", viewports, bullets, ticks);
+        Log.info("&lcphysics tree:  &ly{0} us/tick, {1} entities found", physics / 1000f / ticks, physicsFound);
+        Log.info("&lcinterest grid: &ly{0} us/tick, {1} entities found, {2} cell moves, {3} cells entered, {4} left",
+            shared / 1000f / ticks, gridFound, grid.getMoves(), grid.getEntered(), grid.getLeft());
+    }
+
+    /**Returns the time spent finding the entities every viewport can see.*/
+    private long run(int ticks, boolean useGrid){
+        long time = 0;
+
+        for(int t = 0; t < ticks; t++){
+            entities.update();
+            move();
+
+            long start = TimeUtils.nanoTime();
+            if(useGrid){
+                grid.nextFrame();
+            }
+
+            for(NetConnection connection : connections){
+                viewport.setSize(connection.viewWidth, connection.viewHeight).setCenter(connection.viewX, connection.viewY);
+                if(useGrid){
+                    grid.subscribe(connection);
+                }
+
+                for(EntityGroup<?> group : Entities.getAllGroups()){
+                    if(group.isEmpty() || !(group.all().get(0) instanceof SyncTrait)) continue;
+
+                    found.clear();
+                    if(useGrid){
+                        grid.query(connection, group.getID(), viewport, found);
+                        gridFound += found.size;
+                    }else{
+                        EntityPhysics.getNearby(group, viewport, entity -> {
+                            if(((SyncTrait) entity).isSyncing() && viewport.contains(entity.getX(), entity.getY())){
+                                found.add(entity);
+                            }
+                        });
+                        physicsFound += found.size;
+                    }
+                }
+            }
+            time += TimeUtils.timeSinceNanos(start);
+        }
+
+        return time;
+    }
+
+    /**Moves every viewport, turning it around at the edges of the map.*/
+    private void move(){
+        for(int i = 0; i < connections.length; i++){
+            NetConnection connection = connections[i];
+            connection.viewX += velocities[i * 2];
+            connection.viewY += velocities[i * 2 + 1];
+
+            if(connection.viewX < 0 || connection.viewX > world.width() * tilesize) velocities[i * 2] *= -1;
+            if(connection.viewY < 0 || connection.viewY > world.height() * tilesize) velocities[i * 2 + 1] *= -1;
+        }
+    }
+}
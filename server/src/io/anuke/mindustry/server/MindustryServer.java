@@ -12,6 +12,7 @@ import static io.anuke.mindustry.Vars.*;
 
 public class MindustryServer extends ModuleCore{
     private String[] args;
+    private TickScheduler scheduler;
 
     public MindustryServer(String[] args){
         this.args = args;
@@ -30,6 +31,13 @@ public class MindustryServer extends ModuleCore{
         module(logic = new Logic());
         module(world = new World());
         module(netServer = new NetServer());
-        module(new ServerControl(args));
+        scheduler = new TickScheduler(logic.metrics);
+
+        module(new ServerControl(args, scheduler));
+    }
+
+    @Override
+    public void render(){
+        scheduler.update(super::render);
     }
 }
@@ -0,0 +1,132 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.game.EventType.TileChangeEvent;
+import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.core.Events;
+import io.anuke.ucore.util.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Records streams of tile changes from a live game, and replays them against the pathfinder.
+ * Replays report how long each flow field repair takes, including propagation of the resulting frontier.
+ */
+public class PathfinderBenchmark{
+    /**Amount of ints stored per recorded change: position, block, team, rotation and link.*/
+    private static final int stride = 5;
+
+    private final IntArray changes = new IntArray();
+    private boolean recording;
+
+    public PathfinderBenchmark(){
+        Events.on(TileChangeEvent.class, event -> {
+            if(!recording) return;
+
+            Tile tile = event.tile;
+            changes.add(tile.packedPosition());
+            changes.add(tile.getBlockID());
+            changes.add(tile.getTeamID());
+            changes.add(tile.getRotation());
+            changes.add(tile.link);
+        });
+    }
+
+    public boolean isRecording(){
+        return recording;
+    }
+
+    public int recorded(){
+        return changes.size / stride;
+    }
+
+    public void startRecording(){
+        changes.clear();
+        recording = true;
+    }
+
+    public void stopRecording(){
+        recording = false;
+    }
+
+    public void save(FileHandle file) throws IOException{
+        try(DataOutputStream stream = new DataOutputStream(file.write(false))){
+            stream.writeUTF(world.getMap().name);
+            stream.writeInt(changes.size);
+            for(int i = 0; i < changes.size; i++){
+                stream.writeInt(changes.get(i));
+            }
+        }
+    }
+
+    /**Loads a recorded change stream. Returns the name of the map it was recorded on.*/
+    public String load(FileHandle file) throws IOException{
+        try(DataInputStream stream = new DataInputStream(file.read())){
+            String map = stream.readUTF();
+            int size = stream.readInt();
+            changes.clear();
+            changes.ensureCapacity(size);
+            for(int i = 0; i < size; i++){
+                changes.add(stream.readInt());
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Applies every recorded change to the current world and times the resulting repair.
+     * This modifies the map, so it should only be run on a freshly loaded copy of the recorded map.
+     */
+    public void replay(){
+        boolean wasRecording = recording;
+        recording = false;
+
+        LongArray times = new LongArray(recorded());
+
+        //make sure no leftover work from loading is counted
+        world.pathfinder().updateAll();
+
+        for(int i = 0; i < changes.size; i += stride){
+            Tile tile = world.tile(changes.get(i));
+            if(tile == null) continue;
+
+            tile.setBlock(content.block(changes.get(i + 1)), Team.all[changes.get(i + 2)]);
+            tile.setRotation((byte) changes.get(i + 3));
+            tile.link = (byte) changes.get(i + 4);
+
+            long start = TimeUtils.nanoTime();
+            world.pathfinder().updateTile(tile);
+            world.pathfinder().updateAll();
+            times.add(TimeUtils.timeSinceNanos(start));
+        }
+
+        recording = wasRecording;
+
+        if(times.size == 0){
+            Log.info("&lyNo changes replayed.");
+            return;
+        }
+
+        long total = 0, max = 0;
+        for(int i = 0; i < times.size; i++){
+            total += times.get(i);
+            max = Math.max(max, times.get(i));
+        }
+
+        times.sort();
+
+        Log.info("&lyReplayed &lc{0}&ly tile changes in &lc{1}&ly ms.", times.size, total / 1000000f);
+        Log.info("&ly  average repair: &lc{0}&ly us", total / times.size / 1000f);
+        Log.info("&ly  median repair: &lc{0}&ly us", times.get(times.size / 2) / 1000f);
+        Log.info("&ly  99th percentile: &lc{0}&ly us", times.get((int) (times.size * 0.99f)) / 1000f);
+        Log.info("&ly  max repair: &lc{0}&ly us", max / 1000f);
+    }
+}
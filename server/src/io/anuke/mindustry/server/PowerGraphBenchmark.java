@@ -0,0 +1,86 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.world.blocks.power.PowerGraph;
+import io.anuke.mindustry.world.blocks.power.PowerGraph.Role;
+import io.anuke.mindustry.world.modules.PowerModule;
+import io.anuke.ucore.util.Log;
+import io.anuke.ucore.util.Mathf;
+
+/**
+ * Builds a power graph out of separate nodes, the way graphs are merged when a map loads, and then times updates of it.
+ * One in ten nodes is a generator and one in ten is a battery; the rest are consumers. Nodes are not part of any tile,
+ * so this does not affect the world.
+ */
+public class PowerGraphBenchmark extends Benchmark{
+    private static final float generation = 1.8f, use = 0.2f;
+
+    public PowerGraphBenchmark(){
+        super("powerbench", Requires.nothing, "Benchmark building and updating a power graph.");
+        param("nodes", 2000, 2);
+        param("ticks", 10000, 1);
+    }
+
+    /**Runs the benchmark with the given amount of nodes, updating the graph the given amount of times.*/
+    @Override
+    public void run(int[] args){
+        int nodes = args[0], ticks = args[1];
+        PowerModule[] modules = new PowerModule[nodes];
+        Role[] roles = new Role[nodes];
+        PowerGraph[] graphs = new PowerGraph[nodes];
+
+        for(int i = 0; i < nodes; i++){
+            modules[i] = new PowerModule();
+            roles[i] = i % 10 == 0 ? Role.producer : i % 10 == 1 ? Role.battery : Role.consumer;
+            modules[i].capacity = roles[i] == Role.battery ? 320f : 40f;
+        }
+
+        //connect nodes in a random order, like links between them being read
+        int[] order = new int[nodes - 1];
+        for(int i = 0; i < order.length; i++){
+            order[i] = i + 1;
+        }
+        for(int i = order.length - 1; i > 0; i--){
+            int j = Mathf.random(i);
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+
+        long start = TimeUtils.nanoTime();
+
+        for(int i = 0; i < nodes; i++){
+            graphs[i] = new PowerGraph();
+            graphs[i].add(modules[i], roles[i]);
+        }
+
+        for(int node : order){
+            //link each node to a random earlier one, which makes a tree
+            PowerModule other = modules[Mathf.random(node - 1)];
+            modules[node].graph.merge(other.graph);
+        }
+
+        long build = TimeUtils.timeSinceNanos(start);
+        PowerGraph graph = modules[0].graph;
+        long update = time(() -> simulate(graph, modules, roles, ticks));
+
+        Log.info("&ly{0} nodes, {1} ticks", graph.size(), ticks);
+        Log.info("&lcbuild:  &ly{0} ms&lc, {1} ns/merge", build / 1000000f, build / (float) Math.max(order.length, 1));
+        Log.info("&lcupdate: &ly{0} ns/tick&lc, {1} ns/node, flow {2}", update / (float) ticks, update / (float) ticks / nodes, graph.getFlow());
+    }
+
+    private void simulate(PowerGraph graph, PowerModule[] modules, Role[] roles, int ticks){
+        for(int t = 0; t < ticks; t++){
+            for(int i = 0; i < modules.length; i++){
+                PowerModule module = modules[i];
+                if(roles[i] == Role.producer){
+                    module.amount = Math.min(module.amount + generation, module.capacity);
+                }else if(roles[i] == Role.consumer){
+                    module.amount = Math.max(module.amount - use, 0f);
+                }
+            }
+
+            graph.update();
+        }
+    }
+}
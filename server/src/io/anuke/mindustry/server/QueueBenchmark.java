@@ -0,0 +1,116 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.Queue;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.core.MessageQueue;
+import io.anuke.mindustry.core.MessageQueue.MessageHandler;
+import io.anuke.ucore.util.Log;
+
+/**
+ * Compares the {@link MessageQueue} against a synchronized queue of runnables, which is how packets used to be
+ * handed to the logic thread. Each run has several producer threads posting messages while the calling thread drains them.
+ */
+public class QueueBenchmark extends Benchmark{
+    private static final int[] producerCounts = {1, 8, 64};
+
+    private final Object packet = new Object();
+    /**Created once, as a method reference passed to every drain would be a new object each time.*/
+    private final MessageHandler<Object> consumer = this::consume;
+    private long sum;
+
+    public QueueBenchmark(){
+        super("queuebench", Requires.nothing, "Benchmark the packet queue against a synchronized queue.");
+        param("messages", 1000000, 64);
+    }
+
+    /**Runs every configuration, posting the given amount of messages in each.*/
+    @Override
+    public void run(int[] args){
+        int messages = args[0];
+        Log.info("Posting {0} messages per run...", messages);
+
+        runSynchronized(8, messages / 4);
+        runLockFree(8, messages / 4);
+
+        for(int producers : producerCounts){
+            float sync = runSynchronized(producers, messages);
+            float free = runLockFree(producers, messages);
+
+            Log.info("&ly{0} producers: &lcsynchronized {1} ns/msg&ly, &lclock-free {2} ns/msg", producers, sync, free);
+        }
+    }
+
+    /**Returns the time spent per message that was posted and handled.*/
+    private float runSynchronized(int producers, int messages){
+        Queue<Runnable> queue = new Queue<>();
+        int perProducer = messages / producers;
+        int total = perProducer * producers;
+
+        long start = TimeUtils.nanoTime();
+        startProducers(producers, id -> {
+            for(int i = 0; i < perProducer; i++){
+                Object object = packet;
+                Runnable r = () -> consume(id, object);
+                synchronized(queue){
+                    queue.addLast(r);
+                }
+            }
+        });
+
+        int handled = 0;
+        while(handled < total){
+            Runnable r = null;
+            synchronized(queue){
+                if(queue.size > 0){
+                    r = queue.removeFirst();
+                }
+            }
+
+            if(r != null){
+                r.run();
+                handled++;
+            }
+        }
+
+        return TimeUtils.timeSinceNanos(start) / (float) total;
+    }
+
+    /**Returns the time spent per message that was posted and handled.*/
+    private float runLockFree(int producers, int messages){
+        MessageQueue<Object> queue = new MessageQueue<>(8192);
+        int perProducer = messages / producers;
+        int total = perProducer * producers;
+
+        long start = TimeUtils.nanoTime();
+        startProducers(producers, id -> {
+            for(int i = 0; i < perProducer; i++){
+                queue.post(id, packet);
+            }
+        });
+
+        int handled = 0;
+        while(handled < total){
+            handled += queue.drain(consumer);
+        }
+
+        return TimeUtils.timeSinceNanos(start) / (float) total;
+    }
+
+    private void startProducers(int producers, Producer producer){
+        for(int i = 0; i < producers; i++){
+            int id = i;
+            Thread thread = new Thread(() -> producer.produce(id), "Queue Benchmark " + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void consume(int id, Object object){
+        //keep the handler from being optimized away
+        sum += id + object.hashCode();
+    }
+
+    interface Producer{
+        void produce(int id);
+    }
+}
@@ -0,0 +1,146 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.Array;
+import io.anuke.mindustry.net.Net;
+import io.anuke.mindustry.net.Net.SendMode;
+import io.anuke.mindustry.net.Net.ServerProvider;
+import io.anuke.mindustry.net.NetConnection;
+import io.anuke.mindustry.net.Packets.Disconnect;
+import io.anuke.mindustry.net.Streamable;
+import io.anuke.mindustry.server.SessionBenchmark.Record;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Server provider without a network, used to replay a recorded session.
+ * Each tick, it hands the packets that were recorded for that tick to {@link Net#handleServerReceived(int, Object)}.
+ * Connections are created and removed the same way as in the real server. Anything that is sent is counted and then dropped.
+ */
+public class ReplayServer implements ServerProvider{
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final Array<ReplayConnection> connections = new Array<>();
+    private final Array<Record> records;
+    private final byte[] data;
+    private int next;
+    private long tick, sent;
+
+    public ReplayServer(Array<Record> records, byte[] data){
+        this.records = records;
+        this.data = data;
+    }
+
+    /**Sets the tick that is about to run. Packets recorded on or before it are handled on the next update.*/
+    public void setTick(long tick){
+        this.tick = tick;
+    }
+
+    /**Returns how many objects and streams have been sent to connections.*/
+    public long getSent(){
+        return sent;
+    }
+
+    @Override
+    public void host(int port){
+    }
+
+    @Override
+    public void sendStream(int id, Streamable stream){
+        sent++;
+    }
+
+    @Override
+    public void send(Object object, SendMode mode){
+        sent += connections.size;
+    }
+
+    @Override
+    public void sendTo(int id, Object object, SendMode mode){
+        sent++;
+    }
+
+    @Override
+    public void sendExcept(int id, Object object, SendMode mode){
+        sent += Math.max(connections.size - 1, 0);
+    }
+
+    @Override
+    public void close(){
+        connections.clear();
+    }
+
+    @Override
+    public void handleReceived(){
+        while(next < records.size && records.get(next).tick <= tick){
+            Record record = records.get(next++);
+
+            if(record.isJoin()){
+                record.join(data);
+                continue;
+            }
+
+            Object packet = record.create(data);
+
+            if(record.isConnect()){
+                connections.add(new ReplayConnection(record.connection, record.address));
+            }
+
+            Net.handleServerReceived(record.connection, packet);
+
+            //connections are only removed once their disconnect has been handled
+            if(packet instanceof Disconnect){
+                NetConnection connection = getByID(record.connection);
+                if(connection != null) connections.removeValue((ReplayConnection) connection, true);
+            }
+        }
+    }
+
+    @Override
+    public ByteBuffer compressSnapshot(byte[] input, int length, ByteBuffer output){
+        int max = compressor.maxCompressedLength(length);
+        if(output == null || output.capacity() < max){
+            output = ByteBuffer.allocate(max);
+        }
+
+        output.clear();
+        output.limit(compressor.compress(input, 0, length, output.array(), 0, max));
+        return output;
+    }
+
+    @Override
+    public Array<ReplayConnection> getConnections(){
+        return connections;
+    }
+
+    @Override
+    public NetConnection getByID(int id){
+        for(int i = 0; i < connections.size; i++){
+            if(connections.get(i).id == id){
+                return connections.get(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void dispose(){
+        close();
+    }
+
+    class ReplayConnection extends NetConnection{
+
+        ReplayConnection(int id, String address){
+            super(id, address);
+        }
+
+        @Override
+        public void send(Object object, SendMode mode){
+            sent++;
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package io.anuke.mindustry.server;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectSet;
 import com.badlogic.gdx.utils.Timer;
 import com.badlogic.gdx.utils.Timer.Task;
 import io.anuke.mindustry.core.GameState.State;
+import io.anuke.mindustry.core.NetServer.SnapshotStats;
+import io.anuke.mindustry.core.TickMetrics;
+import io.anuke.mindustry.core.TickMetrics.Phase;
 import io.anuke.mindustry.entities.Player;
 import io.anuke.mindustry.game.Difficulty;
 import io.anuke.mindustry.game.EventType.GameOverEvent;
@@ -18,6 +23,7 @@ import io.anuke.mindustry.net.Administration.PlayerInfo;
 import io.anuke.mindustry.net.Net;
 import io.anuke.mindustry.net.Packets.KickReason;
 import io.anuke.mindustry.net.TraceInfo;
+import io.anuke.mindustry.server.Benchmark.Requires;
 import io.anuke.mindustry.type.Item;
 import io.anuke.mindustry.type.ItemType;
 import io.anuke.mindustry.world.Tile;
@@ -40,13 +46,24 @@ public class ServerControl extends Module{
     private static final int roundExtraTime = 12;
 
     private final CommandHandler handler = new CommandHandler("");
+    private final PathfinderBenchmark pathBenchmark = new PathfinderBenchmark();
+    private final Benchmark[] benchmarks = {
+        new QueueBenchmark(), new IndexerBenchmark(), new TileLockBenchmark(), new PowerGraphBenchmark(),
+        new ConduitBenchmark(), new DumpBenchmark(), new TargetingBenchmark(), new BulletBenchmark(),
+        new SnapshotBenchmark(), new InterestBenchmark(), new ConveyorCheck()
+    };
     private ShuffleMode mode;
     private int gameOvers;
     private boolean inExtraRound;
     private Team winnerTeam;
     private Task lastTask;
+    private final TickScheduler scheduler;
+    private final SessionBenchmark sessionBenchmark;
+
+    public ServerControl(String[] args, TickScheduler scheduler){
+        this.scheduler = scheduler;
+        this.sessionBenchmark = new SessionBenchmark(scheduler);
 
-    public ServerControl(String[] args){
         Settings.defaultList(
             "shufflemode", "normal",
             "bans", "",
@@ -54,19 +71,27 @@ public class ServerControl extends Module{
             "sector_x", 0,
             "sector_y", 1,
             "crashreport", false,
-            "port", port
+            "port", port,
+            "threadedpathing", false,
+            "phasedupdate", "off",
+            "deltasnapshots", false
         );
 
         mode = ShuffleMode.valueOf(Settings.getString("shufflemode"));
+        world.pathfinder().setThreaded(Settings.getBool("threadedpathing"));
+        setPhasedUpdate(Settings.getString("phasedupdate"));
+        netServer.deltaSnapshots = Settings.getBool("deltasnapshots");
 
-        Timers.setDeltaProvider(() -> Gdx.graphics.getDeltaTime() * 60f);
+        //every tick is exactly one fixed step; see TickScheduler
+        Timers.setDeltaProvider(() -> 1f);
         Effects.setScreenShakeProvider((a, b) -> {});
         Effects.setEffectProvider((a, b, c, d, e, f) -> {});
         Sounds.setHeadless(true);
 
         registerCommands();
 
-        Gdx.app.postRunnable(() -> {
+        //commands run on the same thread that handles packets, before the next logic update
+        threads.runDelay(() -> {
             String[] commands = {};
 
             if(args.length > 0){
@@ -158,6 +183,7 @@ public class ServerControl extends Module{
         handler.register("exit", "Exit the server application.", arg -> {
             info("Shutting down server.");
             Net.dispose();
+            netServer.admins.dispose();
             Gdx.app.exit();
         });
 
@@ -242,7 +268,21 @@ public class ServerControl extends Module{
             }
         });
 
-        handler.register("status", "Display server status.", arg -> {
+        handler.register("status", "[--ticks] [json/reset]", "Display server status, or tick timings with --ticks.", arg -> {
+            if(arg.length > 0){
+                if(!arg[0].equals("--ticks")){
+                    err("Unknown option '{0}'.", arg[0]);
+                }else if(arg.length > 1 && arg[1].equalsIgnoreCase("json")){
+                    print(logic.metrics.toJson());
+                }else if(arg.length > 1 && arg[1].equalsIgnoreCase("reset")){
+                    logic.metrics.reset();
+                    info("Tick metrics reset.");
+                }else{
+                    printTickMetrics();
+                }
+                return;
+            }
+
             if(state.is(State.menu)){
                 info("&lyStatus: &rserver closed");
             }else{
@@ -262,7 +302,11 @@ public class ServerControl extends Module{
                 }else{
                     info("&lyNo players connected.");
                 }
-                info("&lbFPS: {0}", (int) (60f / Timers.delta()));
+                info("&lbTPS: {0}", scheduler.getTPS());
+                info("&lbTile entities: {0} active, {1} sleeping &lb/&lc {2} sleeps, {3} wakeups",
+                    logic.tiles.getActive(), logic.tiles.getSleeping(), logic.tiles.getSleeps(), logic.tiles.getWakeups());
+                info("&lbPower graphs: {0}", logic.power.getGraphs());
+                info("&lbTargeting: {0} queries, {1} grid builds", logic.targeting.getQueries(), logic.targeting.getBuilds());
             }
         });
 
@@ -340,6 +384,55 @@ public class ServerControl extends Module{
            info("Strict mode is now {0}.", netServer.admins.getStrict() ? "on" : "off");
         });
 
+        handler.register("threadedpathing", "<on/off>", "Computes each team's pathfinding on its own worker thread.", arg -> {
+            boolean value = arg[0].equalsIgnoreCase("on");
+            world.pathfinder().setThreaded(value);
+            Settings.putBool("threadedpathing", value);
+            Settings.save();
+            info("Threaded pathfinding is now {0}.", value ? "on" : "off");
+        });
+
+        handler.register("phasedupdate", "<off/serial/parallel>", "Splits unit updates into a read phase and an apply phase, optionally running the read phase in parallel.", arg -> {
+            if(!setPhasedUpdate(arg[0])){
+                err("Unknown update mode '{0}'.", arg[0]);
+                return;
+            }
+
+            Settings.putString("phasedupdate", arg[0].toLowerCase());
+            Settings.save();
+            info("Phased update is now {0}, with {1} thread(s).", logic.isPhased() ? arg[0].toLowerCase() : "off", logic.readPhase().getThreads());
+        });
+
+        handler.register("deltasnapshots", "<on/off>", "Sends snapshots as deltas against the last one each client acknowledged. Off by default; compare with 'snapshots'.", arg -> {
+            boolean value = arg[0].equalsIgnoreCase("on");
+            netServer.deltaSnapshots = value;
+            Settings.putBool("deltasnapshots", value);
+            Settings.save();
+            info("Delta snapshots are now {0}.", value ? "on" : "off");
+        });
+
+        handler.register("snapshots", "[reset]", "Displays snapshot bandwidth statistics.", arg -> {
+            SnapshotStats stats = netServer.snapshotStats;
+
+            if(arg.length > 0 && arg[0].equalsIgnoreCase("reset")){
+                stats.reset();
+                info("Snapshot statistics reset.");
+                return;
+            }
+
+            if(stats.snapshots == 0){
+                info("No snapshots sent yet.");
+                return;
+            }
+
+            info("&lySnapshots sent: &lc{0}&ly, average compressed size: &lc{1}&ly bytes", stats.snapshots, stats.bytes / stats.snapshots);
+            info("&lyEntities written: &lc{0}&ly, &lc{1}&ly of &lc{2}&ly bytes ({3}%)", stats.entities, stats.writtenEntityBytes, stats.entityBytes,
+                stats.entityBytes == 0 ? 100 : (int) (stats.writtenEntityBytes * 100 / stats.entityBytes));
+            info("&lyEntity encodings: &lc{0}&ly written, &lc{1}&ly shared between clients", netServer.encodings.getEncoded(), netServer.encodings.getHits());
+            info("&lyInterest grid: &lc{0}&ly cell moves, &lc{1}&ly cells entered, &lc{2}&ly left", netServer.interest.getMoves(),
+                netServer.interest.getEntered(), netServer.interest.getLeft());
+        });
+
         handler.register("allow-custom-clients", "[on/off]", "Allow or disallow custom clients.", arg -> {
             if(arg.length == 0){
                 info("Custom clients are currently &lc{0}.", netServer.admins.allowsCustomClients() ? "allowed" : "disallowed");
@@ -430,7 +523,7 @@ public class ServerControl extends Module{
                 }
             }
 
-            Array<String> ipbans = netServer.admins.getBannedIPs();
+            ObjectSet<String> ipbans = netServer.admins.getBannedIPs();
 
             if(ipbans.size == 0){
                 Log.info("No IP-banned players have been found.");
@@ -597,8 +690,13 @@ public class ServerControl extends Module{
 
             threads.run(() -> {
                 int slot = Strings.parseInt(arg[0]);
-                SaveIO.saveToSlot(slot);
-                info("Saved to slot {0}.", slot);
+                SaveIO.saveToSlotAsync(slot, error -> {
+                    if(error != null){
+                        err("Failed to save to slot {0}: {1}", slot, error.getMessage());
+                    }else{
+                        info("Saved to slot {0}.", slot);
+                    }
+                });
             });
         });
 
@@ -644,6 +742,149 @@ public class ServerControl extends Module{
             Events.fire(new GameOverEvent());
         });
 
+        handler.register("pathbench", "<record/stop/replay> [file]", "Record tile changes, or replay them to benchmark pathfinding.", arg -> {
+            if(!state.is(State.playing)){
+                err("Not hosting. Host a game first.");
+                return;
+            }
+
+            FileHandle file = dataDirectory.child(arg.length > 1 ? arg[1] : "pathbench.dat");
+
+            if(arg[0].equalsIgnoreCase("record")){
+                pathBenchmark.startRecording();
+                info("Recording tile changes.");
+            }else if(arg[0].equalsIgnoreCase("stop")){
+                if(!pathBenchmark.isRecording()){
+                    err("Not recording.");
+                    return;
+                }
+
+                pathBenchmark.stopRecording();
+                try{
+                    pathBenchmark.save(file);
+                    info("Saved {0} tile changes to {1}.", pathBenchmark.recorded(), file.name());
+                }catch(IOException e){
+                    err("Failed to save tile changes: {0}", e.getMessage());
+                }
+            }else if(arg[0].equalsIgnoreCase("replay")){
+                if(!file.exists()){
+                    err("No recording found at {0}.", file.name());
+                    return;
+                }
+
+                try{
+                    String map = pathBenchmark.load(file);
+                    if(!map.equals(world.getMap().name)){
+                        err("Recording was made on map '{0}', but '{1}' is loaded.", map, world.getMap().name);
+                        return;
+                    }
+                    pathBenchmark.replay();
+                }catch(IOException e){
+                    err("Failed to load tile changes: {0}", e.getMessage());
+                }
+            }else{
+                err("Unknown action '{0}'.", arg[0]);
+            }
+        });
+
+        handler.register("replay", "<record/stop/run/compare> [file] [first] [second]", "Record every packet the server receives, replay a recording without a network to benchmark the server, or compare the state of two replays with different update modes every tick.", arg -> {
+            FileHandle file = dataDirectory.child(arg.length > 1 ? arg[1] : "session.dat");
+
+            if(arg[0].equalsIgnoreCase("record")){
+                if(!state.is(State.playing)){
+                    err("Not hosting. Host a game first.");
+                    return;
+                }else if(sessionBenchmark.isRecording()){
+                    err("Already recording.");
+                    return;
+                }
+
+                sessionBenchmark.startRecording();
+                info("Recording packets. {0} connected players will join on the first tick of the replay.", Net.getConnections().size);
+            }else if(arg[0].equalsIgnoreCase("stop")){
+                if(!sessionBenchmark.isRecording()){
+                    err("Not recording.");
+                    return;
+                }
+
+                sessionBenchmark.stopRecording();
+                try{
+                    sessionBenchmark.save(file);
+                    info("Saved {0} packets over {1} ticks to {2}.", sessionBenchmark.recorded(), sessionBenchmark.ticks(), file.name());
+                }catch(IOException e){
+                    err("Failed to save recording: {0}", e.getMessage());
+                }
+            }else if(arg[0].equalsIgnoreCase("run")){
+                if(!state.is(State.menu)){
+                    err("Already hosting. Type 'stop' to stop hosting first.");
+                    return;
+                }else if(!file.exists()){
+                    err("No recording found at {0}.", file.name());
+                    return;
+                }
+
+                try{
+                    sessionBenchmark.load(file);
+                }catch(IOException e){
+                    err("Failed to load recording: {0}", e.getMessage());
+                    return;
+                }
+
+                info("Replaying {0} packets over {1} ticks...", sessionBenchmark.recorded(), sessionBenchmark.ticks());
+                sessionBenchmark.replay();
+            }else if(arg[0].equalsIgnoreCase("compare")){
+                String first = arg.length > 2 ? arg[2] : "off", second = arg.length > 3 ? arg[3] : "parallel";
+                String previous = Settings.getString("phasedupdate");
+
+                if(!state.is(State.menu)){
+                    err("Already hosting. Type 'stop' to stop hosting first.");
+                    return;
+                }else if(!file.exists()){
+                    err("No recording found at {0}.", file.name());
+                    return;
+                }else if(threads.isEnabled() || world.pathfinder().isThreaded()){
+                    err("Replays can only be compared with multithreading and threaded pathing off.");
+                    return;
+                }else if(!setPhasedUpdate(first) || !setPhasedUpdate(second)){
+                    err("Update modes must be off, serial or parallel.");
+                    setPhasedUpdate(previous);
+                    return;
+                }
+
+                try{
+                    sessionBenchmark.load(file);
+                }catch(IOException e){
+                    err("Failed to load recording: {0}", e.getMessage());
+                    setPhasedUpdate(previous);
+                    return;
+                }
+
+                info("Comparing {0} and {1} over {2} ticks...", first, second, sessionBenchmark.ticks());
+                sessionBenchmark.compare(() -> setPhasedUpdate(first), () -> setPhasedUpdate(second));
+                setPhasedUpdate(previous);
+            }else{
+                err("Unknown action '{0}'.", arg[0]);
+            }
+        });
+
+        for(Benchmark benchmark : benchmarks){
+            handler.register(benchmark.name, benchmark.params(), benchmark.description, arg -> {
+                if(benchmark.requires == Requires.game && state.is(State.menu)){
+                    err("Not hosting. Host a game first.");
+                    return;
+                }else if(benchmark.requires == Requires.noGame && !state.is(State.menu)){
+                    err("This benchmark loads a map of its own. Type 'stop' to stop hosting first.");
+                    return;
+                }
+
+                int[] values = benchmark.parse(arg);
+                if(values != null){
+                    info("Running {0}...", benchmark.name);
+                    benchmark.run(values);
+                }
+            });
+        }
+
         handler.register("traceblock", "<x> <y>", "Prints debug info about a block", arg -> {
             try{
                 int x = Integer.parseInt(arg[0]);
@@ -779,12 +1020,40 @@ public class ServerControl extends Module{
         });
     }
 
+    private void printTickMetrics(){
+        TickMetrics metrics = logic.metrics;
+
+        info("&lyTicks: &lc{0}&ly run, &lc{1}&ly late, &lc{2}&ly skipped. &lyTPS: &lc{3}&ly, backlog: &lc{4}",
+            metrics.getTicks(), metrics.getLateTicks(), metrics.getSkippedTicks(), scheduler.getTPS(), scheduler.getBacklog());
+        info("&lyBudget per tick: &lc{0}&ly ms", TickScheduler.stepNanos / 1000000f);
+
+        for(Phase phase : Phase.all){
+            print("   &y{0}: &lmavg {1} ms / p50 {2} ms / p99 {3} ms / max {4} ms &lb({5} samples)",
+                phase.name(), Strings.toFixed(metrics.getAverageMillis(phase), 3),
+                Strings.toFixed(metrics.getPercentileMillis(phase, 0.5f), 3), Strings.toFixed(metrics.getPercentileMillis(phase, 0.99f), 3),
+                Strings.toFixed(metrics.getMaxMillis(phase), 3), metrics.getCount(phase));
+        }
+    }
+
+    private boolean setPhasedUpdate(String mode){
+        if(mode.equalsIgnoreCase("off")){
+            logic.setPhased(false, 1);
+        }else if(mode.equalsIgnoreCase("serial")){
+            logic.setPhased(true, 1);
+        }else if(mode.equalsIgnoreCase("parallel")){
+            logic.setPhased(true, Runtime.getRuntime().availableProcessors());
+        }else{
+            return false;
+        }
+        return true;
+    }
+
     private void readCommands(){
         Scanner scan = new Scanner(System.in);
         while(true){
             String line = scan.nextLine();
 
-            Gdx.app.postRunnable(() -> {
+            threads.runDelay(() -> {
                 Response response = handler.handleMessage(line);
 
                 if(response.type == ResponseType.unknownCommand){
@@ -59,6 +59,8 @@ public class ServerLauncher extends HeadlessApplication{
 
             HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
             config.preferencesDirectory = OS.getAppDataDirectoryString("Mindustry");
+            //ticks are paced by the TickScheduler instead
+            config.renderInterval = 0f;
 
             new ServerLauncher(new MindustryServer(args), config);
         }catch(Throwable t){
@@ -0,0 +1,575 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.core.GameState.State;
+import io.anuke.mindustry.core.NetServer;
+import io.anuke.mindustry.core.TickMetrics;
+import io.anuke.mindustry.core.TickMetrics.Phase;
+import io.anuke.mindustry.entities.Player;
+import io.anuke.mindustry.entities.TileEntity;
+import io.anuke.mindustry.entities.Unit;
+import io.anuke.mindustry.entities.bullet.Bullet;
+import io.anuke.mindustry.entities.traits.SaveTrait;
+import io.anuke.mindustry.entities.units.BaseUnit;
+import io.anuke.mindustry.game.Team;
+import io.anuke.mindustry.io.SaveIO;
+import io.anuke.mindustry.net.Net;
+import io.anuke.mindustry.net.Net.ServerProvider;
+import io.anuke.mindustry.net.NetConnection;
+import io.anuke.mindustry.net.Packet;
+import io.anuke.mindustry.net.Packets.Connect;
+import io.anuke.mindustry.net.Packets.ConnectPacket;
+import io.anuke.mindustry.net.Packets.Disconnect;
+import io.anuke.mindustry.net.Packets.InvokePacket;
+import io.anuke.mindustry.net.Registrator;
+import io.anuke.mindustry.type.ContentType;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.entities.EntityGroup;
+import io.anuke.ucore.util.Log;
+import io.anuke.ucore.util.Strings;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Records every packet the server receives during a live session, together with the state of the game when recording
+ * began, and replays them without a network as fast as possible. Players that are connected when recording begins are
+ * recorded as joining on its first tick, with the state they are in, as saves do not contain players.
+ * Replays report tick and phase timings, how much was allocated, and a hash of the final state. As long as the
+ * pathfinder is not threaded, replaying the same recording twice should end with the same hash,
+ * so a changed hash after a change to the logic means it changed behavior, not only speed.
+ * <p>
+ * A recording can also be replayed twice with different entity update setups, such as with the phase split off and
+ * with its read phase in parallel, comparing the state hash after every tick. This is what checks that the
+ * parallel read phase is deterministic.
+ */
+public class SessionBenchmark{
+    private static final int fileVersion = 2;
+    /**Types used for connection events, which are not registered packets.*/
+    private static final byte connectType = -2, disconnectType = -3, joinType = -4;
+    /**Most bytes a packet can take up.*/
+    private static final int maxPacketSize = Short.MAX_VALUE + 16;
+
+    private static final HashStream hashStream = new HashStream();
+    private static final DataOutputStream hashData = new DataOutputStream(hashStream);
+
+    private final TickScheduler scheduler;
+    private final Array<Record> records = new Array<>();
+    /**Data of every record, back to back. Packets are written straight into it, so recording does not allocate per packet.*/
+    private byte[] data = new byte[maxPacketSize * 2];
+    private ByteBuffer buffer = ByteBuffer.wrap(data);
+    private int dataSize;
+    private byte[] save = {};
+    private long seed, startTick, ticks;
+    private boolean recording;
+
+    public SessionBenchmark(TickScheduler scheduler){
+        this.scheduler = scheduler;
+    }
+
+    public boolean isRecording(){
+        return recording;
+    }
+
+    public int recorded(){
+        return records.size;
+    }
+
+    public long ticks(){
+        return ticks;
+    }
+
+    /**
+     * Saves the current game state and starts recording packets. Must be called between ticks. Connections that already
+     * exist are recorded as connecting again on the first tick.
+     */
+    public void startRecording(){
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SaveIO.write(out);
+        save = out.toByteArray();
+
+        seed = TimeUtils.millis();
+        MathUtils.random.setSeed(seed);
+
+        records.clear();
+        dataSize = 0;
+        startTick = scheduler.getTotalTicks();
+        ticks = 0;
+
+        for(NetConnection connection : Net.getConnections()){
+            recordJoin(connection);
+        }
+
+        recording = true;
+        Net.setServerRecorder(this::record);
+    }
+
+    public void stopRecording(){
+        Net.setServerRecorder(null);
+        recording = false;
+        ticks = scheduler.getTotalTicks() - startTick;
+    }
+
+    private void record(int connection, Object object){
+        Record record = new Record();
+        record.tick = scheduler.getTotalTicks() - startTick;
+        record.connection = connection;
+
+        if(object instanceof Connect){
+            record.type = connectType;
+            record.address = ((Connect) object).addressTCP;
+        }else if(object instanceof Disconnect){
+            record.type = disconnectType;
+        }else{
+            record.type = Registrator.getID(object.getClass());
+            if(record.type == -1) return;
+
+            ensureCapacity(dataSize + maxPacketSize);
+            buffer.limit(data.length);
+            buffer.position(dataSize);
+            ((Packet) object).write(buffer);
+            record.offset = dataSize;
+            record.length = buffer.position() - dataSize;
+            dataSize = buffer.position();
+
+            //writing moves the buffer the packet is about to be read from
+            if(object instanceof InvokePacket){
+                ((InvokePacket) object).writeBuffer.position(0);
+            }
+        }
+
+        records.add(record);
+    }
+
+    /**
+     * Records a connection that was made before recording began: its connection, its connect packet if it sent one, and,
+     * if it has finished loading the world, the state its player is in. Replays use these to make the player again.
+     */
+    private void recordJoin(NetConnection connection){
+        Connect connect = new Connect();
+        connect.id = connection.id;
+        connect.addressTCP = connection.address;
+        record(connection.id, connect);
+
+        Player player = netServer.getPlayer(connection.id);
+        if(player == null) return;
+
+        ConnectPacket packet = new ConnectPacket();
+        packet.name = player.name;
+        packet.uuid = player.uuid;
+        packet.usid = player.usid;
+        packet.mobile = player.isMobile;
+        packet.color = Color.rgba8888(player.color);
+        record(connection.id, packet);
+
+        if(!connection.hasConnected) return;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream stream = new DataOutputStream(bytes)){
+            stream.writeByte(player.getTeam().ordinal());
+            stream.writeBoolean(player.isDead());
+            stream.writeFloat(player.x);
+            stream.writeFloat(player.y);
+            stream.writeFloat(player.rotation);
+            stream.writeFloat(player.health);
+            stream.writeByte(player.mech.id);
+            player.inventory.writeSave(stream);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+
+        Record record = new Record();
+        record.connection = connection.id;
+        record.type = joinType;
+        record.offset = dataSize;
+        record.length = bytes.size();
+        ensureCapacity(dataSize + bytes.size());
+        System.arraycopy(bytes.toByteArray(), 0, data, dataSize, bytes.size());
+        dataSize += bytes.size();
+        records.add(record);
+    }
+
+    private void ensureCapacity(int size){
+        if(size > data.length){
+            data = Arrays.copyOf(data, Math.max(size, data.length * 2));
+            buffer = ByteBuffer.wrap(data);
+        }
+    }
+
+    public void save(FileHandle file) throws IOException{
+        try(DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(file.write(false)))){
+            stream.writeInt(fileVersion);
+            stream.writeLong(seed);
+            stream.writeLong(ticks);
+            stream.writeInt(save.length);
+            stream.write(save);
+
+            stream.writeInt(records.size);
+            for(Record record : records){
+                stream.writeLong(record.tick);
+                stream.writeInt(record.connection);
+                stream.writeByte(record.type);
+
+                if(record.type == connectType){
+                    stream.writeUTF(record.address == null ? "" : record.address);
+                }else if(record.type != disconnectType){
+                    stream.writeShort(record.length);
+                    stream.write(data, record.offset, record.length);
+                }
+            }
+        }
+    }
+
+    public void load(FileHandle file) throws IOException{
+        try(DataInputStream stream = new DataInputStream(new BufferedInputStream(file.read()))){
+            int version = stream.readInt();
+            if(version != fileVersion){
+                throw new IOException("Unsupported recording version: " + version);
+            }
+
+            seed = stream.readLong();
+            ticks = stream.readLong();
+            save = new byte[stream.readInt()];
+            stream.readFully(save);
+
+            int size = stream.readInt();
+            records.clear();
+            records.ensureCapacity(size);
+            dataSize = 0;
+
+            for(int i = 0; i < size; i++){
+                Record record = new Record();
+                record.tick = stream.readLong();
+                record.connection = stream.readInt();
+                record.type = stream.readByte();
+
+                if(record.type == connectType){
+                    record.address = stream.readUTF();
+                }else if(record.type != disconnectType){
+                    record.offset = dataSize;
+                    record.length = stream.readUnsignedShort();
+                    ensureCapacity(dataSize + record.length);
+                    stream.readFully(data, dataSize, record.length);
+                    dataSize += record.length;
+                }
+
+                records.add(record);
+            }
+        }
+    }
+
+    /**
+     * Loads the recorded state and runs every recorded tick back to back, handing packets to the server on the tick
+     * they were received. The network is replaced for the duration, so this can only be run while not hosting.
+     * Tick metrics are reset before the replay starts.
+     */
+    public void replay(){
+        ServerProvider previous = Net.getServerProvider();
+        ReplayServer server = new ReplayServer(records, data);
+        LongArray times = new LongArray((int) ticks);
+
+        Net.setServerProvider(server);
+
+        try{
+            begin();
+
+            long allocated = allocatedBytes();
+            long start = TimeUtils.nanoTime();
+
+            for(long tick = 0; tick < ticks; tick++){
+                long tickStart = TimeUtils.nanoTime();
+                tick(server, tick);
+                times.add(TimeUtils.timeSinceNanos(tickStart));
+
+                logic.metrics.tick(false);
+            }
+
+            long total = TimeUtils.timeSinceNanos(start);
+            allocated = allocated == -1 ? -1 : allocatedBytes() - allocated;
+
+            report(times, total, allocated, server.getSent());
+        }catch(IOException e){
+            Log.err("Failed to start replay: {0}", e.getMessage());
+        }finally{
+            end(previous);
+        }
+    }
+
+    /**
+     * Replays the recording once after running each setup, hashing the state after every tick, and reports the first
+     * tick on which the two replays differ. Both must be run unthreaded, with the pathfinder unthreaded as well.
+     * @return whether every tick ended with the same state.
+     */
+    public boolean compare(Runnable first, Runnable second){
+        first.run();
+        LongArray expected = hashTicks();
+        second.run();
+        LongArray actual = hashTicks();
+
+        if(expected == null || actual == null) return false;
+
+        for(int i = 0; i < Math.min(expected.size, actual.size); i++){
+            if(expected.get(i) != actual.get(i)){
+                Log.info("&lyReplays diverged on tick &lc{0}&ly of &lc{1}&ly: &lc{2}&ly != &lc{3}", i, ticks,
+                    Long.toHexString(expected.get(i)), Long.toHexString(actual.get(i)));
+                return false;
+            }
+        }
+
+        Log.info("&lyReplays matched on all &lc{0}&ly ticks; final state hash: &lc{1}", expected.size,
+            expected.size == 0 ? "none" : Long.toHexString(expected.peek()));
+        return true;
+    }
+
+    /**Replays the recording, returning the hash of the state after each tick, or null if it could not be started.*/
+    private LongArray hashTicks(){
+        ServerProvider previous = Net.getServerProvider();
+        ReplayServer server = new ReplayServer(records, data);
+        LongArray hashes = new LongArray((int) ticks);
+
+        Net.setServerProvider(server);
+
+        try{
+            begin();
+
+            for(long tick = 0; tick < ticks; tick++){
+                tick(server, tick);
+                hashes.add(hashState());
+            }
+            return hashes;
+        }catch(IOException e){
+            Log.err("Failed to start replay: {0}", e.getMessage());
+            return null;
+        }finally{
+            end(previous);
+        }
+    }
+
+    /**Loads the recorded state and starts hosting on the replay server, which must already be set.*/
+    private void begin() throws IOException{
+        SaveIO.load(new ByteArrayInputStream(save));
+        state.set(State.playing);
+        Net.host(0);
+
+        MathUtils.random.setSeed(seed);
+        logic.metrics.reset();
+    }
+
+    private void tick(ReplayServer server, long tick){
+        server.setTick(tick);
+        logic.update();
+        if(!threads.isEnabled()){
+            netServer.update();
+        }
+    }
+
+    private void end(ServerProvider previous){
+        Net.closeServer();
+        state.set(State.menu);
+        netServer.reset();
+        Net.setServerProvider(previous);
+    }
+
+    private void report(LongArray times, long total, long allocated, long sent){
+        if(times.size == 0){
+            Log.info("&lyNo ticks replayed.");
+            return;
+        }
+
+        long max = 0;
+        for(int i = 0; i < times.size; i++){
+            max = Math.max(max, times.get(i));
+        }
+
+        times.sort();
+
+        Log.info("&lyReplayed &lc{0}&ly ticks and &lc{1}&ly packets in &lc{2}&ly ms ({3} ticks/s).",
+            times.size, records.size, total / 1000000f, (int) (times.size / (total / 1000000000.0)));
+        Log.info("&ly  tick: avg &lc{0}&ly ms / p50 &lc{1}&ly ms / p99 &lc{2}&ly ms / max &lc{3}&ly ms",
+            Strings.toFixed(total / (float) times.size / 1000000f, 3), Strings.toFixed(times.get(times.size / 2) / 1000000f, 3),
+            Strings.toFixed(times.get((int) (times.size * 0.99f)) / 1000000f, 3), Strings.toFixed(max / 1000000f, 3));
+
+        TickMetrics metrics = logic.metrics;
+        for(Phase phase : Phase.all){
+            Log.info("&ly  {0}: avg &lc{1}&ly ms / p99 &lc{2}&ly ms / max &lc{3}&ly ms", phase.name(),
+                Strings.toFixed(metrics.getAverageMillis(phase), 3), Strings.toFixed(metrics.getPercentileMillis(phase, 0.99f), 3),
+                Strings.toFixed(metrics.getMaxMillis(phase), 3));
+        }
+
+        if(allocated >= 0){
+            Log.info("&ly  allocated: &lc{0}&ly KB/tick, &lc{1}&ly MB/s of replay",
+                allocated / 1024f / times.size, allocated / 1024f / 1024f / (total / 1000000000f));
+        }else{
+            Log.info("&ly  allocated: &lcunavailable on this JVM");
+        }
+
+        Log.info("&ly  sent: &lc{0}&ly objects", sent);
+        Log.info("&ly  state hash: &lc{0}", Long.toHexString(hashState()));
+    }
+
+    /**
+     * Hashes the state that matters for determinism: the wave, every block with everything its entity saves, including its
+     * items, liquids and power, and every unit, player, bullet, fire and puddle.
+     */
+    public static long hashState(){
+        hashStream.hash = 0xcbf29ce484222325L;
+
+        try{
+            hashData.writeInt(state.wave);
+            hashData.writeFloat(state.wavetime);
+
+            for(int x = 0; x < world.width(); x++){
+                for(int y = 0; y < world.height(); y++){
+                    Tile tile = world.rawTile(x, y);
+                    hashData.writeByte(tile.getBlockID());
+                    hashData.writeByte(tile.getTeamID());
+                    hashData.writeByte(tile.getRotation());
+
+                    TileEntity entity = tile.entity;
+                    if(entity != null){
+                        hashData.writeFloat(entity.health);
+                        if(entity.items != null) entity.items.write(hashData);
+                        if(entity.power != null) entity.power.write(hashData);
+                        if(entity.liquids != null) entity.liquids.write(hashData);
+                        if(entity.cons != null) entity.cons.write(hashData);
+                        entity.write(hashData);
+                    }
+                }
+            }
+
+            for(EntityGroup<BaseUnit> group : unitGroups){
+                for(int i = 0; i < group.size(); i++){
+                    hash(group.all().get(i));
+                }
+            }
+
+            for(int i = 0; i < playerGroup.size(); i++){
+                Player player = playerGroup.all().get(i);
+                hash(player);
+                hashData.writeByte(player.mech.id);
+            }
+
+            hashData.writeInt(bulletGroup.size());
+            for(int i = 0; i < bulletGroup.size(); i++){
+                Bullet bullet = bulletGroup.all().get(i);
+                hashData.writeFloat(bullet.x);
+                hashData.writeFloat(bullet.y);
+            }
+
+            hash(fireGroup);
+            hash(puddleGroup);
+        }catch(IOException e){
+            //the hash stream never throws
+            throw new RuntimeException(e);
+        }
+
+        return hashStream.hash;
+    }
+
+    private static void hash(Unit unit) throws IOException{
+        hashData.writeFloat(unit.x);
+        hashData.writeFloat(unit.y);
+        hashData.writeFloat(unit.getVelocity().x);
+        hashData.writeFloat(unit.getVelocity().y);
+        hashData.writeFloat(unit.rotation);
+        hashData.writeFloat(unit.health);
+        //team, status effects and items
+        unit.writeSave(hashData, false);
+    }
+
+    private static void hash(EntityGroup<? extends SaveTrait> group) throws IOException{
+        hashData.writeInt(group.size());
+        for(int i = 0; i < group.size(); i++){
+            group.all().get(i).writeSave(hashData);
+        }
+    }
+
+    /**Returns how many bytes this thread has allocated, or -1 if the JVM cannot tell.*/
+    static long allocatedBytes(){
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean){
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**Stream that only hashes what is written to it, with FNV-1a.*/
+    static class HashStream extends OutputStream{
+        long hash;
+
+        @Override
+        public void write(int b){
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+    }
+
+    /**One packet or connection event, and the tick it was received on.*/
+    static class Record{
+        long tick;
+        int connection;
+        byte type;
+        String address;
+        /**Where the data of this record is in the data of the recording.*/
+        int offset, length;
+
+        boolean isConnect(){
+            return type == connectType;
+        }
+
+        boolean isJoin(){
+            return type == joinType;
+        }
+
+        /**
+         * Puts the player of a connection that was there when recording began in the state it was in, and has it finish
+         * connecting. The connection has already sent its connect packet by then.
+         */
+        void join(byte[] data){
+            Player player = netServer.getPlayer(connection);
+            if(player == null) return;
+
+            try{
+                DataInputStream stream = new DataInputStream(new ByteArrayInputStream(data, offset, length));
+                player.setTeam(Team.all[stream.readByte()]);
+                player.dead = stream.readBoolean();
+                player.setNet(stream.readFloat(), stream.readFloat());
+                player.rotation = stream.readFloat();
+                player.health = stream.readFloat();
+                player.mech = content.getByID(ContentType.mech, stream.readByte());
+                player.inventory.readSave(stream);
+            }catch(IOException e){
+                Log.err("Failed to read the state of player '{0}': {1}", player.name, e.getMessage());
+            }
+
+            NetServer.connectConfirm(player);
+        }
+
+        /**Creates a new packet from this record. Packets are freed once handled, so they are never reused.*/
+        Object create(byte[] data){
+            if(type == connectType){
+                Connect connect = new Connect();
+                connect.id = connection;
+                connect.addressTCP = address;
+                return connect;
+            }else if(type == disconnectType){
+                Disconnect disconnect = new Disconnect();
+                disconnect.id = connection;
+                return disconnect;
+            }else{
+                Packet packet = (Packet) Registrator.getByID(type).constructor.get();
+                packet.read(ByteBuffer.wrap(data, offset, length));
+                return packet;
+            }
+        }
+    }
+}
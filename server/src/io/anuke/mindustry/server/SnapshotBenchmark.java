@@ -0,0 +1,174 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.core.NetServer;
+import io.anuke.mindustry.entities.Player;
+import io.anuke.mindustry.io.TypeIO;
+import io.anuke.mindustry.net.Net;
+import io.anuke.mindustry.net.Net.SendMode;
+import io.anuke.mindustry.net.NetConnection;
+import io.anuke.mindustry.net.NetworkIO;
+import io.anuke.mindustry.net.ReusableByteOutStream;
+import io.anuke.mindustry.net.SnapshotAssembler;
+import io.anuke.ucore.util.Log;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static io.anuke.mindustry.Vars.defaultTeam;
+
+/**
+ * Measures the garbage made by sending snapshots, from the written snapshot on the server to the decompressed snapshot
+ * on the client. Snapshots are sent the way they used to be, with a new array for every step, and the way they are
+ * sent now, through reused buffers. A full snapshot of the current world is sent for every player, as often as
+ * the server sends them. Chunks are written and read through {@link TypeIO} like the generated calls do, without a network.
+ */
+public class SnapshotBenchmark extends Benchmark{
+    /**Snapshots sent to each player per second; one every four ticks.*/
+    private static final int snapshotsPerSecond = 15;
+    private static final int chunkSize = NetServer.maxSnapshotSize;
+
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+    private final ByteBuffer packet = ByteBuffer.allocate(4096);
+    private final ReusableByteOutStream stream = new ReusableByteOutStream();
+    private final SnapshotAssembler assembler = new SnapshotAssembler(chunkSize);
+    private ByteBuffer compressed;
+    private byte[] snapshot;
+    private int snapshotID, chunks;
+    /**Sum of bytes of the decompressed snapshots, so that the work can not be skipped.*/
+    private long checksum;
+
+    public SnapshotBenchmark(){
+        super("snapshotbench", Requires.game, "Benchmark the garbage made by sending snapshots of the current world.");
+        param("players", 60, 1);
+        param("seconds", 10, 1);
+    }
+
+    /**Sends snapshots to the given amount of players, for the given amount of simulated seconds.*/
+    @Override
+    public void run(int[] args){
+        int players = args[0], seconds = args[1];
+        try{
+            writeSnapshot();
+        }catch(IOException e){
+            Log.err("Failed to write snapshot: {0}", e.getMessage());
+            return;
+        }
+
+        int sends = players * snapshotsPerSecond * seconds;
+
+        //garbage is measured on the second run of each, once the code that makes it has been compiled
+        run(Math.max(sends / 4, 1), false);
+        run(Math.max(sends / 4, 1), true);
+
+        long[] copied = run(sends, false);
+        long[] pooled = run(sends, true);
+
+        Log.info("&ly{0} players, {1} snapshots: {2} bytes, {3} compressed in {4} chunks", players, sends, snapshot.length,
+            compressed.limit(), chunks);
+        report("copied", copied, sends, seconds);
+        report("pooled", pooled, sends, seconds);
+    }
+
+    private void report(String name, long[] result, int sends, int seconds){
+        if(result[0] < 0){
+            Log.info("&lc{0}: &ly{1} us/snapshot, allocations unavailable on this JVM", name, result[1] / 1000f / sends);
+        }else{
+            Log.info("&lc{0}: &ly{1} us/snapshot, {2} bytes/snapshot, {3} KB of garbage per second", name,
+                result[1] / 1000f / sends, result[0] / sends, result[0] / 1024f / seconds);
+        }
+    }
+
+    /**Returns the bytes allocated and the time taken to send a snapshot the given amount of times.*/
+    private long[] run(int sends, boolean pooled){
+        long allocated = SessionBenchmark.allocatedBytes();
+        long start = TimeUtils.nanoTime();
+
+        for(int i = 0; i < sends; i++){
+            byte[] result = pooled ? sendPooled() : sendCopied();
+            checksum += result[snapshot.length - 1];
+        }
+
+        long time = TimeUtils.timeSinceNanos(start);
+        return new long[]{allocated == -1 ? -1 : SessionBenchmark.allocatedBytes() - allocated, time};
+    }
+
+    /**Sends a snapshot the way it used to be sent, returning what the client decompressed.*/
+    private byte[] sendCopied(){
+        byte[] bytes = Arrays.copyOf(stream.getBytes(), stream.size());
+        byte[] compressed = compressor.compress(bytes);
+        byte[] assembled = compressed.length > chunkSize ? new byte[compressed.length] : null;
+
+        for(int offset = 0; offset < compressed.length; offset += chunkSize){
+            byte[] chunk = Arrays.copyOfRange(compressed, offset, Math.min(offset + chunkSize, compressed.length));
+
+            packet.clear();
+            TypeIO.writeBytes(packet, chunk);
+            byte[] read = TypeIO.readBytes(receive());
+
+            if(assembled == null) assembled = read;
+            else System.arraycopy(read, 0, assembled, offset, read.length);
+        }
+
+        byte[] result = new byte[bytes.length];
+        decompressor.decompress(assembled, result);
+        return result;
+    }
+
+    /**Sends a snapshot the way {@link NetServer} and {@link io.anuke.mindustry.core.NetClient} do, returning what the client decompressed.*/
+    private byte[] sendPooled(){
+        int length = stream.size();
+        compressed = Net.compressSnapshot(stream.getBytes(), length, compressed);
+        int total = compressed.limit();
+        int id = snapshotID++;
+        byte[] result = null;
+
+        for(int offset = 0, chunk = 0; offset < total; offset += chunkSize, chunk++){
+            compressed.limit(Math.min(offset + chunkSize, total));
+            compressed.position(offset);
+
+            packet.clear();
+            TypeIO.writeBuffer(packet, compressed);
+            result = assembler.add(TypeIO.readBuffer(receive()), id, chunk, total, length);
+        }
+
+        compressed.limit(total);
+        return result;
+    }
+
+    /**Copies the packet out like the packet reader does, and returns it ready to be read.*/
+    private ByteBuffer receive(){
+        byte[] bytes = new byte[packet.position()];
+        packet.flip();
+        packet.get(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**Writes a full snapshot of the world, like the one sent to joining players.*/
+    private void writeSnapshot() throws IOException{
+        Player player = new Player();
+        player.setTeam(defaultTeam);
+        player.con = new NetConnection(-1, "benchmark"){
+            @Override
+            public void send(Object object, SendMode mode){
+            }
+
+            @Override
+            public void close(){
+            }
+        };
+
+        stream.reset();
+        NetworkIO.writeWorldSnapshot(player, new DataOutputStream(stream));
+        snapshot = Arrays.copyOf(stream.getBytes(), stream.size());
+
+        compressed = Net.compressSnapshot(stream.getBytes(), stream.size(), compressed);
+        chunks = (compressed.limit() + chunkSize - 1) / chunkSize;
+    }
+}
@@ -0,0 +1,72 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.FloatArray;
+import io.anuke.mindustry.entities.Targeting;
+import io.anuke.mindustry.entities.Units;
+import io.anuke.mindustry.entities.traits.TargetTrait;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.mindustry.world.blocks.defense.turrets.Turret;
+import io.anuke.ucore.util.Log;
+import io.anuke.ucore.util.Mathf;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Compares finding turret targets with one physics query per turret, which is how turrets used to find targets,
+ * against {@link Targeting}, where all turrets share a unit grid that is built once per tick.
+ * Turrets of the default team are used; if there are not enough, random positions are added. Units are whatever is
+ * in the world, so this should be run during a wave. Nothing is changed.
+ */
+public class TargetingBenchmark extends Benchmark{
+    private static final float range = 110f;
+
+    private final Targeting targeting = new Targeting();
+    private long found;
+
+    public TargetingBenchmark(){
+        super("targetbench", Requires.game, "Benchmark turret targeting against the units in the world. Run during a wave.");
+        param("turrets", 150, 1);
+        param("ticks", 1000, 1);
+    }
+
+    /**Runs both methods, querying from the given amount of turrets once per tick, for the given amount of ticks.*/
+    @Override
+    public void run(int[] args){
+        int turrets = args[0], ticks = args[1];
+        FloatArray positions = new FloatArray();
+
+        for(int x = 0; x < world.width() && positions.size < turrets * 2; x++){
+            for(int y = 0; y < world.height() && positions.size < turrets * 2; y++){
+                Tile tile = world.rawTile(x, y);
+                if(tile != null && tile.entity != null && tile.block() instanceof Turret && tile.getTeam() == defaultTeam){
+                    positions.add(tile.drawx(), tile.drawy());
+                }
+            }
+        }
+
+        int placed = positions.size / 2;
+        while(positions.size < turrets * 2){
+            positions.add(Mathf.random(world.width() * tilesize), Mathf.random(world.height() * tilesize));
+        }
+
+        long physics = time(() -> run(positions, ticks, false));
+        long grid = time(() -> run(positions, ticks, true));
+
+        Log.info("&ly{0} turrets ({1} placed), {2} units, {3} ticks", turrets, placed, targeting.grid().size(), ticks);
+        Log.info("&lcphysics query: &ly{0} us/tick", physics / 1000f / ticks);
+        Log.info("&lcshared grid:   &ly{0} us/tick", grid / 1000f / ticks);
+    }
+
+    private void run(FloatArray positions, int ticks, boolean shared){
+        for(int t = 0; t < ticks; t++){
+            targeting.invalidate();
+
+            for(int i = 0; i < positions.size; i += 2){
+                float x = positions.get(i), y = positions.get(i + 1);
+                TargetTrait target = shared ? targeting.getClosestTarget(defaultTeam, x, y, range, true) :
+                    Units.getClosestTarget(defaultTeam, x, y, range, e -> !e.isDead());
+                if(target != null) found++;
+            }
+        }
+    }
+}
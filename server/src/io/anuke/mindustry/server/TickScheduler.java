@@ -0,0 +1,91 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.core.TickMetrics;
+
+/**
+ * Fixed-step tick scheduler for the headless server.
+ * Every tick advances the simulation by exactly one step. When ticks fall behind wall time,
+ * up to {@link #maxCatchUp} extra ticks are run back to back; anything beyond {@link #maxBacklog} is dropped.
+ */
+public class TickScheduler{
+    /**Target ticks per second.*/
+    public static final int tickRate = 60;
+    /**Length of one tick, in nanoseconds.*/
+    public static final long stepNanos = 1000000000L / tickRate;
+    /**Maximum amount of ticks run in a single update.*/
+    private static final int maxCatchUp = 4;
+    /**Maximum amount of ticks that can be owed before the rest are dropped.*/
+    private static final int maxBacklog = 30;
+
+    private final TickMetrics metrics;
+    private long lastTime = -1, accumulator;
+    private long lastSecond, ticksThisSecond;
+    /**Every tick run so far. Unlike the tick metrics, this is never reset.*/
+    private long totalTicks;
+    private int tps = tickRate;
+
+    public TickScheduler(TickMetrics metrics){
+        this.metrics = metrics;
+    }
+
+    /**Sleeps until at least one tick is due, then runs every due tick, up to the catch-up limit.*/
+    public void update(Runnable tick){
+        long now = TimeUtils.nanoTime();
+        if(lastTime < 0){
+            lastTime = now;
+            lastSecond = now;
+            accumulator = stepNanos;
+        }
+
+        accumulator += now - lastTime;
+        lastTime = now;
+
+        if(accumulator < stepNanos){
+            try{
+                Thread.sleep((stepNanos - accumulator) / 1000000, (int) ((stepNanos - accumulator) % 1000000));
+            }catch(InterruptedException e){
+                return;
+            }
+
+            now = TimeUtils.nanoTime();
+            accumulator += now - lastTime;
+            lastTime = now;
+        }
+
+        if(accumulator > maxBacklog * stepNanos){
+            long dropped = accumulator / stepNanos - maxBacklog;
+            metrics.skip(dropped);
+            accumulator -= dropped * stepNanos;
+        }
+
+        for(int i = 0; i < maxCatchUp && accumulator >= stepNanos; i++){
+            tick.run();
+            accumulator -= stepNanos;
+            metrics.tick(i > 0);
+            ticksThisSecond++;
+            totalTicks++;
+        }
+
+        if(TimeUtils.timeSinceNanos(lastSecond) >= 1000000000L){
+            lastSecond = TimeUtils.nanoTime();
+            tps = (int) ticksThisSecond;
+            ticksThisSecond = 0;
+        }
+    }
+
+    /**Returns how many ticks were actually run over the last second.*/
+    public int getTPS(){
+        return tps;
+    }
+
+    /**Returns how many ticks have been run since the server started.*/
+    public long getTotalTicks(){
+        return totalTicks;
+    }
+
+    /**Returns how many ticks the scheduler is currently behind by.*/
+    public long getBacklog(){
+        return accumulator / stepNanos;
+    }
+}
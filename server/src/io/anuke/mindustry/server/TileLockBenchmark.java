@@ -0,0 +1,123 @@
+package io.anuke.mindustry.server;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import io.anuke.mindustry.content.Items;
+import io.anuke.mindustry.content.blocks.DistributionBlocks;
+import io.anuke.mindustry.world.Tile;
+import io.anuke.ucore.util.Log;
+
+import static io.anuke.mindustry.Vars.*;
+
+/**
+ * Compares two ways of letting a renderer read tiles while the logic thread updates them: both sides locking one shared
+ * monitor per tile, which is how tile updates and drawing used to be synchronized, and readers validating
+ * {@link Tile#version()} without locking. The calling thread plays the logic thread, running the real entity updates
+ * of a generated square of routers that keep passing items between each other, and a second thread keeps reading the
+ * same tiles.
+ */
+public class TileLockBenchmark extends Benchmark{
+    private final Object lock = new Object();
+    private final Array<Tile> tiles = new Array<>();
+    private volatile boolean reading;
+    private volatile long sum;
+
+    public TileLockBenchmark(){
+        super("lockbench", Requires.noGame, "Benchmark reading tiles from another thread while they update, with and without a shared lock.");
+        param("size", 50, 2);
+        param("passes", 200, 1);
+    }
+
+    /**Generates a square of routers with the given side, half of them holding an item, and updates it the given amount of times.*/
+    @Override
+    public void run(int[] args){
+        int size = args[0], passes = args[1];
+
+        BenchmarkWorld.load(size, size, () -> {
+            for(int x = 0; x < size; x++){
+                for(int y = 0; y < size; y++){
+                    tiles.add(BenchmarkWorld.place(x, y, DistributionBlocks.router, defaultTeam));
+                }
+            }
+        });
+
+        try{
+            for(int i = 0; i < tiles.size; i += 2){
+                Tile tile = tiles.get(i);
+                tile.block().handleItem(Items.copper, tile, tile);
+            }
+
+            run(Math.max(passes / 4, 1), true);
+            run(Math.max(passes / 4, 1), false);
+
+            long[] locked = run(passes, true);
+            long[] versioned = run(passes, false);
+            long updates = (long) tiles.size * passes;
+
+            Log.info("&ly{0} tiles, {1} passes", tiles.size, passes);
+            Log.info("&lclocked:    &ly{0} ns/tile update&lc, {1} reads/ms", locked[0] / (float) updates, locked[1] * 1000000 / Math.max(locked[0], 1));
+            Log.info("&lcversioned: &ly{0} ns/tile update&lc, {1} reads/ms", versioned[0] / (float) updates, versioned[1] * 1000000 / Math.max(versioned[0], 1));
+        }finally{
+            tiles.clear();
+            BenchmarkWorld.unload();
+        }
+    }
+
+    /**Returns the nanoseconds the updates took, and how many tiles the reader read meanwhile.*/
+    private long[] run(int passes, boolean locking){
+        long[] reads = {0};
+        reading = true;
+
+        Thread reader = new Thread(() -> {
+            while(reading){
+                for(int i = 0; i < tiles.size && reading; i++){
+                    Tile tile = tiles.get(i);
+
+                    if(locking){
+                        synchronized(lock){
+                            read(tile);
+                        }
+                    }else{
+                        int version = tile.version();
+                        int value = read(tile);
+                        if(!tile.changedSince(version)) sum += value;
+                    }
+                    reads[0]++;
+                }
+            }
+        }, "Tile Lock Benchmark");
+        reader.setDaemon(true);
+        reader.start();
+
+        long start = TimeUtils.nanoTime();
+
+        for(int pass = 0; pass < passes; pass++){
+            for(int i = 0; i < tiles.size; i++){
+                Tile tile = tiles.get(i);
+
+                if(locking){
+                    synchronized(lock){
+                        tile.entity.update();
+                    }
+                }else{
+                    tile.entity.update();
+                }
+            }
+        }
+
+        long time = TimeUtils.timeSinceNanos(start);
+
+        reading = false;
+        try{
+            reader.join();
+        }catch(InterruptedException ignored){
+        }
+
+        return new long[]{time, reads[0]};
+    }
+
+    /**Stands in for drawing a tile.*/
+    private int read(Tile tile){
+        return tile.block().size + tile.getTeamID() + (tile.entity == null ? 0 : (int) tile.entity.health + tile.entity.items.total());
+    }
+}